@@ -2,23 +2,41 @@ package pt.up.fc.dcc.asura.builder;
 
 import pt.up.fc.dcc.asura.builder.base.GameManager;
 import pt.up.fc.dcc.asura.builder.base.GameState;
-import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
-import pt.up.fc.dcc.asura.builder.languages.JavaLanguage;
-import pt.up.fc.dcc.asura.builder.languages.JavascriptLanguage;
+import pt.up.fc.dcc.asura.builder.base.movie.StreamingGameMovieBuilder;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieIndex;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.GzipCodec;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodec;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodecs;
+import pt.up.fc.dcc.asura.builder.languages.CompilationException;
 import pt.up.fc.dcc.asura.builder.languages.Language;
+import pt.up.fc.dcc.asura.builder.server.AssetCache;
+import pt.up.fc.dcc.asura.builder.server.BytesBody;
+import pt.up.fc.dcc.asura.builder.server.DeferredResponse;
+import pt.up.fc.dcc.asura.builder.server.EventStream;
+import pt.up.fc.dcc.asura.builder.server.FileBody;
+import pt.up.fc.dcc.asura.builder.server.HttpRequest;
+import pt.up.fc.dcc.asura.builder.server.HttpResponse;
+import pt.up.fc.dcc.asura.builder.server.HttpServer;
+import pt.up.fc.dcc.asura.builder.server.LiveContent;
+import pt.up.fc.dcc.asura.builder.server.StreamBody;
 import pt.up.fc.dcc.asura.builder.utils.FileUtils;
 
 import java.io.*;
-import java.net.InetSocketAddress;
-import java.nio.channels.Channels;
-import java.nio.channels.ServerSocketChannel;
-import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -29,20 +47,34 @@ import java.util.logging.Logger;
  * @author José Carlos Paiva <josepaiva94@gmail.com>
  */
 public class GameServer {
+    private static final Logger LOGGER = Logger.getLogger(GameServer.class.getSimpleName());
+
     private static final int DEFAULT_PORT = 9999;
 
     private static final String[] IMAGE_EXTENSIONS = { "png", "svg", "jpg", "jpeg", "gif" };
 
-    private static final DateFormat DATE_FORMATTER = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss zzzz");
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    private static final long ASSET_CACHE_SIZE = 32 * 1024 * 1024;
 
     private final static String IMAGES_DIR = "images";
 
     private final static String INDEX_FILE = "index.html";
+
+    private final static String MOVIES_PATH = "/movies/";
+
+    private final static String MOVIE_INDEX_FILE = "index.json";
+
+    private final static String MOVIE_EVENTS = "events";
+
+    // last frames of a match in progress kept for spectators
+    private final static int LIVE_FRAMES = 64;
     private final static Map<String, String> MIMES = new HashMap<>();
 
     static {
         MIMES.put("html", "text/html");
         MIMES.put("js", "application/javascript");
+        MIMES.put("json", "application/json");
         MIMES.put("png", "image/png");
         MIMES.put("svg", "image/svg+xml");
         MIMES.put("jpg", "image/jpeg");
@@ -50,58 +82,374 @@ public class GameServer {
         MIMES.put("gif", "image/gif");
     }
 
+    // lengths of decoded variants, by path of the variant: last modified time and length
+    private final Map<Path, long[]> decodedLengths = new ConcurrentHashMap<>();
+
+    // reads assets and decodes compressed variants (to find their length), off the thread of the server
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AssetCache assets = new AssetCache(ASSET_CACHE_SIZE);
+
+    // movies of matches, kept in memory as they are produced, and their indexes once complete
+    private final Map<String, LiveContent> movies = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> movieIndexes = new ConcurrentHashMap<>();
+
+    // frames of matches for spectators, as Server-Sent Events
+    private final Map<String, EventStream> movieEvents = new ConcurrentHashMap<>();
+
+    private final HttpServer server;
+
     private GameServer(int port) throws IOException {
+        server = new HttpServer(port, this::handle);
+    }
 
-        ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+    /**
+     * Serve requests until the server is closed
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    private void run() throws IOException {
+        try {
+            server.run();
+        } finally {
+            server.close();
+            loader.shutdownNow();
+        }
+    }
 
-        serverSocketChannel.socket().bind(new InetSocketAddress(port));
+    /**
+     * Add the movie of a match, served at /movies/{matchId} as it is written
+     *
+     * @param matchId ID of the match
+     * @return {@link LiveContent} content to write the movie to
+     */
+    private LiveContent addMovie(String matchId) {
+        LiveContent movie = new LiveContent();
+        movies.put(matchId, movie);
+        return movie;
+    }
 
-        while(true){
-            try (SocketChannel socketChannel =
-                    serverSocketChannel.accept();
-                 BufferedReader input = new BufferedReader(new InputStreamReader(Channels.newInputStream(socketChannel)));
-                 OutputStream output = Channels.newOutputStream(socketChannel)) {
+    /**
+     * Add the stream of frames of a match for spectators, served at
+     * /movies/{matchId}/events as Server-Sent Events (a header event and
+     * then a frame event, with the index of the frame as id, per frame)
+     *
+     * @param matchId      ID of the match
+     * @param movieBuilder {@link StreamingGameMovieBuilder} builder of the movie of the match
+     * @return {@link EventStream} stream of frames, to close at the end of the match
+     */
+    private EventStream addMovieEvents(String matchId, StreamingGameMovieBuilder movieBuilder) {
 
-                String requestTarget = getRequest(input);
-                LinkedHashMap<String, String> fields = new LinkedHashMap<>();
+        EventStream events = new EventStream(LIVE_FRAMES);
+        movieBuilder.addFrameListener((header, frame) -> {
+            if (!events.hasInitialEvent())
+                events.setInitialEvent("header", Json.get().objectToString(header));
 
-                fields.put("Date", DATE_FORMATTER.format(new Date()));
-                fields.put("Server", "Asura Builder Previewer");
-                fields.put("Vary", "accept-language,accept-charset");
+            events.publish("frame", Json.get().objectToString(frame));
+        });
 
-                if (!"/".equals(File.separator))
-                    requestTarget = requestTarget.replace("/", File.separator);
+        movieEvents.put(matchId, events);
 
-                String extension = getExtension(requestTarget);
+        return events;
+    }
 
-                if (Arrays.asList(IMAGE_EXTENSIONS).contains(extension))
-                    requestTarget = File.separator + IMAGES_DIR + File.separator + requestTarget;
+    /**
+     * Set the index of the complete movie of a match, served at
+     * /movies/{matchId}/index.json for players to fetch frames with Range requests
+     *
+     * @param matchId ID of the match
+     * @param index   {@link GameMovieIndex} index of the movie
+     */
+    private void setMovieIndex(String matchId, GameMovieIndex index) {
+        movieIndexes.put(matchId, index.toJson().toString().getBytes(StandardCharsets.UTF_8));
+    }
 
-                Path source = Paths.get(FileUtils.getPathResourcesFolder().toString(),
-                        requestTarget).toAbsolutePath();
+    /**
+     * Answer a request for a resource of the previewer
+     *
+     * @param request {@link HttpRequest} request to answer
+     * @return {@link HttpResponse} response to the request
+     * @throws IOException - If an I/O error occurs
+     */
+    private HttpResponse handle(HttpRequest request) throws IOException {
+        System.out.println(request);
 
-                if (Files.isDirectory(source))
-                    source = source.resolve(INDEX_FILE);
+        String requestTarget = request.getPath();
 
-                if (Files.isReadable(source)) {
-                    fields.put("Content-Length", Files.getAttribute(source, "size").toString());
-                    fields.put("Connection", "close");
-                    fields.put("Content-Type", MIMES.get(extension));
+        if (!"/".equals(File.separator))
+            requestTarget = requestTarget.replace("/", File.separator);
 
-                    sendResponseHeader(output, 200, "Ok", fields);
-                    Files.copy(source, output);
-                } else {
-                    fields.put("Connection", "close");
-                    fields.put("Content-Type", "text/html; charset=utf-8");
-                    sendResponseHeader(output, 404, "Not Found", fields);
-                    output.write(("<h2>Not found:" + requestTarget + "</h2>\n").getBytes());
-                }
-            } catch (Exception e) {
-                Logger.getLogger("").severe("Server error: " + e.getMessage());
+        String extension = getExtension(requestTarget);
+
+        if (Arrays.asList(IMAGE_EXTENSIONS).contains(extension))
+            requestTarget = File.separator + IMAGES_DIR + File.separator + requestTarget;
+
+        Path root = FileUtils.getPathResourcesFolder().toAbsolutePath().normalize();
+        Path source = Paths.get(root.toString(), requestTarget).toAbsolutePath().normalize();
+
+        if (Files.isDirectory(source))
+            source = source.resolve(INDEX_FILE);
+
+        HttpResponse response;
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            response = new HttpResponse(405, "Method Not Allowed");
+            response.setField("Allow", "GET, HEAD");
+            response.setText("text/html", "<h2>Method not allowed:" + request.getMethod() + "</h2>\n");
+            return addFields(response);
+        }
+
+        if (request.getPath().startsWith(MOVIES_PATH))
+            return addFields(getMovieResponse(request, request.getPath().substring(MOVIES_PATH.length())));
+
+        StreamCodec codec = source.startsWith(root) ? getEncodedVariant(source) : null;
+        String range = request.getHeader("range");
+
+        if (codec != null) {
+            Path encoded = getEncodedPath(source, codec);
+
+            if (range == null && acceptsEncoding(request.getHeader("accept-encoding"), codec.getContentEncoding())) {
+                response = new HttpResponse(200, "Ok");
+                response.setField("Content-Encoding", codec.getContentEncoding());
+                response.setBody(new FileBody(encoded));
+                response.setField("Content-Type", MIMES.get(extension));
+                response.setField("Accept-Ranges", "bytes");
+            } else {
+                // the decoded length (and the start of a range) is only known after decoding
+                DeferredResponse deferred = new DeferredResponse();
+                loader.execute(() -> deferred.complete(addFields(getDecodedResponse(encoded, codec, range,
+                        MIMES.get(extension)))));
+                return deferred;
+            }
+        } else if (source.startsWith(root) && Files.isReadable(source)) {
+            // reading (and compressing) the asset blocks
+            Path file = source;
+            DeferredResponse deferred = new DeferredResponse();
+            loader.execute(() -> deferred.complete(addFields(getFileResponse(request, file,
+                    MIMES.get(extension)))));
+            return deferred;
+        } else {
+            response = new HttpResponse(404, "Not Found");
+            response.setText("text/html", "<h2>Not found:" + requestTarget + "</h2>\n");
+        }
+
+        return addFields(response);
+    }
+
+    /**
+     * Answer a request for the movie of a match (or its index) from memory.
+     * While the match is in progress, frames are sent chunked as they are
+     * produced; once complete, ranges of the movie can be requested.
+     *
+     * @param request {@link HttpRequest} request to answer
+     * @param target  rest of the path, after /movies/
+     * @return {@link HttpResponse} response to the request
+     */
+    private HttpResponse getMovieResponse(HttpRequest request, String target) {
+
+        String[] parts = target.split("/", 2);
+        LiveContent movie = movies.get(parts[0]);
+        byte[] index = movieIndexes.get(parts[0]);
+        EventStream events = movieEvents.get(parts[0]);
+
+        HttpResponse response;
+        if (parts.length > 1 && MOVIE_EVENTS.equals(parts[1]) && events != null)
+            return getEventsResponse(request, events);
+
+        if (movie == null || (parts.length > 1 && (!MOVIE_INDEX_FILE.equals(parts[1]) || index == null))) {
+            response = new HttpResponse(404, "Not Found");
+            response.setText("text/html", "<h2>Not found:" + request.getPath() + "</h2>\n");
+            return response;
+        }
+
+        if (parts.length > 1) {
+            response = new HttpResponse(200, "Ok");
+            response.setBody(new BytesBody(index));
+        } else if (movie.isComplete()) {
+            long length = movie.getLength();
+            long[] bounds = parseRange(request.getHeader("range"), length);
+
+            response = getRangeResponse(bounds, length);
+            if (bounds == null)
+                response.setBody(movie.newBody());
+            else if (bounds.length > 0)
+                response.setBody(movie.newBody(bounds[0], bounds[1] - bounds[0] + 1));
+
+            response.setField("Accept-Ranges", "bytes");
+        } else {
+            response = new HttpResponse(200, "Ok");
+            response.setBody(movie.newBody());
+        }
+
+        response.setField("Content-Type", MIMES.get("json"));
+        response.setField("Cache-Control", "no-cache");
+
+        return response;
+    }
+
+    /**
+     * Answer a request for the frames of a match as Server-Sent Events,
+     * resuming after the last event received, if reconnecting
+     *
+     * @param request {@link HttpRequest} request to answer
+     * @param events  {@link EventStream} stream of frames of the match
+     * @return {@link HttpResponse} response to the request
+     */
+    private HttpResponse getEventsResponse(HttpRequest request, EventStream events) {
+
+        long lastEventId = -1;
+        String lastEventIdField = request.getHeader("last-event-id");
+        if (lastEventIdField != null) {
+            try {
+                lastEventId = Long.parseLong(lastEventIdField.trim());
+            } catch (NumberFormatException e) {
+                lastEventId = -1;
             }
+        }
 
+        HttpResponse response = new HttpResponse(200, "Ok");
+        response.setField("Content-Type", EventStream.CONTENT_TYPE);
+        response.setField("Cache-Control", "no-cache");
+        response.setBody(events.subscribe(lastEventId));
 
+        return response;
+    }
+
+    /**
+     * Answer a request for a file, from the cache of assets unless it is too
+     * large. Reading blocks, hence this runs on the loader thread. Files are
+     * revalidated on every request (with their entity tag), as sprites may
+     * change while previewing.
+     *
+     * @param request     {@link HttpRequest} request to answer
+     * @param source      {@link Path} path of the file
+     * @param contentType type of the content
+     * @return {@link HttpResponse} response to the request
+     */
+    private HttpResponse getFileResponse(HttpRequest request, Path source, String contentType) {
+
+        HttpResponse response;
+        try {
+            AssetCache.Asset asset = assets.get(source);
+
+            if (asset != null) {
+                response = getAssetResponse(request, asset);
+            } else {
+                long length = Files.size(source);
+                long[] bounds = parseRange(request.getHeader("range"), length);
+
+                response = getRangeResponse(bounds, length);
+                if (bounds == null)
+                    response.setBody(new FileBody(source));
+                else if (bounds.length > 0)
+                    response.setBody(new FileBody(source, bounds[0], bounds[1] - bounds[0] + 1));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error reading " + source, e);
+
+            response = new HttpResponse(500, "Internal Server Error");
+            response.setText("text/plain", "Internal Server Error\n");
+            return response;
         }
+
+        response.setField("Content-Type", contentType);
+        response.setField("Accept-Ranges", "bytes");
+        response.setField("Cache-Control", "no-cache");
+
+        return response;
+    }
+
+    /**
+     * Answer a request for a cached asset, with the gzip variant if accepted
+     * and 304 (Not Modified) if the client has the current version
+     *
+     * @param request {@link HttpRequest} request to answer
+     * @param asset   {@link AssetCache.Asset} asset requested
+     * @return {@link HttpResponse} response to the request
+     */
+    private HttpResponse getAssetResponse(HttpRequest request, AssetCache.Asset asset) {
+
+        String range = request.getHeader("range");
+        String encoding = range == null && asset.getGzipped() != null &&
+                acceptsEncoding(request.getHeader("accept-encoding"), GzipCodec.NAME) ? GzipCodec.NAME : null;
+        String entityTag = asset.getEntityTag(encoding);
+
+        HttpResponse response;
+        if (isNotModified(request, entityTag, asset.getLastModified())) {
+            response = new HttpResponse(304, "Not Modified");
+        } else if (encoding != null) {
+            response = new HttpResponse(200, "Ok");
+            response.setField("Content-Encoding", encoding);
+            response.setBody(new BytesBody(asset.getGzipped()));
+        } else {
+            byte[] content = asset.getContent();
+            long[] bounds = parseRange(range, content.length);
+
+            response = getRangeResponse(bounds, content.length);
+            if (bounds == null)
+                response.setBody(new BytesBody(content));
+            else if (bounds.length > 0)
+                response.setBody(new BytesBody(content, (int) bounds[0], (int) (bounds[1] - bounds[0] + 1)));
+        }
+
+        response.setField("ETag", entityTag);
+        response.setField("Last-Modified", DATE_FORMATTER.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(asset.getLastModified()), ZoneOffset.UTC)));
+
+        return response;
+    }
+
+    /**
+     * Check the conditional header fields of a request: If-None-Match or,
+     * in its absence, If-Modified-Since
+     *
+     * @param request      {@link HttpRequest} request to check
+     * @param entityTag    entity tag of the current version
+     * @param lastModified time of the last modification of the current version
+     * @return {@code true} if the client has the current version, {@code false} otherwise
+     */
+    private boolean isNotModified(HttpRequest request, String entityTag, long lastModified) {
+
+        String ifNoneMatch = request.getHeader("if-none-match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/"))
+                    tag = tag.substring(2);
+
+                if ("*".equals(tag) || entityTag.equals(tag))
+                    return true;
+            }
+
+            return false;
+        }
+
+        String ifModifiedSince = request.getHeader("if-modified-since");
+        if (ifModifiedSince == null)
+            return false;
+
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, DATE_FORMATTER).toEpochSecond();
+            return lastModified / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Add the header fields common to all responses
+     *
+     * @param response {@link HttpResponse} response
+     * @return {@link HttpResponse} same response
+     */
+    private HttpResponse addFields(HttpResponse response) {
+        response.setField("Date", DATE_FORMATTER.format(ZonedDateTime.now(ZoneOffset.UTC)));
+        response.setField("Server", "Asura Builder Previewer");
+        response.setField("Vary", "accept-language,accept-charset,accept-encoding");
+        return response;
     }
 
     /**
@@ -169,21 +517,231 @@ public class GameServer {
             throw new IllegalArgumentException("Not a game manager class:" + managerClassName);
     }
 
-    private String getRequest(BufferedReader input) throws IOException {
-        String requestLine = input.readLine();
-        System.out.println(requestLine);
-        if (requestLine == null)
-            return "/";
-        String[] parts = requestLine.split(" ");
-        return parts[1].split("\\?")[0];
+    /**
+     * Find a compressed variant of a file (e.g., movie.json.gz for
+     * movie.json) that is not older than the file itself
+     *
+     * @param source {@link Path} path of the file
+     * @return {@link StreamCodec} codec of the compressed variant or
+     * {@code null} if there is none
+     * @throws IOException - If an I/O error occurs
+     */
+    private StreamCodec getEncodedVariant(Path source) throws IOException {
+
+        for (StreamCodec codec : StreamCodecs.getAll()) {
+            Path encoded = getEncodedPath(source, codec);
+
+            if (Files.isReadable(encoded) && !Files.isDirectory(encoded) && (!Files.exists(source) ||
+                    Files.getLastModifiedTime(encoded).compareTo(Files.getLastModifiedTime(source)) >= 0))
+                return codec;
+        }
+
+        return null;
     }
 
-    private void sendResponseHeader(OutputStream output, int code, String phrase, LinkedHashMap<String, String> fields)
-            throws IOException {
-        output.write(("HTTP/1.0 " + code + " " + phrase + "\n").getBytes());
-        for (String name : fields.keySet())
-            output.write((name + ": " + fields.get(name) + "\n").getBytes());
-        output.write("\n".getBytes());
+    private Path getEncodedPath(Path source, StreamCodec codec) {
+        return source.resolveSibling(source.getFileName() + "." + codec.getExtension());
+    }
+
+    /**
+     * Check if an Accept-Encoding header field accepts a content coding
+     *
+     * @param acceptEncoding value of the Accept-Encoding field (may be {@code null})
+     * @param contentEncoding content coding
+     * @return {@code true} if the content coding is accepted, {@code false} otherwise
+     */
+    private boolean acceptsEncoding(String acceptEncoding, String contentEncoding) {
+
+        if (acceptEncoding == null)
+            return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+
+            if (!name.equalsIgnoreCase(contentEncoding) && !"*".equals(name))
+                continue;
+
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") && Double.parseDouble(parameter.substring(2)) == 0)
+                    return false;
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Answer a request for the decoded content of a compressed variant (or a
+     * range of it). Decoding blocks, hence this runs on the loader thread.
+     *
+     * @param encoded     {@link Path} path of the compressed variant
+     * @param codec       {@link StreamCodec} codec of the compressed variant
+     * @param range       value of the Range field (may be {@code null})
+     * @param contentType type of the content
+     * @return {@link HttpResponse} response to the request
+     */
+    private HttpResponse getDecodedResponse(Path encoded, StreamCodec codec, String range, String contentType) {
+
+        HttpResponse response;
+        InputStream decoded = null;
+        try {
+            long length = getDecodedLength(encoded, codec);
+            long[] bounds = parseRange(range, length);
+
+            response = getRangeResponse(bounds, length);
+            if (response.getStatus() != 416) {
+                decoded = codec.decode(Files.newInputStream(encoded));
+
+                // ranges refer to the decoded content
+                if (bounds != null)
+                    skip(decoded, bounds[0]);
+
+                response.setBody(new StreamBody(decoded, bounds == null ? length : bounds[1] - bounds[0] + 1));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error decoding " + encoded, e);
+
+            if (decoded != null) {
+                try {
+                    decoded.close();
+                } catch (IOException ignored) {
+                    // already failed
+                }
+            }
+
+            response = new HttpResponse(500, "Internal Server Error");
+            response.setText("text/plain", "Internal Server Error\n");
+            return response;
+        }
+
+        response.setField("Content-Type", contentType);
+        response.setField("Accept-Ranges", "bytes");
+
+        return response;
+    }
+
+    /**
+     * Get the length of the decoded content of a compressed variant, decoding
+     * it only if it changed since the last time
+     *
+     * @param encoded {@link Path} path of the compressed variant
+     * @param codec   {@link StreamCodec} codec of the compressed variant
+     * @return length of the decoded content
+     * @throws IOException - If an I/O error occurs
+     */
+    private long getDecodedLength(Path encoded, StreamCodec codec) throws IOException {
+
+        long modified = Files.getLastModifiedTime(encoded).toMillis();
+
+        long[] cached = decodedLengths.get(encoded);
+        if (cached != null && cached[0] == modified)
+            return cached[1];
+
+        long length = 0;
+        try (InputStream decoded = codec.decode(Files.newInputStream(encoded))) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = decoded.read(buffer)) != -1)
+                length += count;
+        }
+
+        decodedLengths.put(encoded, new long[] { modified, length });
+
+        return length;
+    }
+
+    /**
+     * Parse the value of a Range header field with a single range of bytes
+     *
+     * @param range  value of the Range field (may be {@code null})
+     * @param length length of the content
+     * @return first and last (inclusive) positions of the range, an empty
+     * array if the range cannot be satisfied, or {@code null} if the field
+     * should be ignored (absent, other units or multiple ranges)
+     */
+    private long[] parseRange(String range, long length) {
+
+        if (range == null || !range.startsWith("bytes=") || range.contains(","))
+            return null;
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return null;
+
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                // suffix: the last bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix == 0)
+                    return new long[0];
+
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+
+                String end = spec.substring(dash + 1);
+                if (end.isEmpty()) {
+                    last = length - 1;
+                } else {
+                    last = Long.parseLong(end);
+                    if (last < first)
+                        return null;
+                    last = Math.min(last, length - 1);
+                }
+            }
+
+            if (first >= length)
+                return new long[0];
+
+            return new long[] { first, last };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create the response to a request of the content, or only of the range
+     * of it requested by a Range header field, without the body
+     *
+     * @param bounds first and last positions of the range, as returned by
+     *               {@link #parseRange(String, long)}
+     * @param length length of the content
+     * @return {@link HttpResponse} response to the request
+     */
+    private HttpResponse getRangeResponse(long[] bounds, long length) {
+
+        HttpResponse response;
+        if (bounds == null) {
+            response = new HttpResponse(200, "Ok");
+        } else if (bounds.length == 0) {
+            response = new HttpResponse(416, "Range Not Satisfiable");
+            response.setField("Content-Range", "bytes */" + length);
+        } else {
+            response = new HttpResponse(206, "Partial Content");
+            response.setField("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + length);
+        }
+
+        return response;
+    }
+
+    private void skip(InputStream input, long count) throws IOException {
+        while (count > 0) {
+            long skipped = input.skip(count);
+            if (skipped <= 0) {
+                if (input.read() == -1)
+                    throw new EOFException("Content shorter than expected");
+                skipped = 1;
+            }
+            count -= skipped;
+        }
     }
 
     /**
@@ -212,20 +770,7 @@ public class GameServer {
     private static ProcessBuilder compileAndExecute(String gameSlug, String languageName,
                                                     String programPath, String playerId) {
 
-        Language language;
-        switch (languageName) {
-
-            case "java":
-                language = new JavaLanguage();
-                break;
-            case "js":
-            case "javascript":
-            case "es6":
-                language = new JavascriptLanguage();
-                break;
-            default:
-                throw new BuilderException("Language not found!");
-        }
+        Language language = Language.getLanguage(languageName);
 
         String codebasePath = language.prepare(gameSlug, languageName, programPath);
         String outputPath = language.compile(gameSlug, languageName, programPath, codebasePath);
@@ -276,7 +821,15 @@ public class GameServer {
             String programPath = Paths.get(gameSlug, "solutions", args[i + 1]).toString();
             String playerId = args[i + 2];
 
-            ProcessBuilder builder = compileAndExecute(gameSlug, language, programPath, playerId);
+            ProcessBuilder builder;
+            try {
+                builder = compileAndExecute(gameSlug, language, programPath, playerId);
+            } catch (CompilationException e) {
+                System.err.println("GameServer: player " + playerId + " " + e.getClassification() + "\n" +
+                        e.getDiagnostics());
+                System.exit(1);
+                return;
+            }
 
             // builder.inheritIO();
             builder.redirectError(ProcessBuilder.Redirect.to(new File("errors.txt")));
@@ -284,14 +837,31 @@ public class GameServer {
             players.put(playerId, builder.start());
         }
 
-        manager.manage(players);
-        manager.exportGameMovie(Files.newOutputStream(
-                FileUtils.getPathResourcesFolder().resolve("movie.json").toAbsolutePath()));
+        GameServer server = new GameServer(DEFAULT_PORT);
+
+        // the movie is served from memory while the match runs, frame by frame
+        String matchId = Long.toString(System.currentTimeMillis(), 36);
+        StreamingGameMovieBuilder movieBuilder = new StreamingGameMovieBuilder(
+                server.addMovie(matchId).getOutputStream());
+        movieBuilder.setAutoFlush(true);
+
+        EventStream events = server.addMovieEvents(matchId, movieBuilder);
+
+        Thread match = new Thread(() -> {
+            try {
+                manager.manage(players, movieBuilder);
+                server.setMovieIndex(matchId, movieBuilder.getIndex());
+            } finally {
+                events.close();
+            }
+        }, "match-" + matchId);
+        match.start();
 
-        openUrl("http://localhost:" + DEFAULT_PORT + "?playerId=" + players.keySet().iterator().next());
-        new GameServer(DEFAULT_PORT);
+        openUrl("http://localhost:" + DEFAULT_PORT + "?playerId=" + players.keySet().iterator().next() +
+                "&matchId=" + matchId);
 
         System.out.println("Running on localhost:" + DEFAULT_PORT);
+        server.run();
     }
 
 }
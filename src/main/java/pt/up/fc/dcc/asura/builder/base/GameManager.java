@@ -1,19 +1,23 @@
 package pt.up.fc.dcc.asura.builder.base;
 
+import com.google.gson.JsonParseException;
 import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
 import pt.up.fc.dcc.asura.builder.base.exceptions.PlayerException;
+import pt.up.fc.dcc.asura.builder.base.messaging.MessageCodec;
 import pt.up.fc.dcc.asura.builder.base.messaging.PlayerAction;
 import pt.up.fc.dcc.asura.builder.base.messaging.StateUpdate;
 import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilder;
 import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilderImpl;
+import pt.up.fc.dcc.asura.builder.base.movie.StreamingGameMovieBuilder;
 import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovie;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieIndex;
 import pt.up.fc.dcc.asura.builder.base.movie.models.GamePlayerStatus;
 import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
-import pt.up.fc.dcc.asura.builder.base.utils.Json;
+import pt.up.fc.dcc.asura.builder.base.utils.LineBoundedReader;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodec;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
 
@@ -73,8 +77,51 @@ public abstract class GameManager {
      *                id
      */
     public final void manage(Map<String, Process> players) {
+        manage(players, new GameMovieBuilderImpl());
+    }
+
+    /**
+     * Executes a game with a list of players identified by their processes,
+     * writing the movie to a stream as frames are produced. Only the frame
+     * being built is kept in memory, hence {@link #getGameMovie()} returns
+     * just the last frame.
+     *
+     * @param players     map of players' processes (for the same game) keyed by player
+     *                    id
+     * @param movieStream {@link OutputStream} stream to write game movie
+     */
+    public final void manage(Map<String, Process> players, OutputStream movieStream) {
+        manage(players, new StreamingGameMovieBuilder(movieStream));
+    }
+
+    /**
+     * Executes a game with a list of players identified by their processes,
+     * writing the movie with a streaming builder, which is closed at the end
+     *
+     * @param players      map of players' processes (for the same game) keyed by player
+     *                     id
+     * @param movieBuilder {@link StreamingGameMovieBuilder} builder of the movie
+     */
+    public final void manage(Map<String, Process> players, StreamingGameMovieBuilder movieBuilder) {
+
+        try {
+            manage(players, (GameMovieBuilder) movieBuilder);
+        } finally {
+            movieBuilder.close();
+        }
+    }
 
-        movieBuilder = new GameMovieBuilderImpl();
+    /**
+     * Executes a game with a list of players identified by their processes
+     * using a specific movie builder
+     *
+     * @param players      map of players' processes (for the same game) keyed by player
+     *                     id
+     * @param movieBuilder {@link GameMovieBuilder} builder of the movie
+     */
+    private void manage(Map<String, Process> players, GameMovieBuilder movieBuilder) {
+
+        this.movieBuilder = movieBuilder;
 
         GameState gameState;
         try {
@@ -123,14 +170,11 @@ public abstract class GameManager {
         if (movie == null || movie.getFrames().isEmpty())
             return null;
 
-        final GamePlayerStatus status = movie.getFrames()
+        // read only, as the map may still be shared with a saved frame
+        return movie.getFrames()
                 .get(movie.getFrames().size() - 1)
-                .getStatus(player);
-
-        if (status == null)
-            return null;
-
-        return status;
+                .getStatus()
+                .get(player);
     }
 
     /**
@@ -170,6 +214,36 @@ public abstract class GameManager {
         movieBuilder.toFile(outputStream);
     }
 
+    /**
+     * Export game movie to an output stream, compressed with a codec
+     *
+     * @param outputStream {@link OutputStream} stream to write game movie
+     * @param codec        {@link StreamCodec} codec to compress the movie with
+     */
+    public void exportGameMovie(OutputStream outputStream, StreamCodec codec) {
+        movieBuilder.toFile(outputStream, codec);
+    }
+
+    /**
+     * Export game movie to an output stream in a given format
+     *
+     * @param outputStream {@link OutputStream} stream to write game movie
+     * @param format       {@link GameMovieBuilder.Format} format of the movie
+     */
+    public void exportGameMovie(OutputStream outputStream, GameMovieBuilder.Format format) {
+        movieBuilder.toFile(outputStream, format);
+    }
+
+    /**
+     * Get the index of the game movie last exported in JSON
+     *
+     * @return {@link GameMovieIndex} index of the game movie or {@code null}
+     * if it was not exported in JSON
+     */
+    public GameMovieIndex getGameMovieIndex() {
+        return movieBuilder.getIndex();
+    }
+
     /**
      * Get name from initial state update
      *
@@ -214,20 +288,54 @@ public abstract class GameManager {
      * Aggregate of all input and output object streams keyed by process.
      * Instances of this class take care of opening and closing streams, as well
      * as sending {@code GameState} and receiving {@code PlayerAction} for each
-     * process associated with a player
+     * process associated with a player.
+     * <p>
+     * In multiplexed mode, the output of every process is read concurrently
+     * by a dedicated thread into a queue of actions, hence reading an action
+     * with a timeout is just a poll on the queue of the player.
+     * <p>
+     * Messages are written to and parsed from the streams directly by
+     * {@link MessageCodec}, one JSON document per line.
      */
     public static class Streamer implements Closeable {
+
+        // mark the end of the stream and unparsable lines in queues (compared by identity)
+        private static final PlayerAction END_OF_STREAM = new PlayerAction();
+        private static final PlayerAction UNPARSABLE = new PlayerAction();
+
+        private final boolean multiplexed;
+
         private Map<String, Process> processes = new HashMap<>();
         private Map<String, BufferedWriter> outs = new HashMap<>();
-        private Map<String, BufferedReader> ins = new HashMap<>();
-        private ExecutorService executorService = Executors.newSingleThreadExecutor();
+        private Map<String, LineBoundedReader> ins = new HashMap<>();
+        private Map<String, BlockingQueue<PlayerAction>> actions = new HashMap<>();
+        private List<Thread> readers = new ArrayList<>();
+        private ExecutorService executorService = null;
 
         public Streamer(Map<String, Process> processes) {
+            this(processes, false);
+        }
+
+        /**
+         * Create streamer for the processes of the players
+         *
+         * @param processes   map of players' processes keyed by player id
+         * @param multiplexed read the output of all processes concurrently?
+         */
+        public Streamer(Map<String, Process> processes, boolean multiplexed) {
+            this.multiplexed = multiplexed;
+
+            if (!multiplexed)
+                executorService = Executors.newSingleThreadExecutor();
+
             for (String player : processes.keySet()) {
                 Process process = processes.get(player);
                 this.processes.put(player, process);
                 outs.put(player, new BufferedWriter(new OutputStreamWriter(process.getOutputStream())));
-                ins.put(player, new BufferedReader(new InputStreamReader(process.getInputStream())));
+                ins.put(player, new LineBoundedReader(new InputStreamReader(process.getInputStream())));
+
+                if (multiplexed)
+                    startReader(player);
             }
         }
 
@@ -244,10 +352,8 @@ public abstract class GameManager {
             if (stateUpdate == null)
                 stateUpdate = new StateUpdate(null, null);
 
-            String json = Json.get().objectToString(stateUpdate);
-
             try {
-                outs.get(player).write(json);
+                MessageCodec.writeStateUpdate(stateUpdate, outs.get(player));
                 outs.get(player).newLine();
                 outs.get(player).flush();
             } catch (IOException e) {
@@ -263,23 +369,24 @@ public abstract class GameManager {
          * @param player ID of the player that is sending updates
          * @return {@link PlayerAction} action from a player
          * @throws PlayerException - If there is an error understanding the action
+         *                         or the thread is interrupted while waiting for it
          */
         public PlayerAction readActionFrom(String player) throws PlayerException {
 
             PlayerAction action;
             try {
-                String json = ins.get(player).readLine();
-
-                action = Json.get().objectFromString(json, PlayerAction.class);
-
-                if (action == null)
-                    throw new Exception();
+                if (multiplexed)
+                    action = takeAction(player, actions.get(player).take());
+                else
+                    action = parseAction(ins.get(player));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PlayerException(player, MooshakClassification.RUNTIME_ERROR, e.getMessage(), e);
             } catch (Exception e) {
-                throw new PlayerException(player, MooshakClassification.RUNTIME_ERROR,
-                        "Your action could not be parsed by the Game Manager!");
+                action = null;
             }
 
-            return action;
+            return checkAction(player, action);
         }
 
         /**
@@ -292,11 +399,30 @@ public abstract class GameManager {
          */
         public PlayerAction readActionWithTimeoutFrom(String player, long timeout) throws PlayerException {
 
+            if (multiplexed) {
+                PlayerAction action;
+                try {
+                    action = actions.get(player).poll(timeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PlayerException(player, MooshakClassification.RUNTIME_ERROR, e.getMessage(), e);
+                }
+
+                if (action == null)
+                    throw new PlayerException(player, MooshakClassification.TIME_LIMIT_EXCEEDED);
+
+                return checkAction(player, takeAction(player, action));
+            }
+
             Future<PlayerAction> future = executorService.submit(() -> readActionFrom(player));
 
             try {
                 return future.get(timeout, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException | ExecutionException e) {
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new PlayerException(player, MooshakClassification.RUNTIME_ERROR, e.getMessage(), e);
+            } catch (ExecutionException e) {
                 throw new PlayerException(player, MooshakClassification.RUNTIME_ERROR, e.getMessage(), e);
             } catch (TimeoutException e) {
                 future.cancel(true);
@@ -304,6 +430,30 @@ public abstract class GameManager {
             }
         }
 
+        /**
+         * Read the actions of a round of simultaneous moves. All players share
+         * the same deadline, which is enforced from the moment of the call.
+         *
+         * @param players IDs of the players that are sending actions
+         * @param timeout Timeout for reading all the actions
+         * @return {@link Map} actions keyed by player, in the order of the players
+         * @throws PlayerException - If there is an error understanding an action or a player
+         *                         exceeds the deadline
+         */
+        public Map<String, PlayerAction> readActionsFromAll(Collection<String> players, long timeout)
+                throws PlayerException {
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+            Map<String, PlayerAction> actions = new LinkedHashMap<>();
+            for (String player : players) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                actions.put(player, readActionWithTimeoutFrom(player, Math.max(0, remaining)));
+            }
+
+            return actions;
+        }
+
         @Override
         public void close() throws IOException {
             for (String player : ins.keySet()) {
@@ -316,7 +466,96 @@ public abstract class GameManager {
                 //outs.get(player).close();
             }
 
-            executorService.shutdownNow();
+            for (Thread reader : readers)
+                reader.interrupt();
+
+            if (executorService != null)
+                executorService.shutdownNow();
+        }
+
+        /**
+         * Start a thread that reads the output of the process of a player
+         * into its queue of actions
+         *
+         * @param player ID of the player
+         */
+        private void startReader(String player) {
+
+            LineBoundedReader in = ins.get(player);
+            BlockingQueue<PlayerAction> queue = new LinkedBlockingQueue<>();
+
+            Thread reader = new Thread(() -> {
+                try {
+                    PlayerAction action;
+                    while ((action = parseAction(in)) != END_OF_STREAM) {
+
+                        // an empty line fails a single read, as when not multiplexed
+                        queue.put(action != null ? action : UNPARSABLE);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // stream closed
+                } finally {
+                    queue.offer(END_OF_STREAM);
+                }
+            }, "streamer-" + player);
+            reader.setDaemon(true);
+            reader.start();
+
+            actions.put(player, queue);
+            readers.add(reader);
+        }
+
+        /**
+         * Parse the action in the next line of the output of a player
+         *
+         * @param in {@link LineBoundedReader} output of the player
+         * @return {@link PlayerAction} action, {@code null} if the line is empty,
+         * {@code UNPARSABLE} if it is not a valid action or {@code END_OF_STREAM}
+         * @throws IOException - If an I/O error occurs
+         */
+        private static PlayerAction parseAction(LineBoundedReader in) throws IOException {
+
+            if (!in.nextLine())
+                return END_OF_STREAM;
+
+            try {
+                return MessageCodec.readPlayerAction(in);
+            } catch (JsonParseException e) {
+                return UNPARSABLE;
+            }
+        }
+
+        /**
+         * Get an action taken from the queue of a player. The end of the
+         * stream is put back so that later reads also find it.
+         *
+         * @param player ID of the player
+         * @param action action taken from the queue
+         * @return the action
+         */
+        private PlayerAction takeAction(String player, PlayerAction action) {
+
+            if (action == END_OF_STREAM)
+                actions.get(player).offer(END_OF_STREAM);
+
+            return action;
+        }
+
+        /**
+         * Check that a player sent a valid action
+         *
+         * @param player ID of the player that sent the action
+         * @param action action read from the player
+         * @return {@link PlayerAction} action from a player
+         * @throws PlayerException - If there is an error understanding the action
+         */
+        private PlayerAction checkAction(String player, PlayerAction action) throws PlayerException {
+
+            if (action == null || action == END_OF_STREAM || action == UNPARSABLE)
+                throw new PlayerException(player, MooshakClassification.RUNTIME_ERROR,
+                        "Your action could not be parsed by the Game Manager!");
+
+            return action;
         }
     }
 
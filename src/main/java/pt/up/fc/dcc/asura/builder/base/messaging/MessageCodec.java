@@ -0,0 +1,192 @@
+package pt.up.fc.dcc.asura.builder.base.messaging;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming codec of the messages exchanged with players. State updates are
+ * written directly to the stream of the player and actions are parsed
+ * directly from it, without intermediate strings. The JSON is exactly the
+ * same produced and accepted by {@link Json}, so wrappers are unaffected.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public final class MessageCodec {
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Write a {@link StateUpdate} as JSON. Null fields are omitted and the
+     * object of the update is written by Gson according to its runtime
+     * class.
+     *
+     * @param stateUpdate {@link StateUpdate} update to write
+     * @param out         {@link Writer} writer to write to (it is not flushed)
+     * @throws IOException - If an I/O error occurs
+     */
+    public static void writeStateUpdate(StateUpdate stateUpdate, Writer out) throws IOException {
+
+        Json json = Json.get();
+        JsonWriter writer = json.newJsonWriter(out);
+
+        writer.beginObject();
+
+        if (stateUpdate.getType() != null)
+            writer.name("type").value(stateUpdate.getType());
+
+        Object object = stateUpdate.getObject();
+        if (object != null) {
+            writer.name("object");
+            json.writeToJsonWriter(object, object.getClass(), writer);
+        }
+
+        writer.endObject();
+    }
+
+    /**
+     * Read a {@link PlayerAction} from JSON. The reader must contain just
+     * the action (e.g. a {@link pt.up.fc.dcc.asura.builder.base.utils.LineBoundedReader}
+     * positioned at the line of the action).
+     *
+     * @param in {@link Reader} reader to read from
+     * @return {@link PlayerAction} action or {@code null} if the reader is empty
+     * or contains {@code null}
+     * @throws IOException         - If an I/O error occurs
+     * @throws JsonSyntaxException - If the JSON is not a valid action
+     */
+    public static PlayerAction readPlayerAction(Reader in) throws IOException {
+
+        Json json = Json.get();
+        JsonReader reader = json.newJsonReader(in);
+
+        JsonToken token;
+        try {
+            token = reader.peek();
+        } catch (EOFException e) {
+            // empty document
+            return null;
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        }
+
+        PlayerAction action;
+        try {
+            if (token == JsonToken.NULL) {
+                reader.nextNull();
+                action = null;
+            } else
+                action = readPlayerAction(json, reader);
+
+            if (reader.peek() != JsonToken.END_DOCUMENT)
+                throw new JsonSyntaxException("JSON document was not fully consumed.");
+        } catch (EOFException | MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+
+        return action;
+    }
+
+    /**
+     * Read the object of a {@link PlayerAction}
+     *
+     * @param json   {@link Json} provider of the adapters of values
+     * @param reader {@link JsonReader} reader positioned at the action
+     * @return {@link PlayerAction} action
+     * @throws IOException - If an I/O error occurs
+     */
+    private static PlayerAction readPlayerAction(Json json, JsonReader reader) throws IOException {
+
+        TypeAdapter<String> stringAdapter = json.getAdapter(String.class);
+
+        PlayerAction action = new PlayerAction();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "command":
+                    action.setCommand(readCommand(json, reader));
+                    break;
+                case "messages":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        break;
+                    }
+
+                    reader.beginArray();
+                    while (reader.hasNext())
+                        action.log(stringAdapter.read(reader));
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return action;
+    }
+
+    /**
+     * Read a {@link Command}. Arguments are read as Gson reads an
+     * {@code Object} (i.e., numbers are {@link Double}s).
+     *
+     * @param json   {@link Json} provider of the adapters of values
+     * @param reader {@link JsonReader} reader positioned at the command
+     * @return {@link Command} command or {@code null}
+     * @throws IOException - If an I/O error occurs
+     */
+    private static Command readCommand(Json json, JsonReader reader) throws IOException {
+
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        TypeAdapter<Object> objectAdapter = json.getAdapter(Object.class);
+
+        String name = null;
+        Object[] args = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = json.getAdapter(String.class).read(reader);
+                    break;
+                case "args":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        args = null;
+                        break;
+                    }
+
+                    List<Object> values = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext())
+                        values.add(objectAdapter.read(reader));
+                    reader.endArray();
+
+                    args = values.toArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Command(name, args);
+    }
+}
@@ -0,0 +1,355 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.exceptions.PlayerException;
+import pt.up.fc.dcc.asura.builder.base.movie.models.*;
+
+import java.util.*;
+
+/**
+ * Base of game movie builders. Keeps the header of the movie, the frame
+ * currently being built and the stack of saved frames. Subclasses decide
+ * what happens to a frame once a new one is added.
+ * <p>
+ * Saved frames share the items, statuses and messages of the current frame
+ * (copy-on-write), hence saving and restoring a frame copies nothing but
+ * the maps changed in between.
+ *
+ * @author José Paulo Leal <code>zp@dcc.fc.up.pt</code>
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public abstract class AbstractGameMovieBuilder implements GameMovieBuilder {
+
+    private static final int DEFAULT_FRAME_STACK_SIZE = 15;
+
+    protected GameMovie movie = new GameMovie();
+    protected GameMovieFrame currentFrame;
+
+    // sprites of the items of all frames
+    protected final SpriteTable spriteTable = new SpriteTable();
+
+    private int frameStackSize = DEFAULT_FRAME_STACK_SIZE;
+    private Deque<Snapshot> frameStack = new ArrayDeque<>();
+
+    // maps of the current frame also held by saved frames, copied before being changed
+    private Map<String, GamePlayerStatus> sharedStatus = null;
+    private Map<String, String> sharedMessages = null;
+
+    private final List<FrameListener> frameListeners = new ArrayList<>();
+
+    @Override
+    public void setTitle(String title) {
+        movie.getHeader().setTitle(title);
+    }
+
+    @Override
+    public void setBackground(String background) {
+        movie.getHeader().setBackground(background);
+    }
+
+    @Override
+    public void setWidth(int width) {
+        movie.getHeader().setWidth(width);
+    }
+
+    @Override
+    public void setHeight(int height) {
+        movie.getHeader().setHeight(height);
+    }
+
+    @Override
+    public void addSprite(String name, String url) {
+        movie.getHeader().getSprites().put(name, url);
+        spriteTable.getId(name);
+    }
+
+    @Override
+    public boolean isSpriteIds() {
+        return spriteTable.isWriteIds();
+    }
+
+    @Override
+    public void setSpriteIds(boolean spriteIds) {
+        spriteTable.setWriteIds(spriteIds);
+        movie.getHeader().setSpriteIds(spriteIds ? spriteTable.getNames() : null);
+    }
+
+    /**
+     * Add a listener of the frames completed. Builders that keep the whole
+     * movie in memory have no end, hence their last frame is not reported.
+     *
+     * @param listener {@link FrameListener} listener of the frames completed
+     */
+    public void addFrameListener(FrameListener listener) {
+        frameListeners.add(listener);
+    }
+
+    public void removeFrameListener(FrameListener listener) {
+        frameListeners.remove(listener);
+    }
+
+    /**
+     * Report the current frame, if any, to the listeners as complete
+     */
+    protected void completeCurrentFrame() {
+
+        if (currentFrame == null)
+            return;
+
+        for (FrameListener listener : frameListeners)
+            listener.frameCompleted(movie.getHeader(), currentFrame);
+    }
+
+    @Override
+    public void addPlayer(String player, String name) {
+        movie.getHeader().getPlayers().put(player, name);
+    }
+
+    @Override
+    public void setFps(int fps) {
+        movie.getHeader().setFps(fps);
+    }
+
+    @Override
+    public void setSpriteAnchor(SpriteAnchor anchorPoint) {
+        movie.getHeader().setAnchorPoint(anchorPoint);
+    }
+
+    @Override
+    public void saveFrame() {
+        saveFrame(true, true);
+    }
+
+    @Override
+    public void saveFrame(boolean status, boolean messages) {
+
+        Snapshot snapshot = new Snapshot(currentFrame);
+
+        if (status)
+            snapshot.status = sharedStatus = currentFrame.getStatus();
+
+        if (messages)
+            snapshot.messages = sharedMessages = currentFrame.getMessages();
+
+        frameStack.addLast(snapshot);
+
+        if (frameStack.size() > frameStackSize)
+            frameStack.removeFirst();
+    }
+
+    @Override
+    public void restoreFrame() {
+
+        if (frameStack.isEmpty())
+            return;
+
+        Snapshot snapshot = frameStack.removeLast();
+
+        // items are only appended, hence the saved items are a prefix of the list
+        List<GameFrameItem> items = snapshot.items;
+        if (currentFrame.getItems() == items)
+            items.subList(snapshot.itemCount, items.size()).clear();
+        else if (items instanceof FrameItems)
+            currentFrame.setItems(((FrameItems) items).copyOf(snapshot.itemCount));
+        else
+            currentFrame.setItems(new ArrayList<>(items.subList(0, snapshot.itemCount)));
+
+        if (snapshot.status != null)
+            currentFrame.setStatus(sharedStatus = snapshot.status);
+
+        if (snapshot.messages != null)
+            currentFrame.setMessages(sharedMessages = snapshot.messages);
+    }
+
+    @Override
+    public int getFrameStackSize() {
+        return frameStackSize;
+    }
+
+    @Override
+    public void setFrameStackSize(int frameStackSize) {
+
+        if (frameStackSize < 0)
+            throw new BuilderException("Frame stack size must not be negative");
+
+        this.frameStackSize = frameStackSize;
+
+        while (frameStack.size() > frameStackSize)
+            frameStack.removeFirst();
+    }
+
+    @Override
+    public void addItem(String sprite, int x, int y) {
+        checkSprite(sprite);
+        currentFrame.addItem(sprite, x, y, null, null);
+    }
+
+    @Override
+    public void addItem(String sprite, int x, int y, double rotate) {
+        checkSprite(sprite);
+        currentFrame.addItem(sprite, x, y, rotate, null);
+    }
+
+    @Override
+    public void addItem(String sprite, int x, int y, double rotate, double scale) {
+        checkSprite(sprite);
+        currentFrame.addItem(sprite, x, y, rotate, scale);
+    }
+
+    @Override
+    public void addItem(String sprite, int x, int y, Integer startX, Integer startY, Integer width, Integer height) {
+        checkSprite(sprite);
+        currentFrame.addItem(sprite, x, y, null, null, startX, startY, width, height);
+    }
+
+    @Override
+    public void addItem(String sprite, int x, int y, double rotate, double scale,
+                        Integer startX, Integer startY, Integer width, Integer height) {
+        checkSprite(sprite);
+        currentFrame.addItem(sprite, x, y, rotate, scale, startX, startY, width, height);
+    }
+
+    /**
+     * Check that a sprite was added to the movie
+     *
+     * @param sprite sprite identifier
+     * @throws BuilderException - If the sprite was not added to the movie
+     */
+    private void checkSprite(String sprite) {
+
+        if (!movie.getHeader().getSprites().containsKey(sprite))
+            throw new BuilderException("Unknown sprite: " + sprite);
+    }
+
+    @Override
+    public void addMessage(String player, String message) {
+        getMessages().put(player, message);
+    }
+
+    @Override
+    public void setPoints(String player, int points) {
+        getStatus(player).setPoints(points);
+    }
+
+    @Override
+    public void setClassification(String player, MooshakClassification classification) {
+        getStatus(player).setClassification(classification);
+    }
+
+    @Override
+    public void setObservations(String player, String observations) {
+        getStatus(player).setObservations(observations);
+    }
+
+    @Override
+    public void wrongAnswer(String player, String message) {
+
+        if (currentFrame == null)
+            addFrame();
+
+        GamePlayerStatus playerStatus = getStatus(player);
+        playerStatus.setClassification(MooshakClassification.WRONG_ANSWER);
+        playerStatus.setObservations(message);
+        playerStatus.setPoints(0);
+    }
+
+    @Override
+    public void failedEvaluation(BuilderException e) {
+
+        if (currentFrame == null)
+            addFrame();
+
+        for (String playerId : movie.getHeader().getPlayers().keySet()) {
+
+            GamePlayerStatus playerStatus = getStatus(playerId);
+            playerStatus.setClassification(MooshakClassification.REQUIRES_REEVALUATION);
+            playerStatus.setObservations(e.getMessage());
+        }
+    }
+
+    @Override
+    public void failedEvaluation(PlayerException e) {
+
+        if (currentFrame == null)
+            addFrame();
+
+        GamePlayerStatus erroneousPlayerStatus = getStatus(e.getPlayerId());
+        erroneousPlayerStatus.setClassification(e.getClassification());
+        erroneousPlayerStatus.setPoints(0);
+        erroneousPlayerStatus.setObservations(e.getMessage());
+
+        for (String playerId : movie.getHeader().getPlayers().keySet()) {
+
+            if (playerId.equals(e.getPlayerId()))
+                continue;
+
+            GamePlayerStatus playerStatus = getStatus(playerId);
+            playerStatus.setClassification(MooshakClassification.REQUIRES_REEVALUATION);
+            playerStatus.setObservations(e.getMessage());
+        }
+    }
+
+    @Override
+    public GameMovie getMovie() {
+        return movie;
+    }
+
+    @Override
+    public String toString() {
+        return toString(Compression.NONE);
+    }
+
+    /**
+     * Get the status of a player in the current frame to change it, copying
+     * the statuses first if they are held by a saved frame
+     *
+     * @param player Player identifier
+     * @return {@link GamePlayerStatus} status of the player
+     */
+    private GamePlayerStatus getStatus(String player) {
+
+        if (currentFrame.getStatus() == sharedStatus) {
+            Map<String, GamePlayerStatus> status = new LinkedHashMap<>();
+            for (Map.Entry<String, GamePlayerStatus> entry : sharedStatus.entrySet())
+                status.put(entry.getKey(), new GamePlayerStatus(entry.getValue()));
+
+            currentFrame.setStatus(status);
+            sharedStatus = null;
+        }
+
+        return currentFrame.getStatus(player);
+    }
+
+    /**
+     * Get the messages of the current frame to change them, copying them
+     * first if they are held by a saved frame
+     *
+     * @return {@link Map} messages of the current frame
+     */
+    private Map<String, String> getMessages() {
+
+        if (currentFrame.getMessages() == sharedMessages) {
+            currentFrame.setMessages(new LinkedHashMap<>(sharedMessages));
+            sharedMessages = null;
+        }
+
+        return currentFrame.getMessages();
+    }
+
+    /**
+     * Frame saved in the stack. It holds the lists and maps of the frame
+     * instead of copies; the builder copies a map before changing it if it
+     * is held by a saved frame.
+     */
+    private static class Snapshot {
+        private final List<GameFrameItem> items;
+        private final int itemCount;
+        private Map<String, GamePlayerStatus> status = null;
+        private Map<String, String> messages = null;
+
+        Snapshot(GameMovieFrame frame) {
+            this.items = frame.getItems();
+            this.itemCount = items.size();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.movie.models.*;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static pt.up.fc.dcc.asura.builder.base.movie.BinaryMovieWriter.*;
+
+/**
+ * Reader of game movies in the compact binary format written by
+ * {@link BinaryMovieWriter}. Items kept from the previous frame are shared,
+ * as in movies built in memory.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class BinaryMovieReader {
+
+    private final DataInputStream in;
+
+    private String[] table;
+
+    public BinaryMovieReader(InputStream stream) {
+        this.in = new DataInputStream(new BufferedInputStream(stream));
+    }
+
+    /**
+     * Read a game movie. The keyframe index is not needed to read the whole
+     * movie, hence it is not read.
+     *
+     * @return {@link GameMovie} movie
+     */
+    public GameMovie read() {
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic))
+                throw new BuilderException("Not a binary game movie");
+
+            int version = in.readUnsignedByte();
+            if (version != VERSION)
+                throw new BuilderException("Unsupported binary game movie version " + version);
+
+            GameMovie movie = new GameMovie();
+            movie.setHeader(Json.get().objectFromString(readString(), GameMovieHeader.class));
+
+            table = new String[readVarint()];
+            for (int i = 0; i < table.length; i++)
+                table[i] = readString();
+
+            // keyframe interval
+            readVarint();
+
+            int frameCount = readVarint();
+
+            GameMovieFrame previous = null;
+            for (int i = 0; i < frameCount; i++) {
+                GameMovieFrame frame = readFrame(previous);
+                movie.getFrames().add(frame);
+                previous = frame;
+            }
+
+            return movie;
+        } catch (IOException e) {
+            throw new BuilderException("Error reading movie from stream: " + e.getMessage(), e);
+        }
+    }
+
+    private GameMovieFrame readFrame(GameMovieFrame previous) throws IOException {
+
+        int kind = in.readUnsignedByte();
+        int changes = in.readUnsignedByte();
+
+        if (kind == KEYFRAME)
+            previous = null;
+        else if (previous == null)
+            throw new BuilderException("Binary game movie starts with a delta frame");
+
+        GameMovieFrame frame = new GameMovieFrame();
+
+        frame.setItems(readItems(previous == null ? Collections.emptyList() : previous.getItems()));
+
+        if ((changes & STATUS_CHANGED) != 0)
+            frame.setStatus(readStatus());
+        else
+            frame.setStatus(previous.getStatus());
+
+        if ((changes & MESSAGES_CHANGED) != 0)
+            frame.setMessages(readMessages());
+        else
+            frame.setMessages(previous.getMessages());
+
+        return frame;
+    }
+
+    private List<GameFrameItem> readItems(List<GameFrameItem> previous) throws IOException {
+
+        List<GameFrameItem> items = new ArrayList<>();
+
+        int p = 0;
+        while (true) {
+            int op = readVarint();
+            int argument = op >>> 3;
+
+            switch (op & 7) {
+                case OP_END:
+                    return items;
+                case OP_COPY:
+                    items.addAll(previous.subList(p, p + argument));
+                    p += argument;
+                    break;
+                case OP_SKIP:
+                    p += argument;
+                    break;
+                case OP_ADD:
+                    items.add(readItem(BLANK_ITEM));
+                    break;
+                case OP_MODIFY:
+                    items.add(readItem(previous.get(p++)));
+                    break;
+                default:
+                    throw new BuilderException("Invalid operation in binary game movie");
+            }
+        }
+    }
+
+    private GameFrameItem readItem(GameFrameItem base) throws IOException {
+
+        int fields = in.readUnsignedByte();
+
+        String sprite = (fields & ITEM_SPRITE) != 0 ? readRef() : base.getSprite();
+        int x = base.getX() + ((fields & ITEM_X) != 0 ? readZigzag() : 0);
+        int y = base.getY() + ((fields & ITEM_Y) != 0 ? readZigzag() : 0);
+
+        GameFrameItem item = new GameFrameItem(sprite, x, y,
+                (fields & ITEM_ROTATE) != 0 ? readDouble() : base.getRotate(),
+                (fields & ITEM_SCALE) != 0 ? readDouble() : base.getScale());
+        item.setViewWindow((fields & ITEM_VIEW_WINDOW) != 0 ? readViewWindow() : base.getViewWindow());
+
+        return item;
+    }
+
+    private GameItemViewWindow readViewWindow() throws IOException {
+
+        if (in.readUnsignedByte() == 0)
+            return null;
+
+        int fields = in.readUnsignedByte();
+
+        Integer[] values = new Integer[4];
+        for (int k = 0; k < values.length; k++)
+            if ((fields & 1 << k) != 0)
+                values[k] = readZigzag();
+
+        return new GameItemViewWindow(values[0], values[1], values[2], values[3]);
+    }
+
+    private Map<String, GamePlayerStatus> readStatus() throws IOException {
+
+        int count = readVarint() - 1;
+        if (count < 0)
+            return null;
+
+        Map<String, GamePlayerStatus> status = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String player = readRef();
+            int fields = in.readUnsignedByte();
+
+            GamePlayerStatus playerStatus = new GamePlayerStatus();
+            playerStatus.setPoints((fields & STATUS_POINTS) != 0 ? readZigzag() : null);
+            if ((fields & STATUS_CLASSIFICATION) != 0)
+                playerStatus.setClassification(MooshakClassification.valueOf(readRef()));
+            if ((fields & STATUS_OBSERVATIONS) != 0)
+                playerStatus.setObservations(readString());
+
+            status.put(player, playerStatus);
+        }
+
+        return status;
+    }
+
+    private Map<String, String> readMessages() throws IOException {
+
+        int count = readVarint() - 1;
+        if (count < 0)
+            return null;
+
+        Map<String, String> messages = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String player = readRef();
+            messages.put(player, readString());
+        }
+
+        return messages;
+    }
+
+    private String readRef() throws IOException {
+
+        int ref = readVarint();
+        return ref == 0 ? null : table[ref - 1];
+    }
+
+    private String readString() throws IOException {
+
+        byte[] bytes = new byte[readVarint()];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Double readDouble() throws IOException {
+        return in.readUnsignedByte() == 0 ? null : in.readDouble();
+    }
+
+    private int readZigzag() throws IOException {
+
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarint() throws IOException {
+
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new BuilderException("Invalid varint in binary game movie");
+    }
+}
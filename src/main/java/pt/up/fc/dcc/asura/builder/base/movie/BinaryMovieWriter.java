@@ -0,0 +1,509 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.movie.models.*;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writer of game movies in the compact binary format. Strings repeated in
+ * frames (sprites, players and classifications) are interned into a table,
+ * numbers are written as variable-length integers and each frame is written
+ * as a delta against the previous one, except for periodic keyframes which
+ * are deltas against an empty frame and can be decoded on their own.
+ * <p>
+ * Layout of a movie (varint is an unsigned LEB128 integer, zigzag a signed
+ * varint, string a varint length followed by UTF-8 bytes and ref a varint
+ * index in the table plus one, 0 being {@code null}):
+ * <pre>
+ * movie    = "ASRM" version:u8 header:string table keyframeInterval:varint
+ *            frameCount:varint frame* index indexOffset:u32
+ * table    = count:varint string*
+ * frame    = kind:u8 (0 keyframe, 1 delta) changes:u8 (1 status, 2 messages)
+ *            op* END [status] [messages]
+ * op       = varint (argument &lt;&lt; 3 | code): END, COPY n, SKIP n, ADD item, MODIFY item
+ * item     = fields:u8 (1 sprite, 2 x, 4 y, 8 rotate, 16 scale, 32 view window)
+ *            [sprite:ref] [dx:zigzag] [dy:zigzag] [rotate:double?] [scale:double?]
+ *            [window?]
+ * window   = fields:u8 (1 start x, 2 start y, 4 width, 8 height) zigzag*
+ * status   = count+1:varint (player:ref fields:u8 (1 points, 2 classification,
+ *            4 observations) [points:zigzag] [classification:ref] [observations:string])*
+ * messages = count+1:varint (player:ref message:string)*
+ * index    = count:varint (frame:varint offset:varint)*
+ * </pre>
+ * Items of a frame are edited from the items of the previous frame, in
+ * order: COPY keeps the next items, SKIP drops them, MODIFY changes the next
+ * item and ADD inserts a new one. Doubles are 8 bytes (big-endian) preceded
+ * by a presence byte. The index has the offset of every keyframe.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class BinaryMovieWriter {
+
+    static final byte[] MAGIC = {'A', 'S', 'R', 'M'};
+    static final int VERSION = 1;
+
+    static final int KEYFRAME = 0;
+    static final int DELTA = 1;
+
+    static final int STATUS_CHANGED = 1;
+    static final int MESSAGES_CHANGED = 2;
+
+    static final int OP_END = 0;
+    static final int OP_COPY = 1;
+    static final int OP_SKIP = 2;
+    static final int OP_ADD = 3;
+    static final int OP_MODIFY = 4;
+
+    static final int ITEM_SPRITE = 1;
+    static final int ITEM_X = 2;
+    static final int ITEM_Y = 4;
+    static final int ITEM_ROTATE = 8;
+    static final int ITEM_SCALE = 16;
+    static final int ITEM_VIEW_WINDOW = 32;
+
+    static final int STATUS_POINTS = 1;
+    static final int STATUS_CLASSIFICATION = 2;
+    static final int STATUS_OBSERVATIONS = 4;
+
+    // item which added items are encoded against
+    static final GameFrameItem BLANK_ITEM = new GameFrameItem(null, 0, 0);
+
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 50;
+
+    // number of items searched ahead to match moved or removed items
+    private static final int LOOKAHEAD = 8;
+
+    private final DataOutputStream out;
+
+    private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+
+    private Map<String, Integer> table = new LinkedHashMap<>();
+
+    public BinaryMovieWriter(OutputStream stream) {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream));
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Set the number of frames between keyframes
+     *
+     * @param keyframeInterval number of frames between keyframes
+     */
+    public void setKeyframeInterval(int keyframeInterval) {
+
+        if (keyframeInterval < 1)
+            throw new BuilderException("Keyframe interval must be positive");
+
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Write a game movie. The stream is flushed but not closed.
+     *
+     * @param movie {@link GameMovie} movie to write
+     */
+    public void write(GameMovie movie) {
+
+        try {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+
+            writeString(Json.get().objectToString(movie.getHeader()));
+
+            internStrings(movie.getFrames());
+            writeVarint(table.size());
+            for (String string : table.keySet())
+                writeString(string);
+
+            writeVarint(keyframeInterval);
+
+            List<GameMovieFrame> frames = movie.getFrames();
+            writeVarint(frames.size());
+
+            List<int[]> index = new ArrayList<>();
+
+            GameMovieFrame previous = null;
+            for (int i = 0; i < frames.size(); i++) {
+                GameMovieFrame frame = frames.get(i);
+
+                if (i % keyframeInterval == 0) {
+                    index.add(new int[]{i, out.size()});
+                    previous = null;
+                }
+
+                writeFrame(previous, frame);
+                previous = frame;
+            }
+
+            int indexOffset = out.size();
+            writeVarint(index.size());
+            for (int[] entry : index) {
+                writeVarint(entry[0]);
+                writeVarint(entry[1]);
+            }
+            out.writeInt(indexOffset);
+
+            out.flush();
+        } catch (IOException e) {
+            throw new BuilderException("Error writing movie to stream: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Intern the strings repeated in frames
+     *
+     * @param frames frames of the movie
+     */
+    private void internStrings(List<GameMovieFrame> frames) {
+
+        for (GameMovieFrame frame : frames) {
+
+            for (GameFrameItem item : frame.getItems())
+                intern(item.getSprite());
+
+            if (frame.getStatus() != null) {
+                for (Map.Entry<String, GamePlayerStatus> entry : frame.getStatus().entrySet()) {
+                    intern(entry.getKey());
+
+                    if (entry.getValue() != null && entry.getValue().getClassification() != null)
+                        intern(entry.getValue().getClassification().name());
+                }
+            }
+
+            if (frame.getMessages() != null)
+                for (String player : frame.getMessages().keySet())
+                    intern(player);
+        }
+    }
+
+    private void intern(String string) {
+        if (string != null)
+            table.putIfAbsent(string, table.size());
+    }
+
+    /**
+     * Write a frame as a delta against the previous frame
+     *
+     * @param previous {@link GameMovieFrame} previous frame or {@code null} for a keyframe
+     * @param frame    {@link GameMovieFrame} frame to write
+     * @throws IOException - If an I/O error occurs
+     */
+    private void writeFrame(GameMovieFrame previous, GameMovieFrame frame) throws IOException {
+
+        List<GameFrameItem> previousItems = previous == null ? Collections.emptyList() : previous.getItems();
+
+        boolean statusChanged = previous == null ||
+                !sameStatus(previous.getStatus(), frame.getStatus());
+        boolean messagesChanged = previous == null ||
+                !sameMessages(previous.getMessages(), frame.getMessages());
+
+        out.writeByte(previous == null ? KEYFRAME : DELTA);
+        out.writeByte((statusChanged ? STATUS_CHANGED : 0) | (messagesChanged ? MESSAGES_CHANGED : 0));
+
+        writeItems(previousItems, frame.getItems());
+
+        if (statusChanged)
+            writeStatus(frame.getStatus());
+
+        if (messagesChanged)
+            writeMessages(frame.getMessages());
+    }
+
+    /**
+     * Write the operations that edit the items of the previous frame into
+     * the items of the frame
+     *
+     * @param previous items of the previous frame
+     * @param items    items of the frame
+     * @throws IOException - If an I/O error occurs
+     */
+    private void writeItems(List<GameFrameItem> previous, List<GameFrameItem> items) throws IOException {
+
+        int p = 0;
+        int i = 0;
+        while (i < items.size()) {
+
+            int copied = 0;
+            while (p < previous.size() && i < items.size() && sameItem(previous.get(p), items.get(i))) {
+                p++;
+                i++;
+                copied++;
+            }
+
+            if (copied > 0) {
+                writeOp(OP_COPY, copied);
+                continue;
+            }
+
+            int skipped = indexOf(items.get(i), previous, p + 1) - p;
+            if (skipped > 0) {
+                writeOp(OP_SKIP, skipped);
+                p += skipped;
+                continue;
+            }
+
+            if (p < previous.size() && indexOf(previous.get(p), items, i + 1) < 0) {
+                writeOp(OP_MODIFY, 0);
+                writeItem(previous.get(p++), items.get(i++));
+            } else {
+                writeOp(OP_ADD, 0);
+                writeItem(BLANK_ITEM, items.get(i++));
+            }
+        }
+
+        writeOp(OP_END, 0);
+    }
+
+    /**
+     * Find an item among the next few items of a list
+     *
+     * @param item  {@link GameFrameItem} item to find
+     * @param items list of items
+     * @param from  index to start from
+     * @return index of the item or -1 if not found
+     */
+    private static int indexOf(GameFrameItem item, List<GameFrameItem> items, int from) {
+
+        for (int k = from; k < items.size() && k < from + LOOKAHEAD; k++)
+            if (sameItem(item, items.get(k)))
+                return k;
+
+        return -1;
+    }
+
+    /**
+     * Write the fields of an item that differ from a base item
+     *
+     * @param base {@link GameFrameItem} base item
+     * @param item {@link GameFrameItem} item to write
+     * @throws IOException - If an I/O error occurs
+     */
+    private void writeItem(GameFrameItem base, GameFrameItem item) throws IOException {
+
+        int fields = 0;
+        if (!Objects.equals(base.getSprite(), item.getSprite()))
+            fields |= ITEM_SPRITE;
+        if (base.getX() != item.getX())
+            fields |= ITEM_X;
+        if (base.getY() != item.getY())
+            fields |= ITEM_Y;
+        if (!Objects.equals(base.getRotate(), item.getRotate()))
+            fields |= ITEM_ROTATE;
+        if (!Objects.equals(base.getScale(), item.getScale()))
+            fields |= ITEM_SCALE;
+        if (!sameViewWindow(base.getViewWindow(), item.getViewWindow()))
+            fields |= ITEM_VIEW_WINDOW;
+
+        out.writeByte(fields);
+
+        if ((fields & ITEM_SPRITE) != 0)
+            writeRef(item.getSprite());
+        if ((fields & ITEM_X) != 0)
+            writeZigzag(item.getX() - base.getX());
+        if ((fields & ITEM_Y) != 0)
+            writeZigzag(item.getY() - base.getY());
+        if ((fields & ITEM_ROTATE) != 0)
+            writeDouble(item.getRotate());
+        if ((fields & ITEM_SCALE) != 0)
+            writeDouble(item.getScale());
+        if ((fields & ITEM_VIEW_WINDOW) != 0)
+            writeViewWindow(item.getViewWindow());
+    }
+
+    private void writeViewWindow(GameItemViewWindow viewWindow) throws IOException {
+
+        if (viewWindow == null) {
+            out.writeByte(0);
+            return;
+        }
+
+        out.writeByte(1);
+
+        Integer[] values = {viewWindow.getStartX(), viewWindow.getStartY(),
+                viewWindow.getWidth(), viewWindow.getHeight()};
+
+        int fields = 0;
+        for (int k = 0; k < values.length; k++)
+            if (values[k] != null)
+                fields |= 1 << k;
+
+        out.writeByte(fields);
+        for (Integer value : values)
+            if (value != null)
+                writeZigzag(value);
+    }
+
+    private void writeStatus(Map<String, GamePlayerStatus> status) throws IOException {
+
+        if (status == null) {
+            writeVarint(0);
+            return;
+        }
+
+        List<Map.Entry<String, GamePlayerStatus>> entries = new ArrayList<>();
+        for (Map.Entry<String, GamePlayerStatus> entry : status.entrySet())
+            if (entry.getValue() != null)
+                entries.add(entry);
+
+        writeVarint(entries.size() + 1);
+        for (Map.Entry<String, GamePlayerStatus> entry : entries) {
+            GamePlayerStatus playerStatus = entry.getValue();
+
+            int fields = 0;
+            if (playerStatus.getPoints() != null)
+                fields |= STATUS_POINTS;
+            if (playerStatus.getClassification() != null)
+                fields |= STATUS_CLASSIFICATION;
+            if (playerStatus.getObservations() != null)
+                fields |= STATUS_OBSERVATIONS;
+
+            writeRef(entry.getKey());
+            out.writeByte(fields);
+
+            if ((fields & STATUS_POINTS) != 0)
+                writeZigzag(playerStatus.getPoints());
+            if ((fields & STATUS_CLASSIFICATION) != 0)
+                writeRef(playerStatus.getClassification().name());
+            if ((fields & STATUS_OBSERVATIONS) != 0)
+                writeString(playerStatus.getObservations());
+        }
+    }
+
+    private void writeMessages(Map<String, String> messages) throws IOException {
+
+        if (messages == null) {
+            writeVarint(0);
+            return;
+        }
+
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        for (Map.Entry<String, String> entry : messages.entrySet())
+            if (entry.getValue() != null)
+                entries.add(entry);
+
+        writeVarint(entries.size() + 1);
+        for (Map.Entry<String, String> entry : entries) {
+            writeRef(entry.getKey());
+            writeString(entry.getValue());
+        }
+    }
+
+    private void writeOp(int code, int argument) throws IOException {
+        writeVarint(argument << 3 | code);
+    }
+
+    private void writeRef(String string) throws IOException {
+        writeVarint(string == null ? 0 : table.get(string) + 1);
+    }
+
+    private void writeString(String string) throws IOException {
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeDouble(Double value) throws IOException {
+
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+
+        out.writeByte(1);
+        out.writeDouble(value);
+    }
+
+    private void writeZigzag(int value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    private void writeVarint(int value) throws IOException {
+
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    /**
+     * Are two items drawn the same way?
+     *
+     * @param a {@link GameFrameItem} an item
+     * @param b {@link GameFrameItem} another item
+     * @return {@code true} if the items are equal; {@code false} otherwise
+     */
+    static boolean sameItem(GameFrameItem a, GameFrameItem b) {
+
+        return a == b || (a.getX() == b.getX() && a.getY() == b.getY() &&
+                Objects.equals(a.getSprite(), b.getSprite()) &&
+                Objects.equals(a.getRotate(), b.getRotate()) &&
+                Objects.equals(a.getScale(), b.getScale()) &&
+                sameViewWindow(a.getViewWindow(), b.getViewWindow()));
+    }
+
+    private static boolean sameViewWindow(GameItemViewWindow a, GameItemViewWindow b) {
+
+        if (a == null || b == null)
+            return a == b;
+
+        return Objects.equals(a.getStartX(), b.getStartX()) &&
+                Objects.equals(a.getStartY(), b.getStartY()) &&
+                Objects.equals(a.getWidth(), b.getWidth()) &&
+                Objects.equals(a.getHeight(), b.getHeight());
+    }
+
+    private static boolean sameMessages(Map<String, String> a, Map<String, String> b) {
+
+        if (a == null || b == null)
+            return a == b;
+
+        // iteration order is part of the frame
+        return new ArrayList<>(a.entrySet()).equals(new ArrayList<>(b.entrySet()));
+    }
+
+    private static boolean sameStatus(Map<String, GamePlayerStatus> a, Map<String, GamePlayerStatus> b) {
+
+        if (a == null || b == null)
+            return a == b;
+
+        if (!a.keySet().equals(b.keySet()))
+            return false;
+
+        // iteration order is part of the frame
+        Iterator<Map.Entry<String, GamePlayerStatus>> entriesA = a.entrySet().iterator();
+        Iterator<Map.Entry<String, GamePlayerStatus>> entriesB = b.entrySet().iterator();
+        while (entriesA.hasNext()) {
+            Map.Entry<String, GamePlayerStatus> entryA = entriesA.next();
+            Map.Entry<String, GamePlayerStatus> entryB = entriesB.next();
+
+            if (!entryA.getKey().equals(entryB.getKey()))
+                return false;
+
+            GamePlayerStatus statusA = entryA.getValue();
+            GamePlayerStatus statusB = entryB.getValue();
+            if (statusA == null || statusB == null) {
+                if (statusA != statusB)
+                    return false;
+                continue;
+            }
+
+            if (!Objects.equals(statusA.getPoints(), statusB.getPoints()) ||
+                    statusA.getClassification() != statusB.getClassification() ||
+                    !Objects.equals(statusA.getObservations(), statusB.getObservations()))
+                return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieFrame;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieHeader;
+
+/**
+ * Listener of the frames completed by a movie builder (e.g., to send them
+ * to spectators of a match in progress)
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public interface FrameListener {
+
+    /**
+     * Called on the thread of the game when a frame is complete, i.e., when
+     * the next frame is added or the movie is closed. The frame is not
+     * changed afterwards.
+     *
+     * @param header {@link GameMovieHeader} header of the movie
+     * @param frame  {@link GameMovieFrame} frame completed
+     */
+    void frameCompleted(GameMovieHeader header, GameMovieFrame frame);
+}
@@ -3,7 +3,9 @@ package pt.up.fc.dcc.asura.builder.base.movie;
 import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
 import pt.up.fc.dcc.asura.builder.base.exceptions.PlayerException;
 import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovie;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieIndex;
 import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodec;
 
 import java.io.OutputStream;
 import java.util.logging.Logger;
@@ -78,6 +80,24 @@ public interface GameMovieBuilder {
      */
     void setSpriteAnchor(SpriteAnchor anchor);
 
+    /**
+     * Check if items refer to sprites by their ids instead of their names
+     *
+     * @return {@code true} if items refer to sprites by their ids,
+     * {@code false} otherwise
+     */
+    boolean isSpriteIds();
+
+    /**
+     * Set if items refer to sprites by their ids instead of their names (not
+     * set by default), in order to shrink the movie. Ids are assigned to
+     * sprites as they are added and listed in the header of the movie.
+     *
+     * @param spriteIds {@code true} if items refer to sprites by their ids,
+     *                  {@code false} otherwise
+     */
+    void setSpriteIds(boolean spriteIds);
+
     /**
      * Add frame to game movie
      */
@@ -86,50 +106,54 @@ public interface GameMovieBuilder {
     /**
      * Add sprite item to current frame
      *
-     * @param sprite sprite identifier
+     * @param sprite sprite identifier (a sprite added to the movie)
      * @param x      horizontal position
      * @param y      vertical position
+     * @throws BuilderException - If the sprite was not added to the movie
      */
     void addItem(String sprite, int x, int y);
 
     /**
      * Add sprite item to current frame with rotation
      *
-     * @param sprite sprite identifier
+     * @param sprite sprite identifier (a sprite added to the movie)
      * @param x      horizontal position
      * @param y      vertical position
      * @param rotate rotation of the sprite (default 0)
+     * @throws BuilderException - If the sprite was not added to the movie
      */
     void addItem(String sprite, int x, int y, double rotate);
 
     /**
      * Add sprite item to current frame with rotation and scaling
      *
-     * @param sprite sprite identifier
+     * @param sprite sprite identifier (a sprite added to the movie)
      * @param x      horizontal position
      * @param y      vertical position
      * @param rotate rotation of the sprite (default 0)
      * @param scale  scale to draw object (default is 1)
+     * @throws BuilderException - If the sprite was not added to the movie
      */
     void addItem(String sprite, int x, int y, double rotate, double scale);
 
     /**
      * Add sprite item to current frame with view window
      *
-     * @param sprite sprite identifier
+     * @param sprite sprite identifier (a sprite added to the movie)
      * @param x      horizontal position
      * @param y      vertical position
      * @param startX the x coordinate of the upper-left corner of the view window
      * @param startY the y coordinate of the upper-left corner of the view window
      * @param width  the width of the view window
      * @param height the height of the view window
+     * @throws BuilderException - If the sprite was not added to the movie
      */
     void addItem(String sprite, int x, int y, Integer startX, Integer startY, Integer width, Integer height);
 
     /**
      * Add sprite item to current frame with rotation and scaling and view window
      *
-     * @param sprite sprite identifier
+     * @param sprite sprite identifier (a sprite added to the movie)
      * @param x      horizontal position
      * @param y      vertical position
      * @param rotate rotation of the sprite (default 0)
@@ -138,6 +162,7 @@ public interface GameMovieBuilder {
      * @param startY the y coordinate of the upper-left corner of the view window
      * @param width  the width of the view window
      * @param height the height of the view window
+     * @throws BuilderException - If the sprite was not added to the movie
      */
     void addItem(String sprite, int x, int y, double rotate, double scale,
                  Integer startX, Integer startY, Integer width, Integer height);
@@ -217,6 +242,21 @@ public interface GameMovieBuilder {
      */
     void restoreFrame();
 
+    /**
+     * Get the maximum number of saved frames
+     *
+     * @return maximum number of saved frames
+     */
+    int getFrameStackSize();
+
+    /**
+     * Set the maximum number of saved frames (15 by default). When a frame
+     * is saved on a full stack, the oldest saved frame is discarded.
+     *
+     * @param frameStackSize maximum number of saved frames
+     */
+    void setFrameStackSize(int frameStackSize);
+
     /**
      * Get the movie of the game
      *
@@ -240,6 +280,32 @@ public interface GameMovieBuilder {
      */
     void toFile(OutputStream stream, Compression algorithm);
 
+    /**
+     * Write JSON game movie data to a stream, compressing it with a codec as
+     * it is written. The stream is not closed.
+     *
+     * @param stream {@link OutputStream} output stream which will receive data
+     * @param codec  {@link StreamCodec} codec to compress the data with
+     */
+    void toFile(OutputStream stream, StreamCodec codec);
+
+    /**
+     * Write game movie data to a stream in a given format
+     *
+     * @param stream {@link OutputStream} output stream which will receive data
+     * @param format {@link Format} format of the movie
+     */
+    void toFile(OutputStream stream, Format format);
+
+    /**
+     * Get the index of the movie written to a stream in JSON: offsets of the
+     * header and of each frame in the uncompressed document
+     *
+     * @return {@link GameMovieIndex} index of the movie or {@code null} if
+     * it was not written to a stream in JSON yet
+     */
+    GameMovieIndex getIndex();
+
     /**
      * Build JSON string of the game movie using a compression algorithm on
      * the output.
@@ -257,10 +323,19 @@ public interface GameMovieBuilder {
     String toString(Compression algorithm);
 
     /**
-     * Available compression algorithms
+     * Available compression algorithms. DEFLATE and GZIP produce binary
+     * data, hence they can only be written to streams.
      */
     enum Compression {
-        NONE, LZW, LZ77
+        NONE, LZW, LZ77, DEFLATE, GZIP
+    }
+
+    /**
+     * Available formats of the movie: JSON or compact binary (see
+     * {@link BinaryMovieWriter})
+     */
+    enum Format {
+        JSON, BINARY
     }
 
     /**
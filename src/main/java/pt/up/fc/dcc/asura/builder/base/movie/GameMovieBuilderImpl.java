@@ -1,259 +1,168 @@
 package pt.up.fc.dcc.asura.builder.base.movie;
 
 import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
-import pt.up.fc.dcc.asura.builder.base.exceptions.PlayerException;
-import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovie;
 import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieFrame;
-import pt.up.fc.dcc.asura.builder.base.movie.models.GamePlayerStatus;
-import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
-import pt.up.fc.dcc.asura.builder.base.utils.CopyUtils;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieIndex;
 import pt.up.fc.dcc.asura.builder.base.utils.Json;
-import pt.up.fc.dcc.asura.builder.base.utils.compression.LZ77;
-import pt.up.fc.dcc.asura.builder.base.utils.compression.LZW;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.*;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Implementation of game movie builder
+ * Implementation of game movie builder that keeps the whole movie in memory
  *
  * @author José Paulo Leal <code>zp@dcc.fc.up.pt</code>
  * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
  */
-public class GameMovieBuilderImpl implements GameMovieBuilder {
+public class GameMovieBuilderImpl extends AbstractGameMovieBuilder {
 
-    private static final int STACK_SIZE = 15;
-
-    private GameMovie movie = new GameMovie();
-    private GameMovieFrame currentFrame;
-
-    private LinkedList<GameMovieFrame> frameStack = new LinkedList<>();
-
-    @Override
-    public void setTitle(String title) {
-        movie.getHeader().setTitle(title);
-    }
-
-    @Override
-    public void setBackground(String background) {
-        movie.getHeader().setBackground(background);
-    }
-
-    @Override
-    public void setWidth(int width) {
-        movie.getHeader().setWidth(width);
-    }
-
-    @Override
-    public void setHeight(int height) {
-        movie.getHeader().setHeight(height);
-    }
+    // index of the JSON last written to a stream
+    private GameMovieIndex index = null;
 
     @Override
-    public void addSprite(String name, String url) {
-        movie.getHeader().getSprites().put(name, url);
-    }
-
-    @Override
-    public void addPlayer(String player, String name) {
-        movie.getHeader().getPlayers().put(player, name);
-    }
-
-    @Override
-    public void setFps(int fps) {
-        movie.getHeader().setFps(fps);
-    }
-
-    @Override
-    public void setSpriteAnchor(SpriteAnchor anchorPoint) {
-        movie.getHeader().setAnchorPoint(anchorPoint);
-    }
+    public void addFrame() {
+        completeCurrentFrame();
 
-    @Override
-    public void saveFrame() {
-        saveFrame(true, true);
+        currentFrame = new GameMovieFrame(spriteTable);
+        movie.getFrames().add(currentFrame);
     }
 
     @Override
-    public void saveFrame(boolean status, boolean messages) {
-
-        GameMovieFrame frame = new GameMovieFrame();
-        frame.setItems(new ArrayList<>(currentFrame.getItems()));
-
-        if (status)
-            frame.setStatus(CopyUtils.deepCopy(currentFrame.getStatus()));
-        else
-            frame.setStatus(null);
-
-        if (messages)
-            frame.setMessages(CopyUtils.deepCopy(currentFrame.getMessages()));
-        else
-            frame.setMessages(null);
-
-        frameStack.addLast(frame);
-
-        if (frameStack.size() > STACK_SIZE)
-            frameStack.removeFirst();
+    public void toFile(OutputStream stream) {
+        toFile(stream, Compression.NONE);
     }
 
     @Override
-    public void restoreFrame() {
+    public void toFile(OutputStream stream, Compression algorithm) {
 
-        if (frameStack.isEmpty())
+        StreamCodec codec = getStreamCodec(algorithm);
+        if (codec != null) {
+            toFile(stream, codec);
             return;
+        }
 
-        GameMovieFrame frame = frameStack.removeLast();
-
-        currentFrame.setItems(frame.getItems());
-
-        if (frame.getStatus() != null)
-            currentFrame.setStatus(frame.getStatus());
-
-        if (frame.getMessages() != null)
-            currentFrame.setMessages(frame.getMessages());
-    }
-
-    @Override
-    public void addFrame() {
-        currentFrame = new GameMovieFrame();
-        movie.getFrames().add(currentFrame);
-    }
-
-    @Override
-    public void addItem(String sprite, int x, int y) {
-        currentFrame.addItem(sprite, x, y, null, null);
-    }
-
-    @Override
-    public void addItem(String sprite, int x, int y, double rotate) {
-        currentFrame.addItem(sprite, x, y, rotate, null);
-    }
-
-    @Override
-    public void addItem(String sprite, int x, int y, double rotate, double scale) {
-        currentFrame.addItem(sprite, x, y, rotate, scale);
-    }
+        CompressionAlgorithm compressor = getCompressionAlgorithm(algorithm);
 
-    @Override
-    public void addItem(String sprite, int x, int y, Integer startX, Integer startY, Integer width, Integer height) {
-        currentFrame.addItem(sprite, x, y, null, null, startX, startY, width, height);
+        try {
+            if (compressor == null) {
+                writeJson(stream);
+                return;
+            }
+
+            try (OutputStream compressed = compressor.compressingStream(stream)) {
+                writeJson(compressed);
+            }
+        } catch (IOException e) {
+            throw new BuilderException("Error writing movie to stream: " + e.getMessage());
+        }
     }
 
     @Override
-    public void addItem(String sprite, int x, int y, double rotate, double scale,
-                        Integer startX, Integer startY, Integer width, Integer height) {
-        currentFrame.addItem(sprite, x, y, rotate, scale, startX, startY, width, height);
-    }
+    public void toFile(OutputStream stream, StreamCodec codec) {
 
-    @Override
-    public void addMessage(String player, String message) {
-        currentFrame.getMessages().put(player, message);
-    }
+        // closing the codec finishes the compressed data, but must not close the stream
+        OutputStream unclosable = new FilterOutputStream(stream) {
 
-    @Override
-    public void setPoints(String player, int points) {
-        currentFrame.getStatus(player).setPoints(points);
-    }
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
 
-    @Override
-    public void setClassification(String player, MooshakClassification classification) {
-        currentFrame.getStatus(player).setClassification(classification);
-    }
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
 
-    @Override
-    public void setObservations(String player, String observations) {
-        currentFrame.getStatus(player).setObservations(observations);
+        try (OutputStream encoded = codec.encode(unclosable)) {
+            writeJson(encoded);
+        } catch (IOException e) {
+            throw new BuilderException("Error writing movie to stream: " + e.getMessage());
+        }
     }
 
     @Override
-    public void wrongAnswer(String player, String message) {
-
-        if (currentFrame == null)
-            addFrame();
+    public void toFile(OutputStream stream, Format format) {
 
-        GamePlayerStatus playerStatus = currentFrame.getStatus(player);
-        playerStatus.setClassification(MooshakClassification.WRONG_ANSWER);
-        playerStatus.setObservations(message);
-        playerStatus.setPoints(0);
+        if (format == Format.BINARY)
+            new BinaryMovieWriter(stream).write(movie);
+        else
+            toFile(stream, Compression.NONE);
     }
 
     @Override
-    public void failedEvaluation(BuilderException e) {
-
-        if (currentFrame == null)
-            addFrame();
-
-        for (String playerId : movie.getHeader().getPlayers().keySet()) {
-
-            GamePlayerStatus playerStatus = currentFrame.getStatus(playerId);
-            playerStatus.setClassification(MooshakClassification.REQUIRES_REEVALUATION);
-            playerStatus.setObservations(e.getMessage());
-        }
+    public GameMovieIndex getIndex() {
+        return index;
     }
 
     @Override
-    public void failedEvaluation(PlayerException e) {
-
-        if (currentFrame == null)
-            addFrame();
+    public String toString(Compression algorithm) {
 
-        GamePlayerStatus erroneousPlayerStatus = currentFrame.getStatus(e.getPlayerId());
-        erroneousPlayerStatus.setClassification(e.getClassification());
-        erroneousPlayerStatus.setPoints(0);
-        erroneousPlayerStatus.setObservations(e.getMessage());
+        if (getStreamCodec(algorithm) != null)
+            throw new BuilderException("Compression " + algorithm + " produces binary data, write it to a stream");
 
-        for (String playerId : movie.getHeader().getPlayers().keySet()) {
+        String s = Json.get().objectToString(movie);
 
-            if (playerId.equals(e.getPlayerId()))
-                continue;
+        CompressionAlgorithm compressor = getCompressionAlgorithm(algorithm);
+        if (compressor == null)
+            return s;
 
-            GamePlayerStatus playerStatus = currentFrame.getStatus(playerId);
-            playerStatus.setClassification(MooshakClassification.REQUIRES_REEVALUATION);
-            playerStatus.setObservations(e.getMessage());
-        }
+        return compressor.compress(s);
     }
 
-    @Override
-    public GameMovie getMovie() {
-        return movie;
-    }
+    /**
+     * Write the JSON of the movie to a stream, encoded in UTF-8
+     *
+     * @param stream {@link OutputStream} stream to write to
+     * @throws IOException - If an I/O error occurs
+     */
+    private void writeJson(OutputStream stream) throws IOException {
 
-    @Override
-    public void toFile(OutputStream stream) {
-        toFile(stream, Compression.NONE);
-    }
-
-    @Override
-    public void toFile(OutputStream stream, Compression algorithm) {
+        MovieJsonWriter writer = new MovieJsonWriter(
+                new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)));
 
-        try {
-            stream.write(toString(algorithm).getBytes());
-        } catch (IOException e) {
-            throw new BuilderException("Error writing movie to stream: " + e.getMessage());
-        }
-    }
+        writer.writeHeader(movie.getHeader());
+        for (GameMovieFrame frame : movie.getFrames())
+            writer.writeFrame(frame);
+        writer.finish();
 
-    @Override
-    public String toString() {
-        return toString(Compression.NONE);
+        index = writer.getIndex();
     }
 
-    @Override
-    public String toString(Compression algorithm) {
-
-        String s = Json.get().objectToString(movie);
+    /**
+     * Get the implementation of a compression algorithm
+     *
+     * @param algorithm {@link Compression} compression algorithm
+     * @return {@link CompressionAlgorithm} implementation or {@code null} for no compression
+     */
+    private static CompressionAlgorithm getCompressionAlgorithm(Compression algorithm) {
 
         switch (algorithm) {
             case LZW:
-                return new LZW().compress(s);
+                return new LZW();
             case LZ77:
-                return new LZ77().compress(s);
+                return new LZ77();
             default:
-                return s;
+                return null;
         }
     }
 
+    /**
+     * Get the codec of a compression algorithm of {@code java.util.zip}
+     *
+     * @param algorithm {@link Compression} compression algorithm
+     * @return {@link StreamCodec} codec or {@code null} if it is not a codec
+     */
+    private static StreamCodec getStreamCodec(Compression algorithm) {
 
+        switch (algorithm) {
+            case DEFLATE:
+                return StreamCodecs.get(DeflateCodec.NAME);
+            case GZIP:
+                return StreamCodecs.get(GzipCodec.NAME);
+            default:
+                return null;
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import com.google.gson.stream.JsonWriter;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieFrame;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieHeader;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieIndex;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+import pt.up.fc.dcc.asura.builder.base.utils.Utf8CountingWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes the JSON of a movie piece by piece (the header, then each frame),
+ * the same as Gson writes a {@link pt.up.fc.dcc.asura.builder.base.movie.models.GameMovie},
+ * keeping the {@link GameMovieIndex} of the document as it goes.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+class MovieJsonWriter implements Closeable {
+
+    private final Utf8CountingWriter counter;
+    private final JsonWriter writer;
+
+    private long headerStart;
+    private long headerEnd;
+    private long[] frameStarts = new long[64];
+    private int frameCount = 0;
+    private long framesEnd;
+
+    private boolean headerWritten = false;
+    private boolean finished = false;
+
+    /**
+     * Create a writer of the JSON of a movie
+     *
+     * @param writer {@link Writer} writer of characters that are encoded in UTF-8
+     * @throws IOException - If an I/O error occurs
+     */
+    MovieJsonWriter(Writer writer) throws IOException {
+        counter = new Utf8CountingWriter(writer);
+        this.writer = Json.get().newJsonWriter(counter);
+    }
+
+    boolean isHeaderWritten() {
+        return headerWritten;
+    }
+
+    /**
+     * Write the header, which must be written before any frame
+     *
+     * @param header {@link GameMovieHeader} header of the movie
+     * @throws IOException - If an I/O error occurs
+     */
+    void writeHeader(GameMovieHeader header) throws IOException {
+
+        writer.beginObject();
+        writer.name("header");
+
+        // the name is only written together with the value
+        headerStart = counter.getCount() + "\"header\":".length();
+        Json.get().writeToJsonWriter(header, GameMovieHeader.class, writer);
+        headerEnd = counter.getCount();
+
+        writer.name("frames");
+        writer.beginArray();
+
+        headerWritten = true;
+    }
+
+    /**
+     * Write a frame
+     *
+     * @param frame {@link GameMovieFrame} frame of the movie
+     * @throws IOException - If an I/O error occurs
+     */
+    void writeFrame(GameMovieFrame frame) throws IOException {
+
+        if (frameCount == frameStarts.length)
+            frameStarts = Arrays.copyOf(frameStarts, frameCount * 2);
+
+        // frames after the first are preceded by a comma
+        frameStarts[frameCount] = counter.getCount() + (frameCount > 0 ? 1 : 0);
+        Json.get().writeToJsonWriter(frame, GameMovieFrame.class, writer);
+        frameCount++;
+    }
+
+    /**
+     * Flush what was written so far
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Terminate the document and flush it, without closing the writer
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    void finish() throws IOException {
+
+        if (finished)
+            return;
+
+        framesEnd = counter.getCount();
+
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+
+        finished = true;
+    }
+
+    /**
+     * Terminate the document and close the writer
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+        writer.close();
+    }
+
+    /**
+     * Get the index of the document written so far
+     *
+     * @return {@link GameMovieIndex} index of the document written so far
+     */
+    GameMovieIndex getIndex() {
+
+        GameMovieIndex index = new GameMovieIndex();
+        index.setHeaderStart(headerStart);
+        index.setHeaderEnd(headerEnd);
+        index.setFrameStarts(Arrays.copyOf(frameStarts, frameCount));
+        index.setFramesEnd(finished ? framesEnd : counter.getCount());
+        index.setLength(counter.getCount());
+
+        return index;
+    }
+}
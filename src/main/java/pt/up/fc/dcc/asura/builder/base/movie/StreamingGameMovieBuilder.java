@@ -0,0 +1,217 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import com.google.gson.JsonIOException;
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieFrame;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieIndex;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.DeflateCodec;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.GzipCodec;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodec;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodecs;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Implementation of game movie builder that writes the movie to a stream as
+ * it is produced. Each frame is written as soon as the next one is added,
+ * hence only the frame being built (and the stack of saved frames) is kept
+ * in memory.
+ * <p>
+ * The header is written together with the first frame, hence it must be
+ * complete before the second frame is added. The movie is only a valid JSON
+ * document after {@link #close()}.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class StreamingGameMovieBuilder extends AbstractGameMovieBuilder implements Closeable {
+
+    private final OutputStream stream;
+    private final StreamCodec codec;
+    private final MovieJsonWriter writer;
+
+    private boolean closed = false;
+    private boolean autoFlush = false;
+    private int frameCount = 0;
+
+    public StreamingGameMovieBuilder(OutputStream stream) {
+        this(stream, null);
+    }
+
+    /**
+     * Create a builder that compresses the movie with a codec as it is
+     * written to the stream
+     *
+     * @param stream {@link OutputStream} stream to write the movie to
+     * @param codec  {@link StreamCodec} codec to compress the movie with or
+     *               {@code null} for no compression
+     */
+    public StreamingGameMovieBuilder(OutputStream stream, StreamCodec codec) {
+        this.stream = stream;
+        this.codec = codec;
+
+        try {
+            OutputStream out = codec == null ? stream : codec.encode(stream);
+            writer = new MovieJsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new BuilderException("Error opening movie stream: " + e.getMessage(), e);
+        }
+    }
+
+    public StreamingGameMovieBuilder(WritableByteChannel channel) {
+        this(Channels.newOutputStream(channel));
+    }
+
+    @Override
+    public void addFrame() {
+
+        writeCurrentFrame();
+
+        currentFrame = new GameMovieFrame(spriteTable);
+
+        movie.getFrames().clear();
+        movie.getFrames().add(currentFrame);
+    }
+
+    public boolean isAutoFlush() {
+        return autoFlush;
+    }
+
+    /**
+     * Flush the stream after each frame, so that readers of the stream (e.g.,
+     * viewers of a match in progress) get frames as soon as they are complete
+     *
+     * @param autoFlush flush the stream after each frame?
+     */
+    public void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Get the number of frames already written to the stream
+     *
+     * @return number of frames already written to the stream
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Write the pending frame, terminate the JSON document and close the stream
+     */
+    @Override
+    public void close() {
+
+        if (closed)
+            return;
+
+        writeCurrentFrame();
+
+        try {
+            if (!writer.isHeaderWritten())
+                writer.writeHeader(movie.getHeader());
+
+            writer.close();
+        } catch (IOException e) {
+            throw new BuilderException("Error closing movie stream: " + e.getMessage(), e);
+        } finally {
+            closed = true;
+        }
+    }
+
+    @Override
+    public void toFile(OutputStream stream) {
+        toFile(stream, codec);
+    }
+
+    @Override
+    public void toFile(OutputStream stream, Compression algorithm) {
+
+        switch (algorithm) {
+            case NONE:
+                toFile(stream, (StreamCodec) null);
+                break;
+            case DEFLATE:
+                toFile(stream, StreamCodecs.get(DeflateCodec.NAME));
+                break;
+            case GZIP:
+                toFile(stream, StreamCodecs.get(GzipCodec.NAME));
+                break;
+            default:
+                throw new BuilderException("Streaming movie builder does not support compression " + algorithm);
+        }
+    }
+
+    @Override
+    public void toFile(OutputStream stream, StreamCodec codec) {
+
+        if (stream != this.stream)
+            throw new BuilderException("Streaming movie builder can only write to its own stream");
+
+        if (!isSameCodec(codec, this.codec))
+            throw new BuilderException("Streaming movie builder compresses with the codec it was created with");
+
+        close();
+    }
+
+    @Override
+    public void toFile(OutputStream stream, Format format) {
+
+        if (format != Format.JSON)
+            throw new BuilderException("Streaming movie builder does not support format " + format);
+
+        toFile(stream);
+    }
+
+    /**
+     * Get the index of the frames already written to the stream
+     *
+     * @return {@link GameMovieIndex} index of the frames already written
+     */
+    @Override
+    public GameMovieIndex getIndex() {
+        return writer.getIndex();
+    }
+
+    @Override
+    public String toString(Compression algorithm) {
+        throw new BuilderException("Streaming movie builder does not keep the movie in memory");
+    }
+
+    private static boolean isSameCodec(StreamCodec codec, StreamCodec other) {
+
+        if (codec == null || other == null)
+            return codec == other;
+
+        return codec.getName().equals(other.getName());
+    }
+
+    /**
+     * Write the frame being built, if any (and the header before the first)
+     */
+    private void writeCurrentFrame() {
+
+        if (closed)
+            throw new BuilderException("Movie stream is already closed");
+
+        if (currentFrame == null)
+            return;
+
+        try {
+            if (!writer.isHeaderWritten())
+                writer.writeHeader(movie.getHeader());
+
+            writer.writeFrame(currentFrame);
+            frameCount++;
+
+            if (autoFlush)
+                writer.flush();
+
+            completeCurrentFrame();
+        } catch (IOException | JsonIOException e) {
+            throw new BuilderException("Error writing movie to stream: " + e.getMessage(), e);
+        }
+    }
+}
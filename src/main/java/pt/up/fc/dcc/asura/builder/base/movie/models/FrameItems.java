@@ -0,0 +1,526 @@
+package pt.up.fc.dcc.asura.builder.base.movie.models;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Items of a frame kept in arrays of primitives (one per field) instead of
+ * an object per item. Sprites are kept as ids of a {@link SpriteTable};
+ * absent rotations and scales are kept as NaN; rotations, scales and view
+ * windows are only kept for frames that have them. {@link GameFrameItem}s
+ * are created on demand, as read-only snapshots of the values at the time
+ * (their setters throw {@link UnsupportedOperationException}); items are
+ * changed by replacing them with {@link #set(int, GameFrameItem)}. The JSON
+ * is the same as that of a list of {@link GameFrameItem}s.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+@JsonAdapter(FrameItems.AdapterFactory.class)
+public class FrameItems extends AbstractList<GameFrameItem> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // flags of view windows: window present and each of its fields present
+    private static final int HAS_WINDOW = 1;
+    private static final int HAS_START_X = 2;
+    private static final int HAS_START_Y = 4;
+    private static final int HAS_WIDTH = 8;
+    private static final int HAS_HEIGHT = 16;
+
+    private final SpriteTable spriteTable;
+
+    private int size = 0;
+
+    private int[] sprites = new int[INITIAL_CAPACITY];
+    private int[] xs = new int[INITIAL_CAPACITY];
+    private int[] ys = new int[INITIAL_CAPACITY];
+
+    // allocated with the first rotation/scale
+    private double[] rotates = null;
+    private double[] scales = null;
+
+    // allocated with the first view window: flags and four values per item
+    private byte[] windowFlags = null;
+    private int[] windows = null;
+
+    public FrameItems() {
+        this(new SpriteTable());
+    }
+
+    public FrameItems(SpriteTable spriteTable) {
+        this.spriteTable = spriteTable;
+    }
+
+    public SpriteTable getSpriteTable() {
+        return spriteTable;
+    }
+
+    /**
+     * Add an item
+     *
+     * @param sprite Sprite identifier
+     * @param x      Horizontal position
+     * @param y      Vertical position
+     * @param rotate Rotation of the sprite (NaN if absent)
+     * @param scale  Scale to draw the sprite (NaN if absent)
+     */
+    public void add(String sprite, int x, int y, double rotate, double scale) {
+        insert(size, spriteTable.getId(sprite), x, y, rotate, scale);
+    }
+
+    /**
+     * Add an item with a view window
+     *
+     * @param sprite Sprite identifier
+     * @param x      Horizontal position
+     * @param y      Vertical position
+     * @param rotate Rotation of the sprite (NaN if absent)
+     * @param scale  Scale to draw the sprite (NaN if absent)
+     * @param startX the x coordinate of the upper-left corner of the view window
+     * @param startY the y coordinate of the upper-left corner of the view window
+     * @param width  the width of the view window
+     * @param height the height of the view window
+     */
+    public void add(String sprite, int x, int y, double rotate, double scale,
+                    Integer startX, Integer startY, Integer width, Integer height) {
+        insert(size, spriteTable.getId(sprite), x, y, rotate, scale);
+        setWindow(size - 1, startX, startY, width, height);
+    }
+
+    /**
+     * Copy the first items
+     *
+     * @param length number of items to copy
+     * @return {@link FrameItems} copy of the first items
+     */
+    public FrameItems copyOf(int length) {
+
+        if (length < 0 || length > size)
+            throw new IndexOutOfBoundsException("Length: " + length + ", Size: " + size);
+
+        FrameItems copy = new FrameItems(spriteTable);
+        copy.size = length;
+
+        int capacity = Math.max(length, INITIAL_CAPACITY);
+        copy.sprites = Arrays.copyOf(sprites, capacity);
+        copy.xs = Arrays.copyOf(xs, capacity);
+        copy.ys = Arrays.copyOf(ys, capacity);
+        copy.rotates = rotates == null ? null : Arrays.copyOf(rotates, capacity);
+        copy.scales = scales == null ? null : Arrays.copyOf(scales, capacity);
+
+        if (windowFlags != null) {
+            copy.windowFlags = Arrays.copyOf(windowFlags, capacity);
+            copy.windows = Arrays.copyOf(windows, capacity * 4);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Get a read-only snapshot of an item. Changes to the item must be made
+     * on a copy and set back with {@link #set(int, GameFrameItem)}.
+     *
+     * @param index index of the item
+     * @return {@link GameFrameItem} read-only snapshot of the item
+     */
+    @Override
+    public GameFrameItem get(int index) {
+        checkIndex(index);
+
+        GameItemViewWindow window = null;
+        if (windowFlags != null && (windowFlags[index] & HAS_WINDOW) != 0)
+            window = new ReadOnlyViewWindow(
+                    getWindowValue(index, 0, HAS_START_X), getWindowValue(index, 1, HAS_START_Y),
+                    getWindowValue(index, 2, HAS_WIDTH), getWindowValue(index, 3, HAS_HEIGHT));
+
+        return new ReadOnlyItem(spriteTable.getName(sprites[index]), xs[index], ys[index],
+                getDouble(rotates, index), getDouble(scales, index), window);
+    }
+
+    @Override
+    public GameFrameItem set(int index, GameFrameItem item) {
+
+        GameFrameItem previous = get(index);
+
+        put(index, item);
+
+        return previous;
+    }
+
+    @Override
+    public void add(int index, GameFrameItem item) {
+
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        insert(index, SpriteTable.NO_SPRITE, 0, 0, Double.NaN, Double.NaN);
+        put(index, item);
+    }
+
+    @Override
+    public GameFrameItem remove(int index) {
+
+        GameFrameItem item = get(index);
+
+        removeRange(index, index + 1);
+
+        return item;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+
+        int moved = size - toIndex;
+
+        System.arraycopy(sprites, toIndex, sprites, fromIndex, moved);
+        System.arraycopy(xs, toIndex, xs, fromIndex, moved);
+        System.arraycopy(ys, toIndex, ys, fromIndex, moved);
+        if (rotates != null)
+            System.arraycopy(rotates, toIndex, rotates, fromIndex, moved);
+        if (scales != null)
+            System.arraycopy(scales, toIndex, scales, fromIndex, moved);
+
+        if (windowFlags != null) {
+            System.arraycopy(windowFlags, toIndex, windowFlags, fromIndex, moved);
+            System.arraycopy(windows, toIndex * 4, windows, fromIndex * 4, moved * 4);
+            Arrays.fill(windowFlags, fromIndex + moved, size, (byte) 0);
+        }
+
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        removeRange(0, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void insert(int index, int sprite, int x, int y, double rotate, double scale) {
+
+        if (size == sprites.length)
+            grow();
+
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(sprites, index, sprites, index + 1, moved);
+            System.arraycopy(xs, index, xs, index + 1, moved);
+            System.arraycopy(ys, index, ys, index + 1, moved);
+            if (rotates != null)
+                System.arraycopy(rotates, index, rotates, index + 1, moved);
+            if (scales != null)
+                System.arraycopy(scales, index, scales, index + 1, moved);
+
+            if (windowFlags != null) {
+                System.arraycopy(windowFlags, index, windowFlags, index + 1, moved);
+                System.arraycopy(windows, index * 4, windows, (index + 1) * 4, moved * 4);
+            }
+        }
+
+        sprites[index] = sprite;
+        xs[index] = x;
+        ys[index] = y;
+        size++;
+
+        rotates = setDouble(rotates, index, rotate);
+        scales = setDouble(scales, index, scale);
+
+        if (windowFlags != null)
+            windowFlags[index] = 0;
+
+        modCount++;
+    }
+
+    private void put(int index, GameFrameItem item) {
+
+        sprites[index] = spriteTable.getId(item.getSprite());
+        xs[index] = item.getX();
+        ys[index] = item.getY();
+        rotates = setDouble(rotates, index, unbox(item.getRotate()));
+        scales = setDouble(scales, index, unbox(item.getScale()));
+
+        GameItemViewWindow window = item.getViewWindow();
+        if (window != null)
+            setWindow(index, window.getStartX(), window.getStartY(), window.getWidth(), window.getHeight());
+        else if (windowFlags != null)
+            windowFlags[index] = 0;
+    }
+
+    private void setWindow(int index, Integer startX, Integer startY, Integer width, Integer height) {
+
+        if (windowFlags == null) {
+            windowFlags = new byte[sprites.length];
+            windows = new int[sprites.length * 4];
+        }
+
+        int flags = HAS_WINDOW;
+        flags |= setWindowValue(index, 0, startX, HAS_START_X);
+        flags |= setWindowValue(index, 1, startY, HAS_START_Y);
+        flags |= setWindowValue(index, 2, width, HAS_WIDTH);
+        flags |= setWindowValue(index, 3, height, HAS_HEIGHT);
+
+        windowFlags[index] = (byte) flags;
+    }
+
+    private int setWindowValue(int index, int field, Integer value, int flag) {
+        windows[index * 4 + field] = value == null ? 0 : value;
+        return value == null ? 0 : flag;
+    }
+
+    private Integer getWindowValue(int index, int field, int flag) {
+        return (windowFlags[index] & flag) != 0 ? windows[index * 4 + field] : null;
+    }
+
+    private void grow() {
+
+        int capacity = sprites.length * 2;
+
+        sprites = Arrays.copyOf(sprites, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        if (rotates != null)
+            rotates = growDoubles(rotates, capacity);
+        if (scales != null)
+            scales = growDoubles(scales, capacity);
+
+        if (windowFlags != null) {
+            windowFlags = Arrays.copyOf(windowFlags, capacity);
+            windows = Arrays.copyOf(windows, capacity * 4);
+        }
+    }
+
+    /**
+     * Set a rotation/scale, allocating the array (filled with NaN) for the
+     * first value that is present
+     *
+     * @param values array of values or {@code null} if all are absent
+     * @param index  index of the item
+     * @param value  value or NaN if absent
+     * @return array of values or {@code null} if all are absent
+     */
+    private double[] setDouble(double[] values, int index, double value) {
+
+        if (values == null) {
+            if (Double.isNaN(value))
+                return null;
+
+            values = new double[sprites.length];
+            Arrays.fill(values, Double.NaN);
+        }
+
+        values[index] = value;
+
+        return values;
+    }
+
+    private static Double getDouble(double[] values, int index) {
+        return values == null || Double.isNaN(values[index]) ? null : values[index];
+    }
+
+    private static double[] growDoubles(double[] values, int capacity) {
+
+        int length = values.length;
+
+        values = Arrays.copyOf(values, capacity);
+        Arrays.fill(values, length, capacity, Double.NaN);
+
+        return values;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private static double unbox(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    /**
+     * Write the items as JSON without creating {@link GameFrameItem}s
+     *
+     * @param out {@link JsonWriter} writer of JSON
+     * @throws IOException - If an I/O error occurs
+     */
+    private void write(JsonWriter out) throws IOException {
+
+        out.beginArray();
+
+        for (int i = 0; i < size; i++) {
+            out.beginObject();
+
+            if (sprites[i] != SpriteTable.NO_SPRITE) {
+                if (spriteTable.isWriteIds())
+                    out.name("sprite").value(sprites[i]);
+                else
+                    out.name("sprite").value(spriteTable.getName(sprites[i]));
+            }
+
+            out.name("x").value(xs[i]);
+            out.name("y").value(ys[i]);
+
+            if (rotates != null && !Double.isNaN(rotates[i]))
+                out.name("rotate").value(rotates[i]);
+
+            if (scales != null && !Double.isNaN(scales[i]))
+                out.name("scale").value(scales[i]);
+
+            if (windowFlags != null && (windowFlags[i] & HAS_WINDOW) != 0) {
+                out.name("view_window").beginObject();
+                writeWindowValue(out, i, 0, HAS_START_X, "start_x");
+                writeWindowValue(out, i, 1, HAS_START_Y, "start_y");
+                writeWindowValue(out, i, 2, HAS_WIDTH, "width");
+                writeWindowValue(out, i, 3, HAS_HEIGHT, "height");
+                out.endObject();
+            }
+
+            out.endObject();
+        }
+
+        out.endArray();
+    }
+
+    private void writeWindowValue(JsonWriter out, int index, int field, int flag, String name)
+            throws IOException {
+
+        if ((windowFlags[index] & flag) != 0)
+            out.name(name).value(windows[index * 4 + field]);
+    }
+
+    /**
+     * Item that cannot be changed, since changes would not reach the arrays
+     */
+    private static class ReadOnlyItem extends GameFrameItem {
+
+        ReadOnlyItem(String sprite, int x, int y, Double rotate, Double scale, GameItemViewWindow viewWindow) {
+            super(sprite, x, y, rotate, scale);
+            super.setViewWindow(viewWindow);
+        }
+
+        @Override
+        public void setSprite(String sprite) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setX(int x) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setY(int y) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setRotate(Double rotate) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setScale(Double scale) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setViewWindow(GameItemViewWindow viewWindow) {
+            throw readOnly();
+        }
+    }
+
+    /**
+     * View window of an item that cannot be changed
+     */
+    private static class ReadOnlyViewWindow extends GameItemViewWindow {
+
+        ReadOnlyViewWindow(Integer startX, Integer startY, Integer width, Integer height) {
+            super(startX, startY, width, height);
+        }
+
+        @Override
+        public void setStartX(Integer startX) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStartY(Integer startY) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setWidth(Integer width) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setHeight(Integer height) {
+            throw readOnly();
+        }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Items of frames are read-only, replace them with set(index, item)");
+    }
+
+    /**
+     * Factory of the JSON adapter of frame items: written directly from the
+     * arrays, read as a list of {@link GameFrameItem}s. Also serves fields
+     * declared as lists of {@link GameFrameItem}s, since Gson picks the
+     * adapter of their declared type.
+     */
+    static class AdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+
+            TypeAdapter<GameFrameItem> itemAdapter = gson.getAdapter(GameFrameItem.class);
+            TypeAdapter<List<GameFrameItem>> listAdapter = gson.getAdapter(new TypeToken<List<GameFrameItem>>() {});
+
+            return (TypeAdapter<T>) new TypeAdapter<List<GameFrameItem>>() {
+
+                @Override
+                public void write(JsonWriter out, List<GameFrameItem> items) throws IOException {
+
+                    if (items instanceof FrameItems)
+                        ((FrameItems) items).write(out);
+                    else
+                        listAdapter.write(out, items);
+                }
+
+                @Override
+                public FrameItems read(JsonReader in) throws IOException {
+
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        return null;
+                    }
+
+                    FrameItems items = new FrameItems();
+
+                    in.beginArray();
+                    while (in.hasNext())
+                        items.add(itemAdapter.read(in));
+                    in.endArray();
+
+                    return items;
+                }
+            };
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package pt.up.fc.dcc.asura.builder.base.movie.models;
 
+import com.google.gson.annotations.JsonAdapter;
 import pt.up.fc.dcc.asura.builder.base.utils.JsonObject;
 
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,11 +13,22 @@ import java.util.Map;
  * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
  */
 public class GameMovieFrame extends JsonObject {
-    private List<GameFrameItem> items = new ArrayList<>();
+    @JsonAdapter(FrameItems.AdapterFactory.class)
+    private List<GameFrameItem> items;
     private Map<String, GamePlayerStatus> status = new LinkedHashMap<>();
     private Map<String, String> messages = new LinkedHashMap<>();
 
     public GameMovieFrame() {
+        this(new SpriteTable());
+    }
+
+    /**
+     * Create a frame whose items keep their sprites in a table
+     *
+     * @param spriteTable {@link SpriteTable} table of sprites of the movie
+     */
+    public GameMovieFrame(SpriteTable spriteTable) {
+        items = new FrameItems(spriteTable);
     }
 
     public List<GameFrameItem> getItems() {
@@ -54,7 +65,11 @@ public class GameMovieFrame extends JsonObject {
      * @param scale  Scale to draw the sprite
      */
     public void addItem(String sprite, int x, int y, Double rotate, Double scale) {
-        items.add(new GameFrameItem(sprite, x, y, rotate, scale));
+
+        if (items instanceof FrameItems)
+            ((FrameItems) items).add(sprite, x, y, unbox(rotate), unbox(scale));
+        else
+            items.add(new GameFrameItem(sprite, x, y, rotate, scale));
     }
 
     /**
@@ -72,7 +87,11 @@ public class GameMovieFrame extends JsonObject {
      */
     public void addItem(String sprite, int x, int y, Double rotate, Double scale,
                         Integer startX, Integer startY, Integer width, Integer height) {
-        items.add(new GameFrameItem(sprite, x, y, rotate, scale, startX, startY, width, height));
+
+        if (items instanceof FrameItems)
+            ((FrameItems) items).add(sprite, x, y, unbox(rotate), unbox(scale), startX, startY, width, height);
+        else
+            items.add(new GameFrameItem(sprite, x, y, rotate, scale, startX, startY, width, height));
     }
 
     /**
@@ -89,4 +108,8 @@ public class GameMovieFrame extends JsonObject {
 
         return status;
     }
+
+    private static double unbox(Double value) {
+        return value == null ? Double.NaN : value;
+    }
 }
@@ -4,6 +4,7 @@ import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilder;
 import pt.up.fc.dcc.asura.builder.base.utils.JsonObject;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +18,7 @@ public class GameMovieHeader extends JsonObject {
     private int width;
     private int height;
     private Map<String, String> sprites = new LinkedHashMap<>();
+    private List<String> spriteIds = null;
     private Map<String, String> players = new LinkedHashMap<>();
     private GameMovieBuilder.SpriteAnchor anchorPoint = GameMovieBuilder.SpriteAnchor.CENTER;
     private int fps;
@@ -63,6 +65,21 @@ public class GameMovieHeader extends JsonObject {
         this.sprites = sprites;
     }
 
+    /**
+     * Get the names of the sprites indexed by the ids that items use instead
+     * of names, if they do
+     *
+     * @return names of the sprites indexed by their ids, or {@code null} if
+     * items use names
+     */
+    public List<String> getSpriteIds() {
+        return spriteIds;
+    }
+
+    public void setSpriteIds(List<String> spriteIds) {
+        this.spriteIds = spriteIds;
+    }
+
     public Map<String, String> getPlayers() {
         return players;
     }
@@ -0,0 +1,73 @@
+package pt.up.fc.dcc.asura.builder.base.movie.models;
+
+import pt.up.fc.dcc.asura.builder.base.utils.JsonObject;
+
+/**
+ * Index of a game movie in JSON: offsets of the header and of each frame
+ * in the (uncompressed) UTF-8 document, so that players can fetch the
+ * header and any frame without the whole movie. Frame {@code i} takes
+ * bytes from {@code frameStarts[i]} to {@code frameStarts[i + 1] - 1}
+ * (exclusive, skipping the comma) or to {@code framesEnd} for the last one.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class GameMovieIndex extends JsonObject {
+    private long headerStart;
+    private long headerEnd;
+    private long[] frameStarts = new long[0];
+    private long framesEnd;
+    private long length;
+
+    public GameMovieIndex() {
+    }
+
+    public long getHeaderStart() {
+        return headerStart;
+    }
+
+    public void setHeaderStart(long headerStart) {
+        this.headerStart = headerStart;
+    }
+
+    public long getHeaderEnd() {
+        return headerEnd;
+    }
+
+    public void setHeaderEnd(long headerEnd) {
+        this.headerEnd = headerEnd;
+    }
+
+    public long[] getFrameStarts() {
+        return frameStarts;
+    }
+
+    public void setFrameStarts(long[] frameStarts) {
+        this.frameStarts = frameStarts;
+    }
+
+    public long getFramesEnd() {
+        return framesEnd;
+    }
+
+    public void setFramesEnd(long framesEnd) {
+        this.framesEnd = framesEnd;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public void setLength(long length) {
+        this.length = length;
+    }
+
+    /**
+     * Get the offset just past the end of a frame
+     *
+     * @param frame index of the frame
+     * @return offset just past the end of the frame
+     */
+    public long getFrameEnd(int frame) {
+        return frame + 1 < frameStarts.length ? frameStarts[frame + 1] - 1 : framesEnd;
+    }
+}
@@ -15,6 +15,12 @@ public class GamePlayerStatus extends JsonObject {
     public GamePlayerStatus() {
     }
 
+    public GamePlayerStatus(GamePlayerStatus status) {
+        this.points = status.points;
+        this.classification = status.classification;
+        this.observations = status.observations;
+    }
+
     public Integer getPoints() {
         return points;
     }
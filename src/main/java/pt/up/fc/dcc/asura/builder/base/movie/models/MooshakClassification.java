@@ -16,6 +16,7 @@ public enum MooshakClassification {
     INVALID_FUNCTION,
     INVALID_EXIT_VALUE,
     RUNTIME_ERROR,
+    COMPILE_TIME_ERROR,
     REQUIRES_REEVALUATION;
 
     public String toString() {
@@ -0,0 +1,104 @@
+package pt.up.fc.dcc.asura.builder.base.movie.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of the names of sprites used by the items of a movie, so that items
+ * keep the id of their sprite instead of its name. Items are written with
+ * the name of their sprite, or with its id if {@link #setWriteIds(boolean)}
+ * is set (the names are then listed in the header of the movie).
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class SpriteTable {
+    public static final int NO_SPRITE = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+
+    private boolean writeIds = false;
+
+    public SpriteTable() {
+    }
+
+    /**
+     * Get the id of a sprite, adding it to the table if it is not there yet
+     *
+     * @param name name of the sprite
+     * @return id of the sprite ({@link #NO_SPRITE} for {@code null})
+     */
+    public int getId(String name) {
+
+        if (name == null)
+            return NO_SPRITE;
+
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+
+        int newId = ids.size();
+        if (newId == names.length)
+            names = Arrays.copyOf(names, newId * 2);
+
+        names[newId] = name;
+        ids.put(name, newId);
+
+        return newId;
+    }
+
+    /**
+     * Get the name of a sprite
+     *
+     * @param id id of the sprite
+     * @return name of the sprite ({@code null} for {@link #NO_SPRITE})
+     */
+    public String getName(int id) {
+        return id == NO_SPRITE ? null : names[id];
+    }
+
+    /**
+     * Get the number of sprites in the table
+     *
+     * @return number of sprites in the table
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Get the names of the sprites, indexed by their ids. The list is a view
+     * of the table, hence it includes sprites added later.
+     *
+     * @return names of the sprites, indexed by their ids
+     */
+    public List<String> getNames() {
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(int index) {
+
+                if (index < 0 || index >= size())
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+
+                return names[index];
+            }
+
+            @Override
+            public int size() {
+                return SpriteTable.this.size();
+            }
+        };
+    }
+
+    public boolean isWriteIds() {
+        return writeIds;
+    }
+
+    public void setWriteIds(boolean writeIds) {
+        this.writeIds = writeIds;
+    }
+}
@@ -1,113 +1,454 @@
 package pt.up.fc.dcc.asura.builder.base.utils;
 
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.*;
 
 /**
- * Utilities for copying/cloning objects
+ * Utilities for copying/cloning objects.
+ * <p>
+ * Objects are copied field by field, following a plan built once per class
+ * with method handles of the constructor and fields. Immutable values
+ * (strings, boxed primitives, enums, ...) are shared; objects referenced
+ * more than once (including cycles) are copied once. Transient fields are
+ * not copied, as with Java serialization.
+ * <p>
+ * Fields of classes of the JDK are not accessible, hence its objects are
+ * copied through their public {@code clone()} or Java serialization, and
+ * collections and maps keep their class whenever it has a public constructor
+ * without arguments. Otherwise, Java serialization is only used if requested,
+ * for objects that cannot be copied field by field.
  *
  * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
  */
 public class CopyUtils {
 
-    @SuppressWarnings("unchecked")
+    private static final Set<Class<?>> IMMUTABLES = new HashSet<>(Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, Class.class,
+            UUID.class, Locale.class));
+
+    private static final ClassValue<FieldPlan> PLANS = new ClassValue<FieldPlan>() {
+
+        @Override
+        protected FieldPlan computeValue(Class<?> type) {
+            return new FieldPlan(type);
+        }
+    };
+
+    // public constructors without arguments of collections and maps
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+
+            if (!Modifier.isPublic(type.getModifiers()))
+                return null;
+
+            try {
+                return MethodHandles.publicLookup().unreflectConstructor(type.getConstructor())
+                        .asType(MethodType.methodType(Object.class));
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    };
+
+    private static final MethodHandle ALLOCATE_INSTANCE = getAllocateInstance();
+
+    /**
+     * Copy an object deeply, resorting to serialization only for objects
+     * of the JDK
+     *
+     * @param obj object to copy
+     * @param <T> type of the object
+     * @return copy of the object
+     * @throws BuilderException - If the object (or an object it references) cannot be copied
+     */
     public static <T> T deepCopy(final T obj) {
-        if (obj == null) {
-            return null;
-        } else if (obj instanceof Map<?, ?>) {
-            return (T) deepCopyMap((Map<?, ?>) obj);
-        } else if (obj instanceof Collection<?>) {
-            return (T) deepCopyCollection((Collection<?>) obj);
-        } else if (obj instanceof Object[]) {
-            return (T) deepCopyObjectArray((Object[]) obj);
-        } else if (obj.getClass().isArray()) {
-            return (T) copyPrimitiveArray(obj);
-        } else if (obj instanceof Serializable) {
-            return (T) deepCopySerializable((Serializable) obj);
-        }
-
-        return obj;
+        return deepCopy(obj, false);
     }
 
-    private static Object copyPrimitiveArray(final Object obj) {
-        final int length = Array.getLength(obj);
-        final Object copy = Array.newInstance(obj.getClass().getComponentType(), length);
-        // deep clone not necessary, primitives are immutable
-        System.arraycopy(obj, 0, copy, 0, length);
-        return copy;
+    /**
+     * Copy an object deeply
+     *
+     * @param obj                   object to copy
+     * @param serializationFallback copy objects that cannot be copied field by
+     *                              field through Java serialization?
+     * @param <T>                   type of the object
+     * @return copy of the object
+     * @throws BuilderException - If the object (or an object it references) cannot be copied
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T deepCopy(final T obj, boolean serializationFallback) {
+        return (T) new Copier(serializationFallback).copy(obj, Object.class);
     }
 
-    private static <E> E[] deepCopyObjectArray(final E[] obj) {
-        final E[] clone = (E[]) Array.newInstance(obj.getClass().getComponentType(), obj.length);
-        for (int i = 0; i < obj.length; i++) {
-            clone[i] = deepCopy(obj[i]);
-        }
+    /**
+     * Check if objects of a class are immutable, hence shared by copies
+     *
+     * @param type class of the objects
+     * @return {@code true} if objects of a class are immutable, {@code false} otherwise
+     */
+    private static boolean isImmutable(Class<?> type) {
+        return IMMUTABLES.contains(type) || type.isEnum() ||
+                (type.getSuperclass() != null && type.getSuperclass().isEnum()) ||
+                type.getName().startsWith("java.time.");
+    }
 
-        return clone;
+    /**
+     * Check if a class is part of the JDK, hence its fields cannot be
+     * accessed (from Java 9 on)
+     *
+     * @param type class to check
+     * @return {@code true} if the class is part of the JDK, {@code false} otherwise
+     */
+    private static boolean isJdkClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") ||
+                name.startsWith("sun.") || name.startsWith("com.sun.");
     }
 
-    private static <E> Collection<E> deepCopyCollection(final Collection<E> obj) {
-        Collection<E> clone;
-        // this is of course far from comprehensive. extend this as needed
-        if (obj instanceof LinkedList<?>) {
-            clone = new LinkedList<>();
-        } else if (obj instanceof SortedSet<?>) {
-            clone = new TreeSet<>();
-        } else if (obj instanceof Set) {
-            clone = new HashSet<>();
-        } else {
-            clone = new ArrayList<>();
+    private static MethodHandle getAllocateInstance() {
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "allocateInstance", MethodType.methodType(Object.class, Class.class))
+                    .bindTo(field.get(null));
+        } catch (Exception e) {
+            return null;
         }
+    }
+
+    /**
+     * State of a deep copy
+     */
+    private static class Copier {
+        private final boolean serializationFallback;
+
+        // copies of the objects already copied
+        private final Map<Object, Object> copies = new IdentityHashMap<>();
 
-        for (E item : obj) {
-            clone.add(deepCopy(item));
+        Copier(boolean serializationFallback) {
+            this.serializationFallback = serializationFallback;
         }
 
-        return clone;
-    }
+        /**
+         * Copy an object
+         *
+         * @param obj      object to copy
+         * @param declared type of the field (or array) in which the copy is kept
+         * @return copy of the object
+         */
+        Object copy(Object obj, Class<?> declared) {
+
+            if (obj == null || isImmutable(obj.getClass()))
+                return obj;
+
+            Object copy = copies.get(obj);
+            if (copy != null)
+                return copy;
+
+            if (obj instanceof Object[])
+                return copyObjectArray((Object[]) obj);
+            else if (obj.getClass().isArray())
+                return copyPrimitiveArray(obj);
+            else if (obj instanceof Map<?, ?>)
+                return copyMap((Map<?, ?>) obj, declared);
+            else if (obj instanceof Collection<?>)
+                return copyCollection((Collection<?>) obj, declared);
+            else if (isJdkClass(obj.getClass()))
+                return copyJdkObject(obj);
+
+            FieldPlan plan = PLANS.get(obj.getClass());
+            if (plan.error == null)
+                return copyFields(obj, plan);
+
+            if (serializationFallback && obj instanceof Serializable)
+                return register(obj, copySerializable((Serializable) obj));
+
+            throw new BuilderException("Cannot copy " + obj.getClass().getName() + ": " + plan.error);
+        }
+
+        private Object register(Object obj, Object copy) {
+            copies.put(obj, copy);
+            return copy;
+        }
+
+        private Object copyPrimitiveArray(final Object obj) {
+            final int length = Array.getLength(obj);
+            final Object copy = Array.newInstance(obj.getClass().getComponentType(), length);
+            // deep clone not necessary, primitives are immutable
+            System.arraycopy(obj, 0, copy, 0, length);
+            return register(obj, copy);
+        }
+
+        private Object[] copyObjectArray(final Object[] obj) {
+            final Object[] clone = (Object[]) Array.newInstance(obj.getClass().getComponentType(), obj.length);
+            register(obj, clone);
+
+            Class<?> componentType = obj.getClass().getComponentType();
+            for (int i = 0; i < obj.length; i++) {
+                clone[i] = copy(obj[i], componentType);
+            }
+
+            return clone;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object copyCollection(final Collection<?> obj, Class<?> declared) {
+
+            // elements of enum sets are immutable
+            if (obj instanceof EnumSet<?>)
+                return register(obj, ((EnumSet<?>) obj).clone());
+
+            Collection<Object> clone;
+            if (obj instanceof SortedSet<?>)
+                clone = new TreeSet<>(((SortedSet<Object>) obj).comparator());
+            else if ((clone = (Collection<Object>) newInstance(obj.getClass())) == null)
+                clone = obj instanceof Set ? new LinkedHashSet<>() : new ArrayList<>();
+
+            if (!declared.isInstance(clone))
+                return copyWhole(obj, "no public constructor without arguments");
+            register(obj, clone);
+
+            for (Object item : obj) {
+                clone.add(copy(item, Object.class));
+            }
 
-    private static <K, V> Map<K, V> deepCopyMap(final Map<K, V> map) {
-        Map<K, V> clone;
-        // this is of course far from comprehensive. extend this as needed
-        if (map instanceof LinkedHashMap<?, ?>) {
-            clone = new LinkedHashMap<>();
-        } else if (map instanceof TreeMap<?, ?>) {
-            clone = new TreeMap<>();
-        } else {
-            clone = new HashMap<>();
+            return clone;
         }
 
-        for (Map.Entry<K, V> entry : map.entrySet()) {
-            clone.put(deepCopy(entry.getKey()), deepCopy(entry.getValue()));
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object copyMap(final Map<?, ?> map, Class<?> declared) {
+
+            // keys of enum maps are immutable, only values are copied
+            if (map instanceof EnumMap<?, ?>) {
+                Map<Object, Object> clone = new EnumMap((EnumMap) map);
+                register(map, clone);
+
+                for (Map.Entry<Object, Object> entry : clone.entrySet()) {
+                    entry.setValue(copy(entry.getValue(), Object.class));
+                }
+
+                return clone;
+            }
+
+            Map<Object, Object> clone;
+            if (map instanceof SortedMap<?, ?>)
+                clone = new TreeMap<>(((SortedMap<Object, Object>) map).comparator());
+            else if ((clone = (Map<Object, Object>) newInstance(map.getClass())) == null)
+                clone = new LinkedHashMap<>();
+
+            if (!declared.isInstance(clone))
+                return copyWhole(map, "no public constructor without arguments");
+            register(map, clone);
+
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                clone.put(copy(entry.getKey(), Object.class), copy(entry.getValue(), Object.class));
+            }
+
+            return clone;
+        }
+
+        /**
+         * Copy an object of the JDK with its public {@code clone()} or, if it
+         * has none, through serialization
+         *
+         * @param obj object to copy
+         * @return copy of the object
+         */
+        private Object copyJdkObject(Object obj) {
+
+            if (obj instanceof Cloneable) {
+                try {
+                    return register(obj, obj.getClass().getMethod("clone").invoke(obj));
+                } catch (ReflectiveOperationException e) {
+                    // not public, copied through serialization
+                }
+            }
+
+            return copyWhole(obj, "not cloneable");
         }
 
-        return clone;
+        /**
+         * Copy an object, that cannot be copied part by part, through
+         * serialization
+         *
+         * @param obj    object to copy
+         * @param reason reason why the object cannot be copied part by part
+         * @return copy of the object
+         */
+        private Object copyWhole(Object obj, String reason) {
+
+            if (!(obj instanceof Serializable))
+                throw new BuilderException("Cannot copy " + obj.getClass().getName() + ": " + reason);
+
+            return register(obj, copySerializable((Serializable) obj));
+        }
+
+        /**
+         * Create an empty collection or map of the same class, if the class
+         * has a public constructor without arguments
+         *
+         * @param type class of the collection or map
+         * @return empty collection or map, or {@code null}
+         */
+        private Object newInstance(Class<?> type) {
+
+            MethodHandle constructor = CONSTRUCTORS.get(type);
+            if (constructor == null)
+                return null;
+
+            try {
+                return constructor.invokeExact();
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        private Object copyFields(Object obj, FieldPlan plan) {
+
+            try {
+                Object copy = plan.newInstance();
+                register(obj, copy);
+
+                for (int i = 0; i < plan.getters.length; i++) {
+                    Object value = plan.getters[i].invokeExact(obj);
+                    plan.setters[i].invokeExact(copy, plan.types[i].isPrimitive() ? value :
+                            copy(value, plan.types[i]));
+                }
+
+                return copy;
+            } catch (BuilderException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new BuilderException("Cannot copy " + obj.getClass().getName() + ": " + e.getMessage(), e);
+            }
+        }
+
+        private Object copySerializable(Serializable obj) {
+            byte[] byteData;
+
+            try (ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
+                 ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteOutputStream)) {
+
+                objectOutputStream.writeObject(obj);
+                objectOutputStream.flush();
+                byteData = byteOutputStream.toByteArray();
+            } catch (IOException e) {
+                throw new BuilderException("Cannot serialize " + obj.getClass().getName() + ": " + e.getMessage(), e);
+            }
+
+            try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(byteData);
+                 ObjectInputStream objectInputStream = new ObjectInputStream(byteInputStream)) {
+
+                return objectInputStream.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new BuilderException("Cannot deserialize " + obj.getClass().getName() + ": " + e.getMessage(), e);
+            }
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T extends Serializable> T deepCopySerializable(T obj) {
-        T copy;
-        byte[] byteData;
+    /**
+     * Plan to copy objects of a class: how to create an instance and the
+     * getter and setter of each non-transient instance field (including
+     * inherited ones), typed as {@code (Object)Object} and
+     * {@code (Object,Object)void}
+     */
+    private static class FieldPlan {
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+        private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+        private final Class<?> type;
+
+        private MethodHandle constructor;
+        private MethodHandle[] getters;
+        private MethodHandle[] setters;
+        private Class<?>[] types;
+
+        // reason why objects of the class cannot be copied field by field
+        private String error = null;
 
-        try (ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteOutputStream)) {
+        FieldPlan(Class<?> type) {
+            this.type = type;
 
-            objectOutputStream.writeObject(obj);
-            objectOutputStream.flush();
-            byteData = byteOutputStream.toByteArray();
-        } catch (IOException e) {
-            return obj;
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+                List<Field> fields = new ArrayList<>();
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+
+                    if (isJdkClass(c)) {
+                        error = "fields of " + c.getName() + " are not accessible";
+                        return;
+                    }
+
+                    for (Field field : c.getDeclaredFields())
+                        if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()))
+                            fields.add(field);
+                }
+
+                getters = new MethodHandle[fields.size()];
+                setters = new MethodHandle[fields.size()];
+                types = new Class<?>[fields.size()];
+                for (int i = 0; i < fields.size(); i++) {
+                    Field field = fields.get(i);
+                    field.setAccessible(true);
+
+                    getters[i] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                    setters[i] = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                    types[i] = field.getType();
+                }
+
+                constructor = getConstructor(lookup);
+                if (constructor == null && ALLOCATE_INSTANCE == null)
+                    error = "no constructor without arguments";
+            } catch (Exception e) {
+                error = e.getMessage();
+            }
         }
 
-        try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(byteData);
-             ObjectInputStream objectInputStream = new ObjectInputStream(byteInputStream)) {
+        private MethodHandle getConstructor(MethodHandles.Lookup lookup) {
+
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
 
-            copy = (T) objectInputStream.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            return obj;
+                return lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
         }
 
-        return copy;
+        /**
+         * Create an instance of the class, with its constructor without
+         * arguments if it has one
+         *
+         * @return new instance of the class
+         * @throws Throwable - If the instance cannot be created
+         */
+        Object newInstance() throws Throwable {
+
+            if (constructor != null)
+                return constructor.invokeExact();
+
+            return (Object) ALLOCATE_INSTANCE.invokeExact(type);
+        }
     }
 }
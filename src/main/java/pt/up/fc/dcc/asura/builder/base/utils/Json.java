@@ -2,12 +2,17 @@ package pt.up.fc.dcc.asura.builder.base.utils;
 
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 
 import java.io.*;
 import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -18,34 +23,89 @@ import java.util.logging.Logger;
 public class Json {
     private final static Logger LOGGER = Logger.getLogger(Json.class.getSimpleName());
 
-    private static GsonBuilder gsonBuilder = null;
+    // guards the builder and the rebuild of the shared instance
+    private static final Object LOCK = new Object();
 
-    private Gson gson;
+    private static GsonBuilder gsonBuilder = newGsonBuilder();
+
+    // shared instance, discarded whenever an adapter is registered
+    private static volatile Json instance = null;
+
+    private final Gson gson;
+
+    // type adapters of the shared Gson keyed by class
+    private final Map<Class<?>, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
 
     private Json(Gson gson) {
         this.gson = gson;
     }
 
+    /**
+     * Get the shared instance. The instance is thread-safe and is rebuilt
+     * only after a type adapter is registered, hence callers should not keep
+     * it across registrations.
+     *
+     * @return {@link Json} the shared instance
+     */
     public static Json get() {
 
-        if (gsonBuilder == null) {
-            gsonBuilder = new GsonBuilder();
-            gsonBuilder.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
+        Json json = instance;
+        if (json == null) {
+            synchronized (LOCK) {
+                if (instance == null)
+                    instance = new Json(gsonBuilder.create());
+                json = instance;
+            }
         }
 
-        return new Json(gsonBuilder.create());
+        return json;
+    }
+
+    private static GsonBuilder newGsonBuilder() {
+        return new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
+    }
+
+    /**
+     * Discard the type adapters registered, so that the shared instance is
+     * rebuilt as it was at first (e.g., between tests)
+     */
+    static void reset() {
+        synchronized (LOCK) {
+            gsonBuilder = newGsonBuilder();
+            instance = null;
+        }
     }
 
     public static void registerTypeAdapter(Type type, Object typeAdapter) {
-        gsonBuilder.registerTypeAdapter(type, typeAdapter);
+        synchronized (LOCK) {
+            gsonBuilder.registerTypeAdapter(type, typeAdapter);
+            instance = null;
+        }
     }
 
     public static void registerTypeAdapterFactory(TypeAdapterFactory factory) {
-        gsonBuilder.registerTypeAdapterFactory(factory);
+        synchronized (LOCK) {
+            gsonBuilder.registerTypeAdapterFactory(factory);
+            instance = null;
+        }
     }
 
     public static void registerTypeHierarchyAdapter(Class<?> baseType, Object typeAdapter) {
-        gsonBuilder.registerTypeHierarchyAdapter(baseType, typeAdapter);
+        synchronized (LOCK) {
+            gsonBuilder.registerTypeHierarchyAdapter(baseType, typeAdapter);
+            instance = null;
+        }
+    }
+
+    /**
+     * Get the type adapter of a class, caching it
+     *
+     * @param modelClass Class of the objects
+     * @return {@link TypeAdapter} type adapter of the class
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> getAdapter(Class<T> modelClass) {
+        return (TypeAdapter<T>) adapters.computeIfAbsent(modelClass, gson::getAdapter);
     }
 
     /***************************************************************************************
@@ -62,6 +122,51 @@ public class Json {
         return gson.fromJson(json, JsonElement.class);
     }
 
+    /**
+     * Convert a JSON string to an object of a class with its cached type
+     * adapter. Behaves as {@link #objectFromString(String, Class)}.
+     *
+     * @param json       JSON string
+     * @param modelClass Class of the object
+     * @return object or {@code null} if the string is {@code null} or empty
+     */
+    public <T> T objectFromStringWithAdapter(String json, Class<T> modelClass) throws RuntimeException {
+
+        if (json == null)
+            return null;
+
+        JsonReader reader = gson.newJsonReader(new StringReader(json));
+
+        T object;
+        boolean empty = true;
+        boolean lenient = reader.isLenient();
+        reader.setLenient(true);
+        try {
+            reader.peek();
+            empty = false;
+            object = getAdapter(modelClass).read(reader);
+        } catch (EOFException e) {
+            if (empty)
+                return null;
+            throw new JsonSyntaxException(e);
+        } catch (IllegalStateException | IOException e) {
+            throw new JsonSyntaxException(e);
+        } finally {
+            reader.setLenient(lenient);
+        }
+
+        try {
+            if (object != null && reader.peek() != JsonToken.END_DOCUMENT)
+                throw new JsonIOException("JSON document was not fully consumed.");
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+
+        return object;
+    }
+
     public <T> Collection<T> collectionFromString(String json) throws RuntimeException {
 
         Type desiredType = new TypeToken<Collection<T>>() {
@@ -119,6 +224,32 @@ public class Json {
         return gson.toJson(object, type);
     }
 
+    /**
+     * Convert an object to a JSON string with the cached type adapter of its
+     * class. Behaves as {@link #objectToString(Object)}.
+     *
+     * @param object Object to convert
+     * @return JSON string
+     */
+    @SuppressWarnings("unchecked")
+    public <T> String objectToStringWithAdapter(T object) throws RuntimeException {
+
+        if (object == null)
+            return gson.toJson(JsonNull.INSTANCE);
+
+        StringWriter writer = new StringWriter();
+        try {
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.setLenient(true);
+            jsonWriter.setHtmlSafe(gson.htmlSafe());
+            getAdapter((Class<T>) object.getClass()).write(jsonWriter, object);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+
+        return writer.toString();
+    }
+
     public <T> String collectionToString(List<T> list) throws RuntimeException {
 
         Type type = new TypeToken<List<T>>() {
@@ -175,6 +306,47 @@ public class Json {
         gson.toJson(object, type, writer);
         writer.flush();
     }
+
+    /**
+     * Create a {@link JsonWriter} with the same settings used by this instance
+     * to convert objects to JSON
+     *
+     * @param writer {@link Writer} writer to wrap
+     * @return {@link JsonWriter} configured writer
+     */
+    public JsonWriter newJsonWriter(Writer writer) throws IOException {
+
+        JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        jsonWriter.setHtmlSafe(gson.htmlSafe());
+
+        return jsonWriter;
+    }
+
+    /**
+     * Create a {@link JsonReader} with the same settings used by this instance
+     * to convert JSON to objects
+     *
+     * @param reader {@link Reader} reader to wrap
+     * @return {@link JsonReader} configured reader
+     */
+    public JsonReader newJsonReader(Reader reader) {
+
+        JsonReader jsonReader = gson.newJsonReader(reader);
+        jsonReader.setLenient(true);
+
+        return jsonReader;
+    }
+
+    /**
+     * Write object as the next value of a {@link JsonWriter}
+     *
+     * @param object Object to write
+     * @param type   {@link Type} type of the object
+     * @param writer {@link JsonWriter} writer to write to
+     */
+    public <T> void writeToJsonWriter(T object, Type type, JsonWriter writer) throws RuntimeException {
+        gson.toJson(object, type, writer);
+    }
 }
 
 
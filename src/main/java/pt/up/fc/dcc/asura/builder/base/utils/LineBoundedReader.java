@@ -0,0 +1,114 @@
+package pt.up.fc.dcc.asura.builder.base.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader that exposes one line of an underlying reader at a time, without
+ * building a {@link String} for it. Lines end as in
+ * {@link java.io.BufferedReader#readLine()} (line feed, carriage return, or
+ * both), and the terminator is not returned.
+ * <p>
+ * Call {@link #nextLine()} to move to the next line; then, the reader
+ * returns the characters of that line followed by end of stream.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class LineBoundedReader extends Reader {
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+
+    private int position = 0;
+    private int limit = 0;
+
+    private boolean endOfLine = true;
+    private boolean skipLineFeed = false;
+
+    public LineBoundedReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Skip the rest of the current line and move to the next line, waiting
+     * for it if necessary
+     *
+     * @return {@code true} if there is a next line; {@code false} at end of stream
+     * @throws IOException - If an I/O error occurs
+     */
+    public boolean nextLine() throws IOException {
+
+        while (!endOfLine)
+            skip(Long.MAX_VALUE);
+
+        if (!fill())
+            return false;
+
+        endOfLine = false;
+        return true;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+
+        if (endOfLine || len == 0)
+            return endOfLine ? -1 : 0;
+
+        if (!fill()) {
+            endOfLine = true;
+            return -1;
+        }
+
+        int count = 0;
+        while (count < len && position < limit) {
+            char c = buffer[position++];
+
+            if (c == '\n' || c == '\r') {
+                endOfLine = true;
+                skipLineFeed = c == '\r';
+                break;
+            }
+
+            cbuf[off + count++] = c;
+        }
+
+        return count == 0 && endOfLine ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Make sure there are buffered characters, skipping the line feed of a
+     * carriage return that ended the previous line
+     *
+     * @return {@code true} if there are buffered characters; {@code false} at end of stream
+     * @throws IOException - If an I/O error occurs
+     */
+    private boolean fill() throws IOException {
+
+        while (true) {
+
+            if (position == limit) {
+                int count = in.read(buffer, 0, buffer.length);
+                if (count == -1)
+                    return false;
+
+                position = 0;
+                limit = count;
+            }
+
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+
+            return true;
+        }
+    }
+}
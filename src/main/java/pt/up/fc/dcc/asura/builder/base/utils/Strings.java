@@ -6,36 +6,24 @@ package pt.up.fc.dcc.asura.builder.base.utils;
  * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
  */
 public class Strings {
-
+    private static final int BUFFER_SIZE = 8192;
 
     /**
-     * Encode utf8 string into char 0 ~ 127
+     * Encode utf8 string into char 0 ~ 255 (one char per byte)
      *
      * @param text {@link String} the text to encode
      * @return {@link String} the encoded text
      */
     public static String uft8Encode(String text) {
 
-        StringBuilder res = new StringBuilder();
+        StringBuilder res = new StringBuilder(text.length());
 
-        for (char c : text.toCharArray()) {
-            int i = (int) c;
-            if (i < 128) {
-                res.append((char) i);
-            } else if (i < 2048) {
-                int j = (i >> 6) | 192;
-                res.append((char) j);
-                j = (i & 63) | 128;
-                res.append((char) j);
-            } else {
-                int j = (i >> 12) | 224;
-                res.append((char) j);
-                j = ((i >> 6) & 63) | 128;
-                res.append((char) j);
-                j = (c & 63) | 128;
-                res.append((char) j);
-            }
-        }
+        Utf8InputStream in = new Utf8InputStream(text);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = in.read(buffer, 0, buffer.length)) != -1)
+            for (int i = 0; i < count; i++)
+                res.append((char) (buffer[i] & 0xFF));
 
         return res.toString();
     }
@@ -0,0 +1,81 @@
+package pt.up.fc.dcc.asura.builder.base.utils;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer that counts the bytes the characters written through it take once
+ * encoded in UTF-8 (as {@link java.io.OutputStreamWriter} encodes them,
+ * i.e., unpaired surrogates take one byte), without encoding them.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class Utf8CountingWriter extends FilterWriter {
+
+    private long count = 0;
+
+    // a high surrogate was written and its pair may follow
+    private boolean pendingSurrogate = false;
+
+    public Utf8CountingWriter(Writer out) {
+        super(out);
+    }
+
+    /**
+     * Get the number of bytes written so far, once encoded in UTF-8. A high
+     * surrogate at the end is not counted until the next character.
+     *
+     * @return number of bytes written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        out.write(c);
+        count((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        out.write(cbuf, off, len);
+
+        for (int i = off; i < off + len; i++)
+            count(cbuf[i]);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        out.write(str, off, len);
+
+        for (int i = off; i < off + len; i++)
+            count(str.charAt(i));
+    }
+
+    private void count(char c) {
+
+        if (pendingSurrogate) {
+            pendingSurrogate = false;
+
+            if (Character.isLowSurrogate(c)) {
+                count += 4;
+                return;
+            }
+
+            count++;
+        }
+
+        if (c < 0x80)
+            count++;
+        else if (c < 0x800)
+            count += 2;
+        else if (Character.isHighSurrogate(c))
+            pendingSurrogate = true;
+        else if (Character.isLowSurrogate(c))
+            count++;
+        else
+            count += 3;
+    }
+}
@@ -0,0 +1,122 @@
+package pt.up.fc.dcc.asura.builder.base.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stream of the UTF-8 bytes of a text. The text is encoded in chunks as it
+ * is read, hence memory is bounded whatever the size of the text. Surrogate
+ * pairs split between chunks are encoded as a single character; unpaired
+ * surrogates are replaced by '?', as in {@link String#getBytes}.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class Utf8InputStream extends InputStream {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final CharSequence text;
+    private final CharsetEncoder encoder;
+
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+
+    // next character of the text to load into the chunk
+    private int next = 0;
+    private boolean flushed = false;
+
+    public Utf8InputStream(CharSequence text) {
+        this.text = text;
+
+        encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        chars.flip();
+        bytes.flip();
+    }
+
+    @Override
+    public int read() {
+
+        if (!bytes.hasRemaining() && !fill())
+            return -1;
+
+        return bytes.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+
+        if (len == 0)
+            return 0;
+
+        if (!bytes.hasRemaining() && !fill())
+            return -1;
+
+        int count = Math.min(len, bytes.remaining());
+        bytes.get(b, off, count);
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return bytes.remaining();
+    }
+
+    /**
+     * Encode the next bytes
+     *
+     * @return {@code true} if there are bytes to read, {@code false} otherwise
+     */
+    private boolean fill() {
+
+        bytes.clear();
+
+        while (bytes.position() == 0 && !flushed) {
+            boolean endOfInput = next == text.length();
+
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow())
+                break;
+
+            if (endOfInput) {
+                encoder.flush(bytes);
+                flushed = true;
+            } else
+                load();
+        }
+
+        bytes.flip();
+
+        return bytes.hasRemaining();
+    }
+
+    /**
+     * Load the next chunk of characters after those not yet encoded (e.g.,
+     * a high surrogate waiting for the low one)
+     */
+    private void load() {
+
+        chars.compact();
+
+        int start = chars.position();
+        int count = Math.min(chars.remaining(), text.length() - next);
+
+        if (text instanceof String)
+            ((String) text).getChars(next, next + count, chars.array(), start);
+        else
+            for (int i = 0; i < count; i++)
+                chars.array()[start + i] = text.charAt(next + i);
+
+        chars.position(start + count);
+        next += count;
+
+        chars.flip();
+    }
+}
@@ -1,11 +1,59 @@
 package pt.up.fc.dcc.asura.builder.base.utils.compression;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
- * Common interface for compression algorithms
+ * Common interface for compression algorithms. Algorithms compress the UTF-8
+ * bytes of a text into a string of characters; on streams, the compressed
+ * characters are written encoded in UTF-8.
  *
  * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
  */
 public interface CompressionAlgorithm {
 
     String compress(String in, Object...args);
+
+    /**
+     * Decompress a string compressed with the same arguments
+     *
+     * @param in   compressed string
+     * @param args arguments used to compress
+     * @return the original string
+     */
+    String decompress(String in, Object...args);
+
+    /**
+     * Compress a stream of bytes into a stream of compressed characters.
+     * The output stream is flushed but not closed.
+     *
+     * @param in   {@link InputStream} bytes to compress
+     * @param out  {@link OutputStream} stream to write the compressed data to
+     * @param args arguments of the algorithm
+     * @throws IOException - If an I/O error occurs
+     */
+    void compress(InputStream in, OutputStream out, Object...args) throws IOException;
+
+    /**
+     * Wrap a stream so that the bytes written to it are compressed as they
+     * are written. Closing the returned stream finishes the compressed data
+     * and flushes, but does not close, the given stream.
+     *
+     * @param out  {@link OutputStream} stream to write the compressed data to
+     * @param args arguments of the algorithm
+     * @return {@link OutputStream} stream to write the bytes to compress to
+     */
+    OutputStream compressingStream(OutputStream out, Object...args);
+
+    /**
+     * Decompress a stream of compressed characters into the original bytes.
+     * The output stream is flushed but not closed.
+     *
+     * @param in   {@link InputStream} compressed data
+     * @param out  {@link OutputStream} stream to write the original bytes to
+     * @param args arguments used to compress
+     * @throws IOException - If an I/O error occurs or the data is not valid
+     */
+    void decompress(InputStream in, OutputStream out, Object...args) throws IOException;
 }
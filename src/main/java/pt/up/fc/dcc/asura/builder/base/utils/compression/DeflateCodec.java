@@ -0,0 +1,91 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * DEFLATE codec of {@code java.util.zip}, with the zlib wrapper expected by
+ * the HTTP {@code deflate} content coding
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class DeflateCodec implements StreamCodec {
+    public static final String NAME = "deflate";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Set the compression level (0-9 or -1 for the default)
+     *
+     * @param level compression level
+     */
+    public void setLevel(int level) {
+
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level " + level);
+
+        this.level = level;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return "deflate";
+    }
+
+    @Override
+    public String getExtension() {
+        return "zz";
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+
+        Deflater deflater = new Deflater(level);
+
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decode(InputStream in) {
+
+        Inflater inflater = new Inflater();
+
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+}
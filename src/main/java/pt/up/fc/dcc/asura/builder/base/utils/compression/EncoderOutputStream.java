@@ -0,0 +1,83 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Stream that feeds the bytes written to it to the encoder of a compression
+ * algorithm. Closing it finishes the compressed data and flushes, but does
+ * not close, the writer of the compressed characters.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+class EncoderOutputStream extends OutputStream {
+
+    /**
+     * Encoder of a compression algorithm
+     */
+    interface Encoder {
+
+        void write(byte[] data, int offset, int length) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Encoder encoder;
+    private final Writer writer;
+
+    private boolean closed = false;
+
+    EncoderOutputStream(Encoder encoder, Writer writer) {
+        this.encoder = encoder;
+        this.writer = writer;
+    }
+
+    /**
+     * Write all bytes of a stream
+     *
+     * @param in {@link InputStream} stream to read bytes from
+     * @throws IOException - If an I/O error occurs
+     */
+    void writeAll(InputStream in) throws IOException {
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+            write(buffer, 0, count);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        if (closed)
+            throw new IOException("Stream closed");
+
+        encoder.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed)
+            return;
+
+        closed = true;
+
+        encoder.finish();
+        writer.flush();
+    }
+}
@@ -1,10 +1,10 @@
 package pt.up.fc.dcc.asura.builder.base.utils.compression;
 
-import pt.up.fc.dcc.asura.builder.base.utils.Strings;
+import pt.up.fc.dcc.asura.builder.base.utils.Utf8InputStream;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.Scanner;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Lempel–Ziv 77 (LZ77) is a lossless compression algorithm that replaces
@@ -13,66 +13,464 @@ import java.util.Scanner;
  * pair of numbers called a length-distance pair, which is equivalent to the
  * statement "each of the next length characters is equal to the characters
  * exactly distance characters behind it in the uncompressed stream".
+ * <p>
+ * The output is a sequence of tokens of three characters: distance, length
+ * and the character that follows the match ({@code 0, 0, c} for a literal).
+ * Matches never overlap the characters they produce and are always followed
+ * by a character of the input.
+ * <p>
+ * Matches are found in hash chains of the positions of the previous
+ * 3-byte sequences within the window, following at most
+ * {@code maxChainDepth} positions; shorter matches are searched among the
+ * nearest positions only. With lazy matching, a match is deferred if the
+ * next position has a longer one.
  *
  * @author José C. Paiva <code>josepaiva94@gmail.com</code>
  */
 public class LZ77 implements CompressionAlgorithm {
     private static final int DEFAULT_WINDOW_SIZE = 8192;
+    private static final int DEFAULT_MAX_CHAIN_DEPTH = 128;
+
+    private static final int MIN_MATCH = 3;
+    private static final int MAX_MATCH = Character.MAX_VALUE;
+
+    // matches at least this long are neither improved nor deferred
+    private static final int NICE_MATCH = 8192;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // positions searched for matches shorter than MIN_MATCH, which still
+    // save tokens since a token has the same size whatever its length
+    private static final int SHORT_MATCH_SCAN = 64;
+
+    private static final int HASH_BITS = 15;
+    private static final int HASH_MASK = (1 << HASH_BITS) - 1;
+
+    private int maxChainDepth = DEFAULT_MAX_CHAIN_DEPTH;
+    private boolean lazyMatching = true;
+
+    public LZ77() {
+    }
+
+    public int getMaxChainDepth() {
+        return maxChainDepth;
+    }
+
+    /**
+     * Set the maximum number of previous positions compared to find a match
+     *
+     * @param maxChainDepth maximum number of positions compared
+     */
+    public void setMaxChainDepth(int maxChainDepth) {
+        this.maxChainDepth = maxChainDepth;
+    }
+
+    public boolean isLazyMatching() {
+        return lazyMatching;
+    }
+
+    /**
+     * Set whether a match is deferred if the next position has a longer one
+     *
+     * @param lazyMatching defer matches?
+     */
+    public void setLazyMatching(boolean lazyMatching) {
+        this.lazyMatching = lazyMatching;
+    }
 
     @Override
     public String compress(String in, Object... args) {
 
-        // parse args
+        StringWriter out = new StringWriter();
+        try (EncoderOutputStream stream = new EncoderOutputStream(new Encoder(getWindowSize(args), out), out)) {
+            stream.writeAll(new Utf8InputStream(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    @Override
+    public void compress(InputStream in, OutputStream out, Object... args) throws IOException {
+
+        try (EncoderOutputStream stream = newEncoderStream(out, args)) {
+            stream.writeAll(in);
+        }
+    }
+
+    @Override
+    public OutputStream compressingStream(OutputStream out, Object... args) {
+        return newEncoderStream(out, args);
+    }
+
+    private EncoderOutputStream newEncoderStream(OutputStream out, Object... args) {
+
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+        return new EncoderOutputStream(new Encoder(getWindowSize(args), writer), writer);
+    }
+
+    @Override
+    public String decompress(String in, Object... args) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            Decoder decoder = new Decoder(out);
+            decoder.write(in.toCharArray(), 0, in.length());
+            decoder.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void decompress(InputStream in, OutputStream out, Object... args) throws IOException {
+
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+
+        Decoder decoder = new Decoder(out);
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int count;
+        while ((count = reader.read(buffer)) != -1)
+            decoder.write(buffer, 0, count);
+        decoder.finish();
+    }
+
+    private static int getWindowSize(Object... args) {
+
         int windowSize = args.length > 0 ? (int) args[0] : DEFAULT_WINDOW_SIZE;
+        if (windowSize < 1 || windowSize > Character.MAX_VALUE)
+            throw new IllegalArgumentException("Window size must be between 1 and " + (int) Character.MAX_VALUE);
+
+        return windowSize;
+    }
+
+    /**
+     * State of the compression of a stream of bytes. Bytes are kept in a
+     * buffer from the start of the window of the next position to encode.
+     * Positions are absolute (from the start of the stream).
+     */
+    private class Encoder implements EncoderOutputStream.Encoder {
+        private final int windowSize;
+
+        // bytes needed after a position to encode it as if the input ended far ahead
+        private final int lookahead;
+
+        private final byte[] buffer;
+
+        // position of the first byte in the buffer, of the end of the input and to encode next
+        private int base = 0;
+        private int end = 0;
+        private int position = 0;
+
+        // most recent position of each hash and previous position with the same hash
+        private final int[] head = new int[1 << HASH_BITS];
+        private final int[] prev;
+
+        private final Writer out;
+        private final char[] tokens = new char[BUFFER_SIZE * 3];
+        private int tokenCount = 0;
+
+        // match found in the last search
+        private int matchLength;
+        private int matchDistance;
+
+        // match at the next position, found while deciding to defer a match
+        private boolean pending = false;
+        private int pendingLength;
+        private int pendingDistance;
+
+        Encoder(int windowSize, Writer out) {
+            this.windowSize = windowSize;
+            this.lookahead = Math.min(windowSize, MAX_MATCH) + MIN_MATCH + 1;
+            this.buffer = new byte[windowSize + lookahead + Math.max(windowSize, BUFFER_SIZE)];
+            this.prev = new int[windowSize];
+            this.out = out;
+
+            Arrays.fill(head, -1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+
+            while (length > 0) {
+
+                if (end - base == buffer.length)
+                    slide();
+
+                int count = Math.min(length, buffer.length - (end - base));
+                System.arraycopy(data, offset, buffer, end - base, count);
+                end += count;
+                offset += count;
+                length -= count;
+
+                encode(false);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            encode(true);
+            flush();
+        }
+
+        /**
+         * Drop the bytes before the window of the next position to encode
+         */
+        private void slide() {
+
+            int start = Math.max(base, position - windowSize);
+
+            System.arraycopy(buffer, start - base, buffer, 0, end - start);
+            base = start;
+        }
+
+        /**
+         * Encode the positions that have enough bytes after them
+         *
+         * @param all encode all positions (at the end of the input)?
+         * @throws IOException - If an I/O error occurs
+         */
+        private void encode(boolean all) throws IOException {
+
+            while (position < end && (all || end - position > lookahead)) {
 
-        // encode string in UTF-8
-        in = Strings.uft8Encode(in);
-
-        // compress
-        StringBuilder out = new StringBuilder();
-
-        int n = in.length();
-        for (int i = 0; i < n; i++) {
-
-            char target = in.charAt(i);
-            boolean found = false;
-            int start = 0;
-            int matchLen = 0;
-            char nonMatchChar = 0xff;
-
-            for (int s = Math.max(0, i - windowSize); s < i; s++) {
-                if (target == in.charAt(s)) {
-                    int len = getMatchedLen(in, s + 1, i + 1, n) + 1;
-                    if (len > matchLen) {
-                        start = i - s;
-                        matchLen = len;
-                        nonMatchChar = (char) 0xff;
-                        if ((i + matchLen) < n) {
-                            nonMatchChar = in.charAt(i + matchLen);
-                        }
+                int i = position;
+
+                int length;
+                int distance;
+                if (pending) {
+                    length = pendingLength;
+                    distance = pendingDistance;
+                    pending = false;
+                } else {
+                    findMatch(i);
+                    length = matchLength;
+                    distance = matchDistance;
+                }
+
+                insert(i);
+
+                if (lazyMatching && length > 0 && length < NICE_MATCH && i + 1 < end) {
+                    findMatch(i + 1);
+
+                    if (matchLength > length) {
+                        emit(0, 0, byteAt(i));
+                        position++;
+
+                        pending = true;
+                        pendingLength = matchLength;
+                        pendingDistance = matchDistance;
+                        continue;
                     }
-                    found = true;
+                }
+
+                if (length > 0) {
+                    emit(distance, length, byteAt(i + length));
+
+                    for (int k = i + 1; k <= i + length; k++)
+                        insert(k);
+
+                    position += length + 1;
+                } else {
+                    emit(0, 0, byteAt(i));
+                    position++;
                 }
             }
+        }
+
+        /**
+         * Find the longest match of a position in the window, leaving at
+         * least one byte after the match
+         *
+         * @param i position
+         */
+        private void findMatch(int i) {
+
+            matchLength = 0;
+            matchDistance = 0;
 
-            if (found) {
-                out.append((char) start)
-                        .append((char) matchLen)
-                        .append(nonMatchChar);
-                i += matchLen;
-            } else {
-                out.append((char) 0x00).append((char) 0x00).append(target);
+            int limit = Math.min(end - 1 - i, MAX_MATCH);
+            if (limit < MIN_MATCH) {
+                findShortMatch(i, limit);
+                return;
+            }
+
+            int p = head[hash(i)];
+            int chain = maxChainDepth;
+            while (p >= 0 && i - p <= windowSize && chain-- > 0) {
+
+                int maxLength = Math.min(limit, i - p);
+                if (maxLength > matchLength && byteAt(p + matchLength) == byteAt(i + matchLength)) {
+
+                    int length = matchLength(p, i, maxLength);
+                    if (length > matchLength) {
+                        matchLength = length;
+                        matchDistance = i - p;
+
+                        if (length >= limit || length >= NICE_MATCH)
+                            break;
+                    }
+                }
+
+                int next = prev[p % windowSize];
+                if (next >= p)
+                    break;
+                p = next;
+            }
+
+            if (matchLength < MIN_MATCH) {
+                matchLength = 0;
+                matchDistance = 0;
+                findShortMatch(i, limit);
             }
         }
 
-        return out.toString();
+        /**
+         * Find a match shorter than {@code MIN_MATCH} among the nearest
+         * positions, if there is no longer match
+         *
+         * @param i     position
+         * @param limit maximum length of the match
+         */
+        private void findShortMatch(int i, int limit) {
+
+            int maxLength = Math.min(limit, MIN_MATCH - 1);
+            for (int p = i - 1; p >= base && i - p <= Math.min(windowSize, SHORT_MATCH_SCAN); p--) {
+
+                int length = matchLength(p, i, Math.min(maxLength, i - p));
+                if (length > matchLength) {
+                    matchLength = length;
+                    matchDistance = i - p;
+
+                    if (length == maxLength)
+                        return;
+                }
+            }
+        }
+
+        private int matchLength(int p, int i, int maxLength) {
+
+            int a = p - base;
+            int b = i - base;
+
+            int length = 0;
+            while (length < maxLength && buffer[a + length] == buffer[b + length])
+                length++;
+
+            return length;
+        }
+
+        /**
+         * Insert a position in the hash chains
+         *
+         * @param i position
+         */
+        private void insert(int i) {
+
+            if (i + MIN_MATCH > end)
+                return;
+
+            int h = hash(i);
+            prev[i % windowSize] = head[h];
+            head[h] = i;
+        }
+
+        private int hash(int i) {
+            int k = i - base;
+            return ((buffer[k] & 0xFF) << 10 ^ (buffer[k + 1] & 0xFF) << 5 ^ (buffer[k + 2] & 0xFF)) & HASH_MASK;
+        }
+
+        private byte byteAt(int i) {
+            return buffer[i - base];
+        }
+
+        private void emit(int distance, int length, byte next) throws IOException {
+
+            if (tokenCount == tokens.length)
+                flush();
+
+            tokens[tokenCount++] = (char) distance;
+            tokens[tokenCount++] = (char) length;
+            tokens[tokenCount++] = (char) (next & 0xFF);
+        }
+
+        private void flush() throws IOException {
+            out.write(tokens, 0, tokenCount);
+            tokenCount = 0;
+        }
     }
 
-    private int getMatchedLen(CharSequence src, int i1, int i2, int end) {
-        int n = Math.min(i2 - i1, end - i2);
-        for (int i = 0; i < n; i++) {
-            if (src.charAt(i1++) != src.charAt(i2++)) return i;
+    /**
+     * State of the decompression of a stream of tokens. The last bytes
+     * produced are kept in a circular buffer as large as the largest
+     * distance.
+     */
+    private static class Decoder {
+        private static final int HISTORY_SIZE = Character.MAX_VALUE + 1;
+        private static final int HISTORY_MASK = HISTORY_SIZE - 1;
+
+        private final OutputStream out;
+
+        private final byte[] history = new byte[HISTORY_SIZE];
+        private int position = 0;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count = 0;
+
+        // characters of a token split across writes
+        private final char[] token = new char[3];
+        private int tokenLength = 0;
+
+        Decoder(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(char[] chars, int offset, int length) throws IOException {
+
+            for (int k = offset; k < offset + length; k++) {
+                token[tokenLength++] = chars[k];
+
+                if (tokenLength == 3) {
+                    decode(token[0], token[1], token[2]);
+                    tokenLength = 0;
+                }
+            }
+        }
+
+        void finish() throws IOException {
+
+            if (tokenLength != 0)
+                throw new IOException("Truncated LZ77 token");
+
+            out.write(buffer, 0, count);
+            out.flush();
+        }
+
+        private void decode(int distance, int length, int next) throws IOException {
+
+            if (distance > position || (length > 0 && distance == 0) || next > 0xFF)
+                throw new IOException("Invalid LZ77 token");
+
+            for (int k = 0; k < length; k++)
+                put(history[(position - distance) & HISTORY_MASK]);
+
+            put((byte) next);
+        }
+
+        private void put(byte b) throws IOException {
+
+            history[position++ & HISTORY_MASK] = b;
+
+            if (count == buffer.length) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+            buffer[count++] = b;
         }
-        return 0;
     }
 }
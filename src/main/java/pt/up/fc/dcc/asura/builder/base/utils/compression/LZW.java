@@ -1,50 +1,393 @@
 package pt.up.fc.dcc.asura.builder.base.utils.compression;
 
-import pt.up.fc.dcc.asura.builder.base.utils.Strings;
+import pt.up.fc.dcc.asura.builder.base.utils.Utf8InputStream;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+/**
+ * Lempel–Ziv–Welch (LZW) compression of the UTF-8 bytes of a string. Each
+ * character of the output is the code of the longest sequence of the input
+ * found in the dictionary, which starts with single bytes and grows with the
+ * sequences seen.
+ * <p>
+ * The dictionary is a table of (code of prefix, next byte) pairs, hence
+ * compression creates no objects per byte. Codes are kept below
+ * {@code maxCodes} (by default, the first surrogate, so that every code is a
+ * valid character); when the dictionary is full it is either frozen or reset
+ * to single bytes, according to the {@link Policy}.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
 public class LZW implements CompressionAlgorithm {
     private static final int DEFAULT_DICT_SIZE = 256;
+    private static final int DEFAULT_MAX_CODES = Character.MIN_SURROGATE;
+
+    private static final int EMPTY = -1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private int maxCodes = DEFAULT_MAX_CODES;
+    private Policy policy = Policy.FREEZE;
+
+    public LZW() {
+    }
+
+    public int getMaxCodes() {
+        return maxCodes;
+    }
+
+    /**
+     * Set the maximum number of codes of the dictionary (at most 65536)
+     *
+     * @param maxCodes maximum number of codes
+     */
+    public void setMaxCodes(int maxCodes) {
+
+        if (maxCodes > Character.MAX_VALUE + 1)
+            throw new IllegalArgumentException("Codes must fit in a character");
+
+        this.maxCodes = maxCodes;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Set what happens when the dictionary is full
+     *
+     * @param policy {@link Policy} what happens when the dictionary is full
+     */
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
 
     @Override
     public String compress(String in, Object...args) {
 
-        // parse args
+        StringWriter out = new StringWriter();
+        try (EncoderOutputStream stream = new EncoderOutputStream(new Encoder(getDictSize(args), out), out)) {
+            stream.writeAll(new Utf8InputStream(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Compress bytes
+     *
+     * @param data     bytes to compress
+     * @param dictSize number of initial codes (at least 256)
+     * @return compressed string
+     */
+    public String compress(byte[] data, int dictSize) {
+
+        StringWriter out = new StringWriter();
+        try (EncoderOutputStream stream = new EncoderOutputStream(new Encoder(dictSize, out), out)) {
+            stream.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    @Override
+    public void compress(InputStream in, OutputStream out, Object...args) throws IOException {
+
+        try (EncoderOutputStream stream = newEncoderStream(out, args)) {
+            stream.writeAll(in);
+        }
+    }
+
+    @Override
+    public OutputStream compressingStream(OutputStream out, Object...args) {
+        return newEncoderStream(out, args);
+    }
+
+    private EncoderOutputStream newEncoderStream(OutputStream out, Object...args) {
+
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+        return new EncoderOutputStream(new Encoder(getDictSize(args), writer), writer);
+    }
+
+    @Override
+    public String decompress(String in, Object...args) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            Decoder decoder = new Decoder(getDictSize(args), out);
+            decoder.write(in.toCharArray(), 0, in.length());
+            decoder.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void decompress(InputStream in, OutputStream out, Object...args) throws IOException {
+
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+
+        Decoder decoder = new Decoder(getDictSize(args), out);
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int count;
+        while ((count = reader.read(buffer)) != -1)
+            decoder.write(buffer, 0, count);
+        decoder.finish();
+    }
+
+    private int getDictSize(Object...args) {
+
         int dictSize = args.length > 0 ? (int) args[0] : DEFAULT_DICT_SIZE;
+        checkDictSize(dictSize);
+
+        return dictSize;
+    }
+
+    private void checkDictSize(int dictSize) {
+        if (dictSize < DEFAULT_DICT_SIZE || dictSize > maxCodes)
+            throw new IllegalArgumentException("Initial dictionary must have between 256 and " +
+                    maxCodes + " codes");
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * State of the compression of a stream of bytes
+     */
+    private class Encoder implements EncoderOutputStream.Encoder {
+        private final int dictSize;
+        private final int maxCodes;
+        private final Policy policy;
 
-        // encode string in UTF-8
-        in = Strings.uft8Encode(in);
+        // open addressing table of (prefix << 8 | byte) keys to codes
+        private final int[] keys;
+        private final char[] codes;
+        private final int mask;
 
-        // compress
-        StringBuilder out = new StringBuilder();
+        private int next;
 
-        int index = dictSize;
-        Map<String, Integer> dictionary = new HashMap<>();
-        for (int i = 0; i < dictSize; i++)
-            dictionary.put("" + (char) i, i);
+        // code of the sequence being matched
+        private int w = EMPTY;
 
-        String w = "";
-        for (char c : in.toCharArray()) {
-            String wc = w + c;
-            if (dictionary.containsKey(wc))
-                w = wc;
-            else {
-                int i = dictionary.get(w);
-                out.append((char) i);
+        private final Writer out;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int count = 0;
 
-                dictionary.put(wc, index++);
-                w = "" + c;
+        Encoder(int dictSize, Writer out) {
+
+            checkDictSize(dictSize);
+
+            this.dictSize = dictSize;
+            this.maxCodes = LZW.this.maxCodes;
+            this.policy = LZW.this.policy;
+            this.out = out;
+
+            int capacity = Integer.highestOneBit(Math.max(maxCodes - dictSize, 1) * 2 - 1) << 1;
+            keys = new int[capacity];
+            codes = new char[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+
+            next = dictSize;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+
+            for (int k = offset; k < offset + length; k++) {
+                int c = data[k] & 0xFF;
+
+                if (w == EMPTY) {
+                    w = c;
+                    continue;
+                }
+
+                int key = w << 8 | c;
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY && keys[slot] != key)
+                    slot = (slot + 1) & mask;
+
+                if (keys[slot] == key) {
+                    w = codes[slot];
+                    continue;
+                }
+
+                emit(w);
+
+                if (next < maxCodes) {
+                    keys[slot] = key;
+                    codes[slot] = (char) next++;
+                } else if (policy == Policy.RESET) {
+                    Arrays.fill(keys, EMPTY);
+                    next = dictSize;
+                }
+
+                w = c;
             }
         }
 
-        if (!w.equals("")) {
-            int i = dictionary.get(w);
-            out.append((char) i);
+        @Override
+        public void finish() throws IOException {
+
+            if (w != EMPTY)
+                emit(w);
+            w = EMPTY;
+
+            out.write(buffer, 0, count);
+            count = 0;
         }
 
-        return out.toString();
+        private void emit(int code) throws IOException {
+
+            if (count == buffer.length) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+
+            buffer[count++] = (char) code;
+        }
+    }
+
+    /**
+     * State of the decompression of a stream of codes. Each code of the
+     * dictionary is a code of a prefix plus a byte; sequences are written
+     * backwards from the prefixes.
+     */
+    private class Decoder {
+        private final int dictSize;
+        private final int maxCodes;
+        private final Policy policy;
+
+        private final int[] prefixes;
+        private final byte[] suffixes;
+        private final byte[] firsts;
+        private final int[] lengths;
+
+        private int next;
+
+        // previous code
+        private int previous = EMPTY;
+
+        private final OutputStream out;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int count = 0;
+
+        Decoder(int dictSize, OutputStream out) {
+
+            this.dictSize = dictSize;
+            this.maxCodes = LZW.this.maxCodes;
+            this.policy = LZW.this.policy;
+            this.out = out;
+
+            prefixes = new int[maxCodes];
+            suffixes = new byte[maxCodes];
+            firsts = new byte[maxCodes];
+            lengths = new int[maxCodes];
+
+            for (int c = 0; c < DEFAULT_DICT_SIZE; c++) {
+                suffixes[c] = (byte) c;
+                firsts[c] = (byte) c;
+                lengths[c] = 1;
+            }
+
+            next = dictSize;
+        }
+
+        void write(char[] chars, int offset, int length) throws IOException {
+
+            for (int k = offset; k < offset + length; k++) {
+                int code = chars[k];
+
+                if (previous != EMPTY) {
+                    if (next < maxCodes) {
+
+                        // a code may be the one being defined (as in "cScSc")
+                        byte first;
+                        if (code < next)
+                            first = firstOf(code);
+                        else if (code == next)
+                            first = firsts[previous];
+                        else
+                            throw new IOException("Invalid LZW code " + code);
+
+                        prefixes[next] = previous;
+                        suffixes[next] = first;
+                        firsts[next] = firsts[previous];
+                        lengths[next] = lengths[previous] + 1;
+                        next++;
+                    } else if (policy == Policy.RESET)
+                        next = dictSize;
+                }
+
+                put(code);
+                previous = code;
+            }
+        }
+
+        void finish() throws IOException {
+            out.write(buffer, 0, count);
+            out.flush();
+            count = 0;
+        }
+
+        private byte firstOf(int code) throws IOException {
+
+            if (code >= DEFAULT_DICT_SIZE && code < dictSize)
+                throw new IOException("Invalid LZW code " + code);
+
+            return firsts[code];
+        }
+
+        /**
+         * Write the sequence of a code
+         *
+         * @param code code of the sequence
+         * @throws IOException - If an I/O error occurs or the code is invalid
+         */
+        private void put(int code) throws IOException {
+
+            if (code >= next || (code >= DEFAULT_DICT_SIZE && code < dictSize))
+                throw new IOException("Invalid LZW code " + code);
+
+            int length = lengths[code];
+            if (buffer.length - count < length) {
+                out.write(buffer, 0, count);
+                count = 0;
+
+                if (buffer.length < length)
+                    buffer = new byte[length];
+            }
+
+            for (int k = count + length - 1; k >= count; k--) {
+                buffer[k] = suffixes[code];
+                code = prefixes[code];
+            }
+            count += length;
+        }
     }
 
-}
\ No newline at end of file
+    /**
+     * What happens when the dictionary is full
+     */
+    public enum Policy {
+
+        /** keep the dictionary as is, adding no more sequences */
+        FREEZE,
+
+        /** start over with a dictionary of single bytes */
+        RESET
+    }
+}
@@ -0,0 +1,59 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Codec that compresses a stream of bytes as it is written. Codecs are
+ * found with {@link java.util.ServiceLoader}, hence a faster codec can be
+ * added by listing its class in
+ * {@code META-INF/services/pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodec}
+ * (see {@link StreamCodecs}).
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public interface StreamCodec {
+
+    /**
+     * Get the name of the codec, used to find it
+     *
+     * @return name of the codec
+     */
+    String getName();
+
+    /**
+     * Get the HTTP content coding of the compressed data (e.g., gzip), so
+     * that browsers can decompress it natively
+     *
+     * @return HTTP content coding of the compressed data
+     */
+    String getContentEncoding();
+
+    /**
+     * Get the extension of files compressed with this codec
+     *
+     * @return extension of files compressed with this codec (without dot)
+     */
+    String getExtension();
+
+    /**
+     * Wrap a stream so that data written to it is compressed. Closing the
+     * returned stream finishes the compressed data and closes the given
+     * stream.
+     *
+     * @param out {@link OutputStream} stream to write the compressed data to
+     * @return {@link OutputStream} stream to write the original data to
+     * @throws IOException - If an I/O error occurs
+     */
+    OutputStream encode(OutputStream out) throws IOException;
+
+    /**
+     * Wrap a stream of compressed data so that the original data is read
+     *
+     * @param in {@link InputStream} stream of compressed data
+     * @return {@link InputStream} stream of original data
+     * @throws IOException - If an I/O error occurs or the data is not valid
+     */
+    InputStream decode(InputStream in) throws IOException;
+}
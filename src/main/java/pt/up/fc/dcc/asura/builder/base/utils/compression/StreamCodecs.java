@@ -0,0 +1,67 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import java.util.*;
+
+/**
+ * Registry of the {@link StreamCodec}s available through
+ * {@link ServiceLoader}. The codecs of {@code java.util.zip} are always
+ * available; codecs found later with the same name replace them.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class StreamCodecs {
+
+    private static volatile Map<String, StreamCodec> codecs;
+
+    private StreamCodecs() {
+    }
+
+    /**
+     * Get a codec by name
+     *
+     * @param name name of the codec
+     * @return {@link StreamCodec} the codec
+     * @throws IllegalArgumentException - If there is no codec with that name
+     */
+    public static StreamCodec get(String name) {
+
+        StreamCodec codec = getCodecs().get(name.toLowerCase(Locale.ROOT));
+        if (codec == null)
+            throw new IllegalArgumentException("Unknown compression codec " + name);
+
+        return codec;
+    }
+
+    /**
+     * Get all available codecs
+     *
+     * @return {@link Collection} available codecs
+     */
+    public static Collection<StreamCodec> getAll() {
+        return getCodecs().values();
+    }
+
+    private static Map<String, StreamCodec> getCodecs() {
+
+        if (codecs == null) {
+            synchronized (StreamCodecs.class) {
+                if (codecs == null) {
+                    Map<String, StreamCodec> map = new LinkedHashMap<>();
+                    register(map, new GzipCodec());
+                    register(map, new DeflateCodec());
+
+                    for (StreamCodec codec : ServiceLoader.load(StreamCodec.class))
+                        register(map, codec);
+
+                    codecs = Collections.unmodifiableMap(map);
+                }
+            }
+        }
+
+        return codecs;
+    }
+
+    private static void register(Map<String, StreamCodec> map, StreamCodec codec) {
+        map.put(codec.getName().toLowerCase(Locale.ROOT), codec);
+    }
+}
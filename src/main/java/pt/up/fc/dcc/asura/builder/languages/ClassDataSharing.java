@@ -0,0 +1,296 @@
+package pt.up.fc.dcc.asura.builder.languages;
+
+import pt.up.fc.dcc.asura.builder.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Application Class Data Sharing (AppCDS) archive of the base wrappers and
+ * their jars (i.e., Gson), shared by all Java players of a compilation of
+ * the base wrappers. Player JVMs map the archive instead of parsing and
+ * verifying those classes again.
+ * <p>
+ * The archive is dumped on first use into the cache directory of the base
+ * wrappers. Since AppCDS only archives classes from jars, base wrapper
+ * classes are packaged in a jar too. The archive is only used with JDK 10
+ * or newer; if it cannot be dumped players are launched without it.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+final class ClassDataSharing {
+    private static final Logger LOGGER = Logger.getLogger(ClassDataSharing.class.getSimpleName());
+
+    private static final String ARCHIVE_FILE = "wrappers.jsa";
+    private static final String JAR_FILE = "wrappers.jar";
+
+    // class run to train the archive
+    static final String PROBE_CLASS = "wrappers.java.PlayerWrapper";
+
+    // archives of this JVM keyed by base output path (empty if not available)
+    private static final Map<Path, Optional<Archive>> ARCHIVES = new ConcurrentHashMap<>();
+
+    private ClassDataSharing() {
+    }
+
+    /**
+     * Get the archive of the base wrappers, creating it if needed
+     *
+     * @param baseOutputPath Path of the compilation output of the base wrappers
+     * @param baseClasspath  Runtime classpath of the base wrappers
+     * @return {@link Archive} archive or {@code null} if not available
+     */
+    static Archive getArchive(Path baseOutputPath, String baseClasspath) {
+
+        if (!isSupported())
+            return null;
+
+        return ARCHIVES.computeIfAbsent(baseOutputPath,
+                path -> Optional.ofNullable(createArchive(path, baseClasspath))).orElse(null);
+    }
+
+    /**
+     * Does this JDK support archiving application classes?
+     *
+     * @return {@code true} if this JDK supports AppCDS; {@code false} otherwise
+     */
+    private static boolean isSupported() {
+
+        String version = System.getProperty("java.specification.version", "1.8");
+        if (version.startsWith("1."))
+            return false;
+
+        try {
+            return Integer.parseInt(version) >= 10;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create the archive of the base wrappers, unless it already exists
+     *
+     * @param baseOutputPath Path of the compilation output of the base wrappers
+     * @param baseClasspath  Runtime classpath of the base wrappers
+     * @return {@link Archive} archive or {@code null} if it could not be created
+     */
+    private static Archive createArchive(Path baseOutputPath, String baseClasspath) {
+
+        Path archivePath = baseOutputPath.resolve(ARCHIVE_FILE);
+        Path jarPath = baseOutputPath.resolve(JAR_FILE);
+
+        String separator = String.valueOf(FileUtils.getJavaClasspathSeparator());
+
+        Path tempPath = null;
+        try {
+            // jars of the base wrappers, in the order of their classpath
+            List<Path> jars = new ArrayList<>();
+            for (String entry : baseClasspath.split(separator))
+                if (entry.endsWith(".jar"))
+                    jars.add(Paths.get(entry));
+            jars.add(jarPath);
+
+            String classpath = jars.stream().map(Path::toString).collect(Collectors.joining(separator));
+            Archive archive = new Archive(archivePath, classpath);
+
+            if (Files.exists(archivePath))
+                return archive;
+
+            long start = System.nanoTime();
+
+            tempPath = Files.createTempDirectory(baseOutputPath.getParent(), "tmp-");
+
+            if (!Files.exists(jarPath)) {
+                createJar(baseOutputPath, tempPath.resolve(JAR_FILE));
+                moveAtomically(tempPath.resolve(JAR_FILE), jarPath);
+            }
+
+            // training run records the classes of the JDK used by wrappers
+            Path trainingClassList = tempPath.resolve("training.classlist");
+            new ProcessBuilder(getJava(), "-XX:DumpLoadedClassList=" + trainingClassList,
+                    "-cp", classpath, PROBE_CLASS)
+                    .redirectErrorStream(true)
+                    .redirectOutput(tempPath.resolve("training.log").toFile())
+                    .start()
+                    .waitFor();
+
+            Path classList = tempPath.resolve("classlist");
+            writeClassList(trainingClassList, jars, classList);
+
+            Path tempArchivePath = tempPath.resolve(ARCHIVE_FILE);
+            Process dump = new ProcessBuilder(getJava(), "-Xshare:dump",
+                    "-XX:SharedClassListFile=" + classList,
+                    "-XX:SharedArchiveFile=" + tempArchivePath,
+                    "-cp", classpath)
+                    .redirectErrorStream(true)
+                    .redirectOutput(tempPath.resolve("dump.log").toFile())
+                    .start();
+
+            if (dump.waitFor() != 0 || !Files.exists(tempArchivePath)) {
+                LOGGER.warning("Could not dump class data sharing archive: " +
+                        new String(Files.readAllBytes(tempPath.resolve("dump.log")), StandardCharsets.UTF_8));
+                return null;
+            }
+
+            moveAtomically(tempArchivePath, archivePath);
+
+            LOGGER.info("Class data sharing archive created in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+            return archive;
+        } catch (IOException e) {
+            LOGGER.warning("Could not create class data sharing archive: " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (tempPath != null)
+                delete(tempPath);
+        }
+    }
+
+    /**
+     * Package the classes of the base wrappers in a jar
+     *
+     * @param baseOutputPath Path of the compilation output of the base wrappers
+     * @param jarPath        Path of the jar
+     * @throws IOException - If an I/O error occurs
+     */
+    private static void createJar(Path baseOutputPath, Path jarPath) throws IOException {
+
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(baseOutputPath)) {
+            classFiles = files
+                    .filter(file -> file.toString().endsWith(".class"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(jarPath))) {
+            for (Path classFile : classFiles) {
+                jar.putNextEntry(new JarEntry(baseOutputPath.relativize(classFile).toString()
+                        .replace(File.separatorChar, '/')));
+                Files.copy(classFile, jar);
+                jar.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Write the list of classes to archive: the default class list of the
+     * JDK (as a custom archive replaces the default one), the classes loaded
+     * in the training run and all classes in the jars
+     *
+     * @param trainingClassList Path of the class list of the training run
+     * @param jars              Jars to archive
+     * @param classList         Path of the class list
+     * @throws IOException - If an I/O error occurs
+     */
+    private static void writeClassList(Path trainingClassList, List<Path> jars, Path classList)
+            throws IOException {
+
+        try (OutputStream out = Files.newOutputStream(classList)) {
+
+            Path defaultClassList = Paths.get(System.getProperty("java.home"), "lib", "classlist");
+            if (Files.exists(defaultClassList))
+                Files.copy(defaultClassList, out);
+
+            if (Files.exists(trainingClassList))
+                Files.copy(trainingClassList, out);
+
+            for (Path jar : jars) {
+                try (JarFile jarFile = new JarFile(jar.toFile())) {
+                    for (JarEntry entry : Collections.list(jarFile.entries())) {
+                        String name = entry.getName();
+
+                        if (!name.endsWith(".class") || name.startsWith("META-INF/") ||
+                                name.endsWith("module-info.class"))
+                            continue;
+
+                        out.write((name.substring(0, name.length() - 6) + "\n")
+                                .getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String getJava() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    /**
+     * Move a file atomically, ignoring whether another JVM created the
+     * target concurrently
+     *
+     * @param source Path of the file to move
+     * @param target Path of the target
+     * @throws IOException - If the file could not be moved and the target does not exist
+     */
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (!Files.exists(target))
+                throw e;
+        }
+    }
+
+    /**
+     * Delete a directory and its contents, ignoring errors
+     *
+     * @param path Path of the directory
+     */
+    private static void delete(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            // temporary files are left behind
+        }
+    }
+
+    /**
+     * Archive of the base wrappers
+     */
+    static class Archive {
+        private final Path path;
+        private final String classpath;
+
+        private Archive(Path path, String classpath) {
+            this.path = path;
+            this.classpath = classpath;
+        }
+
+        /**
+         * Get the JVM options to use the archive
+         *
+         * @return JVM options to use the archive
+         */
+        List<String> getOptions() {
+            return Arrays.asList("-XX:SharedArchiveFile=" + path, "-Xshare:auto");
+        }
+
+        /**
+         * Get the classpath of the archived classes, which must be a prefix
+         * of the classpath of the player
+         *
+         * @return classpath of the archived classes
+         */
+        String getClasspath() {
+            return classpath;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pt.up.fc.dcc.asura.builder.languages;
+
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+/**
+ * Exception thrown when the program of a player does not compile
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class CompilationException extends BuilderException {
+
+    private String diagnostics;
+
+    public CompilationException(String message, String diagnostics) {
+        super(message);
+
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Get the diagnostics reported by the compiler
+     *
+     * @return diagnostics reported by the compiler, one per line
+     */
+    public String getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Get the classification of a program that does not compile
+     *
+     * @return {@link MooshakClassification} classification of a program that does not compile
+     */
+    public MooshakClassification getClassification() {
+        return MooshakClassification.COMPILE_TIME_ERROR;
+    }
+}
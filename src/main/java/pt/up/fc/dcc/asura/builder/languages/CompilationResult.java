@@ -0,0 +1,75 @@
+package pt.up.fc.dcc.asura.builder.languages;
+
+/**
+ * Result of the compilation of the program of a player
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class CompilationResult {
+
+    private String programPath;
+    private String outputPath;
+    private String diagnostics;
+    private long compileTime;
+    private boolean cached;
+
+    public CompilationResult(String programPath, String outputPath, String diagnostics,
+                             long compileTime, boolean cached) {
+        this.programPath = programPath;
+        this.outputPath = outputPath;
+        this.diagnostics = diagnostics;
+        this.compileTime = compileTime;
+        this.cached = cached;
+    }
+
+    public String getProgramPath() {
+        return programPath;
+    }
+
+    /**
+     * Get the output path of the compilation, to be passed to {@code execute()}
+     *
+     * @return output path of the compilation or {@code null} if it failed
+     */
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * Get the diagnostics reported by the compiler
+     *
+     * @return diagnostics reported by the compiler, one per line
+     */
+    public String getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Get the time spent compiling the program. Programs compiled together
+     * get an equal share of the time of the compilation.
+     *
+     * @return time spent compiling the program in milliseconds
+     */
+    public long getCompileTime() {
+        return compileTime;
+    }
+
+    /**
+     * Was the program already compiled?
+     *
+     * @return {@code true} if the output was found in cache; {@code false} otherwise
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public boolean isSuccessful() {
+        return outputPath != null;
+    }
+
+    @Override
+    public String toString() {
+        return "CompilationResult [programPath=" + programPath + ", successful=" + isSuccessful() +
+                ", compileTime=" + compileTime + "ms, cached=" + cached + "]";
+    }
+}
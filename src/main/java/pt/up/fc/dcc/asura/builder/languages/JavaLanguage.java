@@ -1,51 +1,106 @@
 package pt.up.fc.dcc.asura.builder.languages;
 
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.languages.pool.PlayerHostPool;
 import pt.up.fc.dcc.asura.builder.utils.FileUtils;
 
-import javax.tools.JavaCompiler;
-import javax.tools.ToolProvider;
+import javax.tools.*;
 import java.io.File;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
- * Compile & execute programs in Java language
+ * Compile & execute programs in Java language.
+ * <p>
+ * Programs are compiled in-process into memory by a single
+ * {@link JavaCompiler}; programs of the same game are compiled together in a
+ * single task whenever their class names do not clash (and recompiled alone
+ * if they refer to classes of one another). Compilations are
+ * cached on disk, keyed by a hash of the wrapper sources, the solution source
+ * and the JDK version, so a program is compiled only once no matter how many
+ * matches it plays. Base wrappers are compiled once into a directory shared
+ * by all programs, and players are launched with a class data sharing
+ * archive of them when the JDK supports it (see {@link ClassDataSharing}).
  *
  * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
  */
 public class JavaLanguage extends Language {
+    private static final Logger LOGGER = Logger.getLogger(JavaLanguage.class.getSimpleName());
+
+    private static final Path CACHE_PATH = Paths.get(System.getProperty("java.io.tmpdir"),
+            "asura-builder-cache");
+
+    // file of a compilation output listing its runtime classpath
+    private static final String CLASSPATH_FILE = "classpath.txt";
+
+    // file of a compilation output with the path of the base wrappers output
+    private static final String BASE_FILE = "base.txt";
+
+    // compilation outputs of this JVM keyed by hash
+    private static final Map<String, Path> COMPILED = new ConcurrentHashMap<>();
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+    // file manager reused by all compilation tasks (guarded by COMPILER)
+    private static StandardJavaFileManager fileManager = null;
 
     @Override
     public String compile(String gameSlug, String languageSlug, String programPath,
                           String basePath) {
 
-        String filename = Paths.get(programPath).getFileName().toString();
+        CompilationResult result = compileAll(gameSlug, languageSlug,
+                Collections.singletonMap(programPath, basePath)).get(programPath);
+
+        if (!result.isSuccessful())
+            throw new CompilationException("Error compiling " + Paths.get(programPath).getFileName(),
+                    result.getDiagnostics());
+
+        return result.getOutputPath();
+    }
+
+    @Override
+    public Map<String, CompilationResult> compileAll(String gameSlug, String languageSlug,
+                                                     Map<String, String> basePaths) {
+
+        Map<String, CompilationResult> results = new HashMap<>();
+
+        // programs still to compile grouped by game wrappers
+        Map<String, List<Program>> pending = new LinkedHashMap<>();
+        for (String programPath : basePaths.keySet()) {
 
-        List<Path> baseWrapperJavaFilesPaths = FileUtils.getAllFilesMatchingGlob(
-                Paths.get(basePath, "wrappers", languageSlug).toString(),
-                "*.java");
+            Program program = new Program(gameSlug, languageSlug, programPath, basePaths.get(programPath));
 
-        List<Path> wrapperJavaFilesPaths = FileUtils.getAllFilesMatchingGlob(
-                Paths.get(basePath, gameSlug, "wrappers", languageSlug).toString(),
-                "*.java");
+            Path outputPath = COMPILED.get(program.hash);
+            if (outputPath == null && Files.exists(CACHE_PATH.resolve(program.hash).resolve(CLASSPATH_FILE)))
+                outputPath = COMPILED.computeIfAbsent(program.hash, CACHE_PATH::resolve);
 
-        List<String> compilerArgs = new ArrayList<>();
-        compilerArgs.add("-cp");
-        compilerArgs.add(getJarClasspath(gameSlug, languageSlug, basePath));
-        compilerArgs.add("-d");
-        compilerArgs.add(basePath);
+            if (outputPath != null)
+                results.put(programPath, new CompilationResult(programPath, outputPath.toString(),
+                        "", 0, true));
+            else
+                pending.computeIfAbsent(program.wrapperHash, hash -> new ArrayList<>()).add(program);
+        }
 
-        compilerArgs.addAll(baseWrapperJavaFilesPaths.stream().map(Path::toString).collect(Collectors.toSet()));
-        compilerArgs.addAll(wrapperJavaFilesPaths.stream().map(Path::toString).collect(Collectors.toSet()));
-        compilerArgs.add(Paths.get(basePath, filename).toString());
+        for (List<Program> programs : pending.values())
+            for (List<Program> batch : splitClashingPrograms(programs))
+                for (CompilationResult result : compileBatch(batch)) {
+                    results.put(result.getProgramPath(), result);
 
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        compiler.run(null, null, null, compilerArgs.toArray(new String[compilerArgs.size()]));
+                    LOGGER.info(String.format("Compiled %s in %d ms%s", result.getProgramPath(),
+                            result.getCompileTime(), result.isSuccessful() ? "" : " with errors"));
+                }
 
-        return basePath;
+        Map<String, CompilationResult> orderedResults = new LinkedHashMap<>();
+        for (String programPath : basePaths.keySet())
+            orderedResults.put(programPath, results.get(programPath));
+
+        return orderedResults;
     }
 
     @Override
@@ -57,20 +112,480 @@ public class JavaLanguage extends Language {
         if (home == null)
             throw new RuntimeException("No java home");
 
+        String classpath = getClasspath(gameSlug, languageSlug, compileOutputPath);
+        String playerClassName = getPlayerClassName(programPath);
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(home, "bin", "java").toString());
+
+        // archived classes must come first in the classpath
+        ClassDataSharing.Archive archive = getArchive(compileOutputPath);
+        if (archive != null) {
+            command.addAll(archive.getOptions());
+            classpath = archive.getClasspath() + FileUtils.getJavaClasspathSeparator() + classpath;
+        }
+
+        command.addAll(Arrays.asList("-cp", classpath, playerClassName, playerClassName, playerId));
+
+        return new ProcessBuilder(command);
+    }
+
+    /**
+     * Launch a player in a warm JVM of a pool, rather than in a new JVM
+     *
+     * @param pool              {@link PlayerHostPool} pool of warm JVMs
+     * @param gameSlug          Short name of the game
+     * @param languageSlug      Short name of the language in which player is coded
+     * @param programPath       Path of the program that extends {@code Player}
+     * @param playerId          ID of the player
+     * @param compileOutputPath Output path of the compilation
+     * @return {@link Process} process-like handle of the player
+     * @throws IOException - If the player cannot be launched
+     */
+    public Process execute(PlayerHostPool pool, String gameSlug, String languageSlug, String programPath,
+                           String playerId, String compileOutputPath) throws IOException {
+
+        return pool.launch(getClasspath(gameSlug, languageSlug, compileOutputPath),
+                getPlayerClassName(programPath), playerId);
+    }
+
+    /**
+     * Get the runtime classpath of a compiled program
+     *
+     * @param gameSlug          Short name of the game
+     * @param languageSlug      Short name of the language in which player is coded
+     * @param compileOutputPath Output path of the compilation
+     * @return runtime classpath of the compiled program
+     */
+    private String getClasspath(String gameSlug, String languageSlug, String compileOutputPath) {
+
+        if (Files.exists(Paths.get(compileOutputPath, CLASSPATH_FILE))) {
+            try {
+                return readClasspath(Paths.get(compileOutputPath));
+            } catch (IOException e) {
+                throw new BuilderException("Error reading classpath of compiled program.", e);
+            }
+        }
+
         String classpath = getJarClasspath(gameSlug, languageSlug, compileOutputPath);
 
         if (!classpath.isEmpty())
             classpath += FileUtils.getJavaClasspathSeparator();
 
-        classpath += compileOutputPath;
+        return classpath + compileOutputPath;
+    }
+
+    /**
+     * Get the class data sharing archive of the base wrappers of a compiled
+     * program
+     *
+     * @param compileOutputPath Output path of the compilation
+     * @return {@link ClassDataSharing.Archive} archive or {@code null} if not available
+     */
+    static ClassDataSharing.Archive getArchive(String compileOutputPath) {
+
+        Path baseFile = Paths.get(compileOutputPath, BASE_FILE);
+        if (!Files.exists(baseFile))
+            return null;
+
+        try {
+            Path baseOutputPath = Paths.get(new String(Files.readAllBytes(baseFile), StandardCharsets.UTF_8));
+
+            return ClassDataSharing.getArchive(baseOutputPath, readClasspath(baseOutputPath));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the name of the player class of a program
+     *
+     * @param programPath Path of the program that extends {@code Player}
+     * @return name of the player class
+     */
+    private static String getPlayerClassName(String programPath) {
 
         String filename = Paths.get(programPath).getFileName().toString();
-        String playerClassName = filename
+
+        return filename
                 .substring(0, filename.length() - 5) // remove .java
                 .replace(File.separatorChar, '.');
+    }
+
+    /**
+     * Split programs into batches whose solutions have distinct file names,
+     * hence distinct classes
+     *
+     * @param programs Programs to split
+     * @return {@link List} batches of programs
+     */
+    private static List<List<Program>> splitClashingPrograms(List<Program> programs) {
+
+        List<List<Program>> batches = new ArrayList<>();
+        List<Set<String>> batchNames = new ArrayList<>();
+
+        for (Program program : programs) {
+            String name = program.solution.getFileName().toString();
+
+            int i = 0;
+            while (i < batches.size() && batchNames.get(i).contains(name))
+                i++;
+
+            if (i == batches.size()) {
+                batches.add(new ArrayList<>());
+                batchNames.add(new HashSet<>());
+            }
+
+            batches.get(i).add(program);
+            batchNames.get(i).add(name);
+        }
+
+        return batches;
+    }
+
+    /**
+     * Compile a batch of programs sharing the same game wrappers in a single
+     * task. If the task fails, each program is compiled on its own so that
+     * diagnostics are reported to the right program; so is any program that
+     * refers to classes of another, which would be missing from its output.
+     *
+     * @param batch Programs to compile
+     * @return {@link List} results of the compilation of each program
+     */
+    private static List<CompilationResult> compileBatch(List<Program> batch) {
+
+        Program first = batch.get(0);
+        List<CompilationResult> results = new ArrayList<>();
+
+        Path baseOutputPath;
+        try {
+            baseOutputPath = COMPILED.computeIfAbsent(first.baseHash, hash -> compileCached(hash,
+                    first.baseWrapperJars, first.baseWrapperSources));
+        } catch (CompilationException e) {
+            for (Program program : batch)
+                results.add(new CompilationResult(program.programPath, null, e.getDiagnostics(), 0, false));
+            return results;
+        }
+
+        List<Path> sources = new ArrayList<>(first.wrapperSources);
+        for (Program program : batch)
+            sources.add(program.solution);
+
+        long start = System.nanoTime();
+
+        Map<String, MemoryFileManager.ClassFile> classFiles;
+        try {
+            List<String> classpath = new ArrayList<>();
+            classpath.add(readClasspath(baseOutputPath));
+            classpath.addAll(first.wrapperJars.stream().map(Path::toString).collect(Collectors.toList()));
+
+            classFiles = runCompiler(classpath, sources);
+        } catch (CompilationException e) {
+
+            if (batch.size() > 1) {
+                for (Program program : batch)
+                    results.addAll(compileBatch(Collections.singletonList(program)));
+            } else {
+                long compileTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                results.add(new CompilationResult(first.programPath, null, e.getDiagnostics(),
+                        compileTime, false));
+            }
+
+            return results;
+        } catch (IOException e) {
+            throw new BuilderException("Error reading classpath of base wrappers.", e);
+        }
+
+        long compileTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / batch.size();
+
+        // classes of each solution, by internal name
+        Map<Program, Set<String>> classNames = new HashMap<>();
+        for (Program program : batch)
+            classNames.put(program, new HashSet<>());
+        for (MemoryFileManager.ClassFile classFile : classFiles.values()) {
+            Program origin = findOrigin(batch, classFile);
+            if (origin != null)
+                classNames.get(origin).add(classFile.getClassName().replace('.', '/'));
+        }
+
+        for (Program program : batch) {
+
+            // classes of the game wrappers and of this solution
+            List<MemoryFileManager.ClassFile> programClassFiles = new ArrayList<>();
+            for (MemoryFileManager.ClassFile classFile : classFiles.values()) {
+                Program origin = findOrigin(batch, classFile);
+                if (origin == null || origin == program)
+                    programClassFiles.add(classFile);
+            }
+
+            // a solution may have used classes of another one in the batch
+            if (batch.size() > 1 && dependsOnOthers(program, programClassFiles, classNames)) {
+                results.addAll(compileBatch(Collections.singletonList(program)));
+                continue;
+            }
+
+            Path outputPath = COMPILED.computeIfAbsent(program.hash, hash -> store(hash,
+                    program.wrapperJars, Collections.singletonList(baseOutputPath), programClassFiles));
+
+            results.add(new CompilationResult(program.programPath, outputPath.toString(), "",
+                    compileTime, false));
+        }
+
+        return results;
+    }
+
+    /**
+     * Check if the classes of a program refer to classes generated from the
+     * solution of another program of the same batch
+     *
+     * @param program    Program to check
+     * @param classFiles Class files of the game wrappers and of the program
+     * @param classNames Internal names of the classes of each solution in the batch
+     * @return {@code true} if the program refers to classes of another, {@code false} otherwise
+     */
+    private static boolean dependsOnOthers(Program program, List<MemoryFileManager.ClassFile> classFiles,
+                                           Map<Program, Set<String>> classNames) {
+
+        Set<String> others = new HashSet<>();
+        for (Program other : classNames.keySet())
+            if (other != program)
+                others.addAll(classNames.get(other));
+
+        for (MemoryFileManager.ClassFile classFile : classFiles) {
+
+            Set<String> strings;
+            try {
+                strings = classFile.getConstantStrings();
+            } catch (IOException e) {
+                return true;
+            }
 
-        return new ProcessBuilder(Paths.get(home, "bin", "java").toString(),
-                "-cp", classpath, playerClassName, playerClassName, playerId);
+            for (String string : strings)
+                for (String other : others)
+                    if (string.equals(other) || string.contains("L" + other + ";") ||
+                            string.contains("L" + other + "<"))
+                        return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Find the program whose solution generated a class file
+     *
+     * @param batch     Programs compiled in the same task
+     * @param classFile Class file generated by the task
+     * @return {@link Program} program or {@code null} if the class was
+     * generated from a game wrapper
+     */
+    private static Program findOrigin(List<Program> batch, MemoryFileManager.ClassFile classFile) {
+
+        if (classFile.getSource() == null)
+            return null;
+
+        Path source = Paths.get(classFile.getSource().toUri()).toAbsolutePath().normalize();
+        for (Program program : batch)
+            if (program.solution.toAbsolutePath().normalize().equals(source))
+                return program;
+
+        return null;
+    }
+
+    /**
+     * Compile sources into the cache directory of a given hash, unless it was
+     * already compiled (possibly by another JVM)
+     *
+     * @param hash    Hash of the inputs of the compilation
+     * @param jars    Jars required by the sources
+     * @param sources Java source files to compile
+     * @return path of the output directory
+     */
+    private static Path compileCached(String hash, List<Path> jars, List<Path> sources) {
+
+        Path outputPath = CACHE_PATH.resolve(hash);
+
+        if (Files.exists(outputPath.resolve(CLASSPATH_FILE)))
+            return outputPath;
+
+        Map<String, MemoryFileManager.ClassFile> classFiles = runCompiler(
+                jars.stream().map(Path::toString).collect(Collectors.toList()), sources);
+
+        return store(hash, jars, Collections.emptyList(), classFiles.values());
+    }
+
+    /**
+     * Compile sources in memory
+     *
+     * @param classpath Classpath entries required by the sources
+     * @param sources   Java source files to compile
+     * @return {@link Map} class files keyed by binary name
+     * @throws CompilationException - If the sources do not compile
+     */
+    private static Map<String, MemoryFileManager.ClassFile> runCompiler(List<String> classpath,
+                                                                        List<Path> sources) {
+
+        if (COMPILER == null)
+            throw new BuilderException("No Java compiler available.");
+
+        List<String> options = new ArrayList<>();
+        options.add("-classpath");
+        options.add(String.join(String.valueOf(FileUtils.getJavaClasspathSeparator()), classpath));
+        options.add("-encoding");
+        options.add("UTF-8");
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        synchronized (COMPILER) {
+
+            if (fileManager == null)
+                fileManager = COMPILER.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+
+            MemoryFileManager memoryFileManager = new MemoryFileManager(fileManager);
+
+            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(
+                    sources.stream().map(Path::toFile).collect(Collectors.toList()));
+
+            boolean success = COMPILER.getTask(null, memoryFileManager, diagnostics, options,
+                    null, compilationUnits).call();
+
+            if (!success)
+                throw new CompilationException("Error compiling " + sources.get(sources.size() - 1).getFileName(),
+                        formatDiagnostics(diagnostics.getDiagnostics()));
+
+            return memoryFileManager.getClassFiles();
+        }
+    }
+
+    /**
+     * Format errors reported by the compiler, one per line
+     *
+     * @param diagnostics Diagnostics reported by the compiler
+     * @return errors reported by the compiler, one per line
+     */
+    private static String formatDiagnostics(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+
+        StringBuilder text = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR)
+                continue;
+
+            if (diagnostic.getSource() != null)
+                text.append(Paths.get(diagnostic.getSource().toUri()).getFileName())
+                        .append(':').append(diagnostic.getLineNumber()).append(": ");
+
+            text.append("error: ").append(diagnostic.getMessage(Locale.ENGLISH)).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Store class files in the cache directory of a given hash. Jars are
+     * copied into the output directory, which becomes self-contained except
+     * for the dependencies, and its runtime classpath is recorded in a file
+     * (as is the first dependency, the output of the base wrappers).
+     *
+     * @param hash         Hash of the inputs of the compilation
+     * @param jars         Jars required by the classes
+     * @param dependencies Outputs of previous compilations required by the classes
+     * @param classFiles   Class files to store
+     * @return path of the output directory
+     */
+    private static Path store(String hash, List<Path> jars, List<Path> dependencies,
+                              Collection<MemoryFileManager.ClassFile> classFiles) {
+
+        Path outputPath = CACHE_PATH.resolve(hash);
+
+        if (Files.exists(outputPath.resolve(CLASSPATH_FILE)))
+            return outputPath;
+
+        String separator = String.valueOf(FileUtils.getJavaClasspathSeparator());
+
+        Path tempPath;
+        try {
+            Files.createDirectories(CACHE_PATH);
+            tempPath = Files.createTempDirectory(CACHE_PATH, "tmp-");
+
+            List<String> classpath = new ArrayList<>();
+            for (Path dependency : dependencies)
+                classpath.add(readClasspath(dependency));
+
+            for (Path jar : jars) {
+                Path target = tempPath.resolve(jar.getFileName());
+                Files.copy(jar, target, StandardCopyOption.REPLACE_EXISTING);
+                classpath.add(outputPath.resolve(jar.getFileName()).toString());
+            }
+
+            for (MemoryFileManager.ClassFile classFile : classFiles) {
+                Path target = tempPath.resolve(classFile.getClassName().replace('.', File.separatorChar) +
+                        JavaFileObject.Kind.CLASS.extension);
+                Files.createDirectories(target.getParent());
+                Files.write(target, classFile.getBytes());
+            }
+
+            classpath.add(outputPath.toString());
+            Files.write(tempPath.resolve(CLASSPATH_FILE),
+                    String.join(separator, classpath).getBytes(StandardCharsets.UTF_8));
+
+            if (!dependencies.isEmpty())
+                Files.write(tempPath.resolve(BASE_FILE),
+                        dependencies.get(0).toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new BuilderException("Error preparing compilation cache.", e);
+        }
+
+        try {
+            Files.move(tempPath, outputPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // compiled concurrently by another JVM
+            if (!Files.exists(outputPath.resolve(CLASSPATH_FILE)))
+                throw new BuilderException("Error storing compilation in cache.", e);
+        }
+
+        return outputPath;
+    }
+
+    /**
+     * Read the runtime classpath of a compilation output
+     *
+     * @param outputPath Path of the compilation output
+     * @return runtime classpath of the compilation output
+     * @throws IOException - If the classpath file cannot be read
+     */
+    private static String readClasspath(Path outputPath) throws IOException {
+        return new String(Files.readAllBytes(outputPath.resolve(CLASSPATH_FILE)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compute a hash of the contents of some files, the JDK version and other
+     * given keys
+     *
+     * @param files Files to include in the hash
+     * @param keys  Other keys to include in the hash
+     * @return hexadecimal string of the hash
+     */
+    private static String hashFiles(List<Path> files, String... keys) {
+
+        List<byte[]> parts = new ArrayList<>();
+
+        parts.add(System.getProperty("java.vm.version", "").getBytes(StandardCharsets.UTF_8));
+        for (String key : keys)
+            parts.add(key.getBytes(StandardCharsets.UTF_8));
+
+        List<Path> sortedFiles = new ArrayList<>(files);
+        sortedFiles.sort(Comparator.comparing(path -> path.getFileName().toString()));
+
+        for (Path file : sortedFiles) {
+            try {
+                parts.add(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                parts.add(Files.readAllBytes(file));
+            } catch (IOException e) {
+                throw new BuilderException("Error reading " + file.getFileName(), e);
+            }
+        }
+
+        return hash(parts.toArray(new byte[0][]));
     }
 
     /**
@@ -110,4 +625,46 @@ public class JavaLanguage extends Language {
 
         return classpath;
     }
+
+    /**
+     * Sources of a prepared player program and the hashes that identify its
+     * compilation
+     */
+    private static class Program {
+        private final String programPath;
+
+        private final List<Path> baseWrapperSources;
+        private final List<Path> baseWrapperJars;
+        private final List<Path> wrapperSources;
+        private final List<Path> wrapperJars;
+        private final Path solution;
+
+        private final String baseHash;
+        private final String wrapperHash;
+        private final String hash;
+
+        private Program(String gameSlug, String languageSlug, String programPath, String basePath) {
+            this.programPath = programPath;
+
+            String baseWrapperPath = Paths.get(basePath, "wrappers", languageSlug).toString();
+            String wrapperPath = Paths.get(basePath, gameSlug, "wrappers", languageSlug).toString();
+
+            baseWrapperSources = FileUtils.getAllFilesMatchingGlob(baseWrapperPath, "*.java");
+            baseWrapperJars = FileUtils.getAllFilesMatchingGlob(baseWrapperPath, "*.jar");
+            wrapperSources = FileUtils.getAllFilesMatchingGlob(wrapperPath, "*.java");
+            wrapperJars = FileUtils.getAllFilesMatchingGlob(wrapperPath, "*.jar");
+            solution = Paths.get(basePath, Paths.get(programPath).getFileName().toString());
+
+            // base wrappers are shared by all programs
+            List<Path> baseFiles = new ArrayList<>(baseWrapperSources);
+            baseFiles.addAll(baseWrapperJars);
+            baseHash = hashFiles(baseFiles);
+
+            List<Path> wrapperFiles = new ArrayList<>(wrapperSources);
+            wrapperFiles.addAll(wrapperJars);
+            wrapperHash = hashFiles(wrapperFiles, baseHash);
+
+            hash = hashFiles(Collections.singletonList(solution), wrapperHash);
+        }
+    }
 }
@@ -3,11 +3,19 @@ package pt.up.fc.dcc.asura.builder.languages;
 import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
 import pt.up.fc.dcc.asura.builder.utils.FileUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -20,8 +28,34 @@ import java.util.regex.Pattern;
  */
 public abstract class Language {
 
+    // programs already prepared in this JVM, keyed by game, language, program path and content
+    private static final Map<String, String> PREPARED = new ConcurrentHashMap<>();
+
+    /**
+     * Get the language with a given name
+     *
+     * @param languageName Name of the language (e.g. java, js, javascript, es6)
+     * @return {@link Language} the language with the given name
+     */
+    public static Language getLanguage(String languageName) {
+
+        switch (languageName) {
+
+            case "java":
+                return new JavaLanguage();
+            case "js":
+            case "javascript":
+            case "es6":
+                return new JavascriptLanguage();
+            default:
+                throw new BuilderException("Language not found!");
+        }
+    }
+
     /**
-     * Prepare to compile player program
+     * Prepare to compile player program. Resources of the same program are
+     * copied only once per JVM (while its content is the same), hence the
+     * returned path must be treated as read-only.
      *
      * @param gameSlug     Short name of the game
      * @param languageSlug Short name of the language in which player is coded
@@ -30,6 +64,65 @@ public abstract class Language {
      */
     public String prepare(String gameSlug, String languageSlug, String programPath) {
 
+        String resourcePath = "/" + programPath.replaceAll(Pattern.quote(File.separator), "/");
+
+        ByteArrayOutputStream program = new ByteArrayOutputStream();
+        try {
+            FileUtils.copyResourceFile(resourcePath, program);
+        } catch (IOException e) {
+            throw new BuilderException("Error reading solution.");
+        }
+
+        // a program resubmitted to the same path must not reuse the old copy
+        String key = String.join(File.pathSeparator, gameSlug, languageSlug, programPath,
+                hash(program.toByteArray()));
+
+        return PREPARED.computeIfAbsent(key, k -> copyProgram(gameSlug, languageSlug, programPath,
+                program.toByteArray()));
+    }
+
+    /**
+     * Compute a hash of some parts (e.g., contents of files). Each part is
+     * preceded by its length, so that different splits of the same bytes
+     * have different hashes.
+     *
+     * @param parts Parts to include in the hash, in order
+     * @return hexadecimal string of the hash
+     */
+    protected static String hash(byte[]... parts) {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new BuilderException("SHA-256 not available.", e);
+        }
+
+        for (byte[] part : parts) {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(part.length).array());
+            digest.update(part);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest())
+            hex.append(String.format("%02x", b));
+
+        return hex.toString();
+    }
+
+    /**
+     * Copy the base wrappers, game wrappers and player program to a fresh
+     * temporary directory
+     *
+     * @param gameSlug     Short name of the game
+     * @param languageSlug Short name of the language in which player is coded
+     * @param programPath  path of the program that extends {@code Player}
+     * @param program      content of the program
+     * @return path of the temporary directory
+     */
+    private static String copyProgram(String gameSlug, String languageSlug, String programPath,
+                                      byte[] program) {
+
         Path outputPath;
         try {
             outputPath = Files.createTempDirectory("asura-builder-" +
@@ -61,9 +154,7 @@ public abstract class Language {
 
         // copy solution to the output folder
         try {
-            FileUtils.copyResourceFile("/" + programPath
-                            .replaceAll(Pattern.quote(File.separator), "/"),
-                    outputPath.resolve(Paths.get(programPath).getFileName()).toFile());
+            Files.write(outputPath.resolve(Paths.get(programPath).getFileName()), program);
         } catch (IOException e) {
             throw new BuilderException("Error copying solution to the output folder.");
         }
@@ -83,6 +174,42 @@ public abstract class Language {
     public abstract String compile(String gameSlug, String languageSlug, String programPath,
                                    String basePath);
 
+    /**
+     * Compile several player programs of the same game in a specific
+     * language. Failures are reported in the result of each program instead
+     * of thrown.
+     *
+     * @param gameSlug     Short name of the game
+     * @param languageSlug Short name of the language in which players are coded
+     * @param basePaths    Base paths of the programs after preparation keyed by
+     *                     program path
+     * @return {@link Map} results of the compilations keyed by program path
+     */
+    public Map<String, CompilationResult> compileAll(String gameSlug, String languageSlug,
+                                                     Map<String, String> basePaths) {
+
+        Map<String, CompilationResult> results = new LinkedHashMap<>();
+        for (String programPath : basePaths.keySet()) {
+
+            long start = System.nanoTime();
+            String outputPath = null;
+            String diagnostics = "";
+            try {
+                outputPath = compile(gameSlug, languageSlug, programPath, basePaths.get(programPath));
+            } catch (CompilationException e) {
+                diagnostics = e.getDiagnostics();
+            } catch (BuilderException e) {
+                diagnostics = e.getMessage();
+            }
+
+            long compileTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            results.put(programPath, new CompilationResult(programPath, outputPath, diagnostics,
+                    compileTime, false));
+        }
+
+        return results;
+    }
+
     /**
      * Create a {@link ProcessBuilder} for a player in a specific language
      *
@@ -0,0 +1,141 @@
+package pt.up.fc.dcc.asura.builder.languages;
+
+import javax.tools.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * File manager that keeps the class files produced by the compiler in
+ * memory, together with the source file each of them was generated from
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final Map<String, ClassFile> classFiles = new LinkedHashMap<>();
+
+    MemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                               FileObject sibling) {
+
+        ClassFile classFile = new ClassFile(className, kind, sibling);
+        classFiles.put(className, classFile);
+
+        return classFile;
+    }
+
+    /**
+     * Get the class files produced by the compiler
+     *
+     * @return class files keyed by binary name
+     */
+    Map<String, ClassFile> getClassFiles() {
+        return classFiles;
+    }
+
+    /**
+     * Class file kept in memory
+     */
+    static class ClassFile extends SimpleJavaFileObject {
+        private final String className;
+        private final FileObject source;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className, Kind kind, FileObject source) {
+            super(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind);
+
+            this.className = className;
+            this.source = source;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        /**
+         * Get the source file from which this class was generated
+         *
+         * @return {@link FileObject} source file or {@code null} if unknown
+         */
+        FileObject getSource() {
+            return source;
+        }
+
+        byte[] getBytes() {
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Get the strings in the constant pool of the class, which include
+         * the internal names and descriptors of all classes it refers to
+         *
+         * @return {@link Set} strings in the constant pool of the class
+         * @throws IOException - If the class file is malformed
+         */
+        Set<String> getConstantStrings() throws IOException {
+
+            Set<String> strings = new HashSet<>();
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(getBytes()));
+
+            // magic, minor and major versions
+            in.skipBytes(8);
+
+            int count = in.readUnsignedShort();
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1: // Utf8
+                        strings.add(in.readUTF());
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        in.skipBytes(2);
+                        break;
+                    case 15: // MethodHandle
+                        in.skipBytes(3);
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.skipBytes(4);
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        in.skipBytes(8);
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag + " in " + className);
+                }
+            }
+
+            return strings;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package pt.up.fc.dcc.asura.builder.languages.pool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line protocol spoken between a {@link PlayerHostPool} and its
+ * {@link PlayerHost} processes. Lines exchanged with the player are passed
+ * unchanged, except that a leading {@link #CONTROL} byte is doubled; lines
+ * starting with a single {@link #CONTROL} byte are control messages:
+ * <ul>
+ * <li>{@code START <class>\t<player-id>\t<classpath>} starts a session</li>
+ * <li>{@code EOF} closes the standard input of the player</li>
+ * <li>{@code KILL} ends the session</li>
+ * <li>{@code EXIT <code>} reports that the player terminated</li>
+ * <li>{@code READY} reports that the host is ready for a session</li>
+ * </ul>
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+final class HostProtocol {
+
+    static final int CONTROL = 1;
+
+    static final String START = "START";
+    static final String EOF = "EOF";
+    static final String KILL = "KILL";
+    static final String EXIT = "EXIT";
+    static final String READY = "READY";
+
+    static final String SEPARATOR = "\t";
+
+    private HostProtocol() {
+    }
+
+    /**
+     * Read a line of bytes, including the line terminator
+     *
+     * @param in {@link InputStream} stream to read from
+     * @return line of bytes or {@code null} at end of stream
+     * @throws IOException - If an I/O error occurs
+     */
+    static byte[] readLine(InputStream in) throws IOException {
+
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        int b;
+        while ((b = in.read()) != -1) {
+            line.write(b);
+            if (b == '\n')
+                break;
+        }
+
+        if (b == -1 && line.size() == 0)
+            return null;
+
+        return line.toByteArray();
+    }
+
+    /**
+     * Is this line a control message?
+     *
+     * @param line Line of bytes
+     * @return {@code true} if the line is a control message; {@code false} otherwise
+     */
+    static boolean isControl(byte[] line) {
+        return line.length > 0 && line[0] == CONTROL && (line.length == 1 || line[1] != CONTROL);
+    }
+
+    /**
+     * Get the control message in a line
+     *
+     * @param line Line of bytes with a control message
+     * @return control message without the control byte and line terminator
+     */
+    static String getControl(byte[] line) {
+        return new String(line, 1, line.length - 1, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Get the data in a line, removing escaping
+     *
+     * @param line Line of bytes with data
+     * @return data of the line
+     */
+    static byte[] getData(byte[] line) {
+
+        if (line.length > 1 && line[0] == CONTROL && line[1] == CONTROL) {
+            byte[] data = new byte[line.length - 1];
+            System.arraycopy(line, 1, data, 0, data.length);
+            return data;
+        }
+
+        return line;
+    }
+
+    /**
+     * Stream that escapes data lines and writes control messages on their own
+     * line
+     */
+    static class EscapingOutputStream extends FilterOutputStream {
+        private boolean atLineStart = true;
+
+        EscapingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+
+            if (atLineStart && b == CONTROL)
+                out.write(CONTROL);
+
+            out.write(b);
+            atLineStart = b == '\n';
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++)
+                write(b[i]);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        /**
+         * Write a control message and flush
+         *
+         * @param message Control message
+         * @throws IOException - If an I/O error occurs
+         */
+        synchronized void writeControl(String message) throws IOException {
+
+            if (!atLineStart)
+                out.write('\n');
+
+            out.write(CONTROL);
+            out.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            atLineStart = true;
+        }
+    }
+}
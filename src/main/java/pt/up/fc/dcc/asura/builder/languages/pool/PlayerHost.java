@@ -0,0 +1,334 @@
+package pt.up.fc.dcc.asura.builder.languages.pool;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Warm JVM that runs Java players, one session at a time, on behalf of a
+ * {@link PlayerHostPool}. Each player is loaded by a fresh class loader
+ * (hence wrapper classes are loaded again and their static state is reset),
+ * while Gson is shared by all sessions and is already loaded and warmed up.
+ * The player is driven as in {@code PlayerWrapper.main}, over the standard
+ * input and output of the host framed by {@link HostProtocol}.
+ * <p>
+ * If a player does not terminate within the termination timeout after the
+ * session ends, the host halts so that it is replaced. A player that calls
+ * {@code System.exit} also terminates the host.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public final class PlayerHost {
+
+    // exit code of PlayerWrapper.main when the player fails
+    private static final int ERROR_EXIT_CODE = 9;
+
+    private static final String PLAYER_WRAPPER_CLASS = "wrappers.java.PlayerWrapper";
+
+    private final InputStream in;
+    private final HostProtocol.EscapingOutputStream out;
+    private final long terminationTimeout;
+
+    private PlayerHost(InputStream in, OutputStream out, long terminationTimeout) {
+        this.in = in;
+        this.out = new HostProtocol.EscapingOutputStream(out);
+        this.terminationTimeout = terminationTimeout;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 1) {
+            System.err.println("usage: {termination-timeout-ms}");
+            System.exit(1);
+        }
+
+        PlayerHost host = new PlayerHost(new BufferedInputStream(new FileInputStream(FileDescriptor.in)),
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)),
+                Long.parseLong(args[0]));
+
+        warmUp();
+
+        host.serve();
+    }
+
+    /**
+     * Load and exercise Gson as players do
+     */
+    private static void warmUp() {
+
+        Gson gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> value = new HashMap<>();
+            value.put("command", Collections.singletonMap("args", Arrays.asList(i, "arg")));
+            value.put("messages", Collections.singletonList("message"));
+
+            gson.fromJson(gson.toJson(value), Map.class);
+        }
+    }
+
+    /**
+     * Serve sessions until the standard input is closed
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    private void serve() throws IOException {
+
+        out.writeControl(HostProtocol.READY);
+
+        byte[] line;
+        while ((line = HostProtocol.readLine(in)) != null) {
+
+            if (!HostProtocol.isControl(line))
+                continue;
+
+            String[] control = HostProtocol.getControl(line).split(" ", 2);
+            if (!control[0].equals(HostProtocol.START) || control.length < 2)
+                continue;
+
+            String[] session = control[1].split(HostProtocol.SEPARATOR);
+            if (session.length != 3)
+                continue;
+
+            runSession(session[0], session[1], session[2]);
+
+            out.writeControl(HostProtocol.READY);
+        }
+    }
+
+    /**
+     * Run a session of a player, until the pool ends it
+     *
+     * @param playerClassName Name of the player class
+     * @param playerId        ID of the player
+     * @param classpath       Classpath of the compiled player
+     * @throws IOException - If an I/O error occurs
+     */
+    private void runSession(String playerClassName, String playerId, String classpath) throws IOException {
+
+        InputStream systemIn = System.in;
+        PrintStream systemOut = System.out;
+        Properties properties = (Properties) System.getProperties().clone();
+        Locale locale = Locale.getDefault();
+
+        QueueInputStream playerIn = new QueueInputStream();
+        System.setIn(playerIn);
+        System.setOut(new PrintStream(new FilterOutputStream(out) {
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // players must not close the output of the host
+                out.flush();
+            }
+        }, true, StandardCharsets.UTF_8.name()));
+
+        AtomicBoolean exited = new AtomicBoolean(false);
+        ThreadGroup group = new ThreadGroup("player-" + playerId);
+        SessionClassLoader loader = new SessionClassLoader(toURLs(classpath), PlayerHost.class.getClassLoader());
+
+        Thread thread = new Thread(group, () -> {
+            int exitCode = runPlayer(loader, playerClassName, playerId);
+
+            if (exited.compareAndSet(false, true))
+                writeExit(exitCode);
+        }, "player-" + playerId);
+        thread.setContextClassLoader(loader);
+        thread.start();
+
+        try {
+            byte[] line;
+            while ((line = HostProtocol.readLine(in)) != null) {
+
+                if (!HostProtocol.isControl(line))
+                    playerIn.offer(HostProtocol.getData(line));
+                else if (HostProtocol.getControl(line).equals(HostProtocol.EOF))
+                    playerIn.end();
+                else if (HostProtocol.getControl(line).equals(HostProtocol.KILL))
+                    break;
+            }
+
+            // pool is gone
+            if (line == null)
+                Runtime.getRuntime().halt(0);
+
+            playerIn.end();
+            if (!terminate(group)) {
+                System.err.println("Player " + playerId + " did not terminate");
+                out.flush();
+                Runtime.getRuntime().halt(1);
+            }
+
+            if (exited.compareAndSet(false, true))
+                writeExit(ERROR_EXIT_CODE);
+        } finally {
+            System.setIn(systemIn);
+            System.setOut(systemOut);
+            System.setProperties(properties);
+            Locale.setDefault(locale);
+
+            loader.close();
+        }
+    }
+
+    /**
+     * Load, initialize and run a player as {@code PlayerWrapper.main} does
+     *
+     * @param loader          Class loader of the session
+     * @param playerClassName Name of the player class
+     * @param playerId        ID of the player
+     * @return exit code of the player
+     */
+    private static int runPlayer(ClassLoader loader, String playerClassName, String playerId) {
+
+        Object player;
+        Class<?> wrapperClass;
+        try {
+            wrapperClass = loader.loadClass(PLAYER_WRAPPER_CLASS);
+            Class<?> playerClass = loader.loadClass(playerClassName);
+
+            if (!wrapperClass.isAssignableFrom(playerClass))
+                throw new IllegalArgumentException("Not a player class:" + playerClassName);
+
+            player = playerClass.newInstance();
+        } catch (ReflectiveOperationException | IllegalArgumentException | LinkageError e) {
+            System.err.println("Error initializing player class " + playerClassName);
+            return ERROR_EXIT_CODE;
+        }
+
+        try {
+            wrapperClass.getMethod("setPlayerId", String.class).invoke(player, playerId);
+            wrapperClass.getMethod("init").invoke(player);
+
+            Method sendName = wrapperClass.getDeclaredMethod("sendName");
+            sendName.setAccessible(true);
+            sendName.invoke(player);
+
+            Method run = wrapperClass.getDeclaredMethod("run");
+            run.setAccessible(true);
+            run.invoke(player);
+        } catch (InvocationTargetException e) {
+            System.err.println("Error while running player: " + e.getCause().getMessage());
+            return ERROR_EXIT_CODE;
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Error while running player: " + e.getMessage());
+            return ERROR_EXIT_CODE;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Interrupt the threads of a player and wait for them to terminate
+     *
+     * @param group Thread group of the player
+     * @return {@code true} if all threads terminated; {@code false} otherwise
+     */
+    private boolean terminate(ThreadGroup group) {
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(terminationTimeout);
+
+        group.interrupt();
+        while (group.activeCount() > 0) {
+
+            if (System.nanoTime() > deadline)
+                return false;
+
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Report that the player terminated
+     *
+     * @param exitCode Exit code of the player
+     */
+    private void writeExit(int exitCode) {
+        try {
+            out.writeControl(HostProtocol.EXIT + " " + exitCode);
+        } catch (IOException e) {
+            Runtime.getRuntime().halt(1);
+        }
+    }
+
+    /**
+     * Convert a classpath to URLs
+     *
+     * @param classpath Classpath
+     * @return URLs of the classpath entries
+     * @throws MalformedURLException - If an entry cannot be converted
+     */
+    private static URL[] toURLs(String classpath) throws MalformedURLException {
+
+        String[] entries = classpath.split(File.pathSeparator);
+
+        URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i++)
+            urls[i] = Paths.get(entries[i]).toUri().toURL();
+
+        return urls;
+    }
+
+    /**
+     * Child-first class loader of a session. Classes of the platform and Gson
+     * are delegated to the host, everything else is loaded from the classpath
+     * of the player.
+     */
+    private static class SessionClassLoader extends URLClassLoader {
+        private static final String[] SHARED_PACKAGES = {"java.", "javax.", "jdk.", "sun.", "com.sun.",
+                "com.google.gson."};
+
+        private SessionClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+
+            for (String sharedPackage : SHARED_PACKAGES)
+                if (name.startsWith(sharedPackage))
+                    return super.loadClass(name, resolve);
+
+            synchronized (getClassLoadingLock(name)) {
+
+                Class<?> clazz = findLoadedClass(name);
+                if (clazz == null) {
+                    try {
+                        clazz = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+
+                if (resolve)
+                    resolveClass(clazz);
+
+                return clazz;
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package pt.up.fc.dcc.asura.builder.languages.pool;
+
+import com.google.gson.Gson;
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.utils.FileUtils;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Pool of warm {@link PlayerHost} JVMs that run compiled Java players. A
+ * player launched in the pool is handled as an ordinary {@link Process}, so
+ * it can be passed to {@code GameManager.manage}, but it skips the startup
+ * of the JVM and the loading of Gson.
+ * <p>
+ * Hosts that misbehave (e.g. whose player does not terminate, or calls
+ * {@code System.exit}) are killed and replaced, as are hosts that reached
+ * the maximum number of sessions.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class PlayerHostPool implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(PlayerHostPool.class.getSimpleName());
+
+    // exit code of a destroyed process (128 + SIGTERM)
+    static final int DESTROYED_EXIT_CODE = 143;
+
+    private final int size;
+
+    private int maxSessionsPerHost = 100;
+    private long terminationTimeout = 1000;
+    private long acquireTimeout = 30000;
+    private ProcessBuilder.Redirect errorRedirect = ProcessBuilder.Redirect.INHERIT;
+
+    private final BlockingQueue<Host> idleHosts = new LinkedBlockingQueue<>();
+    private final Set<Host> hosts = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "player-host-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean started = false;
+    private volatile boolean closed = false;
+
+    public PlayerHostPool(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Set the number of sessions after which a host is replaced (default is
+     * 100)
+     *
+     * @param maxSessionsPerHost number of sessions after which a host is replaced
+     */
+    public void setMaxSessionsPerHost(int maxSessionsPerHost) {
+        this.maxSessionsPerHost = maxSessionsPerHost;
+    }
+
+    /**
+     * Set the time given to a player to terminate after its session ends,
+     * before the host is killed (default is 1000 ms)
+     *
+     * @param terminationTimeout time to terminate in milliseconds
+     */
+    public void setTerminationTimeout(long terminationTimeout) {
+        this.terminationTimeout = terminationTimeout;
+    }
+
+    /**
+     * Set the time to wait for an idle host (default is 30000 ms)
+     *
+     * @param acquireTimeout time to wait for an idle host in milliseconds
+     */
+    public void setAcquireTimeout(long acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    /**
+     * Set the destination of the error output of hosts (default is to
+     * inherit the error output of this JVM)
+     *
+     * @param errorRedirect {@link ProcessBuilder.Redirect} destination of the error output
+     */
+    public void setErrorRedirect(ProcessBuilder.Redirect errorRedirect) {
+        this.errorRedirect = errorRedirect;
+    }
+
+    /**
+     * Start the hosts of the pool, if not started yet. Hosts take a while to
+     * become ready, thus the pool should be started well before launching
+     * players.
+     */
+    public synchronized void start() {
+
+        if (started)
+            return;
+
+        started = true;
+        for (int i = 0; i < size; i++)
+            spawn();
+    }
+
+    /**
+     * Launch a player in an idle host, waiting for one if necessary
+     *
+     * @param classpath       Classpath of the compiled player
+     * @param playerClassName Name of the player class
+     * @param playerId        ID of the player
+     * @return {@link Process} process-like handle of the player
+     * @throws IOException - If no host becomes available or the player cannot be launched
+     */
+    public Process launch(String classpath, String playerClassName, String playerId) throws IOException {
+
+        start();
+
+        Host host;
+        try {
+            host = idleHosts.poll(acquireTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a player host");
+        }
+
+        if (host == null)
+            throw new IOException("No player host available");
+
+        return host.startSession(String.join(HostProtocol.SEPARATOR, playerClassName, playerId, classpath));
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+
+        for (Host host : hosts)
+            host.process.destroyForcibly();
+
+        hosts.clear();
+        idleHosts.clear();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Start a new host, unless the pool is closed
+     */
+    private void spawn() {
+
+        if (closed)
+            return;
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", getHostClasspath(),
+                PlayerHost.class.getName(), Long.toString(terminationTimeout));
+        builder.redirectError(errorRedirect);
+
+        try {
+            Host host = new Host(builder.start());
+            hosts.add(host);
+            host.pump.start();
+        } catch (IOException e) {
+            LOGGER.severe("Could not start player host: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the classpath of hosts: the classes of the builder and Gson
+     *
+     * @return classpath of hosts
+     */
+    private static String getHostClasspath() {
+        try {
+            return String.join(String.valueOf(FileUtils.getJavaClasspathSeparator()),
+                    Paths.get(PlayerHost.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                            .toString(),
+                    Paths.get(Gson.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                            .toString());
+        } catch (URISyntaxException e) {
+            throw new BuilderException("Cannot locate classes of player host.", e);
+        }
+    }
+
+    /**
+     * Host process of the pool and its current session
+     */
+    class Host {
+        private final Process process;
+        private final HostProtocol.EscapingOutputStream in;
+        private final Thread pump;
+
+        // sessions are started by launching threads, while the pump reads them
+        private volatile PooledProcess session = null;
+        private volatile int sessions = 0;
+        private volatile boolean ready = false;
+
+        private Host(Process process) {
+            this.process = process;
+            this.in = new HostProtocol.EscapingOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.pump = new Thread(this::pump, "player-host-pump");
+            this.pump.setDaemon(true);
+        }
+
+        /**
+         * Start a session in this host
+         *
+         * @param arguments Arguments of the session
+         * @return {@link PooledProcess} handle of the session
+         * @throws IOException - If the host cannot be reached
+         */
+        private PooledProcess startSession(String arguments) throws IOException {
+
+            sessions++;
+            session = new PooledProcess(this);
+
+            try {
+                in.writeControl(HostProtocol.START + " " + arguments);
+            } catch (IOException e) {
+                kill();
+                throw e;
+            }
+
+            return session;
+        }
+
+        /**
+         * Write data of the player
+         *
+         * @param b   Data
+         * @param off Start offset in the data
+         * @param len Number of bytes to write
+         * @throws IOException - If the host cannot be reached
+         */
+        void write(byte[] b, int off, int len) throws IOException {
+            in.write(b, off, len);
+        }
+
+        void flush() throws IOException {
+            in.flush();
+        }
+
+        /**
+         * Send a control message to the host
+         *
+         * @param message Control message
+         */
+        void control(String message) {
+            try {
+                in.writeControl(message);
+            } catch (IOException e) {
+                kill();
+            }
+        }
+
+        /**
+         * End the current session, killing the host if it does not become
+         * ready in time
+         *
+         * @param session Session to end
+         */
+        void endSession(PooledProcess session) {
+
+            if (this.session != session)
+                return;
+
+            control(HostProtocol.KILL);
+
+            try {
+                watchdog.schedule(() -> {
+                    if (this.session == session)
+                        kill();
+                }, 2 * terminationTimeout, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // pool closed
+            }
+        }
+
+        /**
+         * Kill this host and spawn a replacement
+         */
+        void kill() {
+
+            process.destroyForcibly();
+
+            if (hosts.remove(this))
+                spawn();
+        }
+
+        /**
+         * Read the output of the host, dispatching data to the current
+         * session and handling control messages
+         */
+        private void pump() {
+
+            InputStream out = new BufferedInputStream(process.getInputStream());
+            try {
+                byte[] line;
+                while ((line = HostProtocol.readLine(out)) != null) {
+
+                    PooledProcess current = session;
+
+                    if (!HostProtocol.isControl(line)) {
+                        if (current != null)
+                            current.received(HostProtocol.getData(line));
+                        continue;
+                    }
+
+                    String[] control = HostProtocol.getControl(line).split(" ");
+                    switch (control[0]) {
+                        case HostProtocol.EXIT:
+                            if (current != null) {
+                                current.exited(Integer.parseInt(control[1]));
+                                endSession(current);
+                            }
+                            break;
+                        case HostProtocol.READY:
+                            session = null;
+                            ready = true;
+
+                            if (sessions >= maxSessionsPerHost)
+                                kill();
+                            else if (!closed)
+                                idleHosts.offer(this);
+                            break;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warning("Player host failed: " + e.getMessage());
+            }
+
+            // host terminated
+            PooledProcess current = session;
+            session = null;
+
+            if (current != null) {
+                try {
+                    current.exited(process.waitFor());
+                } catch (InterruptedException e) {
+                    current.exited(DESTROYED_EXIT_CODE);
+                }
+            }
+
+            idleHosts.remove(this);
+
+            // do not replace hosts that cannot even start
+            if (ready)
+                kill();
+            else if (hosts.remove(this))
+                LOGGER.severe("Player host exited before becoming ready");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package pt.up.fc.dcc.asura.builder.languages.pool;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-like handle of a player running in a session of a
+ * {@link PlayerHostPool.Host}. Closing its output stream closes the standard
+ * input of the player and destroying it ends the session.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+class PooledProcess extends Process {
+
+    private final PlayerHostPool.Host host;
+
+    private final QueueInputStream inputStream = new QueueInputStream();
+    private final OutputStream outputStream = new SessionOutputStream();
+
+    private final CountDownLatch exit = new CountDownLatch(1);
+    private volatile int exitValue;
+
+    PooledProcess(PlayerHostPool.Host host) {
+        this.host = host;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        // error output goes to the error output of the host
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        exit.await();
+        return exitValue;
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        return exit.await(timeout, unit);
+    }
+
+    @Override
+    public int exitValue() {
+
+        if (exit.getCount() > 0)
+            throw new IllegalThreadStateException("process hasn't exited");
+
+        return exitValue;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return exit.getCount() > 0;
+    }
+
+    @Override
+    public void destroy() {
+        exited(PlayerHostPool.DESTROYED_EXIT_CODE);
+        host.endSession(this);
+    }
+
+    /**
+     * Receive a line of output of the player
+     *
+     * @param line Line of output
+     */
+    void received(byte[] line) {
+        inputStream.offer(line);
+    }
+
+    /**
+     * Mark the player as terminated, if not yet
+     *
+     * @param exitValue Exit value of the player
+     */
+    synchronized void exited(int exitValue) {
+
+        if (exit.getCount() == 0)
+            return;
+
+        this.exitValue = exitValue;
+        inputStream.end();
+        exit.countDown();
+    }
+
+    /**
+     * Standard input of the player
+     */
+    private class SessionOutputStream extends OutputStream {
+        private boolean closed = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+
+            if (closed || !isAlive())
+                throw new IOException("Stream closed");
+
+            host.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            if (closed || !isAlive())
+                throw new IOException("Stream closed");
+
+            host.flush();
+        }
+
+        @Override
+        public void close() {
+
+            if (closed)
+                return;
+
+            closed = true;
+            if (isAlive())
+                host.control(HostProtocol.EOF);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package pt.up.fc.dcc.asura.builder.languages.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Input stream fed with chunks of bytes by another thread. Unlike piped
+ * streams, it does not depend on the liveness of the reading and writing
+ * threads.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+class QueueInputStream extends InputStream {
+
+    // marks the end of the stream (compared by identity)
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+    private byte[] chunk = null;
+    private int position = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Add a chunk of bytes to the stream
+     *
+     * @param bytes Chunk of bytes
+     */
+    void offer(byte[] bytes) {
+        if (bytes.length > 0)
+            chunks.offer(bytes);
+    }
+
+    /**
+     * Mark the end of the stream, after the chunks already offered
+     */
+    void end() {
+        chunks.offer(END_OF_STREAM);
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+
+        if (!nextChunk())
+            return -1;
+
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0)
+            return 0;
+
+        if (!nextChunk())
+            return -1;
+
+        int count = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, count);
+        position += count;
+
+        return count;
+    }
+
+    @Override
+    public synchronized int available() {
+
+        if (closed || chunk == null || chunk == END_OF_STREAM)
+            return 0;
+
+        return chunk.length - position;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        end();
+    }
+
+    /**
+     * Wait for a chunk with unread bytes
+     *
+     * @return {@code true} if there is a chunk with unread bytes;
+     * {@code false} at end of stream
+     * @throws InterruptedIOException - If interrupted while waiting
+     */
+    private boolean nextChunk() throws InterruptedIOException {
+
+        while (!closed && chunk != END_OF_STREAM && (chunk == null || position == chunk.length)) {
+            try {
+                chunk = chunks.take();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading");
+            }
+        }
+
+        return !closed && chunk != END_OF_STREAM;
+    }
+}
@@ -0,0 +1,163 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import pt.up.fc.dcc.asura.builder.base.utils.compression.GzipCodec;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of static assets (e.g., scripts, pages and images) kept in memory,
+ * both raw and compressed with gzip, so that they are not read from disk on
+ * every request. Assets are invalidated when the file changes and the least
+ * recently used are evicted once the cache exceeds its size.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class AssetCache {
+    private static final StreamCodec GZIP = new GzipCodec();
+
+    // compressed content is kept only if it saves at least a tenth
+    private static final double MAX_COMPRESSION_RATIO = 0.9;
+
+    private final long maxBytes;
+    private final long maxAssetBytes;
+
+    private final LinkedHashMap<Path, Asset> assets = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * Create a cache of assets
+     *
+     * @param maxBytes maximum number of bytes kept in the cache
+     */
+    public AssetCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.maxAssetBytes = maxBytes / 4;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the asset of a file, reading it if not cached or changed since
+     *
+     * @param path {@link Path} path of the file
+     * @return {@link Asset} asset of the file or {@code null} if it is too
+     * large to cache
+     * @throws IOException - If an I/O error occurs
+     */
+    public Asset get(Path path) throws IOException {
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        Asset asset = assets.get(path);
+        if (asset != null && asset.lastModified == lastModified && asset.content.length == size)
+            return asset;
+
+        if (asset != null)
+            remove(path);
+
+        if (size > maxAssetBytes)
+            return null;
+
+        asset = new Asset(Files.readAllBytes(path), lastModified);
+        assets.put(path, asset);
+        bytes += asset.getBytes();
+
+        evict();
+
+        return asset;
+    }
+
+    private void remove(Path path) {
+        Asset asset = assets.remove(path);
+        if (asset != null)
+            bytes -= asset.getBytes();
+    }
+
+    private void evict() {
+
+        Iterator<Map.Entry<Path, Asset>> iterator = assets.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().getBytes();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Content of a file kept in memory, with its validators
+     */
+    public static class Asset {
+        private final byte[] content;
+        private final byte[] gzipped;
+        private final long lastModified;
+        private final String entityTag;
+
+        Asset(byte[] content, long lastModified) throws IOException {
+            this.content = content;
+            this.gzipped = gzip(content);
+            this.lastModified = lastModified;
+            this.entityTag = "\"" + Long.toHexString(lastModified) + "-" + Integer.toHexString(content.length) + "\"";
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Get the content compressed with gzip
+         *
+         * @return content compressed with gzip or {@code null} if it does
+         * not compress well
+         */
+        public byte[] getGzipped() {
+            return gzipped;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Get the entity tag of the content, with quotes
+         *
+         * @param encoding content coding of the variant (may be {@code null})
+         * @return entity tag of the content
+         */
+        public String getEntityTag(String encoding) {
+
+            if (encoding == null)
+                return entityTag;
+
+            return entityTag.substring(0, entityTag.length() - 1) + "-" + encoding + "\"";
+        }
+
+        long getBytes() {
+            return content.length + (gzipped == null ? 0 : gzipped.length);
+        }
+
+        private static byte[] gzip(byte[] content) throws IOException {
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (OutputStream output = GZIP.encode(buffer)) {
+                output.write(content);
+            }
+
+            if (buffer.size() > content.length * MAX_COMPRESSION_RATIO)
+                return null;
+
+            return buffer.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Body of a response kept in memory
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class BytesBody implements ResponseBody {
+    private final ByteBuffer buffer;
+
+    public BytesBody(byte[] bytes) {
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Create a body with part of an array of bytes
+     *
+     * @param bytes  array of bytes
+     * @param offset position of the first byte to send
+     * @param length number of bytes to send
+     */
+    public BytesBody(byte[] bytes, int offset, int length) {
+        buffer = ByteBuffer.wrap(bytes, offset, length).slice();
+    }
+
+    @Override
+    public long getLength() {
+        return buffer.limit();
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+
+        channel.write(buffer);
+
+        return !buffer.hasRemaining();
+    }
+
+    @Override
+    public void close() {
+    }
+}
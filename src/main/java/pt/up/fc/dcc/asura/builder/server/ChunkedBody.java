@@ -0,0 +1,131 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Body of unknown length sent with the chunked transfer coding of HTTP/1.1.
+ * The wrapped body is written into a buffer, which is sent as a chunk. If
+ * the wrapped body is live, chunks are sent as its content is produced.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+class ChunkedBody implements LiveBody {
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ResponseBody body;
+
+    // data of the next chunk, written by the body
+    private final ByteBuffer data = ByteBuffer.allocate(CHUNK_SIZE);
+    private final WritableByteChannel dataChannel = new WritableByteChannel() {
+
+        @Override
+        public int write(ByteBuffer src) {
+
+            int count = Math.min(src.remaining(), data.remaining());
+
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + count);
+            data.put(slice);
+            src.position(src.position() + count);
+
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    // framed chunk being sent
+    private ByteBuffer chunk = ByteBuffer.allocate(0);
+    private boolean finished = false;
+
+    ChunkedBody(ResponseBody body) {
+        this.body = body;
+    }
+
+    @Override
+    public long getLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+
+        while (true) {
+            if (chunk.hasRemaining()) {
+                channel.write(chunk);
+                if (chunk.hasRemaining())
+                    return false;
+            }
+
+            if (finished)
+                return true;
+
+            data.clear();
+            boolean ended = body.writeTo(dataChannel);
+            data.flip();
+
+            // nothing available yet
+            if (!ended && !data.hasRemaining())
+                return false;
+
+            chunk = frame(ended);
+            finished = ended;
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return chunk.hasRemaining() || finished || !(body instanceof LiveBody) || ((LiveBody) body).isAvailable();
+    }
+
+    @Override
+    public void onAvailable(Runnable listener) {
+
+        if (isAvailable())
+            listener.run();
+        else
+            ((LiveBody) body).onAvailable(listener);
+    }
+
+    /**
+     * Frame the data as a chunk, followed by the last chunk if the body ended
+     *
+     * @param ended has the body ended?
+     * @return {@link ByteBuffer} framed chunk(s)
+     */
+    private ByteBuffer frame(boolean ended) {
+
+        byte[] size = (Integer.toHexString(data.remaining()) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        ByteBuffer framed = ByteBuffer.allocate(size.length + data.remaining() + 2 + LAST_CHUNK.length);
+        if (data.hasRemaining()) {
+            framed.put(size);
+            framed.put(data);
+            framed.put((byte) '\r').put((byte) '\n');
+        }
+
+        if (ended)
+            framed.put(LAST_CHUNK);
+
+        framed.flip();
+
+        return framed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
@@ -0,0 +1,72 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+/**
+ * Response completed later by another thread (e.g., one that must decode a
+ * file before its length is known), so that handlers do not block the
+ * thread of the server. Until it is complete, the connection answers no
+ * other request.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class DeferredResponse extends HttpResponse {
+
+    private HttpResponse response = null;
+    private Runnable listener = null;
+
+    public DeferredResponse() {
+        super(0, null);
+    }
+
+    /**
+     * Complete with the actual response, from any thread
+     *
+     * @param response {@link HttpResponse} actual response
+     */
+    public void complete(HttpResponse response) {
+
+        Runnable notified;
+        synchronized (this) {
+            if (this.response != null)
+                throw new IllegalStateException("Response is already complete");
+
+            this.response = response;
+
+            notified = listener;
+            listener = null;
+        }
+
+        if (notified != null)
+            notified.run();
+    }
+
+    public synchronized boolean isComplete() {
+        return response != null;
+    }
+
+    /**
+     * Get the actual response
+     *
+     * @return {@link HttpResponse} actual response or {@code null} if not complete
+     */
+    public synchronized HttpResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Register a listener to call once, from any thread, as soon as the
+     * response is complete (immediately, if it already is)
+     *
+     * @param listener {@link Runnable} listener to call
+     */
+    void onComplete(Runnable listener) {
+
+        synchronized (this) {
+            if (response == null) {
+                this.listener = listener;
+                return;
+            }
+        }
+
+        listener.run();
+    }
+}
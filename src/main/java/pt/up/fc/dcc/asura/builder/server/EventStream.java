@@ -0,0 +1,246 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stream of Server-Sent Events (e.g., the frames of a match in progress)
+ * sent to any number of subscribers. Only the last events are kept, in a
+ * ring buffer shared by all subscribers: a subscriber that falls behind
+ * skips the events already dropped, so that a slow client costs no memory
+ * and does not delay the others.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class EventStream {
+    public static final String CONTENT_TYPE = "text/event-stream";
+
+    private static final byte[] END_EVENT = "event: end\ndata: \n\n".getBytes(StandardCharsets.UTF_8);
+
+    // last events, by id modulo the capacity
+    private final byte[][] events;
+
+    // event sent first to every subscriber (e.g., the header of the movie)
+    private byte[] initialEvent = null;
+
+    // id of the next event published
+    private long nextId = 0;
+    private boolean closed = false;
+
+    private List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * Create a stream of events
+     *
+     * @param capacity number of last events kept
+     */
+    public EventStream(int capacity) {
+        events = new byte[capacity][];
+    }
+
+    /**
+     * Set the event sent first to every subscriber
+     *
+     * @param event name of the event
+     * @param data  data of the event, in a single line
+     */
+    public void setInitialEvent(String event, String data) {
+
+        List<Runnable> notified;
+        synchronized (this) {
+            initialEvent = encode(null, event, data);
+            notified = takeListeners();
+        }
+
+        notifyListeners(notified);
+    }
+
+    /**
+     * Publish an event to all subscribers, with the next id
+     *
+     * @param event name of the event
+     * @param data  data of the event, in a single line
+     * @return id of the event
+     */
+    public long publish(String event, String data) {
+
+        long id;
+        List<Runnable> notified;
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Event stream is already closed");
+
+            id = nextId++;
+            events[(int) (id % events.length)] = encode(id, event, data);
+
+            notified = takeListeners();
+        }
+
+        notifyListeners(notified);
+
+        return id;
+    }
+
+    /**
+     * Close the stream; subscribers receive an end event after the last events
+     */
+    public void close() {
+
+        List<Runnable> notified;
+        synchronized (this) {
+            closed = true;
+            notified = takeListeners();
+        }
+
+        notifyListeners(notified);
+    }
+
+    public synchronized boolean hasInitialEvent() {
+        return initialEvent != null;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Subscribe to the events, starting after the last one received by the
+     * client (or the oldest kept, if dropped already)
+     *
+     * @param lastEventId id of the last event received or -1 if none
+     * @return {@link ResponseBody} body with the events
+     */
+    public ResponseBody subscribe(long lastEventId) {
+        return new Subscription(lastEventId + 1);
+    }
+
+    private List<Runnable> takeListeners() {
+
+        List<Runnable> taken = listeners;
+        listeners = new ArrayList<>();
+
+        return taken;
+    }
+
+    private static void notifyListeners(List<Runnable> notified) {
+        for (Runnable listener : notified)
+            listener.run();
+    }
+
+    private static byte[] encode(Long id, String event, String data) {
+
+        StringBuilder text = new StringBuilder();
+        if (id != null)
+            text.append("id: ").append(id).append('\n');
+        text.append("event: ").append(event).append('\n');
+        text.append("data: ").append(data).append("\n\n");
+
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Events sent to a subscriber, one at a time
+     */
+    private class Subscription implements LiveBody {
+
+        private long next;
+        private boolean initialSent = false;
+        private boolean endSent = false;
+
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+        private Runnable listener = null;
+
+        Subscription(long next) {
+            this.next = next;
+        }
+
+        @Override
+        public long getLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean writeTo(WritableByteChannel channel) throws IOException {
+
+            while (true) {
+                if (pending.hasRemaining()) {
+                    channel.write(pending);
+                    if (pending.hasRemaining())
+                        return false;
+                }
+
+                if (endSent)
+                    return true;
+
+                byte[] event = nextEvent();
+                if (event == null)
+                    return false;
+
+                pending = ByteBuffer.wrap(event);
+            }
+        }
+
+        /**
+         * Get the next event to send, skipping those already dropped
+         *
+         * @return next event to send or {@code null} if there is none yet
+         */
+        private byte[] nextEvent() {
+
+            synchronized (EventStream.this) {
+                if (!initialSent && initialEvent != null) {
+                    initialSent = true;
+                    return initialEvent;
+                }
+
+                long oldest = Math.max(0, nextId - events.length);
+                if (next < oldest)
+                    next = oldest;
+
+                if (next < nextId)
+                    return events[(int) (next++ % events.length)];
+
+                if (closed) {
+                    endSent = true;
+                    return END_EVENT;
+                }
+
+                return null;
+            }
+        }
+
+        @Override
+        public boolean isAvailable() {
+            synchronized (EventStream.this) {
+                return pending.hasRemaining() || endSent || closed || next < nextId ||
+                        (!initialSent && initialEvent != null);
+            }
+        }
+
+        @Override
+        public void onAvailable(Runnable listener) {
+
+            synchronized (EventStream.this) {
+                if (!isAvailable()) {
+                    this.listener = listener;
+                    listeners.add(listener);
+                    return;
+                }
+            }
+
+            listener.run();
+        }
+
+        @Override
+        public void close() {
+            synchronized (EventStream.this) {
+                if (listener != null)
+                    listeners.remove(listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Body of a response with a region of a file, sent with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} (i.e.,
+ * without copying it through user space, where supported)
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class FileBody implements ResponseBody {
+    private final FileChannel file;
+    private final long length;
+
+    private long position;
+    private long remaining;
+
+    public FileBody(Path path) throws IOException {
+        this(path, 0, -1);
+    }
+
+    /**
+     * Create a body with a region of a file
+     *
+     * @param path     {@link Path} path of the file
+     * @param position position of the first byte of the region
+     * @param count    number of bytes of the region or -1 up to the end of the file
+     * @throws IOException - If the file cannot be opened
+     */
+    public FileBody(Path path, long position, long count) throws IOException {
+        file = FileChannel.open(path, StandardOpenOption.READ);
+
+        this.position = position;
+        this.length = count < 0 ? file.size() - position : count;
+        this.remaining = length;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+
+        while (remaining > 0) {
+            long count = file.transferTo(position, remaining, channel);
+            if (count <= 0) {
+                if (position >= file.size())
+                    throw new IOException("File shorter than expected");
+                return false;
+            }
+
+            position += count;
+            remaining -= count;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,453 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connection of a client to the {@link HttpServer}. Requests are parsed as
+ * bytes arrive, possibly several at once (pipelining), and answered in
+ * order, one response at a time, as the channel accepts data.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+class HttpConnection {
+    private static final Logger LOGGER = Logger.getLogger(HttpConnection.class.getSimpleName());
+
+    private static final int MAX_HEAD_SIZE = 16 * 1024;
+    private static final int MAX_PIPELINED = 32;
+
+    private final HttpServer server;
+    private final SelectionKey key;
+    private final SocketChannel channel;
+    private final HttpHandler handler;
+
+    private ByteBuffer input = ByteBuffer.allocate(4096);
+    private final Deque<HttpRequest> requests = new ArrayDeque<>();
+
+    // bytes of the body of the last request still to discard
+    private long discard = 0;
+
+    // the client sent a malformed request or closed its side
+    private String error = null;
+    private boolean inputClosed = false;
+
+    // response still being produced by another thread, for a request
+    private DeferredResponse deferred = null;
+    private HttpRequest deferredRequest = null;
+
+    // response being sent
+    private ByteBuffer head = null;
+    private ResponseBody body = null;
+    private boolean closeAfterResponse = false;
+
+    // the response (or its body) has no data yet
+    private boolean waiting = false;
+
+    private long lastActivity = System.currentTimeMillis();
+
+    HttpConnection(HttpServer server, SelectionKey key, HttpHandler handler) {
+        this.server = server;
+        this.key = key;
+        this.channel = (SocketChannel) key.channel();
+        this.handler = handler;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Check if the connection is waiting for a deferred response or for data
+     * of a live body
+     *
+     * @return {@code true} if the connection is waiting for a response or
+     * data, {@code false} otherwise
+     */
+    boolean isWaiting() {
+        return waiting;
+    }
+
+    /**
+     * Check if the connection is idle, i.e., waiting for requests
+     *
+     * @return {@code true} if the connection is idle, {@code false} otherwise
+     */
+    boolean isIdle() {
+        return head == null && body == null && deferred == null && requests.isEmpty();
+    }
+
+    /**
+     * Read available bytes, parse the requests they complete and start
+     * answering them
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    void read() throws IOException {
+
+        if (!input.hasRemaining())
+            input = grow(input);
+
+        int count = channel.read(input);
+        if (count < 0)
+            inputClosed = true;
+        else
+            lastActivity = System.currentTimeMillis();
+
+        parse();
+
+        if (inputClosed && isIdle()) {
+            close();
+            return;
+        }
+
+        respond();
+    }
+
+    /**
+     * Write as much of the pending responses as the channel accepts
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    void write() throws IOException {
+        lastActivity = System.currentTimeMillis();
+        respond();
+    }
+
+    /**
+     * Continue writing the response, once it is complete or its live body
+     * has more data
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    void resume() throws IOException {
+
+        if (!key.isValid())
+            return;
+
+        waiting = false;
+        lastActivity = System.currentTimeMillis();
+        respond();
+    }
+
+    void close() {
+
+        closeBody();
+        key.cancel();
+
+        // the body of a response completed after the connection is closed is never sent
+        if (deferred != null) {
+            DeferredResponse abandoned = deferred;
+            abandoned.onComplete(() -> close(abandoned.getResponse().getBody()));
+
+            deferred = null;
+            deferredRequest = null;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error closing connection", e);
+        }
+    }
+
+    /**
+     * Parse the requests completed by the bytes read so far
+     */
+    private void parse() {
+
+        input.flip();
+
+        while (error == null && input.hasRemaining() && requests.size() < MAX_PIPELINED) {
+
+            if (discard > 0) {
+                int count = (int) Math.min(discard, input.remaining());
+                input.position(input.position() + count);
+                discard -= count;
+                continue;
+            }
+
+            // empty lines before a request are ignored
+            byte first = input.get(input.position());
+            if (first == '\r' || first == '\n') {
+                input.get();
+                continue;
+            }
+
+            int end = findHeadEnd();
+            if (end < 0) {
+                if (input.remaining() > MAX_HEAD_SIZE)
+                    error = "431 Request Header Fields Too Large";
+                break;
+            }
+
+            int length = end - input.position();
+            if (input.get(end - 1) == '\r')
+                length--;
+
+            byte[] bytes = new byte[length];
+            input.get(bytes);
+            input.position(end);
+            skipLineBreaks();
+
+            HttpRequest request = HttpRequest.parse(new String(bytes, StandardCharsets.ISO_8859_1));
+            if (request == null) {
+                error = "400 Bad Request";
+                break;
+            }
+
+            if (request.getHeader("transfer-encoding") != null) {
+                error = "501 Not Implemented";
+                break;
+            }
+
+            String contentLength = request.getHeader("content-length");
+            if (contentLength != null) {
+                try {
+                    discard = Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    error = "400 Bad Request";
+                    break;
+                }
+            }
+
+            requests.addLast(request);
+        }
+
+        input.compact();
+    }
+
+    /**
+     * Find the end of the head of a request (the empty line)
+     *
+     * @return position of the empty line or -1 if not read yet
+     */
+    private int findHeadEnd() {
+
+        for (int i = input.position(); i < input.limit(); i++) {
+            if (input.get(i) != '\n')
+                continue;
+
+            if (i + 1 < input.limit() && input.get(i + 1) == '\n')
+                return i;
+
+            if (i + 2 < input.limit() && input.get(i + 1) == '\r' && input.get(i + 2) == '\n')
+                return i;
+        }
+
+        return -1;
+    }
+
+    private void skipLineBreaks() {
+
+        // the line break of the last line and the empty line
+        int breaks = 0;
+        while (input.hasRemaining() && breaks < 2) {
+            byte b = input.get(input.position());
+            if (b == '\n')
+                breaks++;
+            else if (b != '\r')
+                break;
+            input.position(input.position() + 1);
+        }
+    }
+
+    /**
+     * Send the pending responses, as long as the channel accepts data
+     *
+     * @throws IOException - If an I/O error occurs
+     */
+    private void respond() throws IOException {
+
+        while (!waiting) {
+            if (head == null && !nextResponse())
+                break;
+
+            if (head.hasRemaining()) {
+                channel.write(head);
+                if (head.hasRemaining())
+                    break;
+            }
+
+            if (body != null) {
+                if (!body.writeTo(channel)) {
+                    if (body instanceof LiveBody && !((LiveBody) body).isAvailable()) {
+                        waiting = true;
+                        ((LiveBody) body).onAvailable(() -> server.resume(this));
+                    }
+                    break;
+                }
+                closeBody();
+            }
+
+            head = null;
+
+            if (closeAfterResponse) {
+                close();
+                return;
+            }
+        }
+
+        if (!key.isValid())
+            return;
+
+        // more requests are read once the pending ones are answered
+        int ops = 0;
+        if (head != null && !waiting)
+            ops |= SelectionKey.OP_WRITE;
+        if (!inputClosed && error == null && requests.size() < MAX_PIPELINED)
+            ops |= SelectionKey.OP_READ;
+        key.interestOps(ops);
+
+        if (inputClosed && isIdle())
+            close();
+    }
+
+    /**
+     * Prepare the response to the next pending request
+     *
+     * @return {@code true} if there is a response to send, {@code false} otherwise
+     */
+    private boolean nextResponse() {
+
+        if (deferred != null)
+            return nextDeferredResponse();
+
+        HttpRequest request = requests.pollFirst();
+
+        if (request == null) {
+            if (error == null)
+                return false;
+
+            // a malformed request ends the connection
+            String[] status = error.split(" ", 2);
+            HttpResponse response = new HttpResponse(Integer.parseInt(status[0]), status[1]);
+            response.setText("text/plain", status[1] + "\n");
+            prepare(response, null);
+            error = null;
+            inputClosed = true;
+
+            return true;
+        }
+
+        parse();
+
+        HttpResponse response;
+        try {
+            response = handler.handle(request);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error handling " + request, e);
+
+            response = new HttpResponse(500, "Internal Server Error");
+            response.setText("text/plain", "Internal Server Error\n");
+        }
+
+        if (response instanceof DeferredResponse) {
+            deferred = (DeferredResponse) response;
+            deferredRequest = request;
+
+            return nextDeferredResponse();
+        }
+
+        prepare(response, request);
+
+        return true;
+    }
+
+    /**
+     * Prepare the deferred response, if it is complete, or wait for it
+     *
+     * @return {@code true} if there is a response to send, {@code false} otherwise
+     */
+    private boolean nextDeferredResponse() {
+
+        if (!deferred.isComplete()) {
+            waiting = true;
+            deferred.onComplete(() -> server.resume(this));
+            return false;
+        }
+
+        prepare(deferred.getResponse(), deferredRequest);
+
+        deferred = null;
+        deferredRequest = null;
+
+        return true;
+    }
+
+    /**
+     * Complete the fields of a response that depend on the connection and
+     * serialize its head
+     *
+     * @param response {@link HttpResponse} response to send
+     * @param request  {@link HttpRequest} request answered or {@code null} if malformed
+     */
+    private void prepare(HttpResponse response, HttpRequest request) {
+
+        boolean keepAlive = request != null && request.isKeepAlive() &&
+                !"close".equalsIgnoreCase(response.getField("Connection"));
+        boolean headOnly = request != null && "HEAD".equals(request.getMethod());
+
+        body = response.hasBody() ? response.getBody() : null;
+
+        if (body == null) {
+            if (response.hasBody())
+                response.setField("Content-Length", "0");
+        } else if (body.getLength() >= 0) {
+            response.setField("Content-Length", Long.toString(body.getLength()));
+        } else if (request != null && request.isHttp11()) {
+            response.setField("Transfer-Encoding", "chunked");
+            body = new ChunkedBody(body);
+        } else {
+            // the end of the body is the end of the connection
+            keepAlive = false;
+        }
+
+        if (headOnly)
+            closeBody();
+
+        response.setField("Connection", keepAlive ? "keep-alive" : "close");
+        closeAfterResponse = !keepAlive;
+
+        StringBuilder text = new StringBuilder();
+        text.append("HTTP/1.1 ").append(response.getStatus()).append(' ').append(response.getReason()).append("\r\n");
+        for (Map.Entry<String, String> field : response.getFields().entrySet())
+            text.append(field.getKey()).append(": ").append(field.getValue()).append("\r\n");
+        text.append("\r\n");
+
+        head = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void closeBody() {
+        close(body);
+        body = null;
+    }
+
+    private static void close(ResponseBody body) {
+
+        if (body == null)
+            return;
+
+        try {
+            body.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error closing response body", e);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+
+        ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        grown.put(buffer);
+
+        return grown;
+    }
+}
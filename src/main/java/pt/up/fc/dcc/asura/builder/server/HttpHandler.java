@@ -0,0 +1,21 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+
+/**
+ * Handler of the requests received by the {@link HttpServer}. Handlers run
+ * on the thread of the server, hence they should not block.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public interface HttpHandler {
+
+    /**
+     * Handle a request
+     *
+     * @param request {@link HttpRequest} request to handle
+     * @return {@link HttpResponse} response to the request
+     * @throws IOException - If an I/O error occurs (answered with status 500)
+     */
+    HttpResponse handle(HttpRequest request) throws IOException;
+}
@@ -0,0 +1,131 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Request received by the {@link HttpServer}. Only the request line and
+ * header fields are kept, the body (if any) is discarded.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class HttpRequest {
+    private final String method;
+    private final String target;
+    private final String version;
+    private final Map<String, String> headers;
+
+    public HttpRequest(String method, String target, String version, Map<String, String> headers) {
+        this.method = method;
+        this.target = target;
+        this.version = version;
+        this.headers = Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Parse the head of a request: request line and header fields
+     *
+     * @param head head of the request, without the empty line that ends it
+     * @return {@link HttpRequest} request or {@code null} if it is malformed
+     */
+    static HttpRequest parse(String head) {
+
+        String[] lines = head.split("\r?\n");
+
+        String[] parts = lines[0].split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/") || parts[1].isEmpty())
+            return null;
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0)
+                return null;
+
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+
+            // repeated fields are combined into a list
+            headers.merge(name, value, (first, second) -> first + ", " + second);
+        }
+
+        return new HttpRequest(parts[0], parts[1], parts[2], headers);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the request target as sent (path and query)
+     *
+     * @return request target
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Get the path of the request target, without the query
+     *
+     * @return path of the request target
+     */
+    public String getPath() {
+        int question = target.indexOf('?');
+        return question < 0 ? target : target.substring(0, question);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the header fields, with lower case names
+     *
+     * @return header fields, with lower case names
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Get the value of a header field
+     *
+     * @param name name of the field (case insensitive)
+     * @return value of the field or {@code null} if absent
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Check if the request is HTTP/1.1 (or later)
+     *
+     * @return {@code true} if the request is HTTP/1.1, {@code false} otherwise
+     */
+    public boolean isHttp11() {
+        return !"HTTP/1.0".equals(version);
+    }
+
+    /**
+     * Check if the client wants to keep the connection open after the
+     * response: by default on HTTP/1.1, if asked on HTTP/1.0
+     *
+     * @return {@code true} if the connection is kept open, {@code false} otherwise
+     */
+    public boolean isKeepAlive() {
+        String connection = getHeader("connection");
+
+        if (isHttp11())
+            return connection == null || !connection.toLowerCase(Locale.ROOT).contains("close");
+
+        return connection != null && connection.toLowerCase(Locale.ROOT).contains("keep-alive");
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + target + " " + version;
+    }
+}
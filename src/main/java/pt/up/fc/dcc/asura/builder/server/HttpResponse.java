@@ -0,0 +1,72 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Response to send by the {@link HttpServer}. The server adds the fields
+ * that depend on the connection (Content-Length, Transfer-Encoding and
+ * Connection).
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class HttpResponse {
+    private final int status;
+    private final String reason;
+    private final Map<String, String> fields = new LinkedHashMap<>();
+    private ResponseBody body = null;
+
+    public HttpResponse(int status, String reason) {
+        this.status = status;
+        this.reason = reason;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    public String getField(String name) {
+        return fields.get(name);
+    }
+
+    public void setField(String name, String value) {
+        fields.put(name, value);
+    }
+
+    public ResponseBody getBody() {
+        return body;
+    }
+
+    public void setBody(ResponseBody body) {
+        this.body = body;
+    }
+
+    /**
+     * Set a text body, encoded in UTF-8
+     *
+     * @param contentType type of the content (without charset)
+     * @param text        text of the body
+     */
+    public void setText(String contentType, String text) {
+        fields.put("Content-Type", contentType + "; charset=utf-8");
+        body = new BytesBody(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Check if responses with this status have a body
+     *
+     * @return {@code true} if responses with this status have a body
+     */
+    boolean hasBody() {
+        return status >= 200 && status != 204 && status != 304;
+    }
+}
@@ -0,0 +1,189 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small HTTP/1.1 server on a single thread with non-blocking channels: many
+ * clients are served at once, connections are kept alive between requests,
+ * pipelined requests are answered in order and files are sent without
+ * copying them through user space. Bodies produced while being sent (see
+ * {@link LiveBody}) resume their connections from other threads.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class HttpServer implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(HttpServer.class.getSimpleName());
+
+    private static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final HttpHandler handler;
+
+    // connections with live bodies that have more data
+    private final Queue<HttpConnection> resumed = new ConcurrentLinkedQueue<>();
+
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    private volatile boolean running = true;
+
+    /**
+     * Create a server listening on a port
+     *
+     * @param port    port to listen on (0 for any free port)
+     * @param handler {@link HttpHandler} handler of the requests
+     * @throws IOException - If the port cannot be bound
+     */
+    public HttpServer(int port, HttpHandler handler) throws IOException {
+        this.handler = handler;
+
+        selector = Selector.open();
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Get the port the server is listening on
+     *
+     * @return port the server is listening on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Set the time after which idle connections are closed
+     *
+     * @param idleTimeout time in milliseconds after which idle connections are closed
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Serve requests until the server is closed
+     *
+     * @throws IOException - If an I/O error occurs on the selector
+     */
+    public void run() throws IOException {
+
+        while (running) {
+            selector.select(1000);
+
+            HttpConnection waiting;
+            while ((waiting = resumed.poll()) != null) {
+                try {
+                    waiting.resume();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Connection error", e);
+                    waiting.close();
+                }
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                if (!key.isValid())
+                    continue;
+
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+
+                HttpConnection connection = (HttpConnection) key.attachment();
+                try {
+                    if (key.isReadable())
+                        connection.read();
+
+                    if (key.isValid() && key.isWritable())
+                        connection.write();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Connection error", e);
+                    connection.close();
+                }
+            }
+
+            closeIdleConnections();
+        }
+
+        for (SelectionKey key : selector.keys())
+            if (key.attachment() instanceof HttpConnection)
+                ((HttpConnection) key.attachment()).close();
+
+        selector.close();
+        serverChannel.close();
+    }
+
+    /**
+     * Stop the server, closing all connections
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Resume a connection waiting for data of a live body, from any thread
+     *
+     * @param connection {@link HttpConnection} connection to resume
+     */
+    void resume(HttpConnection connection) {
+        resumed.add(connection);
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new HttpConnection(this, key, handler));
+        }
+    }
+
+    private void closeIdleConnections() {
+
+        long limit = System.currentTimeMillis() - idleTimeout;
+
+        List<HttpConnection> idle = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            if (!(key.attachment() instanceof HttpConnection))
+                continue;
+
+            HttpConnection connection = (HttpConnection) key.attachment();
+            if (connection.getLastActivity() < limit && !connection.isWaiting())
+                idle.add(connection);
+        }
+
+        for (HttpConnection connection : idle)
+            connection.close();
+    }
+}
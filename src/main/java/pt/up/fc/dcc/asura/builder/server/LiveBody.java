@@ -0,0 +1,27 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+/**
+ * Body of a response whose content is still being produced (e.g., the movie
+ * of a match in progress). While no data is available the connection stops
+ * writing, until the body signals that there is more.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public interface LiveBody extends ResponseBody {
+
+    /**
+     * Check if there is data to write or the body has ended
+     *
+     * @return {@code true} if there is data to write or the body has ended,
+     * {@code false} otherwise
+     */
+    boolean isAvailable();
+
+    /**
+     * Register a listener to call once, from any thread, as soon as data is
+     * available (immediately, if it already is)
+     *
+     * @param listener {@link Runnable} listener to call
+     */
+    void onAvailable(Runnable listener);
+}
@@ -0,0 +1,206 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Content kept in memory as it is written (e.g., the movie of a match in
+ * progress), which can be sent to several clients at once, each receiving
+ * the bytes written so far and then the new ones as they are written.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class LiveContent {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int length = 0;
+    private boolean complete = false;
+
+    // listeners of bodies waiting for more content
+    private List<Runnable> listeners = new ArrayList<>();
+
+    private final OutputStream outputStream = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            append(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            complete();
+        }
+    };
+
+    /**
+     * Get the stream to write the content to. Closing it completes the content.
+     *
+     * @return {@link OutputStream} stream to write the content to
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    public synchronized int getLength() {
+        return length;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Create a body with the whole content, of unknown length while the
+     * content is not complete
+     *
+     * @return {@link ResponseBody} body with the whole content
+     */
+    public synchronized ResponseBody newBody() {
+        return new Body(0, complete ? length : -1);
+    }
+
+    /**
+     * Create a body with part of the content already written
+     *
+     * @param position position of the first byte to send
+     * @param count    number of bytes to send
+     * @return {@link ResponseBody} body with part of the content
+     */
+    public synchronized ResponseBody newBody(long position, long count) {
+
+        if (position < 0 || count < 0 || position + count > length)
+            throw new IllegalArgumentException("Range outside the content written");
+
+        return new Body((int) position, (int) (position + count));
+    }
+
+    private void append(byte[] b, int off, int len) {
+
+        List<Runnable> notified;
+        synchronized (this) {
+            if (complete)
+                throw new IllegalStateException("Content is already complete");
+
+            if (length + len > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + len));
+
+            System.arraycopy(b, off, bytes, length, len);
+            length += len;
+
+            notified = takeListeners();
+        }
+
+        notifyListeners(notified);
+    }
+
+    private void complete() {
+
+        List<Runnable> notified;
+        synchronized (this) {
+            complete = true;
+            notified = takeListeners();
+        }
+
+        notifyListeners(notified);
+    }
+
+    private List<Runnable> takeListeners() {
+
+        List<Runnable> taken = listeners;
+        listeners = new ArrayList<>();
+
+        return taken;
+    }
+
+    private static void notifyListeners(List<Runnable> notified) {
+        for (Runnable listener : notified)
+            listener.run();
+    }
+
+    /**
+     * Body that sends the content from a position up to a fixed end or, if
+     * it has none, up to the end of the content once it is complete
+     */
+    private class Body implements LiveBody {
+        private final int start;
+        private final int end;
+
+        private int position;
+        private Runnable listener = null;
+
+        Body(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        @Override
+        public long getLength() {
+            return end < 0 ? -1 : end - start;
+        }
+
+        @Override
+        public boolean writeTo(WritableByteChannel channel) throws IOException {
+
+            while (true) {
+                byte[] data;
+                int limit;
+                boolean ended;
+                synchronized (LiveContent.this) {
+                    data = bytes;
+                    limit = end < 0 ? length : end;
+                    ended = end >= 0 || complete;
+                }
+
+                if (position == limit)
+                    return ended;
+
+                // bytes before the length are never changed, even if the array is replaced
+                ByteBuffer buffer = ByteBuffer.wrap(data, position, limit - position);
+                position += channel.write(buffer);
+                if (buffer.hasRemaining())
+                    return false;
+            }
+        }
+
+        @Override
+        public boolean isAvailable() {
+            synchronized (LiveContent.this) {
+                return end >= 0 || position < length || complete;
+            }
+        }
+
+        @Override
+        public void onAvailable(Runnable listener) {
+
+            synchronized (LiveContent.this) {
+                if (!isAvailable()) {
+                    this.listener = listener;
+                    listeners.add(listener);
+                    return;
+                }
+            }
+
+            listener.run();
+        }
+
+        @Override
+        public void close() {
+            synchronized (LiveContent.this) {
+                if (listener != null)
+                    listeners.remove(listener);
+            }
+        }
+    }
+}
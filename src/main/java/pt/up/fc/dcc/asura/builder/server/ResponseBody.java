@@ -0,0 +1,30 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Body of a {@link HttpResponse}, written to a non-blocking channel as it
+ * accepts data
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public interface ResponseBody extends Closeable {
+
+    /**
+     * Get the length of the body
+     *
+     * @return length of the body or -1 if it is not known in advance
+     */
+    long getLength();
+
+    /**
+     * Write as much of the body as the channel accepts
+     *
+     * @param channel {@link WritableByteChannel} channel to write to
+     * @return {@code true} if the whole body was written, {@code false} otherwise
+     * @throws IOException - If an I/O error occurs
+     */
+    boolean writeTo(WritableByteChannel channel) throws IOException;
+}
@@ -0,0 +1,76 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Body of a response read from a stream (e.g., content decoded on the
+ * fly). The stream is read as the channel accepts data, hence it should not
+ * block for long.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class StreamBody implements ResponseBody {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final InputStream stream;
+    private final long length;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long remaining;
+    private boolean ended = false;
+
+    /**
+     * Create a body read from a stream
+     *
+     * @param stream {@link InputStream} stream of the content
+     * @param length number of bytes to send or -1 up to the end of the stream
+     */
+    public StreamBody(InputStream stream, long length) {
+        this.stream = stream;
+        this.length = length;
+        this.remaining = length < 0 ? Long.MAX_VALUE : length;
+
+        buffer.flip();
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (ended || remaining == 0)
+                    return true;
+
+                buffer.clear();
+                int count = stream.read(buffer.array(), 0, (int) Math.min(buffer.capacity(), remaining));
+                if (count < 0) {
+                    if (length >= 0)
+                        throw new IOException("Content shorter than expected");
+
+                    ended = true;
+                    count = 0;
+                }
+
+                buffer.limit(count);
+                remaining -= count;
+            }
+
+            channel.write(buffer);
+            if (buffer.hasRemaining())
+                return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
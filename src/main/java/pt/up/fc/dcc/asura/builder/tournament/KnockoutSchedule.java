@@ -0,0 +1,62 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Knockout schedule: players are paired in seeding order and only the winner
+ * of each match advances to the next round. Draws are won by the player with
+ * the better seed. With an odd number of players, the last one advances
+ * without playing.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class KnockoutSchedule implements PairingSchedule {
+
+    private List<String> alive = null;
+
+    @Override
+    public List<List<String>> nextRound(List<String> players, List<MatchResult> previousRound,
+                                        Standings standings) {
+
+        if (alive == null)
+            alive = new ArrayList<>(players);
+        else {
+            List<String> advancing = new ArrayList<>(alive);
+            for (MatchResult result : previousRound) {
+                String winner = result.getWinner();
+
+                if (winner == null)
+                    winner = result.getPlayers().get(0);
+
+                for (String player : result.getPlayers())
+                    if (!player.equals(winner))
+                        advancing.remove(player);
+            }
+            alive = advancing;
+        }
+
+        if (alive.size() < 2)
+            return Collections.emptyList();
+
+        List<List<String>> matches = new ArrayList<>();
+        for (int i = 0; i + 1 < alive.size(); i += 2) {
+            List<String> match = new ArrayList<>();
+            match.add(alive.get(i));
+            match.add(alive.get(i + 1));
+            matches.add(match);
+        }
+
+        return matches;
+    }
+
+    /**
+     * Get the winner of the tournament, once it has ended
+     *
+     * @return ID of the winner or {@code null} if the tournament has not ended
+     */
+    public String getChampion() {
+        return alive != null && alive.size() == 1 ? alive.get(0) : null;
+    }
+}
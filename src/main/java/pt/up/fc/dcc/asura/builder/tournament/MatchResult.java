@@ -0,0 +1,107 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import pt.up.fc.dcc.asura.builder.base.movie.models.GamePlayerStatus;
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a match of a tournament: the final {@link GamePlayerStatus} of
+ * each player in the match
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class MatchResult {
+
+    private List<String> players;
+    private Map<String, GamePlayerStatus> status;
+
+    public MatchResult(List<String> players, Map<String, GamePlayerStatus> status) {
+        this.players = players;
+        this.status = status;
+    }
+
+    /**
+     * Get the players of the match, in the order they were paired
+     *
+     * @return players of the match
+     */
+    public List<String> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Get the final status of a player
+     *
+     * @param player ID of the player
+     * @return {@link GamePlayerStatus} final status of the player or {@code null}
+     */
+    public GamePlayerStatus getStatus(String player) {
+        return status.get(player);
+    }
+
+    /**
+     * Get the points of a player in the match
+     *
+     * @param player ID of the player
+     * @return points of the player in the match
+     */
+    public int getPoints(String player) {
+        GamePlayerStatus playerStatus = status.get(player);
+
+        if (playerStatus == null || playerStatus.getPoints() == null)
+            return 0;
+
+        return playerStatus.getPoints();
+    }
+
+    /**
+     * Did the player fail the match (i.e. has a classification other than
+     * {@link MooshakClassification#ACCEPTED})?
+     *
+     * @param player ID of the player
+     * @return {@code true} if the player failed; {@code false} otherwise
+     */
+    public boolean hasFailed(String player) {
+        GamePlayerStatus playerStatus = status.get(player);
+
+        return playerStatus == null || (playerStatus.getClassification() != null &&
+                playerStatus.getClassification() != MooshakClassification.ACCEPTED);
+    }
+
+    /**
+     * Get the winner of the match, the only player with most points among
+     * those who did not fail
+     *
+     * @return ID of the winner or {@code null} if the match is a draw
+     */
+    public String getWinner() {
+
+        String winner = null;
+        int best = Integer.MIN_VALUE;
+        boolean tied = false;
+
+        for (String player : players) {
+
+            if (hasFailed(player))
+                continue;
+
+            int points = getPoints(player);
+            if (points > best) {
+                winner = player;
+                best = points;
+                tied = false;
+            } else if (points == best) {
+                tied = true;
+            }
+        }
+
+        return tied ? null : winner;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchResult [players=" + players + ", winner=" + getWinner() + "]";
+    }
+}
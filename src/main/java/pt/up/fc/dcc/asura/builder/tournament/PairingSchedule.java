@@ -0,0 +1,25 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import java.util.List;
+
+/**
+ * Schedule of the matches of a tournament. Matches are played in rounds; all
+ * matches of a round are played concurrently and the schedule is asked for the
+ * next round once all of them have finished. Schedules may keep state between
+ * rounds, hence an instance must be used in a single tournament.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public interface PairingSchedule {
+
+    /**
+     * Get the matches of the next round
+     *
+     * @param players       IDs of the players in the tournament
+     * @param previousRound {@link List} results of the previous round (empty in the first round)
+     * @param standings     {@link Standings} current standings
+     * @return {@link List} players of each match of the next round; empty if the
+     * tournament has ended
+     */
+    List<List<String>> nextRound(List<String> players, List<MatchResult> previousRound, Standings standings);
+}
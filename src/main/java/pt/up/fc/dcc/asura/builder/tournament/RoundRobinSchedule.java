@@ -0,0 +1,62 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Round-robin schedule: every group of players of the given size meets once,
+ * all in a single round.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class RoundRobinSchedule implements PairingSchedule {
+
+    private final int playersPerMatch;
+    private boolean scheduled = false;
+
+    public RoundRobinSchedule() {
+        this(2);
+    }
+
+    public RoundRobinSchedule(int playersPerMatch) {
+        this.playersPerMatch = playersPerMatch;
+    }
+
+    @Override
+    public List<List<String>> nextRound(List<String> players, List<MatchResult> previousRound,
+                                        Standings standings) {
+
+        if (scheduled)
+            return Collections.emptyList();
+
+        scheduled = true;
+
+        List<List<String>> matches = new ArrayList<>();
+        combine(players, 0, new ArrayList<>(), matches);
+
+        return matches;
+    }
+
+    /**
+     * Collect all combinations of {@code playersPerMatch} players
+     *
+     * @param players IDs of the players
+     * @param start   index of the first player that can be added to the group
+     * @param group   players in the group being built
+     * @param matches combinations found so far
+     */
+    private void combine(List<String> players, int start, List<String> group, List<List<String>> matches) {
+
+        if (group.size() == playersPerMatch) {
+            matches.add(new ArrayList<>(group));
+            return;
+        }
+
+        for (int i = start; i < players.size(); i++) {
+            group.add(players.get(i));
+            combine(players, i + 1, group, matches);
+            group.remove(group.size() - 1);
+        }
+    }
+}
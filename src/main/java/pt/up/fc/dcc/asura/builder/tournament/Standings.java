@@ -0,0 +1,169 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+import java.util.*;
+
+/**
+ * Standings table of a tournament, built from the results of its matches.
+ * A win scores 2, a draw scores 1 and a loss (or a failure) scores 0. Ties in
+ * score are broken by the total points obtained in the matches. Disqualified
+ * players are ranked last.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class Standings {
+
+    private Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public Standings(Collection<String> players) {
+        for (String player : players)
+            entries.put(player, new Entry(player));
+    }
+
+    /**
+     * Record the result of a match
+     *
+     * @param result {@link MatchResult} result of the match
+     */
+    public synchronized void record(MatchResult result) {
+
+        String winner = result.getWinner();
+
+        for (String player : result.getPlayers()) {
+            Entry entry = entries.computeIfAbsent(player, Entry::new);
+
+            entry.matches++;
+            entry.points += result.getPoints(player);
+
+            if (result.hasFailed(player)) {
+                entry.failures++;
+                entry.losses++;
+            } else if (player.equals(winner))
+                entry.wins++;
+            else if (winner == null)
+                entry.draws++;
+            else
+                entry.losses++;
+        }
+    }
+
+    /**
+     * Disqualify a player that cannot take part in the matches, such as a
+     * player whose program does not compile
+     *
+     * @param player         ID of the player
+     * @param classification {@link MooshakClassification} reason of the disqualification
+     */
+    public synchronized void disqualify(String player, MooshakClassification classification) {
+        entries.computeIfAbsent(player, Entry::new).classification = classification;
+    }
+
+    /**
+     * Get the entry of a player
+     *
+     * @param player ID of the player
+     * @return {@link Entry} entry of the player
+     */
+    public synchronized Entry getEntry(String player) {
+        return entries.get(player);
+    }
+
+    /**
+     * Get the entries sorted by rank
+     *
+     * @return {@link List} entries sorted by rank
+     */
+    public synchronized List<Entry> getRanking() {
+
+        List<Entry> ranking = new ArrayList<>(entries.values());
+        ranking.sort(Comparator.comparing(Entry::isDisqualified)
+                .thenComparing(Comparator.comparingInt(Entry::getScore).reversed())
+                .thenComparing(Comparator.comparingLong(Entry::getPoints).reversed()));
+
+        return ranking;
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        StringBuilder table = new StringBuilder(String.format("%4s %-20s %7s %5s %5s %6s %5s %9s %5s%n",
+                "#", "Player", "Matches", "Wins", "Draws", "Losses", "Fails", "Points", "Score"));
+
+        int rank = 1;
+        for (Entry entry : getRanking()) {
+            if (entry.isDisqualified())
+                table.append(String.format("%4s %-20s %s%n", "-", entry.player, entry.classification));
+            else
+                table.append(String.format("%4d %-20s %7d %5d %5d %6d %5d %9d %5d%n", rank++, entry.player,
+                        entry.matches, entry.wins, entry.draws, entry.losses, entry.failures,
+                        entry.points, entry.getScore()));
+        }
+
+        return table.toString();
+    }
+
+    /**
+     * Entry of a player in the standings table
+     */
+    public static class Entry {
+        private String player;
+        private int matches = 0;
+        private int wins = 0;
+        private int draws = 0;
+        private int losses = 0;
+        private int failures = 0;
+        private long points = 0;
+        private MooshakClassification classification = null;
+
+        private Entry(String player) {
+            this.player = player;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public int getMatches() {
+            return matches;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public long getPoints() {
+            return points;
+        }
+
+        /**
+         * Get the reason why the player was disqualified
+         *
+         * @return {@link MooshakClassification} reason of the disqualification
+         * or {@code null} if the player was not disqualified
+         */
+        public MooshakClassification getClassification() {
+            return classification;
+        }
+
+        public boolean isDisqualified() {
+            return classification != null;
+        }
+
+        public int getScore() {
+            return 2 * wins + draws;
+        }
+    }
+}
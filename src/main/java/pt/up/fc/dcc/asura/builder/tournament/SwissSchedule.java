@@ -0,0 +1,69 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import java.util.*;
+
+/**
+ * Swiss-system schedule: in each round, players are paired with players with
+ * a similar score that they have not met yet. With an odd number of players,
+ * the lowest ranked player that is left unpaired sits out the round.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class SwissSchedule implements PairingSchedule {
+
+    private final int rounds;
+    private int round = 0;
+
+    private Map<String, Set<String>> opponents = new HashMap<>();
+
+    /**
+     * Create a Swiss schedule with enough rounds to find a single winner
+     * (the ceiling of the binary logarithm of the number of players)
+     */
+    public SwissSchedule() {
+        this(-1);
+    }
+
+    public SwissSchedule(int rounds) {
+        this.rounds = rounds;
+    }
+
+    @Override
+    public List<List<String>> nextRound(List<String> players, List<MatchResult> previousRound,
+                                        Standings standings) {
+
+        int totalRounds = rounds > 0 ? rounds :
+                32 - Integer.numberOfLeadingZeros(Math.max(1, players.size() - 1));
+
+        if (round++ >= totalRounds)
+            return Collections.emptyList();
+
+        List<String> unpaired = new ArrayList<>();
+        for (Standings.Entry entry : standings.getRanking())
+            if (players.contains(entry.getPlayer()))
+                unpaired.add(entry.getPlayer());
+
+        List<List<String>> matches = new ArrayList<>();
+        while (unpaired.size() > 1) {
+            String player = unpaired.remove(0);
+            Set<String> met = opponents.computeIfAbsent(player, p -> new HashSet<>());
+
+            int opponentIndex = 0;
+            for (int i = 0; i < unpaired.size(); i++) {
+                if (!met.contains(unpaired.get(i))) {
+                    opponentIndex = i;
+                    break;
+                }
+            }
+
+            String opponent = unpaired.remove(opponentIndex);
+
+            met.add(opponent);
+            opponents.computeIfAbsent(opponent, p -> new HashSet<>()).add(player);
+
+            matches.add(Arrays.asList(player, opponent));
+        }
+
+        return matches;
+    }
+}
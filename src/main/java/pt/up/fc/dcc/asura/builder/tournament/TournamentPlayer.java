@@ -0,0 +1,36 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+/**
+ * Program of a player taking part in a tournament
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class TournamentPlayer {
+
+    private String id;
+    private String language;
+    private String programPath;
+
+    public TournamentPlayer(String id, String language, String programPath) {
+        this.id = id;
+        this.language = language;
+        this.programPath = programPath;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getProgramPath() {
+        return programPath;
+    }
+
+    @Override
+    public String toString() {
+        return "TournamentPlayer [id=" + id + ", language=" + language + ", programPath=" + programPath + "]";
+    }
+}
@@ -0,0 +1,333 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import pt.up.fc.dcc.asura.builder.base.GameManager;
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GamePlayerStatus;
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+import pt.up.fc.dcc.asura.builder.languages.CompilationResult;
+import pt.up.fc.dcc.asura.builder.languages.JavaLanguage;
+import pt.up.fc.dcc.asura.builder.languages.Language;
+import pt.up.fc.dcc.asura.builder.languages.pool.PlayerHostPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Runs a tournament among several player programs of the same game. The
+ * programs of each language are compiled together once; then the matches of each round of the
+ * {@link PairingSchedule} are played concurrently on a bounded pool of
+ * workers, each with its own {@link GameManager} instance. The number of
+ * player processes alive at the same time is also bounded, so that the
+ * machine is not oversubscribed.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class TournamentRunner {
+    private static final Logger LOGGER = Logger.getLogger(TournamentRunner.class.getSimpleName());
+
+    private final Class<? extends GameManager> managerClass;
+    private final String gameSlug;
+    private final Map<String, TournamentPlayer> players = new LinkedHashMap<>();
+    private final PairingSchedule schedule;
+
+    private int maxConcurrentMatches = Runtime.getRuntime().availableProcessors();
+    private int maxLiveProcesses = 2 * Runtime.getRuntime().availableProcessors();
+    private File errorsFile = new File("errors.txt");
+    private Path moviesDirectory = null;
+    private PlayerHostPool playerHostPool = null;
+
+    private final Map<String, Language> languages = new ConcurrentHashMap<>();
+    private final Map<String, String> compileOutputPaths = new ConcurrentHashMap<>();
+
+    public TournamentRunner(Class<? extends GameManager> managerClass, String gameSlug,
+                            List<TournamentPlayer> players, PairingSchedule schedule) {
+        this.managerClass = managerClass;
+        this.gameSlug = gameSlug;
+        this.schedule = schedule;
+
+        for (TournamentPlayer player : players)
+            this.players.put(player.getId(), player);
+    }
+
+    /**
+     * Set the maximum number of matches played at the same time (default is
+     * the number of available processors)
+     *
+     * @param maxConcurrentMatches maximum number of matches played at the same time
+     */
+    public void setMaxConcurrentMatches(int maxConcurrentMatches) {
+        this.maxConcurrentMatches = maxConcurrentMatches;
+    }
+
+    /**
+     * Set the maximum number of player processes alive at the same time
+     * (default is twice the number of available processors)
+     *
+     * @param maxLiveProcesses maximum number of player processes alive at the same time
+     */
+    public void setMaxLiveProcesses(int maxLiveProcesses) {
+        this.maxLiveProcesses = maxLiveProcesses;
+    }
+
+    /**
+     * Set the file to which the error output of player processes is appended
+     *
+     * @param errorsFile {@link File} file to append the error output of players
+     */
+    public void setErrorsFile(File errorsFile) {
+        this.errorsFile = errorsFile;
+    }
+
+    /**
+     * Set the directory to which the movie of each match is streamed. If not
+     * set, movies are discarded.
+     *
+     * @param moviesDirectory {@link Path} directory to save movies
+     */
+    public void setMoviesDirectory(Path moviesDirectory) {
+        this.moviesDirectory = moviesDirectory;
+    }
+
+    /**
+     * Set a pool of warm JVMs in which Java players are launched. If not set,
+     * each Java player is launched in a new JVM.
+     *
+     * @param playerHostPool {@link PlayerHostPool} pool of warm JVMs
+     */
+    public void setPlayerHostPool(PlayerHostPool playerHostPool) {
+        this.playerHostPool = playerHostPool;
+    }
+
+    /**
+     * Run the tournament
+     *
+     * @return {@link Standings} final standings of the tournament
+     * @throws InterruptedException - If interrupted while waiting for matches
+     */
+    public Standings run() throws InterruptedException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(maxConcurrentMatches);
+        Semaphore processPermits = new Semaphore(maxLiveProcesses);
+
+        try {
+            Standings standings = new Standings(players.keySet());
+
+            compileOutputPaths.putAll(compileAll(executor, standings));
+
+            List<String> playerIds = new ArrayList<>(compileOutputPaths.keySet());
+            playerIds.sort(Comparator.comparingInt(new ArrayList<>(players.keySet())::indexOf));
+
+            List<MatchResult> previousRound = Collections.emptyList();
+            int round = 0;
+
+            List<List<String>> matches;
+            while (!(matches = schedule.nextRound(playerIds, previousRound, standings)).isEmpty()) {
+
+                List<Future<MatchResult>> futures = new ArrayList<>();
+                for (int i = 0; i < matches.size(); i++) {
+                    List<String> match = matches.get(i);
+                    String matchId = String.format("%03d-%04d", round, i);
+
+                    // the permits for its processes would never be available
+                    if (match.size() > maxLiveProcesses) {
+                        String message = "Match " + matchId + " needs more processes than the maximum allowed";
+                        LOGGER.severe(message);
+                        futures.add(CompletableFuture.completedFuture(failedMatch(match, message)));
+                        continue;
+                    }
+
+                    futures.add(executor.submit(() -> playMatch(matchId, match, processPermits)));
+                }
+
+                List<MatchResult> results = new ArrayList<>();
+                for (Future<MatchResult> future : futures) {
+                    try {
+                        MatchResult result = future.get();
+                        standings.record(result);
+                        results.add(result);
+                    } catch (ExecutionException e) {
+                        throw new BuilderException("Error playing match: " + e.getCause().getMessage(),
+                                e.getCause());
+                    }
+                }
+
+                previousRound = results;
+                round++;
+            }
+
+            return standings;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prepare the program of every player concurrently and then compile the
+     * programs of each language together. Players whose program could not be
+     * compiled are left out of the tournament and disqualified in the
+     * standings.
+     *
+     * @param executor  {@link ExecutorService} workers to prepare programs
+     * @param standings {@link Standings} standings of the tournament
+     * @return {@link Map} output paths of the compilations keyed by player ID
+     * @throws InterruptedException - If interrupted while waiting for preparations
+     */
+    Map<String, String> compileAll(ExecutorService executor, Standings standings) throws InterruptedException {
+
+        Map<String, Future<String>> preparations = new LinkedHashMap<>();
+        for (TournamentPlayer player : players.values()) {
+            preparations.put(player.getId(), executor.submit(() -> {
+
+                Language language = languages.computeIfAbsent(player.getId(),
+                        id -> Language.getLanguage(player.getLanguage()));
+
+                return language.prepare(gameSlug, player.getLanguage(), player.getProgramPath());
+            }));
+        }
+
+        // prepared programs grouped by language
+        Map<String, Map<String, String>> basePaths = new LinkedHashMap<>();
+        Map<String, String> outputPaths = new HashMap<>();
+        for (String playerId : preparations.keySet()) {
+            TournamentPlayer player = players.get(playerId);
+            try {
+                basePaths.computeIfAbsent(player.getLanguage(), slug -> new LinkedHashMap<>())
+                        .put(player.getProgramPath(), preparations.get(playerId).get());
+            } catch (ExecutionException e) {
+                LOGGER.severe("Player " + playerId + " left out: " + e.getCause().getMessage());
+                standings.disqualify(playerId, MooshakClassification.REQUIRES_REEVALUATION);
+            }
+        }
+
+        for (String languageSlug : basePaths.keySet()) {
+
+            Map<String, CompilationResult> results;
+            try {
+                results = Language.getLanguage(languageSlug).compileAll(gameSlug, languageSlug,
+                        basePaths.get(languageSlug));
+            } catch (BuilderException e) {
+                LOGGER.severe("Programs in " + languageSlug + " left out: " + e.getMessage());
+                results = Collections.emptyMap();
+            }
+
+            for (TournamentPlayer player : players.values()) {
+
+                if (!player.getLanguage().equals(languageSlug) ||
+                        !basePaths.get(languageSlug).containsKey(player.getProgramPath()))
+                    continue;
+
+                CompilationResult result = results.get(player.getProgramPath());
+                if (result != null && result.isSuccessful()) {
+                    LOGGER.info("Player " + player.getId() + " compiled in " + result.getCompileTime() +
+                            " ms" + (result.isCached() ? " (cached)" : ""));
+                    outputPaths.put(player.getId(), result.getOutputPath());
+                } else {
+                    LOGGER.severe("Player " + player.getId() + " left out: " +
+                            (result == null ? "not compiled" : result.getDiagnostics()));
+                    standings.disqualify(player.getId(), MooshakClassification.COMPILE_TIME_ERROR);
+                }
+            }
+        }
+
+        return outputPaths;
+    }
+
+    /**
+     * Play a match among some players. A match that cannot be played to the
+     * end (e.g., the game manager cannot be instantiated or crashes) requires
+     * reevaluation of its players, without stopping the tournament.
+     *
+     * @param matchId        ID of the match
+     * @param playerIds      IDs of the players in the match
+     * @param processPermits {@link Semaphore} permits for player processes
+     * @return {@link MatchResult} the result of the match
+     * @throws InterruptedException - If the match is interrupted
+     */
+    private MatchResult playMatch(String matchId, List<String> playerIds, Semaphore processPermits)
+            throws InterruptedException {
+
+        Map<String, Process> processes = new LinkedHashMap<>();
+
+        processPermits.acquire(playerIds.size());
+        try {
+            GameManager manager = managerClass.newInstance();
+
+            for (String playerId : playerIds)
+                processes.put(playerId, startPlayer(playerId));
+
+            if (moviesDirectory == null)
+                manager.manage(processes);
+            else {
+                try (OutputStream movieStream = Files.newOutputStream(
+                        moviesDirectory.resolve(matchId + ".json"))) {
+                    manager.manage(processes, movieStream);
+                }
+            }
+
+            Map<String, GamePlayerStatus> status = new HashMap<>();
+            for (String playerId : playerIds)
+                status.put(playerId, manager.getGamePlayerStatus(playerId));
+
+            return new MatchResult(playerIds, status);
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            LOGGER.severe("Match " + matchId + " could not be played: " + e);
+
+            return failedMatch(playerIds, e.getMessage());
+        } finally {
+            for (Process process : processes.values())
+                process.destroy();
+
+            processPermits.release(playerIds.size());
+        }
+    }
+
+    /**
+     * Start the process of a player
+     *
+     * @param playerId ID of the player
+     * @return {@link Process} process of the player
+     * @throws IOException - If the process cannot be started
+     */
+    Process startPlayer(String playerId) throws IOException {
+
+        TournamentPlayer player = players.get(playerId);
+        Language language = languages.get(playerId);
+
+        if (playerHostPool != null && language instanceof JavaLanguage)
+            return ((JavaLanguage) language).execute(playerHostPool, gameSlug, player.getLanguage(),
+                    player.getProgramPath(), playerId, compileOutputPaths.get(playerId));
+
+        ProcessBuilder builder = language.execute(gameSlug, player.getLanguage(),
+                player.getProgramPath(), playerId, compileOutputPaths.get(playerId));
+        builder.redirectError(ProcessBuilder.Redirect.appendTo(errorsFile));
+
+        return builder.start();
+    }
+
+    /**
+     * Result of a match that could not be played, which requires
+     * reevaluation of its players
+     *
+     * @param playerIds IDs of the players in the match
+     * @param reason    reason why the match could not be played
+     * @return {@link MatchResult} the result of the match
+     */
+    private static MatchResult failedMatch(List<String> playerIds, String reason) {
+
+        Map<String, GamePlayerStatus> status = new HashMap<>();
+        for (String playerId : playerIds) {
+            GamePlayerStatus playerStatus = new GamePlayerStatus();
+            playerStatus.setClassification(MooshakClassification.REQUIRES_REEVALUATION);
+            playerStatus.setObservations(reason);
+            status.put(playerId, playerStatus);
+        }
+
+        return new MatchResult(playerIds, status);
+    }
+}
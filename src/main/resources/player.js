@@ -12,25 +12,63 @@
    December 2017
  */
 
-var filename          = "movie.json";    				// name of example movie
+var matchId           = getParameterByName("matchId");  // id of the match served from memory, if any
+var filename          = matchId ? "movies/" + encodeURIComponent(matchId) : "movie.json"; // name of movie
+var indexFilename     = matchId ? filename + "/index.json" : "movie.index.json"; // offsets of the frames
+var framesPerChunk    = 50;              				// frames fetched per range request
+var chunkRetryDelay   = 1000;            				// ms before fetching again a chunk that failed
 var logger            = undefined;      				// text area for logging messages
 var player            = getParameterByName("playerId"); // id of player seeing watching the movie;
 var canvas            = undefined;       				// canvas DOM object
+var seekBar           = undefined;       				// range input DOM object to seek frames
 var context           = undefined;       				// canvas's context
 var background        = undefined;       				// movie background image
 var sprites           = Object();    					// movie sprites
+var spriteIds         = undefined;       				// names of sprites by id, if items use ids
 var anchor_point 	  = undefined;       				// position in sprite of its coordinates
 var waitingFor        = undefined;       				// images still being loaded
 var frames            = undefined;       				// movie frames
 var framesPerSecond   = 1;               				// movie fps
 var startTime         = undefined;       				// moment when movie start playing
 var lastFrameIndex    = undefined;       				// last frame displayed
+var index             = undefined;       				// offsets of the frames, if fetched by ranges
+var chunksRequested   = [];              				// chunks of frames already requested
+var stalledAt         = undefined;       				// moment when playing stalled waiting for frames
+var live              = false;           				// frames still arriving (match in progress or stream)
+var streamed          = false;           				// frames arrive in order, played ones are released
+var frameBufferSize   = 300;             				// frames buffered ahead of (and kept behind) playing
+var firstFrameKept    = 0;               				// frames before it were released, if streamed
+var waitingForFrames  = false;           				// playing waits for the first second of frames
+var resumeReading     = undefined;       				// continues reading the movie once the buffer has room
 
 /*
-  load movie and start playing it
+  load movie and start playing it: by ranges of frames if it has an index,
+  as frames arrive if the match is in progress, otherwise as a whole
  */
 window.onload = function() {
-	var input = document.getElementById("input");    
+	var req = new XMLHttpRequest();
+
+	req.onreadystatechange = function() {
+		if (this.readyState !== 4)
+			return;
+
+		if(this.status === 200)
+			loadIndexedMovie(JSON.parse(req.responseText));
+		else if(matchId && window.EventSource)
+			watchMatch();
+		else if(window.fetch && window.ReadableStream && window.TextDecoder)
+			streamMovie();
+		else
+			loadMovie();
+	};
+	req.open("GET", indexFilename, true);
+	req.send();
+};
+
+/*
+  Load the whole movie and start playing it
+ */
+function loadMovie() {
 	var req = new XMLHttpRequest();
 
 	req.onreadystatechange = function() {
@@ -40,12 +78,549 @@ window.onload = function() {
 				throw req.statusText;
 			}
 
-		play(JSON.parse(req.responseText));
+		play(decodeMovie(req.response));
 
 	};
 	req.open("GET", filename, true);
+	req.responseType = "arraybuffer";
 	req.send();
-};
+}
+
+/*
+  Stream the movie, parsing the header and then each frame as they arrive.
+  Playing starts once a second of frames is buffered and reading pauses
+  while the buffer is full. Binary movies are decoded as a whole.
+ */
+function streamMovie() {
+	var decoder = new TextDecoder("utf-8");
+	var parser = undefined;
+	var chunks = undefined;
+
+	live = true;
+	streamed = true;
+	frames = [];
+
+	fetch(filename).then(function(response) {
+		if(!response.ok)
+			throw response.statusText;
+
+		var reader = response.body.getReader();
+
+		function read() {
+			reader.read().then(function(result) {
+				if(result.done) {
+					if(chunks !== undefined)
+						playBinaryMovie(chunks);
+					else
+						endOfFrames();
+					return;
+				}
+
+				var bytes = result.value;
+
+				if(parser === undefined && chunks === undefined) {
+					if(bytes.length >= 4 && String.fromCharCode(bytes[0], bytes[1], bytes[2], bytes[3]) === "ASRM")
+						chunks = [];
+					else
+						parser = new MovieParser(startStreamedMovie, addStreamedFrame);
+				}
+
+				if(chunks !== undefined)
+					chunks.push(bytes);
+				else
+					parser.push(decoder.decode(bytes, { stream: true }));
+
+				if(chunks === undefined && isFrameBufferFull())
+					resumeReading = read;
+				else
+					read();
+			});
+		}
+
+		read();
+	});
+}
+
+/*
+  Play a binary movie received in chunks, once complete
+ */
+function playBinaryMovie(chunks) {
+	var length = 0;
+	for(var c = 0; c < chunks.length; c++)
+		length += chunks[c].length;
+
+	var bytes = new Uint8Array(length);
+	for(var c = 0, offset = 0; c < chunks.length; offset += chunks[c].length, c++)
+		bytes.set(chunks[c], offset);
+
+	live = false;
+	streamed = false;
+	play(decodeBinaryMovie(bytes.buffer));
+}
+
+/*
+  Start playing a streamed movie, once its header and the first second of
+  frames are received
+ */
+function startStreamedMovie(header) {
+	play({ header: header, frames: frames });
+
+	waitingForFrames = true;
+	waitingFor++;
+}
+
+function addStreamedFrame(frame) {
+	frames.push(frame);
+
+	if(seekBar)
+		seekBar.max = frames.length - 1;
+
+	if(waitingForFrames && frames.length >= Math.min(Math.max(framesPerSecond, 1), frameBufferSize)) {
+		waitingForFrames = false;
+		startPlaying();
+	}
+}
+
+function endOfFrames() {
+	live = false;
+
+	if(waitingForFrames) {
+		waitingForFrames = false;
+		startPlaying();
+	}
+}
+
+/*
+  Check if the frames buffered ahead of playing fill the buffer
+ */
+function isFrameBufferFull() {
+	var played = lastFrameIndex === undefined ? -1 : lastFrameIndex;
+
+	return frames.length - (played + 1) >= frameBufferSize;
+}
+
+/*
+  Release the frames played long ago and continue reading the movie, if it
+  was paused for the buffer being full
+ */
+function updateFrameBuffer() {
+	if(!streamed)
+		return;
+
+	for(; firstFrameKept < lastFrameIndex - frameBufferSize; firstFrameKept++)
+		frames[firstFrameKept] = null;
+
+	if(seekBar)
+		seekBar.min = firstFrameKept;
+
+	if(resumeReading !== undefined && !isFrameBufferFull()) {
+		var read = resumeReading;
+
+		resumeReading = undefined;
+		read();
+	}
+}
+
+/*
+  Incremental parser of a movie in JSON, fed with text as it arrives. The
+  header is passed to onHeader and each frame to onFrame, as soon as their
+  text is complete; only the text of the value being parsed is kept.
+ */
+function MovieParser(onHeader, onFrame) {
+	var text = "";
+	var pos = 0;
+	var depth = 0;
+	var inString = false;
+	var escaped = false;
+	var stringStart = -1;
+	var key = undefined;
+	var capture = undefined;
+	var captureStart = -1;
+
+	this.push = function(chunk) {
+		text += chunk;
+
+		for(; pos < text.length; pos++) {
+			var c = text.charCodeAt(pos);
+
+			if(inString) {
+				if(escaped)
+					escaped = false;
+				else if(c === 92) // backslash
+					escaped = true;
+				else if(c === 34) { // quote
+					inString = false;
+					if(depth === 1)
+						key = JSON.parse(text.substring(stringStart, pos + 1));
+				}
+				continue;
+			}
+
+			if(c === 34) {
+				inString = true;
+				stringStart = pos;
+			} else if(c === 123 || c === 91) { // { or [
+				depth++;
+				if(capture === undefined && c === 123 &&
+						((depth === 2 && key === "header") || (depth === 3 && key === "frames"))) {
+					capture = depth === 2 ? onHeader : onFrame;
+					captureStart = pos;
+				}
+			} else if(c === 125 || c === 93) { // } or ]
+				if(capture !== undefined && depth === (capture === onHeader ? 2 : 3)) {
+					capture(JSON.parse(text.substring(captureStart, pos + 1)));
+					capture = undefined;
+				}
+				depth--;
+			}
+		}
+
+		// drop the text already parsed
+		var keep = capture !== undefined ? captureStart : (inString && depth === 1 ? stringStart : pos);
+		text = text.substring(keep);
+		pos -= keep;
+		stringStart -= keep;
+		captureStart -= keep;
+	};
+}
+
+/*
+  Fetch a range of bytes of the movie; callback receives the bytes and the
+  offset of the first one (0 if the server sent the whole movie instead),
+  onError the reason why they could not be fetched
+ */
+function fetchRange(first, last, callback, onError) {
+	var req = new XMLHttpRequest();
+
+	req.onreadystatechange = function() {
+		if (this.readyState !== 4)
+			return;
+		if(this.status !== 206 && this.status !== 200) {
+			onError(req.statusText || "network error");
+			return;
+		}
+
+		callback(new Uint8Array(req.response), this.status === 206 ? first : 0);
+	};
+	req.open("GET", filename, true);
+	req.setRequestHeader("Range", "bytes=" + first + "-" + (last - 1));
+	req.responseType = "arraybuffer";
+	req.send();
+}
+
+/*
+  Offset just past the end of a frame (frames are separated by commas)
+ */
+function frameEnd(frameIndex) {
+	var starts = index.frame_starts;
+
+	return frameIndex + 1 < starts.length ? starts[frameIndex + 1] - 1 : index.frames_end;
+}
+
+/*
+  Fetch a chunk of frames (if not requested yet) and parse them into frames.
+  A chunk that fails is requested again after a while, as playing stalls
+  waiting for its frames.
+ */
+function loadChunk(chunk, callback) {
+	var first = chunk * framesPerChunk;
+	var last = Math.min(first + framesPerChunk, index.frame_starts.length);
+
+	if(first >= last || chunksRequested[chunk])
+		return;
+	chunksRequested[chunk] = true;
+
+	fetchRange(chunk === 0 ? 0 : index.frame_starts[first], frameEnd(last - 1), function(bytes, offset) {
+		var decoder = new TextDecoder("utf-8");
+
+		for(var f = first; f < last; f++)
+			frames[f] = JSON.parse(decoder.decode(
+				bytes.subarray(index.frame_starts[f] - offset, frameEnd(f) - offset)));
+
+		if(callback !== undefined)
+			callback(bytes, offset);
+	}, function() {
+		chunksRequested[chunk] = false;
+		setTimeout(function() { loadChunk(chunk, callback); }, chunkRetryDelay);
+	});
+}
+
+/*
+  Load the header and the first frames of the movie and start playing it,
+  the remaining frames are fetched as playing reaches them
+ */
+function loadIndexedMovie(movieIndex) {
+	index = movieIndex;
+	frames = new Array(index.frame_starts.length);
+
+	loadChunk(0, function(bytes, offset) {
+		var header = JSON.parse(new TextDecoder("utf-8").decode(
+			bytes.subarray(index.header_start - offset, index.header_end - offset)));
+
+		play({ header: header, frames: frames });
+	});
+}
+
+/*
+  Watch a match in progress: frames are pushed by the server as Server-Sent
+  Events, identified by their index. Frames dropped by the server for being
+  behind are skipped (null). A late spectator starts playing from the first
+  frame received.
+ */
+function watchMatch() {
+	var source = new EventSource(filename + "/events");
+
+	live = true;
+	streamed = true;
+	frames = [];
+
+	source.addEventListener("header", function(event) {
+		if(canvas === undefined)
+			play({ header: JSON.parse(event.data), frames: frames });
+	});
+
+	source.addEventListener("frame", function(event) {
+		var frameIndex = parseInt(event.lastEventId);
+
+		if(frames.length === 0 && frameIndex > 0) {
+			firstFrameKept = frameIndex;
+
+			// already playing (or waiting for frames) from the first frame
+			if(lastFrameIndex !== undefined && lastFrameIndex < frameIndex - 1) {
+				lastFrameIndex = frameIndex - 1;
+				startTime = new Date().getTime() - frameIndex * 1000 / framesPerSecond;
+				stalledAt = undefined;
+			}
+		}
+
+		for(var f = frames.length; f < frameIndex; f++)
+			frames[f] = null;
+		frames[frameIndex] = JSON.parse(event.data);
+
+		if(seekBar)
+			seekBar.max = frames.length - 1;
+	});
+
+	source.addEventListener("end", function() {
+		source.close();
+		live = false;
+	});
+}
+
+/*
+  Continue playing from a given frame, fetching its frames if needed
+ */
+function seek(frameIndex) {
+	var playing = live || (lastFrameIndex !== undefined && lastFrameIndex < frames.length - 1);
+
+	frameIndex = Math.max(streamed ? firstFrameKept : 0, Math.min(frameIndex, frames.length - 1));
+
+	if(index !== undefined)
+		loadChunk(Math.floor(frameIndex / framesPerChunk));
+
+	startTime = new Date().getTime() - frameIndex * 1000 / framesPerSecond;
+	lastFrameIndex = frameIndex - 1;
+	stalledAt = undefined;
+	updateFrameBuffer();
+
+	if(!playing)
+		window.requestAnimationFrame(continuePlaying);
+}
+
+/*
+  Decode a movie either in JSON or in the compact binary format
+ */
+function decodeMovie(buffer) {
+	var bytes = new Uint8Array(buffer);
+
+	if(bytes.length >= 4 && String.fromCharCode(bytes[0], bytes[1], bytes[2], bytes[3]) === "ASRM")
+		return decodeBinaryMovie(buffer);
+
+	return JSON.parse(new TextDecoder("utf-8").decode(bytes));
+}
+
+/*
+  Decode a movie in the binary format written by BinaryMovieWriter: a table
+  of strings and frames encoded as deltas against the previous frame, with
+  periodic keyframes. Frames are expanded into the same objects as in JSON.
+ */
+function decodeBinaryMovie(buffer) {
+	var view     = new DataView(buffer);
+	var bytes    = new Uint8Array(buffer);
+	var decoder  = new TextDecoder("utf-8");
+	var position = 4;
+	var blank    = { sprite: undefined, x: 0, y: 0 };
+
+	function readByte() {
+		return bytes[position++];
+	}
+
+	function readVarint() {
+		var value = 0, multiplier = 1, b;
+		do {
+			b = readByte();
+			value += (b & 0x7F) * multiplier;
+			multiplier *= 128;
+		} while(b & 0x80);
+		return value;
+	}
+
+	function readZigzag() {
+		var value = readVarint();
+		return value % 2 === 0 ? value / 2 : -(value + 1) / 2;
+	}
+
+	function readString() {
+		var length = readVarint();
+		var string = decoder.decode(bytes.subarray(position, position + length));
+		position += length;
+		return string;
+	}
+
+	function readRef() {
+		var ref = readVarint();
+		return ref === 0 ? undefined : table[ref - 1];
+	}
+
+	function readDouble() {
+		if(readByte() === 0)
+			return undefined;
+		var value = view.getFloat64(position);
+		position += 8;
+		return value;
+	}
+
+	function readViewWindow() {
+		if(readByte() === 0)
+			return undefined;
+		var fields = readByte();
+		var names = ["start_x", "start_y", "width", "height"];
+		var viewWindow = {};
+		for(var k = 0; k < names.length; k++)
+			if(fields & (1 << k))
+				viewWindow[names[k]] = readZigzag();
+		return viewWindow;
+	}
+
+	function readItem(base) {
+		var fields = readByte();
+		var item = {
+			sprite: base.sprite,
+			x: base.x,
+			y: base.y
+		};
+		if(fields & 1)
+			item.sprite = readRef();
+		if(fields & 2)
+			item.x += readZigzag();
+		if(fields & 4)
+			item.y += readZigzag();
+		var rotate = fields & 8 ? readDouble() : base.rotate;
+		var scale = fields & 16 ? readDouble() : base.scale;
+		var viewWindow = fields & 32 ? readViewWindow() : base.view_window;
+		if(rotate !== undefined)
+			item.rotate = rotate;
+		if(scale !== undefined)
+			item.scale = scale;
+		if(viewWindow !== undefined)
+			item.view_window = viewWindow;
+		return item;
+	}
+
+	function readItems(previous) {
+		var items = [];
+		var p = 0;
+		while(true) {
+			var op = readVarint();
+			var argument = Math.floor(op / 8);
+			switch(op % 8) {
+			case 0:
+				return items;
+			case 1:
+				for(var k = 0; k < argument; k++)
+					items.push(previous[p++]);
+				break;
+			case 2:
+				p += argument;
+				break;
+			case 3:
+				items.push(readItem(blank));
+				break;
+			case 4:
+				items.push(readItem(previous[p++]));
+				break;
+			default:
+				throw "invalid operation in binary movie";
+			}
+		}
+	}
+
+	function readStatus() {
+		var count = readVarint() - 1;
+		if(count < 0)
+			return undefined;
+		var status = {};
+		for(var k = 0; k < count; k++) {
+			var player = readRef();
+			var fields = readByte();
+			var playerStatus = {};
+			if(fields & 1)
+				playerStatus.points = readZigzag();
+			if(fields & 2)
+				playerStatus.classification = readRef();
+			if(fields & 4)
+				playerStatus.observations = readString();
+			status[player] = playerStatus;
+		}
+		return status;
+	}
+
+	function readMessages() {
+		var count = readVarint() - 1;
+		if(count < 0)
+			return undefined;
+		var messages = {};
+		for(var k = 0; k < count; k++) {
+			var player = readRef();
+			messages[player] = readString();
+		}
+		return messages;
+	}
+
+	if(readByte() !== 1)
+		throw "unsupported binary movie version";
+
+	var header = JSON.parse(readString());
+
+	var table = [];
+	var tableSize = readVarint();
+	for(var t = 0; t < tableSize; t++)
+		table.push(readString());
+
+	readVarint(); // keyframe interval
+
+	var frames = [];
+	var frameCount = readVarint();
+	var previous = undefined;
+	for(var f = 0; f < frameCount; f++) {
+		var kind = readByte();
+		var changes = readByte();
+		if(kind === 0)
+			previous = undefined;
+		else if(previous === undefined)
+			throw "binary movie starts with a delta frame";
+
+		var frame = {};
+		frame.items = readItems(previous === undefined ? [] : previous.items);
+		frame.status = changes & 1 ? readStatus() : previous.status;
+		frame.messages = changes & 2 ? readMessages() : previous.messages;
+
+		frames.push(frame);
+		previous = frame;
+	}
+
+	return { header: header, frames: frames };
+}
 
 function getParameterByName(name, url) {
     if (!url) url = window.location.href;
@@ -69,6 +644,12 @@ function play(movie) {
 	logger = document.getElementById("logArea");
 	canvas = document.getElementById("movieCanvas");
 	context = canvas.getContext("2d");
+
+	seekBar = document.getElementById("seekBar");
+	if(seekBar) {
+		seekBar.max = Math.max(movie.frames.length - 1, 0);
+		seekBar.oninput = function() { seek(parseInt(seekBar.value)); };
+	}
 	waitingFor = 0; 
 
 	if(header.background === undefined)
@@ -91,6 +672,8 @@ function play(movie) {
 		sprites[id] = image;
 	}
 
+	spriteIds = header.sprite_ids;
+
 	if(movie.frames === undefined)
 		throw "frames missing in movie";
 	frames = movie.frames;
@@ -109,8 +692,8 @@ function play(movie) {
 function startPlaying() {
 
 	if(--waitingFor === 0) {
-		startTime	= new Date().getTime();
-		lastFrameIndex 	= -1;
+		startTime	= new Date().getTime() - firstFrameKept * 1000 / framesPerSecond;
+		lastFrameIndex 	= firstFrameKept - 1;
 
 		continuePlaying();
 	}
@@ -122,15 +705,44 @@ function startPlaying() {
  */
 function continuePlaying() {
 	var currentTime	= new Date().getTime();
+
+	// time does not run while waiting for frames still being fetched
+	if(stalledAt !== undefined) {
+		if(frames[lastFrameIndex + 1] === undefined) {
+			if(live || lastFrameIndex + 1 < frames.length)
+				window.requestAnimationFrame(continuePlaying);
+			return;
+		}
+		startTime += currentTime - stalledAt;
+		stalledAt = undefined;
+	}
+
 	var frameIndex	= Math.floor((
 			currentTime - startTime) * framesPerSecond / 1000);
 
+	if(index !== undefined && frameIndex < frames.length) {
+		var chunk = Math.floor(Math.max(frameIndex, 0) / framesPerChunk);
+		loadChunk(chunk);
+		loadChunk(chunk + 1);
+	}
+
+	if((index !== undefined || live) && frameIndex > lastFrameIndex && frames[frameIndex] === undefined &&
+			(live || frameIndex < frames.length)) {
+		stalledAt = currentTime;
+		frameIndex = lastFrameIndex;
+		startTime = currentTime - (lastFrameIndex + 1) * 1000 / framesPerSecond;
+	}
+
 	if(frameIndex > lastFrameIndex) {
 		lastFrameIndex = frameIndex;
-		if(frameIndex < frames.length)
+		if(frameIndex < frames.length && frames[frameIndex] !== null) {
 			showFrame(frames[frameIndex]);
+			if(seekBar)
+				seekBar.value = frameIndex;
+		}
+		updateFrameBuffer();
 	}
-	if(frameIndex < frames.length-1)
+	if(live || frameIndex < frames.length-1)
 		window.requestAnimationFrame(continuePlaying);
 }
 
@@ -156,7 +768,8 @@ function showFrame(frame) {
 
 	for(var i in frame.items) {
 		var item = frame.items[i];
-		var sprite = sprites[item.sprite];
+		var sprite = sprites[typeof item.sprite === "number" && spriteIds !== undefined ?
+			spriteIds[item.sprite] : item.sprite];
 		var msg = item.message;
 		var posX = item.x;
 		var posY = item.y;
@@ -0,0 +1,256 @@
+package pt.up.fc.dcc.asura.builder.base;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.exceptions.PlayerException;
+import pt.up.fc.dcc.asura.builder.base.messaging.PlayerAction;
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Test the streams of the processes of the players
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class StreamerTest {
+
+    private Map<String, FakeProcess> processes = new LinkedHashMap<>();
+    private GameManager.Streamer streamer;
+
+    @After
+    public void tearDown() throws IOException {
+        if (streamer != null)
+            streamer.close();
+    }
+
+    @Test
+    public void testEmptyLineBeforeAction() throws IOException {
+
+        for (boolean multiplexed : new boolean[]{false, true}) {
+            streamer = start(multiplexed, "A");
+
+            processes.get("A").println("");
+            processes.get("A").println("{\"command\":{\"name\":\"MOVE\"}}");
+
+            assertFails("A", null);
+            Assert.assertEquals("MOVE", streamer.readActionFrom("A").getCommand().getName());
+
+            streamer.close();
+            streamer = null;
+        }
+    }
+
+    @Test
+    public void testReadersPerPlayer() throws Exception {
+
+        streamer = start(true, "A", "B");
+
+        // B is read while A has not written anything yet
+        processes.get("B").println("{\"command\":{\"name\":\"B1\"}}");
+        Assert.assertEquals("B1", streamer.readActionWithTimeoutFrom("B", 1000).getCommand().getName());
+
+        // actions written ahead are kept in order
+        processes.get("A").println("{\"command\":{\"name\":\"A1\"}}");
+        processes.get("A").println("{\"command\":{\"name\":\"A2\"}}");
+        Thread.sleep(100);
+        Assert.assertEquals("A1", streamer.readActionWithTimeoutFrom("A", 0).getCommand().getName());
+        Assert.assertEquals("A2", streamer.readActionFrom("A").getCommand().getName());
+    }
+
+    @Test
+    public void testSharedDeadlineOfRound() throws Exception {
+
+        streamer = start(true, "A", "B");
+
+        // A spends most of the deadline, hence B has just the rest of it
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(250);
+                processes.get("A").println("{\"command\":{\"name\":\"A1\"}}");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+
+        long start = System.nanoTime();
+        try {
+            streamer.readActionsFromAll(Arrays.asList("A", "B"), 400);
+            Assert.fail("Expected the round to time out");
+        } catch (PlayerException e) {
+            Assert.assertEquals("B", e.getPlayerId());
+            Assert.assertEquals(MooshakClassification.TIME_LIMIT_EXCEEDED, e.getClassification());
+        }
+        Assert.assertTrue((System.nanoTime() - start) / 1000000 < 600);
+        writer.join();
+
+        // all players answer in time, in the order of the round
+        processes.get("A").println("{\"command\":{\"name\":\"A2\"}}");
+        processes.get("B").println("{\"command\":{\"name\":\"B2\"}}");
+        Map<String, PlayerAction> actions = streamer.readActionsFromAll(Arrays.asList("B", "A"), 1000);
+        Assert.assertEquals(Arrays.asList("B", "A"), new ArrayList<>(actions.keySet()));
+        Assert.assertEquals("A2", actions.get("A").getCommand().getName());
+        Assert.assertEquals("B2", actions.get("B").getCommand().getName());
+    }
+
+    @Test
+    public void testEndOfStream() {
+
+        streamer = start(true, "A");
+
+        processes.get("A").println("{\"command\":{\"name\":\"A1\"}}");
+        processes.get("A").end();
+
+        Assert.assertEquals("A1", streamer.readActionFrom("A").getCommand().getName());
+
+        // the end is kept for every later read
+        assertFails("A", MooshakClassification.RUNTIME_ERROR);
+        assertFails("A", MooshakClassification.RUNTIME_ERROR);
+        try {
+            streamer.readActionWithTimeoutFrom("A", 1000);
+            Assert.fail("Expected the read to fail");
+        } catch (PlayerException e) {
+            Assert.assertEquals(MooshakClassification.RUNTIME_ERROR, e.getClassification());
+        }
+    }
+
+    @Test
+    public void testUnparsableLines() throws IOException {
+
+        for (boolean multiplexed : new boolean[]{false, true}) {
+            streamer = start(multiplexed, "A");
+
+            processes.get("A").println("{\"command\":{\"name\":");
+            processes.get("A").println("not json");
+            processes.get("A").println("{\"command\":{\"name\":\"MOVE\"}}");
+
+            assertFails("A", MooshakClassification.RUNTIME_ERROR);
+            assertFails("A", MooshakClassification.RUNTIME_ERROR);
+            Assert.assertEquals("MOVE", streamer.readActionWithTimeoutFrom("A", 1000)
+                    .getCommand().getName());
+
+            streamer.close();
+            streamer = null;
+        }
+    }
+
+    private GameManager.Streamer start(boolean multiplexed, String... players) {
+
+        processes.clear();
+        for (String player : players)
+            processes.put(player, new FakeProcess());
+
+        return new GameManager.Streamer(new LinkedHashMap<>(processes), multiplexed);
+    }
+
+    private void assertFails(String player, MooshakClassification classification) {
+        try {
+            streamer.readActionFrom(player);
+            Assert.fail("Expected the read to fail");
+        } catch (PlayerException e) {
+            Assert.assertEquals(player, e.getPlayerId());
+            if (classification != null)
+                Assert.assertEquals(classification, e.getClassification());
+        }
+    }
+
+    /**
+     * Process of a player whose output is written by the test
+     */
+    static class FakeProcess extends Process {
+
+        private static final int END = -1;
+
+        // bytes written by the test, from any thread (unlike piped streams)
+        private final BlockingQueue<Integer> bytes = new LinkedBlockingQueue<>();
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        private final InputStream input = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    int b = bytes.take();
+                    if (b == END)
+                        bytes.add(END);
+                    return b;
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+
+                // block only for the first byte
+                int b = read();
+                if (b == END)
+                    return END;
+
+                buffer[offset] = (byte) b;
+
+                int count = 1;
+                Integer next;
+                while (count < length && (next = bytes.peek()) != null && next != END)
+                    buffer[offset + count++] = (byte) (int) bytes.poll();
+
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return bytes.size();
+            }
+        };
+
+        void println(String line) {
+            for (byte b : (line + "\n").getBytes(StandardCharsets.UTF_8))
+                bytes.add(b & 0xFF);
+        }
+
+        void end() {
+            bytes.add(END);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return received;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return input;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return null;
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pt.up.fc.dcc.asura.builder.base.messaging;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+import pt.up.fc.dcc.asura.builder.base.utils.LineBoundedReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test streaming codec of messages
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class MessageCodecTest {
+
+    @Test
+    public void testWriteStateUpdate() throws IOException {
+
+        Map<String, Object> board = new HashMap<>();
+        board.put("cells", Arrays.asList(Arrays.asList(1, 0), Collections.singletonList("x")));
+        board.put("message", "You've won <again> & \"more\"");
+
+        StateUpdate[] stateUpdates = {
+                new StateUpdate("UPDATE", board),
+                new StateUpdate("CONN", null),
+                new StateUpdate(null, 2.5),
+                new StateUpdate(null, null)
+        };
+
+        for (StateUpdate stateUpdate : stateUpdates) {
+            StringWriter writer = new StringWriter();
+            MessageCodec.writeStateUpdate(stateUpdate, writer);
+
+            Assert.assertEquals(Json.get().objectToString(stateUpdate), writer.toString());
+        }
+    }
+
+    @Test
+    public void testReadPlayerAction() throws IOException {
+
+        String json = "{\"command\":{\"name\":\"MOVE\",\"args\":[1,\"x\",[2,3],{\"a\":true}]}," +
+                "\"other\":[1],\"messages\":[\"hi\",\"there\"]}";
+
+        PlayerAction expected = Json.get().objectFromString(json, PlayerAction.class);
+        PlayerAction action = MessageCodec.readPlayerAction(new StringReader(json));
+
+        Assert.assertEquals(expected.getCommand().getName(), action.getCommand().getName());
+        Assert.assertArrayEquals(expected.getCommand().getArgs(), action.getCommand().getArgs());
+        Assert.assertEquals(expected.getMessages(), action.getMessages());
+        Assert.assertEquals(1.0, action.getCommand().getArgs()[0]);
+
+        Assert.assertNull(MessageCodec.readPlayerAction(new StringReader("")));
+        Assert.assertNull(MessageCodec.readPlayerAction(new StringReader("null")));
+        Assert.assertNull(MessageCodec.readPlayerAction(new StringReader("{}")).getCommand());
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testReadTruncatedPlayerAction() throws IOException {
+        MessageCodec.readPlayerAction(new StringReader("{\"command\":{\"name\":\"MOVE\""));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testReadPlayerActionWithTrailingData() throws IOException {
+        MessageCodec.readPlayerAction(new StringReader("{} {}"));
+    }
+
+    @Test
+    public void testReadPlayerActionsFromLines() throws IOException {
+
+        LineBoundedReader reader = new LineBoundedReader(new StringReader(
+                "{\"command\":{\"name\":\"A\"}}\r\n\r{\"command\":{\"name\":\"B\"}} garbage\n" +
+                        "{\"command\":{\"name\":\"C\"}}"));
+
+        Assert.assertTrue(reader.nextLine());
+        Assert.assertEquals("A", MessageCodec.readPlayerAction(reader).getCommand().getName());
+
+        Assert.assertTrue(reader.nextLine());
+        Assert.assertNull(MessageCodec.readPlayerAction(reader));
+
+        Assert.assertTrue(reader.nextLine());
+        try {
+            MessageCodec.readPlayerAction(reader);
+            Assert.fail();
+        } catch (JsonSyntaxException e) {
+            // trailing garbage
+        }
+
+        Assert.assertTrue(reader.nextLine());
+        Assert.assertEquals("C", MessageCodec.readPlayerAction(reader).getCommand().getName());
+
+        Assert.assertFalse(reader.nextLine());
+    }
+}
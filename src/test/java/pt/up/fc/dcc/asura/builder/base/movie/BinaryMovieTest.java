@@ -0,0 +1,53 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovie;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Test binary game movie format
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class BinaryMovieTest {
+
+    private static byte[] toBinary(GameMovieBuilder builder, int keyframeInterval) {
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        BinaryMovieWriter writer = new BinaryMovieWriter(stream);
+        writer.setKeyframeInterval(keyframeInterval);
+        writer.write(builder.getMovie());
+
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() {
+
+        for (int keyframeInterval : new int[]{1, 7, 50}) {
+            GameMovieBuilderImpl builder = MovieFixture.buildMovie(keyframeInterval, 300);
+
+            byte[] binary = toBinary(builder, keyframeInterval);
+            GameMovie movie = new BinaryMovieReader(new ByteArrayInputStream(binary)).read();
+
+            Assert.assertEquals(builder.toString(), Json.get().objectToString(movie));
+        }
+    }
+
+    @Test
+    public void testSmallerThanJson() {
+
+        GameMovieBuilderImpl builder = MovieFixture.buildMovie(42, 1000);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        builder.toFile(stream, GameMovieBuilder.Format.BINARY);
+
+        Assert.assertArrayEquals(toBinary(builder, 50), stream.toByteArray());
+        Assert.assertTrue(stream.size() * 5 < builder.toString().length());
+    }
+}
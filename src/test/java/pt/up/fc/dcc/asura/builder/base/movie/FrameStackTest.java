@@ -0,0 +1,110 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieFrame;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+/**
+ * Test saving and restoring frames of game movie builders
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class FrameStackTest {
+
+    private static String json(GameMovieFrame frame) {
+        return Json.get().objectToString(frame);
+    }
+
+    @Test
+    public void testNestedSaveAndRestore() {
+
+        GameMovieBuilderImpl builder = MovieFixture.newBuilder();
+        builder.addFrame();
+        builder.addItem("head", 1, 1);
+        builder.setPoints("p1", 10);
+        builder.addMessage("p1", "first");
+        String first = json(builder.currentFrame);
+
+        builder.saveFrame();
+        builder.addItem("body", 2, 2);
+        builder.setPoints("p1", 20);
+        String second = json(builder.currentFrame);
+
+        builder.saveFrame();
+        builder.addItem("food", 3, 3);
+        builder.setPoints("p2", 5);
+        builder.addMessage("p1", "third");
+
+        builder.restoreFrame();
+        Assert.assertEquals(second, json(builder.currentFrame));
+
+        builder.addItem("wall", 4, 4);
+        builder.restoreFrame();
+        Assert.assertEquals(first, json(builder.currentFrame));
+
+        // nothing left to restore
+        builder.restoreFrame();
+        Assert.assertEquals(first, json(builder.currentFrame));
+    }
+
+    @Test
+    public void testRestoreKeepsStatusOrMessages() {
+
+        GameMovieBuilderImpl builder = MovieFixture.newBuilder();
+        builder.addFrame();
+        builder.setPoints("p1", 10);
+        builder.addMessage("p1", "before");
+
+        builder.saveFrame(false, true);
+        builder.setPoints("p1", 20);
+        builder.addMessage("p1", "after");
+        builder.restoreFrame();
+
+        Assert.assertEquals(20, (int) builder.currentFrame.getStatus("p1").getPoints());
+        Assert.assertEquals("before", builder.currentFrame.getMessages().get("p1"));
+    }
+
+    @Test
+    public void testRestoreAfterNewFrameKeepsMovie() {
+
+        GameMovieBuilderImpl builder = MovieFixture.newBuilder();
+        builder.addFrame();
+        builder.addItem("head", 1, 1);
+        builder.setPoints("p1", 10);
+
+        builder.saveFrame();
+        builder.addItem("body", 2, 2);
+        builder.setPoints("p1", 20);
+        String saved = json(builder.currentFrame);
+
+        builder.addFrame();
+        builder.restoreFrame();
+        builder.addItem("food", 3, 3);
+        builder.setPoints("p1", 30);
+
+        Assert.assertEquals(saved, json(builder.getMovie().getFrames().get(0)));
+        Assert.assertEquals(2, builder.currentFrame.getItems().size());
+        Assert.assertEquals(30, (int) builder.currentFrame.getStatus("p1").getPoints());
+    }
+
+    @Test
+    public void testFrameStackSize() {
+
+        GameMovieBuilderImpl builder = MovieFixture.newBuilder();
+        builder.setFrameStackSize(2);
+        builder.addFrame();
+
+        for (int i = 0; i < 3; i++) {
+            builder.setPoints("p1", i);
+            builder.saveFrame();
+        }
+
+        builder.setPoints("p1", 100);
+        for (int i = 0; i < 3; i++)
+            builder.restoreFrame();
+
+        // the oldest saved frame was discarded
+        Assert.assertEquals(1, (int) builder.currentFrame.getStatus("p1").getPoints());
+    }
+}
@@ -0,0 +1,130 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+import java.util.Random;
+
+/**
+ * Movies of a snake game shared by tests of builders, formats and
+ * compression algorithms. Movies with the same seed and number of frames are
+ * the same, whichever the builder.
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public final class MovieFixture {
+
+    public static final String[] SPRITES = { "head", "body", "food", "wall" };
+
+    public static final String[] PLAYERS = { "p1", "p2" };
+
+    private static final String[] TEXTS = {
+            "round", "Jogador ção", "😀", "<b>&amp;</b>", "\n", "\"quoted\"", "漢字", "\u0000"
+    };
+
+    private MovieFixture() {
+    }
+
+    /**
+     * Create an in-memory builder with the header of the movies, but no frames
+     *
+     * @return {@link GameMovieBuilderImpl} builder with the header
+     */
+    public static GameMovieBuilderImpl newBuilder() {
+        return addHeader(new GameMovieBuilderImpl());
+    }
+
+    /**
+     * Build a movie in memory
+     *
+     * @param seed   seed of the movie
+     * @param frames number of frames
+     * @return {@link GameMovieBuilderImpl} builder of the movie
+     */
+    public static GameMovieBuilderImpl buildMovie(long seed, int frames) {
+        return buildMovie(new GameMovieBuilderImpl(), seed, frames);
+    }
+
+    /**
+     * Build a movie with a given builder: a snake moving, food appearing,
+     * messages and points of players, and speculative changes restored
+     *
+     * @param builder {@link GameMovieBuilder} builder of the movie
+     * @param seed    seed of the movie
+     * @param frames  number of frames
+     * @param <T>     type of the builder
+     * @return the same builder
+     */
+    public static <T extends GameMovieBuilder> T buildMovie(T builder, long seed, int frames) {
+
+        Random random = new Random(seed);
+
+        addHeader(builder);
+
+        int length = 1;
+        int foodX = 5;
+        for (int i = 0; i < frames; i++) {
+            builder.addFrame();
+
+            if (random.nextInt(10) == 0)
+                foodX = random.nextInt(40);
+            builder.addItem("food", foodX * 20, 100);
+
+            if (random.nextInt(4) == 0)
+                length = Math.max(1, length + random.nextInt(5) - 2);
+            for (int k = 0; k < length; k++)
+                builder.addItem("body", (i + k) * 20 % 800, -k * 20);
+
+            builder.addItem("head", i * 20 % 800, 0, random.nextInt(4) * Math.PI / 2);
+
+            if (random.nextBoolean())
+                builder.addItem("wall", 5, 5, 0.5, 2, 0, 10, random.nextBoolean() ? 32 : null, 16);
+
+            if (random.nextInt(8) == 0) {
+                builder.saveFrame();
+                builder.addItem("head", 1, 1);
+                builder.setPoints("p2", -1);
+                builder.addMessage("p2", "speculative");
+                builder.restoreFrame();
+            }
+
+            if (random.nextInt(3) == 0)
+                builder.addMessage(PLAYERS[random.nextInt(PLAYERS.length)], randomText(random) + i);
+
+            if (random.nextInt(5) == 0)
+                builder.setPoints("p1", random.nextInt(200) - 100);
+        }
+
+        builder.setPoints("p2", 100);
+        builder.setClassification("p1", MooshakClassification.ACCEPTED);
+        builder.setObservations("p1", "Bem jogado!");
+        builder.setClassification("p2", MooshakClassification.WRONG_ANSWER);
+
+        return builder;
+    }
+
+    private static <T extends GameMovieBuilder> T addHeader(T builder) {
+
+        builder.setTitle("Snake's <game> 😀");
+        builder.setBackground("board.png");
+        builder.setWidth(800);
+        builder.setHeight(600);
+        builder.setFps(10);
+        builder.setSpriteAnchor(GameMovieBuilder.SpriteAnchor.TOP_LEFT);
+        for (String sprite : SPRITES)
+            builder.addSprite(sprite, sprite + ".png");
+        builder.addPlayer("p1", "Player 1");
+        builder.addPlayer("p2", "Jogador ção 😀");
+
+        return builder;
+    }
+
+    private static String randomText(Random random) {
+
+        StringBuilder text = new StringBuilder();
+        int words = random.nextInt(4);
+        for (int k = 0; k < words; k++)
+            text.append(TEXTS[random.nextInt(TEXTS.length)]).append(' ');
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieHeader;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieFrame;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovieIndex;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test the index of the frames of movies written in JSON
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class MovieIndexTest {
+
+    private static final int FRAMES = 30;
+
+    private static <T extends GameMovieBuilder> T buildMovie(T builder) {
+
+        MovieFixture.buildMovie(builder, 30, FRAMES);
+
+        // unpaired surrogates are written as '?'
+        builder.addFrame();
+        builder.addMessage("p1", "\uD800 lone");
+
+        return builder;
+    }
+
+    // frames of the movie, as built in memory
+    private static List<String> getFrames() {
+
+        List<String> frames = new ArrayList<>();
+        for (GameMovieFrame frame : buildMovie(new GameMovieBuilderImpl()).getMovie().getFrames())
+            frames.add(Json.get().objectToString(frame));
+
+        return frames;
+    }
+
+    private static String slice(byte[] bytes, long start, long end) {
+        return new String(bytes, (int) start, (int) (end - start), StandardCharsets.UTF_8);
+    }
+
+    // as written in UTF-8 (unpaired surrogates become '?')
+    private static String encoded(String text) {
+        return new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static void assertIndex(GameMovieIndex index, byte[] bytes, String header, List<String> frames) {
+
+        Assert.assertEquals(bytes.length, index.getLength());
+        Assert.assertEquals(encoded(header), slice(bytes, index.getHeaderStart(), index.getHeaderEnd()));
+        Assert.assertEquals(frames.size(), index.getFrameStarts().length);
+
+        for (int i = 0; i < frames.size(); i++)
+            Assert.assertEquals(encoded(frames.get(i)), slice(bytes, index.getFrameStarts()[i], index.getFrameEnd(i)));
+
+        Assert.assertEquals(']', bytes[(int) index.getFramesEnd()]);
+    }
+
+    @Test
+    public void testIndex() {
+
+        GameMovieBuilderImpl builder = buildMovie(new GameMovieBuilderImpl());
+        Assert.assertNull(builder.getIndex());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.toFile(out);
+
+        Assert.assertEquals(encoded(builder.toString()), new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertIndex(builder.getIndex(), out.toByteArray(),
+                Json.get().objectToString(builder.getMovie().getHeader()), getFrames());
+    }
+
+    @Test
+    public void testStreamingIndex() {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingGameMovieBuilder builder = buildMovie(new StreamingGameMovieBuilder(out));
+        String header = Json.get().objectToString(builder.getMovie().getHeader());
+        builder.close();
+
+        assertIndex(builder.getIndex(), out.toByteArray(), header, getFrames());
+    }
+
+    @Test
+    public void testIndexOfEmptyMovie() {
+
+        GameMovieBuilderImpl builder = new GameMovieBuilderImpl();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.toFile(out);
+
+        GameMovieIndex index = builder.getIndex();
+        Assert.assertEquals(0, index.getFrameStarts().length);
+        Assert.assertEquals(Json.get().objectToString(new GameMovieHeader()),
+                slice(out.toByteArray(), index.getHeaderStart(), index.getHeaderEnd()));
+        Assert.assertEquals("[]", slice(out.toByteArray(), index.getFramesEnd() - 1, index.getFramesEnd() + 1));
+    }
+}
@@ -0,0 +1,63 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+/**
+ * Test sprites of items of game movie builders
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class SpriteIdsTest {
+
+    @Test
+    public void testUnknownSprite() {
+
+        GameMovieBuilderImpl builder = new GameMovieBuilderImpl();
+        builder.addSprite("known", "known.png");
+        builder.addFrame();
+        builder.addItem("known", 1, 1);
+
+        try {
+            builder.addItem("unknown", 2, 2, 0.5);
+            Assert.fail("Expected an unknown sprite to be rejected");
+        } catch (BuilderException e) {
+            // expected
+        }
+
+        Assert.assertEquals(1, builder.currentFrame.getItems().size());
+    }
+
+    @Test
+    public void testSpriteIds() {
+
+        GameMovieBuilderImpl builder = new GameMovieBuilderImpl();
+        builder.addSprite("white", "white.png");
+        builder.addSprite("black", "black.png");
+        builder.addFrame();
+        builder.addItem("black", 1, 1);
+        builder.addItem("white", 2, 2);
+
+        String names = builder.toString();
+        Assert.assertFalse(builder.isSpriteIds());
+
+        builder.setSpriteIds(true);
+        JsonObject movie = Json.get().jsonFromString(builder.toString()).getAsJsonObject();
+
+        JsonArray ids = movie.getAsJsonObject("header").getAsJsonArray("sprite_ids");
+        Assert.assertEquals(2, ids.size());
+        Assert.assertEquals("white", ids.get(0).getAsString());
+        Assert.assertEquals("black", ids.get(1).getAsString());
+
+        JsonArray items = movie.getAsJsonArray("frames").get(0).getAsJsonObject().getAsJsonArray("items");
+        Assert.assertEquals(1, items.get(0).getAsJsonObject().get("sprite").getAsInt());
+        Assert.assertEquals(0, items.get(1).getAsJsonObject().get("sprite").getAsInt());
+
+        builder.setSpriteIds(false);
+        Assert.assertEquals(names, builder.toString());
+    }
+}
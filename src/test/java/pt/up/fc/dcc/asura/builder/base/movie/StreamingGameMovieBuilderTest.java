@@ -0,0 +1,144 @@
+package pt.up.fc.dcc.asura.builder.base.movie;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodec;
+import pt.up.fc.dcc.asura.builder.base.utils.compression.StreamCodecs;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test streaming game movie builder
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class StreamingGameMovieBuilderTest {
+
+    private static final long SEED = 9;
+    private static final int FRAMES = 9;
+
+    private static void buildMovie(GameMovieBuilder builder) {
+        MovieFixture.buildMovie(builder, SEED, FRAMES);
+    }
+
+    @Test
+    public void testSameOutputAsInMemoryBuilder() {
+
+        GameMovieBuilderImpl inMemory = new GameMovieBuilderImpl();
+        buildMovie(inMemory);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        StreamingGameMovieBuilder streaming = new StreamingGameMovieBuilder(stream);
+        buildMovie(streaming);
+
+        Assert.assertEquals(FRAMES - 1, streaming.getFrameCount());
+
+        streaming.close();
+
+        Assert.assertEquals(FRAMES, streaming.getFrameCount());
+        Assert.assertEquals(inMemory.toString(), new String(stream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCompressedStream() throws IOException {
+
+        GameMovieBuilderImpl inMemory = new GameMovieBuilderImpl();
+        buildMovie(inMemory);
+
+        for (GameMovieBuilder.Compression compression :
+                new GameMovieBuilder.Compression[]{GameMovieBuilder.Compression.GZIP, GameMovieBuilder.Compression.DEFLATE}) {
+
+            StreamCodec codec = StreamCodecs.get(compression.name());
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            StreamingGameMovieBuilder streaming = new StreamingGameMovieBuilder(stream, codec);
+            buildMovie(streaming);
+            streaming.toFile(stream, compression);
+
+            ByteArrayOutputStream original = new ByteArrayOutputStream();
+            try (InputStream in = codec.decode(new ByteArrayInputStream(stream.toByteArray()))) {
+                byte[] buffer = new byte[4096];
+                int count;
+                while ((count = in.read(buffer)) != -1)
+                    original.write(buffer, 0, count);
+            }
+
+            Assert.assertEquals(inMemory.toString(), new String(original.toByteArray(), StandardCharsets.UTF_8));
+
+            ByteArrayOutputStream file = new ByteArrayOutputStream();
+            inMemory.toFile(file, compression);
+            Assert.assertArrayEquals(stream.toByteArray(), file.toByteArray());
+        }
+    }
+
+    @Test
+    public void testHeaderSetAfterFirstFrameIsAdded() {
+
+        GameMovieBuilderImpl inMemory = new GameMovieBuilderImpl();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        StreamingGameMovieBuilder streaming = new StreamingGameMovieBuilder(stream);
+
+        for (GameMovieBuilder builder : new GameMovieBuilder[]{inMemory, streaming}) {
+            builder.addFrame();
+            builder.setTitle("Late Title");
+            builder.setFps(5);
+            builder.addSprite("x_piece", "x_piece.png");
+            builder.addPlayer("zp", "Random");
+            builder.addItem("x_piece", 1, 2);
+            builder.addFrame();
+        }
+
+        streaming.close();
+
+        Assert.assertEquals(inMemory.toString(), new String(stream.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals("Late Title", streaming.getMovie().getHeader().getTitle());
+    }
+
+    @Test
+    public void testEmptyMovie() {
+
+        GameMovieBuilderImpl inMemory = new GameMovieBuilderImpl();
+        inMemory.setTitle("Empty");
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        StreamingGameMovieBuilder streaming = new StreamingGameMovieBuilder(stream);
+        streaming.setTitle("Empty");
+        streaming.close();
+
+        Assert.assertEquals(inMemory.toString(), new String(stream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOnlyLastFrameIsKept() {
+
+        StreamingGameMovieBuilder streaming = new StreamingGameMovieBuilder(new ByteArrayOutputStream());
+        buildMovie(streaming);
+
+        Assert.assertEquals(1, streaming.getMovie().getFrames().size());
+        Assert.assertEquals(100, (int) streaming.getMovie().getFrames().get(0).getStatus("p2").getPoints());
+    }
+
+    @Test
+    public void testFrameListener() {
+
+        GameMovieBuilderImpl inMemory = new GameMovieBuilderImpl();
+        buildMovie(inMemory);
+
+        List<String> completed = new ArrayList<>();
+        StreamingGameMovieBuilder streaming = new StreamingGameMovieBuilder(new ByteArrayOutputStream());
+        streaming.addFrameListener((header, frame) -> completed.add(Json.get().objectToString(frame)));
+        buildMovie(streaming);
+
+        Assert.assertEquals(FRAMES - 1, completed.size());
+
+        streaming.close();
+
+        Assert.assertEquals(FRAMES, completed.size());
+        for (int i = 0; i < completed.size(); i++)
+            Assert.assertEquals(Json.get().objectToString(inMemory.getMovie().getFrames().get(i)), completed.get(i));
+    }
+}
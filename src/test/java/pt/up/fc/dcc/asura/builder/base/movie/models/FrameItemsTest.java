@@ -0,0 +1,139 @@
+package pt.up.fc.dcc.asura.builder.base.movie.models;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.utils.Json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test frame items kept in arrays of primitives
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class FrameItemsTest {
+
+    private static Integer randomInteger(Random random) {
+        return random.nextInt(3) == 0 ? null : random.nextInt(500);
+    }
+
+    private static GameFrameItem randomItem(Random random) {
+
+        GameFrameItem item = new GameFrameItem(random.nextInt(10) == 0 ? null : "s" + random.nextInt(5),
+                random.nextInt(1000) - 500, random.nextInt(1000) - 500,
+                random.nextBoolean() ? null : random.nextDouble() * Math.PI,
+                random.nextBoolean() ? null : random.nextDouble() * 2);
+
+        if (random.nextInt(4) == 0)
+            item.setViewWindow(new GameItemViewWindow(randomInteger(random), randomInteger(random),
+                    randomInteger(random), randomInteger(random)));
+
+        return item;
+    }
+
+    private static void assertSameItems(List<GameFrameItem> expected, FrameItems items) {
+
+        Assert.assertEquals(expected.size(), items.size());
+        Assert.assertEquals(Json.get().collectionToString(expected), Json.get().objectToString(items));
+        Assert.assertEquals(Json.get().collectionToString(expected),
+                Json.get().collectionToString(new ArrayList<>(items)));
+    }
+
+    @Test
+    public void testSameAsListOfItems() {
+
+        Random random = new Random(18);
+        for (int i = 0; i < 50; i++) {
+            List<GameFrameItem> expected = new ArrayList<>();
+            FrameItems items = new FrameItems();
+
+            int count = random.nextInt(100);
+            for (int k = 0; k < count; k++) {
+                GameFrameItem item = randomItem(random);
+
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, item);
+                items.add(index, item);
+            }
+
+            assertSameItems(expected, items);
+
+            for (int k = 0; k < count / 2; k++) {
+                int index = random.nextInt(expected.size());
+                if (random.nextBoolean()) {
+                    GameFrameItem item = randomItem(random);
+                    expected.set(index, item);
+                    items.set(index, item);
+                } else {
+                    Assert.assertEquals(Json.get().objectToString(expected.remove(index)),
+                            Json.get().objectToString(items.remove(index)));
+                }
+            }
+
+            assertSameItems(expected, items);
+        }
+    }
+
+    @Test
+    public void testAddPrimitives() {
+
+        FrameItems items = new FrameItems();
+        items.add("a", 1, 2, Double.NaN, Double.NaN);
+        items.add("b", 3, 4, 0.5, Double.NaN);
+        items.add("a", 5, 6, Double.NaN, 2, 1, null, 10, 20);
+
+        List<GameFrameItem> expected = new ArrayList<>();
+        expected.add(new GameFrameItem("a", 1, 2));
+        expected.add(new GameFrameItem("b", 3, 4, 0.5, null));
+        expected.add(new GameFrameItem("a", 5, 6, null, 2.0, 1, null, 10, 20));
+
+        assertSameItems(expected, items);
+        Assert.assertEquals(2, items.getSpriteTable().size());
+    }
+
+    @Test
+    public void testCopyOf() {
+
+        FrameItems items = new FrameItems();
+        for (int i = 0; i < 40; i++)
+            items.add("s" + (i % 3), i, i, i % 2 == 0 ? Double.NaN : i, Double.NaN);
+
+        FrameItems copy = items.copyOf(20);
+        copy.add("t", 100, 100, Double.NaN, Double.NaN);
+        items.clear();
+
+        Assert.assertEquals(21, copy.size());
+        Assert.assertEquals(Json.get().objectToString(new GameFrameItem("s1", 19, 19, 19.0, null)),
+                Json.get().objectToString(copy.get(19)));
+        Assert.assertEquals("t", copy.get(20).getSprite());
+        Assert.assertTrue(items.isEmpty());
+    }
+
+    @Test
+    public void testItemsAreReadOnly() {
+
+        FrameItems items = new FrameItems();
+        items.add("a", 1, 2, Double.NaN, Double.NaN, 0, 0, 32, 32);
+
+        GameFrameItem item = items.get(0);
+        try {
+            item.setX(10);
+            Assert.fail("Expected changes to an item to be rejected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            item.getViewWindow().setWidth(64);
+            Assert.fail("Expected changes to a view window to be rejected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // changed through a copy set back
+        GameFrameItem changed = new GameFrameItem(item.getSprite(), 10, item.getY(), null, null, 0, 0, 64, 32);
+        items.set(0, changed);
+        Assert.assertEquals(Json.get().objectToString(changed), Json.get().objectToString(items.get(0)));
+    }
+}
@@ -0,0 +1,123 @@
+package pt.up.fc.dcc.asura.builder.base.utils;
+
+import org.openjdk.jmh.annotations.*;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameFrameItem;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GamePlayerStatus;
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to deep copy a game state and frame data with field plans and with
+ * the previous serialization of every {@link Serializable} value (as
+ * baseline)
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CopyUtilsBenchmark {
+
+    /**
+     * State of a board game
+     */
+    static class Board implements Serializable {
+        private int[][] cells = new int[8][8];
+        private List<int[]> moves = new ArrayList<>();
+        private Map<String, Integer> scores = new HashMap<>();
+        private String turn = "p1";
+    }
+
+    private Board board;
+    private Map<String, GamePlayerStatus> status;
+    private List<GameFrameItem> items;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(1);
+
+        board = new Board();
+        for (int i = 0; i < 40; i++) {
+            int[] move = { random.nextInt(8), random.nextInt(8) };
+            board.cells[move[0]][move[1]] = i % 2 + 1;
+            board.moves.add(move);
+        }
+        board.scores.put("p1", 10);
+        board.scores.put("p2", 12);
+
+        status = new LinkedHashMap<>();
+        for (int p = 1; p <= 4; p++) {
+            GamePlayerStatus playerStatus = new GamePlayerStatus();
+            playerStatus.setPoints(p * 10);
+            playerStatus.setClassification(MooshakClassification.ACCEPTED);
+            status.put("p" + p, playerStatus);
+        }
+
+        items = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            items.add(new GameFrameItem("piece", i * 10, i * 5, random.nextDouble(), 1.0));
+    }
+
+    @Benchmark
+    public Board copyGameState() {
+        return CopyUtils.deepCopy(board);
+    }
+
+    @Benchmark
+    public Board copyGameStateSerialization() {
+        return legacyDeepCopy(board);
+    }
+
+    @Benchmark
+    public Map<String, GamePlayerStatus> copyStatus() {
+        return CopyUtils.deepCopy(status);
+    }
+
+    @Benchmark
+    public List<GameFrameItem> copyItems() {
+        return CopyUtils.deepCopy(items);
+    }
+
+    /**
+     * Previous implementation, serializing every serializable value
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T legacyDeepCopy(T obj) {
+
+        if (obj == null)
+            return null;
+        else if (obj instanceof Map<?, ?>) {
+            Map<Object, Object> clone = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet())
+                clone.put(legacyDeepCopy(entry.getKey()), legacyDeepCopy(entry.getValue()));
+            return (T) clone;
+        } else if (obj instanceof Collection<?>) {
+            Collection<Object> clone = new ArrayList<>();
+            for (Object item : (Collection<?>) obj)
+                clone.add(legacyDeepCopy(item));
+            return (T) clone;
+        } else if (!(obj instanceof Serializable))
+            return obj;
+
+        try {
+            ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteOutputStream)) {
+                objectOutputStream.writeObject(obj);
+            }
+
+            try (ObjectInputStream objectInputStream = new ObjectInputStream(
+                    new ByteArrayInputStream(byteOutputStream.toByteArray()))) {
+                return (T) objectInputStream.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            return obj;
+        }
+    }
+}
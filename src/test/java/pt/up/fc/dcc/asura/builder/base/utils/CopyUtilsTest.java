@@ -0,0 +1,149 @@
+package pt.up.fc.dcc.asura.builder.base.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.exceptions.BuilderException;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GameFrameItem;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GamePlayerStatus;
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Test deep copies of objects
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class CopyUtilsTest {
+
+    /**
+     * State of a game, as kept by game states
+     */
+    static class Board {
+        private final int[][] cells;
+        private final List<GameFrameItem> items = new ArrayList<>();
+        private final Map<String, GamePlayerStatus> status = new LinkedHashMap<>();
+        private Board previous;
+        private transient String turn;
+
+        Board(int size) {
+            cells = new int[size][size];
+        }
+    }
+
+    /**
+     * State of a game with values of classes of the JDK
+     */
+    static class Dice {
+        private final Map<MooshakClassification, List<String>> players =
+                new EnumMap<>(MooshakClassification.class);
+        private final Set<MooshakClassification> seen = EnumSet.noneOf(MooshakClassification.class);
+        private final List<Integer> faces = Collections.unmodifiableList(Arrays.asList(1, 2, 3));
+        private final Random random = new Random(42);
+    }
+
+    /**
+     * Lock whose fields (in a class of the JDK) cannot be copied field by field
+     */
+    static class Lock extends ReentrantLock {
+    }
+
+    @Test
+    public void testModelObjects() {
+
+        GamePlayerStatus status = new GamePlayerStatus();
+        status.setPoints(42);
+        status.setClassification(MooshakClassification.ACCEPTED);
+        status.setObservations("Bem jogado!");
+
+        GamePlayerStatus copy = CopyUtils.deepCopy(status);
+        Assert.assertNotSame(status, copy);
+        Assert.assertEquals(Json.get().objectToString(status), Json.get().objectToString(copy));
+        Assert.assertSame(status.getObservations(), copy.getObservations());
+
+        GameFrameItem item = new GameFrameItem("head", 1, 2, 0.5, 2.0, 0, 0, 32, null);
+        GameFrameItem itemCopy = CopyUtils.deepCopy(item);
+        Assert.assertNotSame(item.getViewWindow(), itemCopy.getViewWindow());
+        Assert.assertEquals(Json.get().objectToString(item), Json.get().objectToString(itemCopy));
+    }
+
+    @Test
+    public void testGameState() {
+
+        Board board = new Board(3);
+        board.cells[1][2] = 7;
+        board.items.add(new GameFrameItem("x", 1, 1));
+        board.items.add(board.items.get(0));
+        board.status.put("p1", new GamePlayerStatus());
+        board.previous = board;
+        board.turn = "p1";
+
+        Board copy = CopyUtils.deepCopy(board);
+
+        Assert.assertNotSame(board.cells, copy.cells);
+        Assert.assertNotSame(board.cells[1], copy.cells[1]);
+        Assert.assertEquals(7, copy.cells[1][2]);
+        Assert.assertEquals(LinkedHashMap.class, copy.status.getClass());
+        Assert.assertNotSame(board.status.get("p1"), copy.status.get("p1"));
+        Assert.assertNull(copy.turn);
+
+        // shared references and cycles are kept
+        Assert.assertNotSame(board.items.get(0), copy.items.get(0));
+        Assert.assertSame(copy.items.get(0), copy.items.get(1));
+        Assert.assertSame(copy, copy.previous);
+    }
+
+    @Test
+    public void testJdkValues() {
+
+        Dice dice = new Dice();
+        dice.players.put(MooshakClassification.ACCEPTED, new ArrayList<>(Collections.singletonList("p1")));
+        dice.seen.add(MooshakClassification.WRONG_ANSWER);
+
+        Dice copy = CopyUtils.deepCopy(dice);
+
+        Assert.assertEquals(EnumMap.class, copy.players.getClass());
+        Assert.assertEquals(dice.players, copy.players);
+        Assert.assertNotSame(dice.players.get(MooshakClassification.ACCEPTED),
+                copy.players.get(MooshakClassification.ACCEPTED));
+
+        Assert.assertNotSame(dice.seen, copy.seen);
+        Assert.assertEquals(dice.seen, copy.seen);
+        Assert.assertEquals(dice.faces, copy.faces);
+
+        // the copy continues the same sequence, independently
+        Assert.assertNotSame(dice.random, copy.random);
+        Assert.assertEquals(dice.random.nextInt(), copy.random.nextInt());
+    }
+
+    @Test
+    public void testImmutablesAreShared() {
+
+        Object[] values = { "text", 1, 2L, 3.0, true, 'c', MooshakClassification.ACCEPTED };
+        Object[] copy = CopyUtils.deepCopy(values);
+
+        Assert.assertNotSame(values, copy);
+        for (int i = 0; i < values.length; i++)
+            Assert.assertSame(values[i], copy[i]);
+    }
+
+    @Test
+    public void testSerializationFallback() {
+
+        Map<String, Object> map = new TreeMap<>(Comparator.reverseOrder());
+        map.put("lock", new Lock());
+        map.put("other", "value");
+
+        try {
+            CopyUtils.deepCopy(map);
+            Assert.fail("Expected an object that cannot be copied field by field to be rejected");
+        } catch (BuilderException e) {
+            // expected
+        }
+
+        Map<String, Object> copy = CopyUtils.deepCopy(map, true);
+        Assert.assertEquals(Arrays.asList("other", "lock"), new ArrayList<>(copy.keySet()));
+        Assert.assertNotSame(map.get("lock"), copy.get("lock"));
+    }
+}
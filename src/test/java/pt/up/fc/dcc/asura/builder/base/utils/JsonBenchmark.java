@@ -0,0 +1,87 @@
+package pt.up.fc.dcc.asura.builder.base.utils;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+import pt.up.fc.dcc.asura.builder.base.messaging.MessageCodec;
+import pt.up.fc.dcc.asura.builder.base.messaging.PlayerAction;
+import pt.up.fc.dcc.asura.builder.base.messaging.StateUpdate;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per message of converting state updates and player actions, as done
+ * by the {@code Streamer} of the {@code GameManager}, rebuilding Gson for
+ * every message (as {@code Json.get()} used to), with the shared Gson and
+ * with the streaming {@link MessageCodec}
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final String ACTION = "{\"command\":{\"name\":\"MOVE\",\"args\":[1,2,\"north\"]}," +
+            "\"messages\":[\"moving north\"]}";
+
+    private StateUpdate stateUpdate = new StateUpdate("BOARD", Arrays.asList(
+            Arrays.asList(0, 1, 2), Arrays.asList(2, 1, 0), Arrays.asList(1, 1, 1)));
+
+    private CharArrayWriter writer = new CharArrayWriter();
+
+    @Benchmark
+    public String writeStateUpdateRebuildingGson() {
+        return new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create()
+                .toJson(stateUpdate);
+    }
+
+    @Benchmark
+    public String writeStateUpdate() {
+        return Json.get().objectToString(stateUpdate);
+    }
+
+    @Benchmark
+    public String writeStateUpdateWithAdapter() {
+        return Json.get().objectToStringWithAdapter(stateUpdate);
+    }
+
+    @Benchmark
+    public int writeStateUpdateWithCodec() throws IOException {
+        writer.reset();
+        MessageCodec.writeStateUpdate(stateUpdate, writer);
+        return writer.size();
+    }
+
+    @Benchmark
+    public PlayerAction readPlayerActionRebuildingGson() {
+        return new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create()
+                .fromJson(ACTION, PlayerAction.class);
+    }
+
+    @Benchmark
+    public PlayerAction readPlayerAction() {
+        return Json.get().objectFromString(ACTION, PlayerAction.class);
+    }
+
+    @Benchmark
+    public PlayerAction readPlayerActionWithAdapter() {
+        return Json.get().objectFromStringWithAdapter(ACTION, PlayerAction.class);
+    }
+
+    @Benchmark
+    public PlayerAction readPlayerActionWithCodec() throws IOException {
+        return MessageCodec.readPlayerAction(new StringReader(ACTION));
+    }
+}
@@ -1,14 +1,19 @@
 package pt.up.fc.dcc.asura.builder.base.utils;
 
 import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.messaging.PlayerAction;
 import pt.up.fc.dcc.asura.builder.base.messaging.StateUpdate;
 import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilder;
 import pt.up.fc.dcc.asura.builder.base.movie.models.GameFrameItem;
 import pt.up.fc.dcc.asura.builder.base.movie.models.GameMovie;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Collection;
 
 /**
@@ -21,6 +26,12 @@ public class JsonUtilsTest {
     private static final String JSON_MATCH_MOVIE = "{\"header\":{\"title\":\"Tic Tac Toe Game\",\"background\":\"board-3x3.png\",\"width\":600,\"height\":600,\"sprites\":{\"o_piece\":\"o_piece.png\",\"x_piece\":\"x_piece.png\"},\"players\":{\"jcpaiva\":\"Random\",\"zp\":\"Random\"},\"anchor_point\":\"TOP_LEFT\",\"fps\":1},\"frames\":[{\"items\":[{\"sprite\":\"x_piece\",\"x\":0,\"y\":187}],\"status\":{},\"messages\":{}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187}],\"status\":{},\"messages\":{}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187}],\"status\":{},\"messages\":{}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":187,\"y\":0},{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187}],\"status\":{},\"messages\":{}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":187,\"y\":0},{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187},{\"sprite\":\"x_piece\",\"x\":0,\"y\":374}],\"status\":{},\"messages\":{}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":187,\"y\":0},{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187},{\"sprite\":\"o_piece\",\"x\":374,\"y\":187},{\"sprite\":\"x_piece\",\"x\":0,\"y\":374}],\"status\":{},\"messages\":{}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":187,\"y\":0},{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187},{\"sprite\":\"o_piece\",\"x\":374,\"y\":187},{\"sprite\":\"x_piece\",\"x\":0,\"y\":374},{\"sprite\":\"x_piece\",\"x\":187,\"y\":374}],\"status\":{},\"messages\":{}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":187,\"y\":0},{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187},{\"sprite\":\"o_piece\",\"x\":374,\"y\":187},{\"sprite\":\"x_piece\",\"x\":0,\"y\":374},{\"sprite\":\"x_piece\",\"x\":187,\"y\":374},{\"sprite\":\"o_piece\",\"x\":374,\"y\":374}],\"status\":{},\"messages\":{\"jcpaiva\":\"The bot seems ok, but it has lost!\",\"zp\":\"You\\u0027ve won!\"}},{\"items\":[{\"sprite\":\"o_piece\",\"x\":187,\"y\":0},{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187},{\"sprite\":\"o_piece\",\"x\":374,\"y\":187},{\"sprite\":\"x_piece\",\"x\":0,\"y\":374},{\"sprite\":\"x_piece\",\"x\":187,\"y\":374},{\"sprite\":\"o_piece\",\"x\":374,\"y\":374}],\"status\":{\"jcpaiva\":{\"points\":0,\"classification\":\"Accepted\",\"observations\":\"The bot seems ok, but it has lost!\"},\"zp\":{\"points\":100,\"classification\":\"Accepted\",\"observations\":\"You\\u0027ve won!\"}},\"messages\":{}}]}";
     private static final String JSON_COLLECTION = "[{\"sprite\":\"o_piece\",\"x\":374,\"y\":0},{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":187,\"y\":187}]";
 
+    @After
+    public void tearDown() {
+        // adapters registered by a test must not change the output of others
+        Json.reset();
+    }
+
     @Test
     public void testObjectFromString() {
         GameMovie gameMovie = Json.get().objectFromString(JSON_MATCH_MOVIE, GameMovie.class);
@@ -70,6 +81,41 @@ public class JsonUtilsTest {
         Assert.assertEquals(3, items.size());
     }
 
+    @Test
+    public void testObjectWithAdapter() {
+
+        StateUpdate stateUpdate = new StateUpdate("You've won <again>", Arrays.asList(1, 2.5, "x"));
+
+        String json = Json.get().objectToString(stateUpdate);
+        Assert.assertEquals(json, Json.get().objectToStringWithAdapter(stateUpdate));
+        Assert.assertEquals("null", Json.get().objectToStringWithAdapter(null));
+
+        PlayerAction action = Json.get().objectFromStringWithAdapter(
+                "{\"command\":{\"name\":\"MOVE\",\"args\":[1,\"x\"]},\"messages\":[\"hi\"]}",
+                PlayerAction.class);
+        Assert.assertEquals("MOVE", action.getCommand().getName());
+        Assert.assertEquals(1, action.getCommand().getAsInt(0));
+        Assert.assertEquals("hi", action.getMessages().get(0));
+
+        Assert.assertNull(Json.get().objectFromStringWithAdapter("", PlayerAction.class));
+    }
+
+    @Test
+    public void testSharedInstance() {
+
+        Json json = Json.get();
+        Assert.assertSame(json, Json.get());
+
+        Json.registerTypeAdapter(TestModel.class, (JsonSerializer<TestModel>) (model, type, context) ->
+                new JsonPrimitive("test"));
+
+        Assert.assertNotSame(json, Json.get());
+        Assert.assertEquals("\"test\"", Json.get().objectToString(new TestModel()));
+
+        Json.reset();
+        Assert.assertNotEquals("\"test\"", Json.get().objectToString(new TestModel()));
+    }
+
     @Test
     public void testJsonInputOutputStream() throws IOException {
 
@@ -137,4 +183,7 @@ public class JsonUtilsTest {
             e.printStackTrace();
         }
     }
+
+    private static class TestModel {
+    }
 }
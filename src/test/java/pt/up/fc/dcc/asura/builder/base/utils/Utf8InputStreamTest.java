@@ -0,0 +1,65 @@
+package pt.up.fc.dcc.asura.builder.base.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Test streaming UTF-8 encoding of texts
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class Utf8InputStreamTest {
+
+    private static byte[] readAll(Utf8InputStream in, int chunk) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[chunk];
+        int count;
+        while ((count = in.read(buffer, 0, buffer.length)) != -1)
+            out.write(buffer, 0, count);
+
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testSameAsGetBytes() {
+
+        String[] pieces = { "a", "ç", "€", "😀", "\uD800", "\uDC00", "\n" };
+
+        Random random = new Random(15);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(20000);
+            for (int k = 0; k < length; k++)
+                text.append(pieces[random.nextInt(pieces.length)]);
+
+            byte[] expected = text.toString().getBytes(StandardCharsets.UTF_8);
+
+            Assert.assertArrayEquals(expected, readAll(new Utf8InputStream(text.toString()), random.nextInt(10000) + 1));
+            Assert.assertArrayEquals(expected, readAll(new Utf8InputStream(text), 4096));
+        }
+    }
+
+    @Test
+    public void testSurrogatePairAcrossChunks() {
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 8191; i++)
+            text.append('a');
+        text.append("😀b");
+
+        Assert.assertArrayEquals(text.toString().getBytes(StandardCharsets.UTF_8),
+                readAll(new Utf8InputStream(text.toString()), 1));
+    }
+
+    @Test
+    public void testUtf8Encode() {
+
+        Assert.assertEquals("aÃ§ð\u009F\u0098\u0080", Strings.uft8Encode("aç😀"));
+    }
+}
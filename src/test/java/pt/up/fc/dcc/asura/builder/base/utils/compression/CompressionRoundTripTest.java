@@ -0,0 +1,107 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilder;
+import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilderImpl;
+import pt.up.fc.dcc.asura.builder.base.movie.MovieFixture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Round-trip tests of compression algorithms over randomly generated movies
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class CompressionRoundTripTest {
+    private static final int RUNS = 40;
+
+    private static void assertRoundTrip(CompressionAlgorithm algorithm, String json, Object... args)
+            throws IOException {
+
+        String compressed = algorithm.compress(json, args);
+        Assert.assertEquals(json, algorithm.decompress(compressed, args));
+
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        algorithm.compress(new ByteArrayInputStream(bytes), out, args);
+        Assert.assertArrayEquals(compressed.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+
+        ByteArrayOutputStream original = new ByteArrayOutputStream();
+        algorithm.decompress(new ByteArrayInputStream(out.toByteArray()), original, args);
+        Assert.assertArrayEquals(bytes, original.toByteArray());
+    }
+
+    @Test
+    public void testLZ77() throws IOException {
+
+        Random random = new Random(77);
+        for (int i = 0; i < RUNS; i++) {
+            LZ77 lz77 = new LZ77();
+            lz77.setMaxChainDepth(random.nextInt(200) + 1);
+            lz77.setLazyMatching(random.nextBoolean());
+
+            String json = MovieFixture.buildMovie(random.nextLong(), random.nextInt(60)).toString();
+            assertRoundTrip(lz77, json);
+            assertRoundTrip(lz77, json, random.nextInt(Character.MAX_VALUE) + 1);
+        }
+    }
+
+    @Test
+    public void testLZW() throws IOException {
+
+        Random random = new Random(12);
+        for (int i = 0; i < RUNS; i++) {
+            LZW lzw = new LZW();
+            if (random.nextBoolean())
+                lzw.setMaxCodes(random.nextInt(2000) + 600);
+            lzw.setPolicy(random.nextBoolean() ? LZW.Policy.FREEZE : LZW.Policy.RESET);
+
+            String json = MovieFixture.buildMovie(random.nextLong(), random.nextInt(60)).toString();
+            assertRoundTrip(lzw, json);
+            assertRoundTrip(lzw, json, random.nextInt(300) + 256);
+        }
+    }
+
+    @Test
+    public void testMovieToFile() {
+
+        GameMovieBuilderImpl builder = MovieFixture.buildMovie(1, 60);
+
+        ByteArrayOutputStream lz77 = new ByteArrayOutputStream();
+        builder.toFile(lz77, GameMovieBuilder.Compression.LZ77);
+        Assert.assertEquals(builder.toString(),
+                new LZ77().decompress(new String(lz77.toByteArray(), StandardCharsets.UTF_8)));
+
+        ByteArrayOutputStream lzw = new ByteArrayOutputStream();
+        builder.toFile(lzw, GameMovieBuilder.Compression.LZW);
+        Assert.assertEquals(builder.toString(),
+                new LZW().decompress(new String(lzw.toByteArray(), StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testInvalidData() {
+
+        // a distance without any previous output
+        try {
+            new LZ77().decompress("\u0005\u0001a");
+            Assert.fail("Expected invalid LZ77 data to be rejected");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+
+        // a code not yet in the dictionary
+        try {
+            new LZW().decompress("aȀ");
+            Assert.fail("Expected invalid LZW data to be rejected");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import org.openjdk.jmh.annotations.*;
+import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilder;
+import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilderImpl;
+import pt.up.fc.dcc.asura.builder.base.utils.Strings;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to compress the JSON of a game movie with LZ77, with the hash-chain
+ * match finder and with the previous full scan of the window (as baseline)
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LZ77Benchmark {
+
+    @Param({"50", "500"})
+    private int frames;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(1);
+
+        GameMovieBuilder builder = new GameMovieBuilderImpl();
+        builder.setTitle("Board");
+        builder.setBackground("board.png");
+        builder.addSprite("white", "white.png");
+        builder.addSprite("black", "black.png");
+        builder.addPlayer("p1", "Player 1");
+        builder.addPlayer("p2", "Player 2");
+
+        int[] cells = new int[64];
+        for (int i = 0; i < frames; i++) {
+            builder.addFrame();
+
+            cells[random.nextInt(cells.length)] = random.nextInt(3);
+            for (int c = 0; c < cells.length; c++)
+                if (cells[c] != 0)
+                    builder.addItem(cells[c] == 1 ? "white" : "black", (c % 8) * 75, (c / 8) * 75);
+
+            builder.addMessage(i % 2 == 0 ? "p1" : "p2", "move " + i + "\n");
+            builder.setPoints("p1", i / 10);
+        }
+
+        json = builder.toString();
+    }
+
+    @Benchmark
+    public String compress() {
+        return new LZ77().compress(json);
+    }
+
+    @Benchmark
+    public String compressGreedy() {
+        LZ77 lz77 = new LZ77();
+        lz77.setLazyMatching(false);
+        return lz77.compress(json);
+    }
+
+    @Benchmark
+    public String compressFullScan() {
+        return fullScan(json, 8192);
+    }
+
+    /**
+     * Previous implementation, comparing every position of the window
+     */
+    private static String fullScan(String in, int windowSize) {
+
+        in = Strings.uft8Encode(in);
+
+        StringBuilder out = new StringBuilder();
+
+        int n = in.length();
+        for (int i = 0; i < n; i++) {
+
+            char target = in.charAt(i);
+            boolean found = false;
+            int start = 0;
+            int matchLen = 0;
+            char nonMatchChar = 0xff;
+
+            for (int s = Math.max(0, i - windowSize); s < i; s++) {
+                if (target == in.charAt(s)) {
+                    int len = getMatchedLen(in, s + 1, i + 1, n) + 1;
+                    if (len > matchLen) {
+                        start = i - s;
+                        matchLen = len;
+                        nonMatchChar = (char) 0xff;
+                        if ((i + matchLen) < n) {
+                            nonMatchChar = in.charAt(i + matchLen);
+                        }
+                    }
+                    found = true;
+                }
+            }
+
+            if (found) {
+                out.append((char) start)
+                        .append((char) matchLen)
+                        .append(nonMatchChar);
+                i += matchLen;
+            } else {
+                out.append((char) 0x00).append((char) 0x00).append(target);
+            }
+        }
+
+        return out.toString();
+    }
+
+    private static int getMatchedLen(CharSequence src, int i1, int i2, int end) {
+        int n = Math.min(i2 - i1, end - i2);
+        for (int i = 0; i < n; i++) {
+            if (src.charAt(i1++) != src.charAt(i2++)) return i;
+        }
+        return 0;
+    }
+}
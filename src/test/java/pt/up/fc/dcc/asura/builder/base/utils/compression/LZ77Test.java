@@ -0,0 +1,66 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Test LZ77 compression
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class LZ77Test {
+
+    /**
+     * Decode the tokens of LZ77 as the movie player does
+     */
+    private static String decode(String tokens) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[0];
+
+        for (int i = 0; i < tokens.length(); i += 3) {
+            int distance = tokens.charAt(i);
+            int length = tokens.charAt(i + 1);
+
+            buffer = out.toByteArray();
+            Assert.assertTrue(length <= distance);
+            out.write(buffer, buffer.length - distance, length);
+            out.write(tokens.charAt(i + 2));
+        }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testTokensDecodeToInput() {
+
+        Random random = new Random(7);
+
+        String[] inputs = {"", "a", "aa", "aaaaaaaaaaaaaaaaaaaaaaaaa", "abcabcabcabd",
+                "{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":0,\"y\":374}",
+                "ção 😀 ção 😀 ção"};
+
+        for (String input : inputs)
+            for (boolean lazy : new boolean[]{false, true}) {
+                LZ77 lz77 = new LZ77();
+                lz77.setLazyMatching(lazy);
+                Assert.assertEquals(input, decode(lz77.compress(input)));
+            }
+
+        for (int k = 0; k < 50; k++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(20000);
+            for (int i = 0; i < length; i++)
+                input.append("abcdé{}\":,".charAt(random.nextInt(random.nextInt(10) + 1)));
+
+            LZ77 lz77 = new LZ77();
+            lz77.setMaxChainDepth(random.nextInt(32) + 1);
+            lz77.setLazyMatching(random.nextBoolean());
+            Assert.assertEquals(input.toString(), decode(lz77.compress(input.toString(), random.nextInt(500) + 1)));
+        }
+    }
+}
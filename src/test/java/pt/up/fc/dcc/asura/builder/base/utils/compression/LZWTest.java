@@ -0,0 +1,96 @@
+package pt.up.fc.dcc.asura.builder.base.utils.compression;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.utils.Strings;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test LZW compression
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class LZWTest {
+
+    /**
+     * Previous implementation, with a map of strings
+     */
+    private static String compressWithMap(String in, int dictSize) {
+
+        in = Strings.uft8Encode(in);
+
+        StringBuilder out = new StringBuilder();
+
+        int index = dictSize;
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (int i = 0; i < dictSize; i++)
+            dictionary.put("" + (char) i, i);
+
+        String w = "";
+        for (char c : in.toCharArray()) {
+            String wc = w + c;
+            if (dictionary.containsKey(wc))
+                w = wc;
+            else {
+                out.append((char) (int) dictionary.get(w));
+                dictionary.put(wc, index++);
+                w = "" + c;
+            }
+        }
+
+        if (!w.equals(""))
+            out.append((char) (int) dictionary.get(w));
+
+        return out.toString();
+    }
+
+    @Test
+    public void testSameOutputAsMap() {
+
+        Random random = new Random(3);
+
+        String[] inputs = {"", "a", "TOBEORNOTTOBEORTOBEORNOT", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaa",
+                "{\"sprite\":\"x_piece\",\"x\":0,\"y\":187},{\"sprite\":\"x_piece\",\"x\":0,\"y\":374}",
+                "ção ção ção"};
+
+        for (String input : inputs)
+            Assert.assertEquals(compressWithMap(input, 256), new LZW().compress(input));
+
+        for (int k = 0; k < 50; k++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(30000);
+            for (int i = 0; i < length; i++)
+                input.append("abcdé{}\":,".charAt(random.nextInt(random.nextInt(10) + 1)));
+
+            int dictSize = 256 + random.nextInt(100);
+            Assert.assertEquals(compressWithMap(input.toString(), dictSize),
+                    new LZW().compress(input.toString(), dictSize));
+        }
+    }
+
+    @Test
+    public void testCodesBelowLimit() {
+
+        Random random = new Random(5);
+
+        byte[] data = new byte[200000];
+        random.nextBytes(data);
+
+        for (LZW.Policy policy : LZW.Policy.values()) {
+            LZW lzw = new LZW();
+            lzw.setMaxCodes(1000);
+            lzw.setPolicy(policy);
+
+            String out = lzw.compress(data, 256);
+            for (int i = 0; i < out.length(); i++)
+                Assert.assertTrue(out.charAt(i) < 1000);
+        }
+
+        String out = new LZW().compress(data, 256);
+        for (int i = 0; i < out.length(); i++)
+            Assert.assertFalse(Character.isSurrogate(out.charAt(i)));
+    }
+}
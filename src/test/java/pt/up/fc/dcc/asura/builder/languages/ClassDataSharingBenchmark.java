@@ -0,0 +1,75 @@
+package pt.up.fc.dcc.asura.builder.languages;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time of a player JVM running the base wrappers, with and without
+ * the class data sharing archive of the base wrappers
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClassDataSharingBenchmark {
+
+    // output of the probes is discarded (Redirect.DISCARD is not available in Java 8)
+    private static final File NULL_FILE = new File(
+            System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+
+    private ClassDataSharing.Archive archive;
+
+    @Setup
+    public void setup() throws Exception {
+
+        // unique source, as compilations are cached across runs
+        String basePath = JavaLanguageTest.prepare("Probe.java", "// " + System.nanoTime() + "\n" +
+                "public class Probe {}\n");
+
+        CompilationResult result = new JavaLanguage().compileAll(JavaLanguageTest.GAME, "java",
+                Collections.singletonMap("Probe.java", basePath)).get("Probe.java");
+        if (!result.isSuccessful())
+            throw new IllegalStateException(result.getDiagnostics());
+
+        archive = JavaLanguage.getArchive(result.getOutputPath());
+        if (archive == null)
+            throw new IllegalStateException("Class data sharing not available");
+    }
+
+    @Benchmark
+    public int startupWithoutArchive() throws IOException, InterruptedException {
+        return launch(Collections.emptyList());
+    }
+
+    @Benchmark
+    public int startupWithArchive() throws IOException, InterruptedException {
+        return launch(archive.getOptions());
+    }
+
+    private int launch(List<String> options) throws IOException, InterruptedException {
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        command.add("-cp");
+        command.add(archive.getClasspath());
+        command.add(ClassDataSharing.PROBE_CLASS);
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(NULL_FILE)
+                .start()
+                .waitFor();
+    }
+}
@@ -0,0 +1,76 @@
+package pt.up.fc.dcc.asura.builder.languages;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Test compilation of programs in Java
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class JavaLanguageTest {
+
+    static final String GAME = "java-language-test";
+
+    @Test
+    public void testBatchDoesNotShareClassesOfSolutions() throws Exception {
+
+        // unique sources, as compilations are cached across runs
+        String id = Long.toString(System.nanoTime());
+
+        Map<String, String> basePaths = new LinkedHashMap<>();
+        basePaths.put("A.java", prepare("A.java", "// " + id + "\n" +
+                "public class A { Object help() { return new Helper(); } }\n"));
+        basePaths.put("B.java", prepare("B.java", "// " + id + "\n" +
+                "public class B { Object help() { return new Helper(); } }\n" +
+                "class Helper {}\n"));
+
+        Map<String, CompilationResult> results = new JavaLanguage().compileAll(GAME, "java", basePaths);
+
+        // A only compiled thanks to a class of B
+        Assert.assertFalse(results.get("A.java").isSuccessful());
+        Assert.assertTrue(results.get("A.java").getDiagnostics().contains("Helper"));
+
+        Assert.assertTrue(results.get("B.java").isSuccessful());
+        Assert.assertTrue(Files.exists(Paths.get(results.get("B.java").getOutputPath(), "Helper.class")));
+    }
+
+    @Test
+    public void testHashDistinguishesSplitsOfParts() {
+
+        byte[] ab = "ab".getBytes(StandardCharsets.UTF_8);
+        byte[] bc = "bc".getBytes(StandardCharsets.UTF_8);
+        byte[] a = "a".getBytes(StandardCharsets.UTF_8);
+        byte[] c = "c".getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertEquals(Language.hash(ab, c), Language.hash(ab, c));
+        Assert.assertNotEquals(Language.hash(ab, c), Language.hash(a, bc));
+    }
+
+    static String prepare(String filename, String source) throws IOException, URISyntaxException {
+
+        Path basePath = Files.createTempDirectory("java-language-test");
+
+        Path baseWrapperPath = Files.createDirectories(basePath.resolve(Paths.get("wrappers", "java")));
+        Path wrappers = Paths.get(JavaLanguageTest.class.getResource("/wrappers/java").toURI());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(wrappers)) {
+            for (Path file : files)
+                Files.copy(file, baseWrapperPath.resolve(file.getFileName()));
+        }
+
+        Files.createDirectories(basePath.resolve(Paths.get(GAME, "wrappers", "java")));
+        Files.write(basePath.resolve(filename), source.getBytes(StandardCharsets.UTF_8));
+
+        return basePath.toString();
+    }
+}
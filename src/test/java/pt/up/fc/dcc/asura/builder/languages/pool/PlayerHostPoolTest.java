@@ -0,0 +1,231 @@
+package pt.up.fc.dcc.asura.builder.languages.pool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the pool of warm JVMs that run Java players
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class PlayerHostPoolTest {
+
+    // echoes the type of each update in a raw line, named after a static counter and the JVM of the host
+    private static final String ECHO_PLAYER = "import wrappers.java.*;\n" +
+            "public class EchoPlayer extends PlayerWrapper {\n" +
+            "    private static int sessions = 0;\n" +
+            "    private String type;\n" +
+            "    public String getName() {\n" +
+            "        return ++sessions + \"@\" + java.lang.management.ManagementFactory.getRuntimeMXBean().getName();\n" +
+            "    }\n" +
+            "    public void init() {}\n" +
+            "    public void execute() { System.out.println(type); }\n" +
+            "    public void update(StateUpdate update) { type = update.getType(); }\n" +
+            "    protected void run() {\n" +
+            "        try {\n" +
+            "            while (true) { readAndUpdate(); execute(); }\n" +
+            "        } catch (java.util.NoSuchElementException e) {\n" +
+            "            // end of input\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String LOOP_PLAYER = "import wrappers.java.*;\n" +
+            "public class LoopPlayer extends PlayerWrapper {\n" +
+            "    public String getName() { return \"loop\"; }\n" +
+            "    public void init() {}\n" +
+            "    public void execute() {}\n" +
+            "    public void update(StateUpdate update) {}\n" +
+            "    protected void run() { while (true) { Thread.interrupted(); } }\n" +
+            "}\n";
+
+    private static final String EXIT_PLAYER = "import wrappers.java.*;\n" +
+            "public class ExitPlayer extends PlayerWrapper {\n" +
+            "    public String getName() { return \"exit\"; }\n" +
+            "    public void init() {}\n" +
+            "    public void execute() {}\n" +
+            "    public void update(StateUpdate update) {}\n" +
+            "    protected void run() { System.exit(3); }\n" +
+            "}\n";
+
+    private static String classpath;
+
+    private PlayerHostPool pool;
+
+    @BeforeClass
+    public static void compilePlayers() throws Exception {
+
+        Path dir = Files.createTempDirectory("player-host-pool-test");
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+
+        List<String> arguments = new ArrayList<>();
+        Path wrappers = Paths.get(PlayerHostPoolTest.class.getResource("/wrappers/java").toURI());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(wrappers)) {
+            for (Path file : files) {
+                if (file.toString().endsWith(".java"))
+                    arguments.add(file.toString());
+                else if (file.toString().endsWith(".jar"))
+                    arguments.addAll(0, Arrays.asList("-cp", file.toString()));
+            }
+        }
+
+        for (String source : new String[]{ECHO_PLAYER, LOOP_PLAYER, EXIT_PLAYER}) {
+            String name = source.substring(source.indexOf("class ") + 6, source.indexOf(" extends"));
+            arguments.add(Files.write(dir.resolve(name + ".java"), source.getBytes(StandardCharsets.UTF_8))
+                    .toString());
+        }
+
+        arguments.addAll(0, Arrays.asList("-d", classes.toString(), "-encoding", "UTF-8"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+
+        classpath = classes.toString();
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null)
+            pool.close();
+    }
+
+    @Test
+    public void testLineProtocolAndEndOfInput() throws Exception {
+
+        pool = newPool(1);
+
+        Process process = pool.launch(classpath, "EchoPlayer", "p1");
+        BufferedReader out = reader(process);
+
+        Assert.assertTrue(out.readLine().contains("\"name\":\"NAME\""));
+
+        // a line starting with the control byte is passed unchanged
+        send(process, "{\"type\":\"\\u0001A\"}");
+        Assert.assertEquals("\u0001A", out.readLine());
+        send(process, "{\"type\":\"B\"}");
+        Assert.assertEquals("B", out.readLine());
+
+        process.getOutputStream().close();
+
+        Assert.assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, process.exitValue());
+        Assert.assertNull(out.readLine());
+    }
+
+    @Test
+    public void testStaticStateResetBetweenSessions() throws Exception {
+
+        pool = newPool(1);
+
+        String first = runEcho();
+        String second = runEcho();
+
+        // same host, yet the static counter of the player starts over
+        Assert.assertEquals(first, second);
+        Assert.assertTrue(first.startsWith("1@"));
+    }
+
+    @Test
+    public void testPlayerThatNeverTerminates() throws Exception {
+
+        pool = newPool(1);
+        pool.setTerminationTimeout(200);
+
+        Process process = pool.launch(classpath, "LoopPlayer", "p1");
+        Assert.assertTrue(reader(process).readLine().contains("\"loop\""));
+
+        process.destroy();
+        Assert.assertFalse(process.isAlive());
+        Assert.assertEquals(PlayerHostPool.DESTROYED_EXIT_CODE, process.exitValue());
+
+        // the host is killed and replaced
+        Assert.assertTrue(runEcho().startsWith("1@"));
+    }
+
+    @Test
+    public void testPlayerThatCallsSystemExit() throws Exception {
+
+        pool = newPool(1);
+
+        String before = runEcho();
+
+        Process process = pool.launch(classpath, "ExitPlayer", "p1");
+        Assert.assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, process.exitValue());
+
+        // the host exited with the player and is replaced
+        String after = runEcho();
+        Assert.assertTrue(after.startsWith("1@"));
+        Assert.assertNotEquals(before, after);
+    }
+
+    @Test
+    public void testHostRecycledAfterMaxSessions() throws Exception {
+
+        pool = newPool(1);
+        pool.setMaxSessionsPerHost(2);
+
+        String first = runEcho();
+        String second = runEcho();
+        String third = runEcho();
+
+        Assert.assertEquals(first, second);
+        Assert.assertNotEquals(second, third);
+    }
+
+    private static PlayerHostPool newPool(int size) {
+
+        PlayerHostPool pool = new PlayerHostPool(size);
+        pool.setAcquireTimeout(10000);
+        pool.start();
+
+        return pool;
+    }
+
+    /**
+     * Run a session of the echo player
+     *
+     * @return name of the player, with its static counter and host JVM
+     * @throws Exception - If the session fails
+     */
+    private String runEcho() throws Exception {
+
+        Process process = pool.launch(classpath, "EchoPlayer", "p1");
+
+        String line = reader(process).readLine();
+        process.getOutputStream().close();
+
+        Assert.assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, process.exitValue());
+
+        return line.replaceAll(".*\"args\":\\[\"([^\"]*)\"\\].*", "$1");
+    }
+
+    private static BufferedReader reader(Process process) {
+        return new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static void send(Process process, String line) throws IOException {
+        OutputStream in = process.getOutputStream();
+        in.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        in.flush();
+    }
+}
@@ -0,0 +1,106 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+/**
+ * Test the cache of static assets
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class AssetCacheTest {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("asset-cache-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path path : Files.newDirectoryStream(dir))
+            Files.delete(path);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testInvalidatedOnChange() throws IOException {
+
+        AssetCache cache = new AssetCache(1024 * 1024);
+        Path file = write("a.js", text("var a = 1;\n", 100), 1000);
+
+        AssetCache.Asset asset = cache.get(file);
+        Assert.assertSame(asset, cache.get(file));
+        Assert.assertNotNull(asset.getGzipped());
+        Assert.assertTrue(asset.getGzipped().length < asset.getContent().length);
+        Assert.assertNotEquals(asset.getEntityTag(null), asset.getEntityTag("gzip"));
+
+        write("a.js", text("var b = 2;\n", 100), 2000);
+
+        AssetCache.Asset changed = cache.get(file);
+        Assert.assertNotSame(asset, changed);
+        Assert.assertNotEquals(asset.getEntityTag(null), changed.getEntityTag(null));
+        Assert.assertEquals(text("var b = 2;\n", 100), new String(changed.getContent(), StandardCharsets.UTF_8));
+        Assert.assertEquals(changed.getBytes(), cache.getBytes());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws IOException {
+
+        AssetCache cache = new AssetCache(4000);
+        Path a = write("a.bin", random(900, 1), 1000);
+        Path b = write("b.bin", random(900, 2), 1000);
+        Path c = write("c.bin", random(900, 3), 1000);
+        Path d = write("d.bin", random(900, 4), 1000);
+        Path e = write("e.bin", random(900, 5), 1000);
+        Path large = write("large.bin", random(1500, 6), 1000);
+
+        AssetCache.Asset assetA = cache.get(a);
+        AssetCache.Asset assetB = cache.get(b);
+        cache.get(c);
+        cache.get(d);
+        Assert.assertNull(assetA.getGzipped());
+        Assert.assertSame(assetA, cache.get(a));
+
+        // b is the least recently used
+        cache.get(e);
+        Assert.assertTrue(cache.getBytes() <= 4000);
+        Assert.assertSame(assetA, cache.get(a));
+        Assert.assertNotSame(assetB, cache.get(b));
+
+        Assert.assertNull(cache.get(large));
+    }
+
+    private Path write(String name, String text, long lastModified) throws IOException {
+        return write(name, text.getBytes(StandardCharsets.UTF_8), lastModified);
+    }
+
+    private Path write(String name, byte[] content, long lastModified) throws IOException {
+        Path path = Files.write(dir.resolve(name), content);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(lastModified));
+        return path;
+    }
+
+    private static String text(String line, int count) {
+        char[] lines = new char[line.length() * count];
+        for (int i = 0; i < count; i++)
+            line.getChars(0, line.length(), lines, i * line.length());
+        return new String(lines);
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,73 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test the streams of Server-Sent Events
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class EventStreamTest {
+
+    @Test
+    public void testEventsInOrder() throws IOException {
+
+        EventStream events = new EventStream(8);
+        LiveBody body = (LiveBody) events.subscribe(-1);
+
+        Assert.assertFalse(body.isAvailable());
+        boolean[] notified = { false };
+        body.onAvailable(() -> notified[0] = true);
+
+        events.setInitialEvent("header", "{}");
+        events.publish("frame", "{\"n\":0}");
+        Assert.assertTrue(notified[0]);
+
+        Assert.assertEquals("event: header\ndata: {}\n\nid: 0\nevent: frame\ndata: {\"n\":0}\n\n", write(body, false));
+
+        events.publish("frame", "{\"n\":1}");
+        events.close();
+
+        Assert.assertEquals("id: 1\nevent: frame\ndata: {\"n\":1}\n\nevent: end\ndata: \n\n", write(body, true));
+    }
+
+    @Test
+    public void testSlowSubscriberSkipsDroppedEvents() throws IOException {
+
+        EventStream events = new EventStream(4);
+        events.setInitialEvent("header", "h");
+        ResponseBody slow = events.subscribe(-1);
+
+        for (int i = 0; i < 10; i++)
+            events.publish("frame", Integer.toString(i));
+        events.close();
+
+        Assert.assertEquals("event: header\ndata: h\n\n" +
+                "id: 6\nevent: frame\ndata: 6\n\n" +
+                "id: 7\nevent: frame\ndata: 7\n\n" +
+                "id: 8\nevent: frame\ndata: 8\n\n" +
+                "id: 9\nevent: frame\ndata: 9\n\n" +
+                "event: end\ndata: \n\n", write(slow, true));
+
+        // reconnecting after the last event received
+        Assert.assertEquals("event: header\ndata: h\n\nid: 9\nevent: frame\ndata: 9\n\nevent: end\ndata: \n\n",
+                write(events.subscribe(8), true));
+    }
+
+    private static String write(ResponseBody body, boolean ended) throws IOException {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(output);
+
+        Assert.assertEquals(ended, body.writeTo(channel));
+
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,228 @@
+package pt.up.fc.dcc.asura.builder.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test the non-blocking HTTP/1.1 server
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class HttpServerTest {
+
+    private HttpServer server;
+    private Thread thread;
+    private Path file;
+    private LiveContent live;
+    private DeferredResponse deferred;
+
+    @Before
+    public void start() throws IOException {
+
+        file = Files.createTempFile("http-server-test", ".txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            content.append(i).append('\n');
+        Files.write(file, content.toString().getBytes(StandardCharsets.US_ASCII));
+
+        live = new LiveContent();
+        deferred = new DeferredResponse();
+
+        server = new HttpServer(0, request -> {
+            HttpResponse response = new HttpResponse(200, "Ok");
+
+            switch (request.getPath()) {
+                case "/file":
+                    response.setBody(new FileBody(file));
+                    break;
+                case "/range":
+                    response.setBody(new FileBody(file, 10, 5));
+                    break;
+                case "/live":
+                    response.setBody(live.newBody());
+                    break;
+                case "/deferred":
+                    return deferred;
+                case "/chunked":
+                    response.setBody(new StreamBody(new ByteArrayInputStream(
+                            "chunked body".getBytes(StandardCharsets.US_ASCII)), -1));
+                    break;
+                default:
+                    response.setText("text/plain", request.getPath());
+            }
+
+            return response;
+        });
+
+        thread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+    }
+
+    @After
+    public void stop() throws Exception {
+        server.close();
+        thread.join(5000);
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testPipelinedRequests() throws IOException {
+
+        try (Socket socket = connect()) {
+            OutputStream output = socket.getOutputStream();
+            output.write(("GET /a HTTP/1.1\r\nHost: x\r\n\r\n" +
+                    "GET /b HTTP/1.1\r\nHost: x\r\n\r\n" +
+                    "HEAD /c HTTP/1.1\r\nHost: x\r\n\r\n" +
+                    "GET /d HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+
+            String responses = readAll(socket.getInputStream());
+
+            Assert.assertTrue(responses.indexOf("\r\n\r\n/a") < responses.indexOf("\r\n\r\n/b"));
+            Assert.assertTrue(responses.indexOf("\r\n\r\n/b") < responses.indexOf("\r\n\r\n/d"));
+            Assert.assertFalse(responses.contains("\r\n\r\n/c"));
+            Assert.assertEquals(4, count(responses, "HTTP/1.1 200 Ok"));
+            Assert.assertEquals(3, count(responses, "Connection: keep-alive"));
+            Assert.assertEquals(1, count(responses, "Connection: close"));
+        }
+    }
+
+    @Test
+    public void testSlowClientDoesNotBlock() throws IOException {
+
+        try (Socket slow = connect(); Socket fast = connect()) {
+            slow.getOutputStream().write("GET /slow HTTP/1.1\r\nHo".getBytes(StandardCharsets.US_ASCII));
+            slow.getOutputStream().flush();
+
+            fast.getOutputStream().write("GET /fast HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertTrue(readAll(fast.getInputStream()).endsWith("\r\n\r\n/fast"));
+
+            slow.getOutputStream().write("st: x\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertTrue(readAll(slow.getInputStream()).endsWith("\r\n\r\n/slow"));
+        }
+    }
+
+    @Test
+    public void testFileBody() throws IOException {
+
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("GET /range HTTP/1.1\r\n\r\n" +
+                    "GET /file HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            String responses = readAll(socket.getInputStream());
+            String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+
+            Assert.assertTrue(responses.contains("Content-Length: 5\r\nConnection: keep-alive\r\n\r\n" + content.substring(10, 15) + "HTTP/1.1"));
+            Assert.assertTrue(responses.endsWith("Content-Length: " + content.length() + "\r\n" +
+                    "Connection: close\r\n\r\n" + content));
+        }
+    }
+
+    @Test
+    public void testChunkedBody() throws IOException {
+
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /chunked HTTP/1.1\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            String response = readAll(socket.getInputStream());
+
+            Assert.assertTrue(response.contains("Transfer-Encoding: chunked\r\n"));
+            Assert.assertTrue(response.endsWith("\r\n\r\nc\r\nchunked body\r\n0\r\n\r\n"));
+        }
+    }
+
+    @Test
+    public void testLiveBody() throws IOException {
+
+        live.getOutputStream().write("first".getBytes(StandardCharsets.US_ASCII));
+
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /live HTTP/1.1\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            // the content written so far arrives before the rest is written
+            InputStream input = socket.getInputStream();
+            String expected = "\r\n\r\n5\r\nfirst\r\n";
+            StringBuilder received = new StringBuilder();
+            while (!received.toString().endsWith(expected))
+                received.append((char) input.read());
+            Assert.assertTrue(received.toString().contains("Transfer-Encoding: chunked\r\n"));
+
+            live.getOutputStream().write(" second".getBytes(StandardCharsets.US_ASCII));
+            live.getOutputStream().close();
+
+            Assert.assertEquals("7\r\n second\r\n0\r\n\r\n", readAll(input));
+        }
+
+        // once complete, the length is known
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /live HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertTrue(readAll(socket.getInputStream()).endsWith("Content-Length: 12\r\n" +
+                    "Connection: close\r\n\r\nfirst second"));
+        }
+    }
+
+    @Test
+    public void testDeferredResponse() throws IOException {
+
+        try (Socket waiting = connect(); Socket other = connect()) {
+            waiting.getOutputStream().write(("GET /deferred HTTP/1.1\r\n\r\n" +
+                    "GET /after HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            // other connections are served while the response is not complete
+            other.getOutputStream().write("GET /other HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertTrue(readAll(other.getInputStream()).endsWith("\r\n\r\n/other"));
+
+            HttpResponse response = new HttpResponse(200, "Ok");
+            response.setText("text/plain", "deferred");
+            new Thread(() -> deferred.complete(response)).start();
+
+            // pipelined requests are still answered in order
+            String responses = readAll(waiting.getInputStream());
+            Assert.assertTrue(responses.contains("\r\n\r\ndeferred"));
+            Assert.assertTrue(responses.indexOf("\r\n\r\ndeferred") < responses.indexOf("\r\n\r\n/after"));
+            Assert.assertTrue(responses.endsWith("\r\n\r\n/after"));
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static String readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = input.read(buffer)) != -1)
+            output.write(buffer, 0, count);
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1))
+            count++;
+        return count;
+    }
+}
@@ -0,0 +1,87 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.movie.models.GamePlayerStatus;
+
+import java.util.*;
+
+/**
+ * Test pairing schedules of tournaments
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class PairingScheduleTest {
+
+    private static final List<String> PLAYERS = Arrays.asList("a", "b", "c", "d", "e");
+
+    /**
+     * Result of a match won by the player that comes first alphabetically
+     */
+    private static MatchResult play(List<String> match) {
+
+        String winner = Collections.min(match);
+
+        Map<String, GamePlayerStatus> status = new HashMap<>();
+        for (String player : match) {
+            GamePlayerStatus playerStatus = new GamePlayerStatus();
+            playerStatus.setPoints(player.equals(winner) ? 100 : 0);
+            status.put(player, playerStatus);
+        }
+
+        return new MatchResult(match, status);
+    }
+
+    private static Standings runTournament(PairingSchedule schedule, List<List<String>> played) {
+
+        Standings standings = new Standings(PLAYERS);
+        List<MatchResult> previousRound = Collections.emptyList();
+
+        List<List<String>> matches;
+        while (!(matches = schedule.nextRound(PLAYERS, previousRound, standings)).isEmpty()) {
+            List<MatchResult> results = new ArrayList<>();
+            for (List<String> match : matches) {
+                MatchResult result = play(match);
+                standings.record(result);
+                results.add(result);
+                played.add(match);
+            }
+            previousRound = results;
+        }
+
+        return standings;
+    }
+
+    @Test
+    public void testRoundRobin() {
+
+        List<List<String>> played = new ArrayList<>();
+        Standings standings = runTournament(new RoundRobinSchedule(), played);
+
+        Assert.assertEquals(10, played.size());
+        Assert.assertEquals("a", standings.getRanking().get(0).getPlayer());
+        Assert.assertEquals(4, standings.getEntry("a").getWins());
+        Assert.assertEquals(4, standings.getEntry("e").getLosses());
+    }
+
+    @Test
+    public void testSwiss() {
+
+        List<List<String>> played = new ArrayList<>();
+        runTournament(new SwissSchedule(), played);
+
+        Assert.assertEquals(6, played.size());
+        Assert.assertEquals(played.size(), new HashSet<>(played).size());
+    }
+
+    @Test
+    public void testKnockout() {
+
+        KnockoutSchedule schedule = new KnockoutSchedule();
+        List<List<String>> played = new ArrayList<>();
+        runTournament(schedule, played);
+
+        Assert.assertEquals(4, played.size());
+        Assert.assertEquals("a", schedule.getChampion());
+    }
+}
@@ -0,0 +1,179 @@
+package pt.up.fc.dcc.asura.builder.tournament;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pt.up.fc.dcc.asura.builder.base.GameManager;
+import pt.up.fc.dcc.asura.builder.base.GameState;
+import pt.up.fc.dcc.asura.builder.base.messaging.PlayerAction;
+import pt.up.fc.dcc.asura.builder.base.messaging.StateUpdate;
+import pt.up.fc.dcc.asura.builder.base.movie.GameMovieBuilder;
+import pt.up.fc.dcc.asura.builder.base.movie.models.MooshakClassification;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Test tournaments with a stub game manager and idle player processes
+ *
+ * @author José Carlos Paiva <code>josepaiva94@gmail.com</code>
+ */
+public class TournamentRunnerTest {
+
+    private static final List<TournamentPlayer> PLAYERS = Arrays.asList(
+            new TournamentPlayer("a", "java", "A.java"),
+            new TournamentPlayer("b", "java", "B.java"),
+            new TournamentPlayer("crash", "java", "Crash.java"));
+
+    /**
+     * Game in which player "a" beats player "b" and player "crash" crashes
+     * the game manager
+     */
+    public static class StubManager extends GameManager {
+
+        @Override
+        public String getGameStateClassName() {
+            return StubState.class.getName();
+        }
+
+        @Override
+        protected void manage(GameState state, Map<String, Process> players) {
+
+            if (players.containsKey("crash"))
+                throw new IllegalStateException("Game manager crashed");
+
+            for (String player : players.keySet())
+                movieBuilder.addPlayer(player, player);
+
+            movieBuilder.addFrame();
+            for (String player : players.keySet()) {
+                movieBuilder.setPoints(player, player.equals("a") ? 1 : 0);
+                movieBuilder.setClassification(player, MooshakClassification.ACCEPTED);
+            }
+        }
+    }
+
+    /**
+     * State of the stub game, never used
+     */
+    public static class StubState implements GameState {
+
+        @Override
+        public void prepare(GameMovieBuilder movieBuilder, String title, Map<String, String> players) {
+        }
+
+        @Override
+        public void execute(GameMovieBuilder movieBuilder, String playerId, PlayerAction action) {
+        }
+
+        @Override
+        public StateUpdate getStateUpdateFor(String player) {
+            return null;
+        }
+
+        @Override
+        public void endRound(GameMovieBuilder movieBuilder) {
+        }
+
+        @Override
+        public boolean isRunning() {
+            return false;
+        }
+
+        @Override
+        public void finalize(GameMovieBuilder movieBuilder) {
+        }
+    }
+
+    @Test
+    public void testCrashedMatchRequiresReevaluation() throws InterruptedException {
+
+        Standings standings = newRunner(new RoundRobinSchedule(), 4).run();
+
+        // a vs b is played, whereas the matches of crash are recorded as failed
+        Standings.Entry a = standings.getEntry("a");
+        Assert.assertEquals(2, a.getMatches());
+        Assert.assertEquals(1, a.getWins());
+        Assert.assertEquals(1, a.getFailures());
+
+        Standings.Entry b = standings.getEntry("b");
+        Assert.assertEquals(2, b.getMatches());
+        Assert.assertEquals(0, b.getWins());
+        Assert.assertEquals(1, b.getFailures());
+
+        Assert.assertEquals(2, standings.getEntry("crash").getFailures());
+    }
+
+    @Test
+    public void testMatchWithTooManyProcesses() throws InterruptedException {
+
+        Standings standings = newRunner(new RoundRobinSchedule(3), 2).run();
+
+        for (TournamentPlayer player : PLAYERS) {
+            Assert.assertEquals(1, standings.getEntry(player.getId()).getMatches());
+            Assert.assertEquals(1, standings.getEntry(player.getId()).getFailures());
+        }
+    }
+
+    private static TournamentRunner newRunner(PairingSchedule schedule, int maxLiveProcesses) {
+
+        TournamentRunner runner = new TournamentRunner(StubManager.class, "stub", PLAYERS, schedule) {
+
+            @Override
+            Map<String, String> compileAll(ExecutorService executor, Standings standings) {
+
+                Map<String, String> outputPaths = new HashMap<>();
+                for (TournamentPlayer player : PLAYERS)
+                    outputPaths.put(player.getId(), player.getProgramPath());
+
+                return outputPaths;
+            }
+
+            @Override
+            Process startPlayer(String playerId) {
+                return new IdleProcess();
+            }
+        };
+        runner.setMaxLiveProcesses(maxLiveProcesses);
+
+        return runner;
+    }
+
+    /**
+     * Process of a player that does nothing
+     */
+    static class IdleProcess extends Process {
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}